@@ -1,11 +1,6 @@
 package mazelib.data;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
 
 /**
  * @author Timur Reziapov	<reziapo1@illinois.edu>
@@ -13,11 +8,8 @@ import java.util.PriorityQueue;
  */
 public class AStarAlgorithm extends MazeSolver {
 	
-	private PriorityQueue<Node> openNodes;
-	private Map<Node, Boolean> closedNodes;
-	
-	private static final long COST_STRAIGHT = 100l;
-	private static final long COST_DIAGONAL = 141l;
+	private final GridAStar search;
+	private final FrontierAStar frontierSearch;
 
 	/**
 	 * Constructor for AStarAgorithm Object.
@@ -26,6 +18,35 @@ public class AStarAlgorithm extends MazeSolver {
 	public AStarAlgorithm(Maze maze, Heuristic heuristic)
 	{
 		super(maze, heuristic);
+		this.search = new GridAStar(this.maze, heuristic);
+		this.frontierSearch = null;
+	}
+	
+	/**
+	 * Constructor for AStarAgorithm Object that searches with the moves and
+	 * costs of model. The Heuristic shouldn't overestimate those costs,
+	 * model.getHeuristic() never does.
+	 * @param maze the Maze to solve
+	 * @param model the moves solutions may make
+	 */
+	public AStarAlgorithm(Maze maze, Heuristic heuristic, MovementModel model)
+	{
+		super(maze, heuristic, model);
+		this.search = new GridAStar(this.maze, heuristic, model);
+		this.frontierSearch = null;
+	}
+	
+	/**
+	 * Constructor for a memory bounded AStarAgorithm Object, which keeps
+	 * only the search frontier and recovers the path by divide and conquer.
+	 * @param maze the Maze to solve
+	 * @param memoryBudget the most bytes of frontier state a search may hold
+	 */
+	public AStarAlgorithm(Maze maze, Heuristic heuristic, long memoryBudget)
+	{
+		super(maze, heuristic);
+		this.search = null;
+		this.frontierSearch = new FrontierAStar(this.maze, heuristic, memoryBudget);
 	}
 	
 	/**
@@ -35,165 +56,60 @@ public class AStarAlgorithm extends MazeSolver {
 	public AStarAlgorithm(String stringMaze, Heuristic heuristic)
 	{
 		super(stringMaze, heuristic);
+		this.search = new GridAStar(this.maze, heuristic);
+		this.frontierSearch = null;
 	}
 	
 	/**
 	 * The main function of the algorithm.
-	 * @return List of Nodes that represent the solution to this maze,
-	 * 		   null if there is no path from start Node to end Node
+	 * Open and closed sets, costs and parents come from the calling thread's
+	 * SearchArena, so later calls reuse them instead of allocating arrays
+	 * the size of the Maze. The solution and its List of Nodes are new on
+	 * every call.
+	 * @return List of Nodes from end Node back to start Node that represent 
+	 * 		   the solution to this maze,
+	 * 		   to the Node closest to end Node if the cancellation token stopped it,
+	 * 		   null if there is no path from start Node to end Node, or in
+	 * 		   memory bounded mode once the frontier outgrows the budget or
+	 * 		   the cancellation token stops it
 	 */
 	@Override
 	public List<Node> solveMaze() 
 	{
-		// Initialize Algorithm Data Structures
-		if (solutionNodes != null)
-		{
-			maze.resetNodes();
-		}
-		
-		openNodes = new PriorityQueue<Node>();
-		closedNodes  = new HashMap<Node, Boolean>();
-		solutionNodes = new HashMap<Node, Boolean>();
-		
-		Node startNode = this.maze.getStartNode();
-		Node endNode = this.maze.getEndNode();
-		Node currentNode = startNode;
-		
-		// Add starting Node to Open Nodes
-		addToOpenNodes(currentNode);
-		boolean failed = false;
-	
-		while (!isInClosedNodes(endNode) || openNodesIsEmpty())
-		{
-			// Get the smallest Total Cost Node in open Nodes, i.e. head of PQ
-			currentNode = openNodes.poll();
-			addToClosedNodes(currentNode);
-			
-			if (currentNode == null)
-			{
-				failed = true;
-				break;
-			}
-			
-			// Get all neighbors
-			List<Node> neighborNodes = currentNode.getAdjacentNodes(true);
-			for (Node neighborNode : neighborNodes)
-			{
-				// Check if neighbor is reachable 
-				if (!currentNode.canReach(neighborNode))
-				{
-					continue;
-				}
-				// Check if neighbor is in closed Nodes
-				if (isInClosedNodes(neighborNode))
-				{
-					continue;
-				}
-				
-				// Calculate G cost to neighbor
-				long cost = COST_STRAIGHT;
-				if (neighborNode.getPosition().isDiagonal(currentNode.getPosition()))
-				{
-					cost = COST_DIAGONAL;
-				}
-				
-				// If already in the open Nodes, remove returns true
-				if (removeFromOpenNodes(neighborNode))
-				{
-					// Check if this Node leads to a better path
-
-					long newAccumulated = currentNode.getAccumulatedCost() + cost;
-					if (newAccumulated >= neighborNode.getAccumulatedCost())
-					{
-						addToOpenNodes(neighborNode);
-						continue;
-					}
-				}
-
-				neighborNode.setParentNode(currentNode);
-				update(currentNode, neighborNode, cost);
-				addToOpenNodes(neighborNode);				
-			}
-		}
+		setSolution(null);
 		
-		if (failed)
-		{
-			return null;
-		}
-		// Make a list of solution Nodes
-		currentNode = endNode;
-		solution = new ArrayList<Node>();
+		Position start = this.maze.getStartNode().getPosition();
+		Position end = this.maze.getEndNode().getPosition();
 		
-		while (!currentNode.equals(startNode))
+		if (frontierSearch != null)
 		{
-			solution.add(currentNode);
-			solutionNodes.put(currentNode, true);
-			currentNode = currentNode.getParentNode();
+			return setSolution(frontierSearch.solve(start, end, cancellationToken));
 		}
-		solution.add(startNode);
-		
-		return solution;
+		return setSolution(search.solve(start, end, cancellationToken));
 	}
 	
 	/**
-	 * Helper function to update Node fields.
-	 * @param currentNode the Node starting from
-	 * @param neighborNode the Node getting to
-	 * @param cost the cost to move to neighbor from current Node
+	 * Solves the maze towards whichever of several exits is nearest to the
+	 * start Node, in a single search. Memory bounded mode has no such search.
+	 * @param ends the Positions that may be reached instead of the end Node
+	 * @return List of Nodes from the nearest of ends back to start Node,
+	 * 		   from the Node closest to an end if the cancellation token stopped it,
+	 * 		   null if none of ends can be reached
 	 */
-	private void update(Node currentNode, Node neighborNode, long cost)
+	public List<Node> solveNearest(List<Position> ends)
 	{
-		// Update costs
-		Node endNode = this.maze.getEndNode();
-		neighborNode.setAccumulatedCost(currentNode.getAccumulatedCost() + cost);
-		neighborNode.setEstimatedCost(heuristic.calculateDistance(neighborNode, endNode));
+		if (search == null)
+		{
+			throw new IllegalStateException("Memory bounded search has one end.");
+		}
+		setSolution(null);
 		
-		// Set parent node
-		neighborNode.setParentNode(currentNode);
-	}
-	
-	/**
-	 * @param node the Node to add to Open Nodes
-	 */
-	private void addToOpenNodes(Node node)
-	{
-		openNodes.add(node);
-	}
-	
-	/**
-	 * @param node the Mode to add to Closed Nodes
-	 */
-	private void addToClosedNodes(Node node)
-	{
-		closedNodes.put(node, true);
-	}
-	
-	/**
-	 * @param node the Node to remove from Open Nodes
-	 * @return true if node was removed,
-	 * 		   false if node is not in Open Nodes
-	 */
-	private boolean removeFromOpenNodes(Node node)
-	{
-		return openNodes.remove(node);
-	}
-	
-	/**
-	 * @return is Open Nodes data structure is empty
-	 */
-	private boolean openNodesIsEmpty()
-	{
-		return openNodes.isEmpty();
-	}
-	
-	/**
-	 * @param node the Node to check if it belongs to Closed Nodes
-	 * @return true if node is in Closed Nodes
-	 * 		   false if node is not in Closed Nodes
-	 */
-	private boolean isInClosedNodes(Node node)
-	{
-		return this.closedNodes.containsKey(node);
+		Position start = this.maze.getStartNode().getPosition();
+		SolutionPath path = search.solveNearest(start, ends, cancellationToken);
+		
+		// Reaching any of ends is a full solution, whichever the end Node is
+		boolean reached = (path != null) && ends.contains(new Position(path.getEndX(), path.getEndY()));
+		return setSolution(path, (path != null) && !reached);
 	}
 	
 }
@@ -0,0 +1,408 @@
+package mazelib.data;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Anytime Repairing A* (ARA*). The first search inflates the Heuristic by
+ * a weight, which finds a path quickly that is at most weight times longer
+ * than the shortest. Then the weight is lowered step by step and the search
+ * repaired rather than restarted: only cells whose cost went down since
+ * they were expanded are expanded again. Every better path is handed to
+ * the AnytimeListeners with its bound, until the weight reaches 1 and the
+ * path is shortest, or the CancellationToken stops it.
+ *
+ * Costs, parents and the open and closed sets live in a SearchArena kept
+ * per thread apart from the shared ones, so listeners may run other
+ * searches on the calling thread, just not another ARA*.
+ */
+public class AnytimeAStarAlgorithm extends MazeSolver {
+
+	// Weights are kept in hundredths so keys stay whole numbers
+	private static final int WEIGHT_SCALE = 100;
+
+	private static final ThreadLocal<SoftReference<SearchArena>> ARENAS =
+			new ThreadLocal<SoftReference<SearchArena>>();
+
+	private final List<AnytimeListener> listeners = new ArrayList<AnytimeListener>();
+	private double initialWeight = 3.0;
+	private double weightStep = 0.5;
+	private double bound = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Constructor for AnytimeAStarAlgorithm Object.
+	 * @param maze the Maze to solve
+	 */
+	public AnytimeAStarAlgorithm(Maze maze, Heuristic heuristic)
+	{
+		super(maze, heuristic);
+	}
+
+	/**
+	 * Constructor for AnytimeAStarAlgorithm Object.
+	 * @param stringMaze the string representation of the Maze to solve
+	 */
+	public AnytimeAStarAlgorithm(String stringMaze, Heuristic heuristic)
+	{
+		super(stringMaze, heuristic);
+	}
+
+	/**
+	 * The main function of the algorithm. Searches until the path is
+	 * shortest or the cancellation token stops it.
+	 * @return List of Nodes from end Node back to start Node that represent
+	 * 		   the best solution found in time,
+	 * 		   to the Node closest to end Node if none was found in time,
+	 * 		   null if there is no path
+	 */
+	@Override
+	public List<Node> solveMaze()
+	{
+		setSolution(null);
+
+		Position start = this.maze.getStartNode().getPosition();
+		Position end = this.maze.getEndNode().getPosition();
+
+		return setSolution(solve(start, end, cancellationToken));
+	}
+
+	/**
+	 * Finds better and better paths between two cells.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		  expansions, null to never stop
+	 * @return the best path found in time,
+	 * 		   the path to the expanded cell closest to end if none was found in time,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		int width = maze.getWidth();
+		int cellCount = width * maze.getHeight();
+		int startCell = start.getY() * width + start.getX();
+		int endCell = end.getY() * width + end.getX();
+		bound = Double.POSITIVE_INFINITY;
+
+		if (startCell == endCell)
+		{
+			SolutionPath path = new SolutionPath(start.getX(), start.getY(), new int[0]);
+			publish(path, 1.0);
+			return path;
+		}
+		if (MazeSolver.isUnreachable(maze, start.getX(), start.getY(), end.getX(), end.getY()))
+		{
+			return null;
+		}
+
+		Search search = new Search(maze.getPassabilityGrid(), getArena(cellCount), endCell);
+		search.arena.setCost(startCell, 0l, -1);
+		search.openCells.update(startCell, search.key(startCell));
+
+		SolutionPath best = null;
+		while (true)
+		{
+			boolean finished = search.improvePath(token);
+
+			if (search.arena.isSeen(endCell))
+			{
+				double improvedBound = finished ? search.getBound() : bound;
+				if (best == null || search.arena.getCost(endCell) < best.getCost() || improvedBound < bound)
+				{
+					// Parents only get cheaper, so a path built along them can cost
+					// less than the end and a later one more than it, keep the shorter
+					SolutionPath path = search.buildPath(startCell);
+					boolean shorter = (best == null || path.getCost() < best.getCost());
+					if (shorter)
+					{
+						best = path;
+					}
+					if (shorter || improvedBound < bound)
+					{
+						publish(best, improvedBound);
+					}
+				}
+			}
+
+			if (!finished && best == null)
+			{
+				return search.buildPath(startCell, search.closestCell);
+			}
+			if (!finished || search.weight == WEIGHT_SCALE)
+			{
+				return best;
+			}
+			search.lowerWeight((int) Math.round(weightStep * WEIGHT_SCALE));
+		}
+	}
+
+	/**
+	 * @return the calling thread's ARA* arena, reset and large enough for
+	 * 		   cellCount cells
+	 */
+	private static SearchArena getArena(int cellCount)
+	{
+		SoftReference<SearchArena> reference = ARENAS.get();
+		SearchArena arena = (reference == null) ? null : reference.get();
+		if (arena == null || arena.getCapacity() < cellCount)
+		{
+			arena = new SearchArena(cellCount);
+			ARENAS.set(new SoftReference<SearchArena>(arena));
+		}
+		arena.reset();
+		return arena;
+	}
+
+	/**
+	 * Hands a better path to every AnytimeListener.
+	 */
+	private void publish(SolutionPath path, double pathBound)
+	{
+		bound = pathBound;
+		for (AnytimeListener listener : new ArrayList<AnytimeListener>(listeners))
+		{
+			listener.pathImproved(path, pathBound);
+		}
+	}
+
+	/**
+	 * Search state kept across the repaired searches of one query.
+	 */
+	private class Search {
+
+		private final BitGrid grid;
+		private final int width;
+		private final int endCell;
+
+		private final SearchArena arena;
+		private final IndexedHeap openCells;
+
+		// Closed cells lowered in the same search wait in inconsistent, maybe more than once
+		private int[] inconsistent = new int[64];
+		private int inconsistentCount = 0;
+		private int weight;
+		private long expansions = 0l;
+		private int closestCell = -1;
+		private long closestDistance = Long.MAX_VALUE;
+
+		private Search(BitGrid grid, SearchArena arena, int endCell)
+		{
+			this.grid = grid;
+			this.width = grid.getWidth();
+			this.endCell = endCell;
+			this.arena = arena;
+			this.openCells = arena.getOpenCells();
+			this.weight = Math.max(WEIGHT_SCALE, (int) Math.round(initialWeight * WEIGHT_SCALE));
+		}
+
+		/**
+		 * @return the cost plus the inflated estimate of cell, scaled
+		 */
+		private long key(int cell)
+		{
+			return arena.getCost(cell) * WEIGHT_SCALE + weight * estimate(cell);
+		}
+
+		private long estimate(int cell)
+		{
+			return heuristic.estimate(cell % width, cell / width, endCell % width, endCell / width);
+		}
+
+		/**
+		 * Expands cells until no open key is below the cost of the end.
+		 * @return false if token stopped it first
+		 */
+		private boolean improvePath(CancellationToken token)
+		{
+			while (!openCells.isEmpty() &&
+				   (!arena.isSeen(endCell) || arena.getCost(endCell) * WEIGHT_SCALE > openCells.peekKey()))
+			{
+				if (token != null && ++expansions % CancellationToken.CHECK_INTERVAL == 0 &&
+					token.isCancelled())
+				{
+					return false;
+				}
+
+				int cell = openCells.poll();
+				arena.close(cell);
+				long cost = arena.getCost(cell);
+
+				long distance = estimate(cell);
+				if (distance < closestDistance)
+				{
+					closestDistance = distance;
+					closestCell = cell;
+				}
+
+				int x = cell % width;
+				int y = cell / width;
+				for (int direction = 0; direction < Direction.COUNT; direction++)
+				{
+					if (!grid.canMove(x, y, direction))
+					{
+						continue;
+					}
+
+					int neighbor = cell + Direction.getDY(direction) * width + Direction.getDX(direction);
+					long accumulated = cost + (Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT);
+					if (arena.isSeen(neighbor) && accumulated >= arena.getCost(neighbor))
+					{
+						continue;
+					}
+
+					arena.setCost(neighbor, accumulated, direction);
+					if (!arena.isClosed(neighbor))
+					{
+						openCells.update(neighbor, key(neighbor));
+					}
+					else
+					{
+						if (inconsistentCount == inconsistent.length)
+						{
+							inconsistent = Arrays.copyOf(inconsistent, inconsistentCount * 2);
+						}
+						inconsistent[inconsistentCount++] = neighbor;
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Lowers the weight, reopens the inconsistent cells and rekeys the
+		 * open ones for the next search.
+		 */
+		private void lowerWeight(int step)
+		{
+			weight = Math.max(WEIGHT_SCALE, weight - Math.max(1, step));
+			arena.reopenAll();
+
+			for (int i = 0; i < inconsistentCount; i++)
+			{
+				openCells.update(inconsistent[i], 0l);
+			}
+			inconsistentCount = 0;
+
+			int[] open = new int[openCells.size()];
+			for (int i = 0; i < open.length; i++)
+			{
+				open[i] = openCells.getItem(i);
+			}
+			for (int cell : open)
+			{
+				openCells.update(cell, key(cell));
+			}
+		}
+
+		/**
+		 * @return how many times longer than shortest the current path to
+		 * 		   the end can be, after a finished search
+		 */
+		private double getBound()
+		{
+			if (weight == WEIGHT_SCALE)
+			{
+				return 1.0;
+			}
+
+			// No path is shorter than the lowest uninflated f of any cell left
+			long lowest = Long.MAX_VALUE;
+			for (int i = 0; i < openCells.size(); i++)
+			{
+				int cell = openCells.getItem(i);
+				lowest = Math.min(lowest, arena.getCost(cell) + estimate(cell));
+			}
+			for (int i = 0; i < inconsistentCount; i++)
+			{
+				lowest = Math.min(lowest, arena.getCost(inconsistent[i]) + estimate(inconsistent[i]));
+			}
+
+			long endCost = arena.getCost(endCell);
+			double weightBound = (double) weight / WEIGHT_SCALE;
+			if (lowest == Long.MAX_VALUE || lowest >= endCost)
+			{
+				return 1.0;
+			}
+			return Math.min(weightBound, (double) endCost / lowest);
+		}
+
+		/**
+		 * @return the path from startCell to the end along the parents
+		 */
+		private SolutionPath buildPath(int startCell)
+		{
+			return buildPath(startCell, endCell);
+		}
+
+		/**
+		 * @return the path from startCell to toCell along the parents
+		 */
+		private SolutionPath buildPath(int startCell, int toCell)
+		{
+			return arena.buildPath(width, startCell, toCell);
+		}
+	}
+
+	/**
+	 * Adds an AnytimeListener to take every better path.
+	 */
+	public void addAnytimeListener(AnytimeListener listener)
+	{
+		if (listener == null)
+		{
+			throw new IllegalArgumentException("Null listener.");
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes an AnytimeListener.
+	 */
+	public void removeAnytimeListener(AnytimeListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @param initialWeight the weight of the Heuristic in the first search,
+	 * 		  at least 1.0
+	 */
+	public void setInitialWeight(double initialWeight)
+	{
+		if (initialWeight < 1.0)
+		{
+			throw new IllegalArgumentException("Weight below 1.");
+		}
+		this.initialWeight = initialWeight;
+	}
+
+	/**
+	 * @param weightStep how much the weight goes down after each search
+	 */
+	public void setWeightStep(double weightStep)
+	{
+		if (weightStep <= 0.0)
+		{
+			throw new IllegalArgumentException("Weight step must be positive.");
+		}
+		this.weightStep = weightStep;
+	}
+
+	/**
+	 * @return how many times longer than the shortest path the last
+	 * 		   solution can be, infinity if there is none or the time ran
+	 * 		   out before the first search finished
+	 */
+	public double getBound()
+	{
+		return bound;
+	}
+
+}
@@ -0,0 +1,18 @@
+package mazelib.data;
+
+/**
+ * Interface for objects that take the improving paths of an anytime
+ * solver as they are found, instead of waiting for the last one.
+ */
+public interface AnytimeListener {
+
+	/**
+	 * Called every time the solver finds a path better than the last one.
+	 * @param path the new path
+	 * @param bound how many times longer than the shortest path it can be,
+	 * 		  1.0 once it is known to be shortest, infinity if the time ran
+	 * 		  out before any bound was known
+	 */
+	void pathImproved(SolutionPath path, double bound);
+
+}
@@ -0,0 +1,161 @@
+package mazelib.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves many (start, end) queries on one shared Maze in parallel.
+ * Queries never touch the Maze's start and end Nodes, every worker thread
+ * searches with its own reusable SearchArena, so throughput scales with
+ * the number of cores.
+ */
+public class BatchSolver {
+
+	private static final int CHUNK_SIZE = 8;
+	private static ForkJoinPool defaultPool = null;
+
+	private final GridAStar solver;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructs a BatchSolver running on a pool with one thread per core.
+	 * @param maze the Maze to solve queries on
+	 * @param heuristic the Heuristic to guide each search
+	 */
+	public BatchSolver(Maze maze, Heuristic heuristic)
+	{
+		this(maze, heuristic, getDefaultPool());
+	}
+
+	/**
+	 * Constructs a BatchSolver running on the given pool.
+	 * @param maze the Maze to solve queries on
+	 * @param heuristic the Heuristic to guide each search
+	 * @param pool the pool to run queries on
+	 */
+	public BatchSolver(Maze maze, Heuristic heuristic, ForkJoinPool pool)
+	{
+		if (pool == null)
+		{
+			throw new IllegalArgumentException("Null pool.");
+		}
+
+		this.solver = new GridAStar(maze, heuristic);
+		this.pool = pool;
+
+		// Build the shared indexes up front instead of in the first queries
+		maze.getPassabilityGrid();
+		maze.getComponentLabels();
+	}
+
+	/**
+	 * Solves all queries.
+	 * @param queries the queries to solve
+	 * @return the paths in the same order as queries,
+	 * 		   null entries for queries without a path
+	 */
+	public List<SolutionPath> solveAll(List<PathQuery> queries)
+	{
+		final SolutionPath[] results = new SolutionPath[queries.size()];
+
+		solveAll(queries, new Listener()
+		{
+			@Override
+			public void solved(int index, PathQuery query, SolutionPath path)
+			{
+				results[index] = path;
+			}
+		});
+
+		return new ArrayList<SolutionPath>(Arrays.asList(results));
+	}
+
+	/**
+	 * Solves all queries, handing each result to listener as soon as it is
+	 * ready. Returns once every query has been solved.
+	 * @param queries the queries to solve
+	 * @param listener receives the results, from several threads at once
+	 */
+	public void solveAll(List<PathQuery> queries, Listener listener)
+	{
+		PathQuery[] array = queries.toArray(new PathQuery[queries.size()]);
+		pool.invoke(new SolveRange(array, listener, 0, array.length));
+	}
+
+	/**
+	 * @return the Maze queries are solved on
+	 */
+	public Maze getMaze()
+	{
+		return solver.getMaze();
+	}
+
+	/**
+	 * @return the pool shared by BatchSolvers constructed without one
+	 * 		   and by other parallel index builders
+	 */
+	static synchronized ForkJoinPool getDefaultPool()
+	{
+		if (defaultPool == null)
+		{
+			defaultPool = new ForkJoinPool();
+		}
+		return defaultPool;
+	}
+
+	/**
+	 * Receives batch results as they complete.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called once per query, possibly from several threads at once.
+		 * @param index the index of query in the batch
+		 * @param query the solved query
+		 * @param path the path found, null if there is none
+		 */
+		void solved(int index, PathQuery query, SolutionPath path);
+	}
+
+	/**
+	 * Splits a range of queries in halves until it is small enough to solve.
+	 */
+	private class SolveRange extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final PathQuery[] queries;
+		private final Listener listener;
+		private final int from, to;
+
+		private SolveRange(PathQuery[] queries, Listener listener, int from, int to)
+		{
+			this.queries = queries;
+			this.listener = listener;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= CHUNK_SIZE)
+			{
+				for (int i = from; i < to; i++)
+				{
+					PathQuery query = queries[i];
+					listener.solved(i, query, solver.solve(query.getStart(), query.getEnd()));
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new SolveRange(queries, listener, from, middle),
+					  new SolveRange(queries, listener, middle, to));
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+package mazelib.data;
+
+/**
+ * Bit-parallel 4-connected flood fill over a passability BitGrid.
+ * A row is filled 64 cells at a time: seeds are carried through runs of
+ * passable bits with a single addition per word, and rows hand their
+ * reached bits to the rows above and below with plain masks. Rows only
+ * get revisited while their neighbors keep changing.
+ */
+public class BitFloodFill {
+
+	/**
+	 * Not instantiable, all members are static.
+	 */
+	private BitFloodFill()
+	{
+	}
+
+	/**
+	 * Checks if end is reachable from start with straight moves.
+	 * Stops as soon as end is reached.
+	 * @param passable the passable cells
+	 * @return true if start and end are passable and connected,
+	 * 		   false otherwise
+	 */
+	public static boolean isReachable(BitGrid passable, int startX, int startY, int endX, int endY)
+	{
+		if (!passable.get(startX, startY) || !passable.get(endX, endY))
+		{
+			return false;
+		}
+		BitGrid reached = fill(passable, startX, startY, endX, endY);
+		return reached.get(endX, endY);
+	}
+
+	/**
+	 * Finds every cell reachable from start with straight moves.
+	 * @param passable the passable cells
+	 * @return BitGrid with bits set for reachable cells,
+	 * 		   empty if start is impassable
+	 */
+	public static BitGrid fill(BitGrid passable, int startX, int startY)
+	{
+		return fill(passable, startX, startY, -1, -1);
+	}
+
+	/**
+	 * Main flood fill loop, alternates downward and upward sweeps
+	 * until no row changes or the target cell is reached.
+	 * @param targetX x coordinate to stop at, -1 to fill everything
+	 */
+	private static BitGrid fill(BitGrid passable, int startX, int startY, int targetX, int targetY)
+	{
+		BitGrid reached = passable.emptyCopy();
+		if (!passable.get(startX, startY))
+		{
+			return reached;
+		}
+
+		int height = passable.getHeight();
+		int wordsPerRow = passable.getWordsPerRow();
+		long[] open = passable.getWords();
+		long[] seen = reached.getWords();
+
+		// Rows whose reached bits haven't been pushed down or up yet
+		boolean[] pendingDown = new boolean[height];
+		boolean[] pendingUp = new boolean[height];
+
+		reached.set(startX, startY, true);
+		fillRow(open, seen, startY * wordsPerRow, wordsPerRow);
+		pendingDown[startY] = true;
+		pendingUp[startY] = true;
+
+		int targetWord = (targetX < 0) ? -1 : targetY * wordsPerRow + (targetX >>> 6);
+		long targetBit = 1l << targetX;
+		boolean changed = true;
+
+		while (changed)
+		{
+			changed = false;
+
+			// Downward sweep
+			for (int y = 1; y < height; y++)
+			{
+				if (pendingDown[y - 1])
+				{
+					pendingDown[y - 1] = false;
+					if (pullRow(open, seen, (y - 1) * wordsPerRow, y * wordsPerRow, wordsPerRow))
+					{
+						pendingDown[y] = true;
+						pendingUp[y] = true;
+						changed = true;
+					}
+				}
+			}
+			pendingDown[height - 1] = false;
+			if (targetWord >= 0 && (seen[targetWord] & targetBit) != 0)
+			{
+				return reached;
+			}
+
+			// Upward sweep
+			for (int y = height - 2; y >= 0; y--)
+			{
+				if (pendingUp[y + 1])
+				{
+					pendingUp[y + 1] = false;
+					if (pullRow(open, seen, (y + 1) * wordsPerRow, y * wordsPerRow, wordsPerRow))
+					{
+						pendingDown[y] = true;
+						pendingUp[y] = true;
+						changed = true;
+					}
+				}
+			}
+			pendingUp[0] = false;
+			if (targetWord >= 0 && (seen[targetWord] & targetBit) != 0)
+			{
+				return reached;
+			}
+		}
+
+		return reached;
+	}
+
+	/**
+	 * Seeds a row from the reached bits of a neighboring row and fills it.
+	 * @param from the first word of the neighboring row
+	 * @param to the first word of the row to fill
+	 * @return true if any new cell of the row was reached
+	 */
+	private static boolean pullRow(long[] open, long[] seen, int from, int to, int wordsPerRow)
+	{
+		boolean seeded = false;
+		for (int word = 0; word < wordsPerRow; word++)
+		{
+			long seeds = seen[from + word] & open[to + word] & ~seen[to + word];
+			if (seeds != 0)
+			{
+				seen[to + word] |= seeds;
+				seeded = true;
+			}
+		}
+		if (seeded)
+		{
+			fillRow(open, seen, to, wordsPerRow);
+		}
+		return seeded;
+	}
+
+	/**
+	 * Spreads the reached bits of a row through its runs of passable bits,
+	 * once towards higher columns and once towards lower columns.
+	 * @param base the first word of the row
+	 */
+	private static void fillRow(long[] open, long[] seen, int base, int wordsPerRow)
+	{
+		long carry = 0l;
+		for (int word = 0; word < wordsPerRow; word++)
+		{
+			long filled = spread(open[base + word], seen[base + word] | carry);
+			seen[base + word] = filled;
+			carry = filled >>> 63;
+		}
+
+		carry = 0l;
+		for (int word = wordsPerRow - 1; word >= 0; word--)
+		{
+			long filled = Long.reverse(spread(Long.reverse(open[base + word]),
+											  Long.reverse(seen[base + word]) | carry));
+			seen[base + word] = filled;
+			carry = filled & 1l;
+		}
+	}
+
+	/**
+	 * Fills every run of passable bits from its lowest seed upwards.
+	 * Adding the seeds to the runs carries through the run and clears it,
+	 * so the bits that flipped are exactly the filled ones.
+	 * @param open the passable bits
+	 * @param seeds the reached bits, masked to passable ones here
+	 * @return the seeds plus every passable bit above them in their runs
+	 */
+	private static long spread(long open, long seeds)
+	{
+		seeds &= open;
+		return seeds | (((open + seeds) ^ open) & open);
+	}
+
+}
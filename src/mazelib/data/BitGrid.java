@@ -0,0 +1,227 @@
+package mazelib.data;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A grid of bits packed 64 cells to a long, one row after another.
+ * Every row starts on a new long, so bit x of row y is bit (x % 64) of
+ * word (y * getWordsPerRow() + x / 64). Bits past the width stay clear.
+ */
+public class BitGrid {
+
+	private final int width, height;
+	private final int wordsPerRow;
+	private final long[] words;
+
+	/**
+	 * Constructs a BitGrid with all bits clear.
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 */
+	public BitGrid(int width, int height)
+	{
+		if (width < 1 || height < 1)
+		{
+			throw new IllegalArgumentException("Dimensions are too small.");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = (width + 63) >>> 6;
+		this.words = new long[wordsPerRow * height];
+	}
+
+	/**
+	 * Packs the passability of every Node of maze.
+	 * @param maze the Maze to pack
+	 * @return BitGrid with bits set for passable Nodes
+	 */
+	public static BitGrid fromMaze(Maze maze)
+	{
+		BitGrid grid = new BitGrid(maze.getWidth(), maze.getHeight());
+
+		for (int y = 0; y < grid.height; y++)
+		{
+			for (int x = 0; x < grid.width; x++)
+			{
+				if (maze.getNode(x, y).getIsPassable())
+				{
+					grid.set(x, y, true);
+				}
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Packs the passability of every pixel of image straight away,
+	 * without building a Maze. Uses the same colors as the Maze image constructor.
+	 * @param image the maze image
+	 * @return BitGrid with bits set for passable pixels
+	 */
+	public static BitGrid fromImage(BufferedImage image)
+	{
+		BitGrid grid = new BitGrid(image.getWidth(), image.getHeight());
+		int[] row = new int[grid.width];
+
+		for (int y = 0; y < grid.height; y++)
+		{
+			image.getRGB(0, y, grid.width, 1, row, 0, grid.width);
+			grid.setRow(y, row);
+		}
+		return grid;
+	}
+
+	/**
+	 * Sets the bits of row y from a row of image pixels.
+	 * @param y the row to set
+	 * @param rgbRow the pixel colors of the row in default RGB format
+	 */
+	public void setRow(int y, int[] rgbRow)
+	{
+		int base = y * wordsPerRow;
+		for (int word = 0; word < wordsPerRow; word++)
+		{
+			long bits = 0l;
+			int end = Math.min(64, width - (word << 6));
+			for (int bit = 0; bit < end; bit++)
+			{
+				if (Maze.isPassableColor(rgbRow[(word << 6) + bit]))
+				{
+					bits |= 1l << bit;
+				}
+			}
+			words[base + word] = bits;
+		}
+	}
+
+	/**
+	 * @return true if the bit at x and y is set
+	 */
+	public boolean get(int x, int y)
+	{
+		return (words[y * wordsPerRow + (x >>> 6)] & (1l << x)) != 0;
+	}
+
+	/**
+	 * Sets or clears the bit at x and y.
+	 */
+	public void set(int x, int y, boolean value)
+	{
+		int index = y * wordsPerRow + (x >>> 6);
+		if (value)
+		{
+			words[index] |= 1l << x;
+		}
+		else
+		{
+			words[index] &= ~(1l << x);
+		}
+	}
+
+	/**
+	 * Checks if a single step from x and y in direction is allowed under
+	 * MovementModel.EIGHT_CONNECTED, the same rules as Node.canReach(): the
+	 * target must be set, and a diagonal step also needs both straight
+	 * cells around it set. Spelled out rather than asking the model, since
+	 * most engines call it for every neighbor they look at.
+	 * @param direction the Direction code of the step
+	 * @return true if the step stays in bounds and is allowed
+	 */
+	public boolean canMove(int x, int y, int direction)
+	{
+		int dx = Direction.getDX(direction);
+		int dy = Direction.getDY(direction);
+		int toX = x + dx;
+		int toY = y + dy;
+
+		if (toX < 0 || toX >= width || toY < 0 || toY >= height || !get(toX, toY))
+		{
+			return false;
+		}
+		return dx == 0 || dy == 0 || (get(toX, y) && get(x, toY));
+	}
+
+	/**
+	 * @param y the row of the word
+	 * @param word the index of the word within the row
+	 * @return 64 bits of row y starting at column word * 64
+	 */
+	public long getWord(int y, int word)
+	{
+		return words[y * wordsPerRow + word];
+	}
+
+	/**
+	 * Overwrites 64 bits of row y starting at column word * 64.
+	 * Caller must keep bits past the width clear.
+	 */
+	public void setWord(int y, int word, long bits)
+	{
+		words[y * wordsPerRow + word] = bits;
+	}
+
+	/**
+	 * @return the backing array, for bulk operations within the package
+	 */
+	long[] getWords()
+	{
+		return words;
+	}
+
+	/**
+	 * @return the number of set bits
+	 */
+	public long count()
+	{
+		long count = 0l;
+		for (long word : words)
+		{
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * @return a BitGrid of the same size with the same bits set
+	 */
+	public BitGrid copy()
+	{
+		BitGrid grid = new BitGrid(width, height);
+		System.arraycopy(words, 0, grid.words, 0, words.length);
+		return grid;
+	}
+
+	/**
+	 * @return a BitGrid of the same size with all bits clear
+	 */
+	public BitGrid emptyCopy()
+	{
+		return new BitGrid(width, height);
+	}
+
+	/**
+	 * @return width of this BitGrid
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return height of this BitGrid
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * @return number of longs that hold one row
+	 */
+	public int getWordsPerRow()
+	{
+		return wordsPerRow;
+	}
+
+}
@@ -0,0 +1,540 @@
+package mazelib.data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Level synchronous breadth first search for mazes of uniform straight
+ * moves, such as generated ones. Wide levels are kept as bitsets laid out
+ * like BitGrid, so one long holds 64 cells, and grown a word at a time: a
+ * word of the next level is its passable, unvisited cells that have a
+ * frontier cell beside them, found with a few shifts. Only the words next
+ * to the frontier are computed, and each is written by one task, so large
+ * levels are split over the pool without any locking. The corridors of
+ * generated mazes keep levels to a handful of cells, which are grown one
+ * cell at a time from a list instead, switching whenever the width of the
+ * frontier crosses SPARSE_CELLS.
+ *
+ * Moves go in the four straight directions only. The path has the fewest
+ * steps, which is also the shortest one when there is no open 2x2 square to
+ * cut across. The direction each cell was entered by is kept in two bits.
+ */
+public class BreadthFirstAlgorithm extends MazeSolver {
+
+	// Levels with fewer words are grown by the calling thread
+	private static final int WORDS_PER_TASK = 256;
+
+	// Levels with at most this many cells are grown from a list of cells
+	private static final int SPARSE_CELLS = 256;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor for BreadthFirstAlgorithm Object, growing large levels on
+	 * the pool shared with BatchSolver.
+	 * @param maze the Maze to solve
+	 * @param heuristic not used, breadth first search needs no estimate
+	 */
+	public BreadthFirstAlgorithm(Maze maze, Heuristic heuristic)
+	{
+		this(maze, heuristic, BatchSolver.getDefaultPool());
+	}
+
+	/**
+	 * Constructor for BreadthFirstAlgorithm Object.
+	 * @param maze the Maze to solve
+	 * @param heuristic not used, breadth first search needs no estimate
+	 * @param pool the pool to grow large levels on
+	 */
+	public BreadthFirstAlgorithm(Maze maze, Heuristic heuristic, ForkJoinPool pool)
+	{
+		super(maze, heuristic);
+
+		if (pool == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * Constructor for BreadthFirstAlgorithm Object.
+	 * @param stringMaze the string representation of the Maze to solve
+	 */
+	public BreadthFirstAlgorithm(String stringMaze, Heuristic heuristic)
+	{
+		super(stringMaze, heuristic);
+		this.pool = BatchSolver.getDefaultPool();
+	}
+
+	/**
+	 * The main function of the algorithm.
+	 * @return List of Nodes from end Node back to start Node that represent
+	 * 		   the solution to this maze,
+	 * 		   null if there is no path from start Node to end Node or the
+	 * 		   cancellation token stopped the search
+	 */
+	@Override
+	public List<Node> solveMaze()
+	{
+		setSolution(null);
+
+		Position start = this.maze.getStartNode().getPosition();
+		Position end = this.maze.getEndNode().getPosition();
+
+		return setSolution(solve(start, end, cancellationToken));
+	}
+
+	/**
+	 * Finds a path with the fewest straight moves between two cells.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token checked every CancellationToken.CHECK_INTERVAL levels,
+	 * 		  null to never stop
+	 * @return the path from start to end,
+	 * 		   null if there is none or token stopped the search
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		if (start.equals(end))
+		{
+			return new SolutionPath(start.getX(), start.getY(), new int[0]);
+		}
+		if (MazeSolver.isUnreachable(maze, start.getX(), start.getY(), end.getX(), end.getY()))
+		{
+			return null;
+		}
+
+		Search search = new Search(maze.getPassabilityGrid());
+		int width = maze.getWidth();
+		int endWord = search.wordOf(end.getX(), end.getY());
+		long endBit = 1l << end.getX();
+
+		search.begin(start.getX(), start.getY());
+		for (int level = 1; (search.visited[endWord] & endBit) == 0; level++)
+		{
+			if (search.isEmpty())
+			{
+				return null;
+			}
+			if (token != null && level % CancellationToken.CHECK_INTERVAL == 0 && token.isCancelled())
+			{
+				return null;
+			}
+			search.grow();
+		}
+
+		return search.buildPath(start.getY() * width + start.getX(), end.getY() * width + end.getX());
+	}
+
+	/**
+	 * Bitsets and parent directions of one query.
+	 */
+	private class Search {
+
+		private final BitGrid grid;
+		private final int width, height;
+		private final int wordsPerRow;
+
+		private final long[] visited;
+		private long[] frontier;
+		private long[] next;
+
+		// Two bits per cell, the straight direction it was entered by over two
+		private final long[] parents;
+
+		// Cells of a sparse frontier
+		private int[] cells = new int[64];
+		private int cellCount = 0;
+		private int[] nextCells = new int[64];
+		private int nextCount = 0;
+
+		// Words holding the cells of a dense frontier, and the words next to them
+		private boolean dense = false;
+		private int[] frontierWords = new int[64];
+		private int frontierCount = 0;
+		private int[] targetWords = new int[64];
+		private int targetCount = 0;
+		private final int[] targetLevel;
+		private int level = 0;
+
+		private Search(BitGrid grid)
+		{
+			this.grid = grid;
+			this.width = grid.getWidth();
+			this.height = grid.getHeight();
+			this.wordsPerRow = grid.getWordsPerRow();
+
+			int wordCount = wordsPerRow * height;
+			this.visited = new long[wordCount];
+			this.frontier = new long[wordCount];
+			this.next = new long[wordCount];
+			this.parents = new long[wordCount * 2];
+			this.targetLevel = new int[wordCount];
+			Arrays.fill(targetLevel, -1);
+		}
+
+		private int wordOf(int x, int y)
+		{
+			return y * wordsPerRow + (x >>> 6);
+		}
+
+		/**
+		 * Makes the start cell the only one of the first level.
+		 */
+		private void begin(int x, int y)
+		{
+			visited[wordOf(x, y)] = 1l << x;
+			cells[cellCount++] = y * width + x;
+		}
+
+		/**
+		 * @return true if the frontier has no cells
+		 */
+		private boolean isEmpty()
+		{
+			return dense ? frontierCount == 0 : cellCount == 0;
+		}
+
+		/**
+		 * Replaces the frontier with the next level, switching between a
+		 * sparse and a dense frontier when its width calls for it.
+		 */
+		private void grow()
+		{
+			level++;
+			if (dense)
+			{
+				growDense();
+
+				long frontierCells = 0l;
+				for (int i = 0; i < frontierCount && frontierCells <= SPARSE_CELLS; i++)
+				{
+					frontierCells += Long.bitCount(frontier[frontierWords[i]]);
+				}
+				if (frontierCells <= SPARSE_CELLS)
+				{
+					toSparse();
+				}
+			}
+			else
+			{
+				growSparse();
+				if (cellCount > SPARSE_CELLS)
+				{
+					toDense();
+				}
+			}
+		}
+
+		/**
+		 * Grows the sparse frontier one cell at a time.
+		 */
+		private void growSparse()
+		{
+			nextCount = 0;
+			for (int i = 0; i < cellCount; i++)
+			{
+				int cell = cells[i];
+				int x = cell % width;
+				int y = cell / width;
+
+				if (y > 0)
+				{
+					reach(x, y - 1, Direction.NORTH);
+				}
+				if (x < width - 1)
+				{
+					reach(x + 1, y, Direction.EAST);
+				}
+				if (y < height - 1)
+				{
+					reach(x, y + 1, Direction.SOUTH);
+				}
+				if (x > 0)
+				{
+					reach(x - 1, y, Direction.WEST);
+				}
+			}
+
+			int[] swap = cells;
+			cells = nextCells;
+			nextCells = swap;
+			cellCount = nextCount;
+		}
+
+		/**
+		 * Adds the cell at x, y to the next sparse level if it is passable
+		 * and unvisited, entered by direction.
+		 */
+		private void reach(int x, int y, int direction)
+		{
+			int word = wordOf(x, y);
+			long bit = 1l << x;
+			if ((visited[word] & bit) != 0l || !grid.get(x, y))
+			{
+				return;
+			}
+
+			visited[word] |= bit;
+			setParents(word, bit, direction);
+			if (nextCount == nextCells.length)
+			{
+				nextCells = Arrays.copyOf(nextCells, nextCount * 2);
+			}
+			nextCells[nextCount++] = y * width + x;
+		}
+
+		/**
+		 * Moves the cells of the sparse frontier into the frontier bitset.
+		 */
+		private void toDense()
+		{
+			frontierCount = 0;
+			for (int i = 0; i < cellCount; i++)
+			{
+				int x = cells[i] % width;
+				int word = wordOf(x, cells[i] / width);
+				if (frontier[word] == 0l)
+				{
+					if (frontierCount == frontierWords.length)
+					{
+						frontierWords = Arrays.copyOf(frontierWords, frontierCount * 2);
+					}
+					frontierWords[frontierCount++] = word;
+				}
+				frontier[word] |= 1l << x;
+			}
+			cellCount = 0;
+			dense = true;
+		}
+
+		/**
+		 * Moves the cells of the frontier bitset into the sparse frontier.
+		 */
+		private void toSparse()
+		{
+			cellCount = 0;
+			for (int i = 0; i < frontierCount; i++)
+			{
+				int word = frontierWords[i];
+				int base = (word / wordsPerRow) * width + (word % wordsPerRow) * 64;
+				for (long bits = frontier[word]; bits != 0l; bits &= bits - 1)
+				{
+					if (cellCount == cells.length)
+					{
+						cells = Arrays.copyOf(cells, cellCount * 2);
+					}
+					cells[cellCount++] = base + Long.numberOfTrailingZeros(bits);
+				}
+				frontier[word] = 0l;
+			}
+			frontierCount = 0;
+			dense = false;
+		}
+
+		/**
+		 * Grows the frontier bitset a word at a time.
+		 */
+		private void growDense()
+		{
+			targetCount = 0;
+			for (int i = 0; i < frontierCount; i++)
+			{
+				int word = frontierWords[i];
+				long bits = frontier[word];
+				int column = word % wordsPerRow;
+
+				addTarget(word);
+				if (column > 0 && (bits & 1l) != 0)
+				{
+					addTarget(word - 1);
+				}
+				if (column < wordsPerRow - 1 && (bits >>> 63) != 0)
+				{
+					addTarget(word + 1);
+				}
+				if (word >= wordsPerRow)
+				{
+					addTarget(word - wordsPerRow);
+				}
+				if (word < wordsPerRow * (height - 1))
+				{
+					addTarget(word + wordsPerRow);
+				}
+			}
+
+			if (targetCount <= WORDS_PER_TASK)
+			{
+				growWords(0, targetCount);
+			}
+			else
+			{
+				pool.invoke(new GrowWords(0, targetCount));
+			}
+
+			for (int i = 0; i < frontierCount; i++)
+			{
+				frontier[frontierWords[i]] = 0l;
+			}
+			long[] swap = frontier;
+			frontier = next;
+			next = swap;
+
+			// The next frontier is every target word that got cells
+			frontierCount = 0;
+			if (frontierWords.length < targetCount)
+			{
+				frontierWords = new int[targetWords.length];
+			}
+			for (int i = 0; i < targetCount; i++)
+			{
+				if (frontier[targetWords[i]] != 0l)
+				{
+					frontierWords[frontierCount++] = targetWords[i];
+				}
+			}
+		}
+
+		private void addTarget(int word)
+		{
+			if (targetLevel[word] == level)
+			{
+				return;
+			}
+			targetLevel[word] = level;
+
+			if (targetCount == targetWords.length)
+			{
+				targetWords = Arrays.copyOf(targetWords, targetCount * 2);
+			}
+			targetWords[targetCount++] = word;
+		}
+
+		/**
+		 * Computes the next level of the target words from index from to
+		 * index to, writing nothing but those words.
+		 */
+		private void growWords(int from, int to)
+		{
+			for (int i = from; i < to; i++)
+			{
+				int word = targetWords[i];
+				int row = word / wordsPerRow;
+				int column = word % wordsPerRow;
+
+				long fromWest = frontier[word] << 1;
+				long fromEast = frontier[word] >>> 1;
+				if (column > 0)
+				{
+					fromWest |= frontier[word - 1] >>> 63;
+				}
+				if (column < wordsPerRow - 1)
+				{
+					fromEast |= frontier[word + 1] << 63;
+				}
+				long fromNorth = (row > 0) ? frontier[word - wordsPerRow] : 0l;
+				long fromSouth = (row < height - 1) ? frontier[word + wordsPerRow] : 0l;
+
+				long reached = (fromWest | fromEast | fromNorth | fromSouth) &
+							   grid.getWord(row, column) & ~visited[word];
+				if (reached == 0l)
+				{
+					continue;
+				}
+				visited[word] |= reached;
+				next[word] = reached;
+
+				// Entering from the south is moving north, the code left at zero
+				long east = reached & fromWest;
+				long west = reached & fromEast & ~east;
+				long south = reached & fromNorth & ~east & ~west;
+				setParents(word, east, Direction.EAST);
+				setParents(word, west, Direction.WEST);
+				setParents(word, south, Direction.SOUTH);
+			}
+		}
+
+		/**
+		 * Records direction as the parent of every cell of bits in word.
+		 */
+		private void setParents(int word, long bits, int direction)
+		{
+			long code = direction >>> 1;
+			while (bits != 0l)
+			{
+				int bit = Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				parents[word * 2 + (bit >>> 5)] |= code << ((bit & 31) * 2);
+			}
+		}
+
+		private int getParent(int cell)
+		{
+			int x = cell % width;
+			int word = wordOf(x, cell / width);
+			int bit = x & 63;
+			return (int) ((parents[word * 2 + (bit >>> 5)] >>> ((bit & 31) * 2)) & 3l) << 1;
+		}
+
+		/**
+		 * @return the path from startCell to endCell along the parents
+		 */
+		private SolutionPath buildPath(int startCell, int endCell)
+		{
+			int length = 0;
+			for (int cell = endCell; cell != startCell; length++)
+			{
+				int direction = getParent(cell);
+				cell -= Direction.getDY(direction) * width + Direction.getDX(direction);
+			}
+
+			int[] directions = new int[length];
+			for (int cell = endCell; cell != startCell; )
+			{
+				int direction = getParent(cell);
+				directions[--length] = direction;
+				cell -= Direction.getDY(direction) * width + Direction.getDX(direction);
+			}
+			return new SolutionPath(startCell % width, startCell / width, directions);
+		}
+
+		/**
+		 * Grows a range of target words, split in halves down to
+		 * WORDS_PER_TASK words.
+		 */
+		private class GrowWords extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int from, to;
+
+			private GrowWords(int from, int to)
+			{
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			protected void compute()
+			{
+				if (to - from <= WORDS_PER_TASK)
+				{
+					growWords(from, to);
+					return;
+				}
+
+				int middle = (from + to) >>> 1;
+				invokeAll(new GrowWords(from, middle), new GrowWords(middle, to));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package mazelib.data;
+
+/**
+ * Lets the caller of a search stop it, by hand from any thread or at a
+ * deadline. Searches check it once every CHECK_INTERVAL expansions, so the
+ * check costs next to nothing, and hand back the best they got so far.
+ */
+public class CancellationToken {
+
+	/** Number of expansions searches make between checks. */
+	public static final int CHECK_INTERVAL = 1024;
+
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final long deadline;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Constructs a CancellationToken without a deadline, stopped only by
+	 * cancel().
+	 */
+	public CancellationToken()
+	{
+		this(NO_DEADLINE);
+	}
+
+	private CancellationToken(long deadline)
+	{
+		this.deadline = deadline;
+	}
+
+	/**
+	 * @param timeLimit the milliseconds from now until the deadline
+	 * @return a CancellationToken that cancels itself after timeLimit
+	 */
+	public static CancellationToken withTimeout(long timeLimit)
+	{
+		if (timeLimit < 0)
+		{
+			throw new IllegalArgumentException("Negative time limit.");
+		}
+		return new CancellationToken(System.nanoTime() + timeLimit * 1000000l);
+	}
+
+	/**
+	 * @param deadline the System.nanoTime() to cancel at
+	 * @return a CancellationToken that cancels itself at deadline
+	 */
+	public static CancellationToken withDeadline(long deadline)
+	{
+		return new CancellationToken(deadline);
+	}
+
+	/**
+	 * Stops every search checking this token at its next check.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * @return true if cancel() was called or the deadline has passed
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled || (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0);
+	}
+
+	/**
+	 * @return true if the token has a deadline
+	 */
+	public boolean hasDeadline()
+	{
+		return deadline != NO_DEADLINE;
+	}
+
+}
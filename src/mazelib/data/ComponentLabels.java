@@ -0,0 +1,181 @@
+package mazelib.data;
+
+/**
+ * Connected component index of a Maze. Every passable cell gets the
+ * label of its 4-connected component, so reachability between any two
+ * cells is a single label comparison. Labels are computed once with the
+ * classic two-pass union-find algorithm.
+ * @note 4-connectivity gives the same components as the solvers' diagonal
+ * 		 moves, because a diagonal move needs both straight cells passable
+ */
+public class ComponentLabels {
+
+	public static final int WALL = 0;
+
+	private final int width, height;
+	private final int[] labels;
+	private final int componentCount;
+
+	/**
+	 * Labels all passable cells of maze.
+	 * @param maze the Maze to label
+	 */
+	public ComponentLabels(Maze maze)
+	{
+		if (maze == null)
+		{
+			throw new IllegalArgumentException("Null maze.");
+		}
+
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+		this.labels = new int[width * height];
+
+		// First pass: provisional labels, merged with the left and upper cells
+		int[] parents = new int[width * height / 2 + 2];
+		int nextLabel = 1;
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				if (!maze.getNode(x, y).getIsPassable())
+				{
+					continue;
+				}
+
+				int cell = y * width + x;
+				int left = (x > 0) ? labels[cell - 1] : WALL;
+				int up = (y > 0) ? labels[cell - width] : WALL;
+
+				if (left == WALL && up == WALL)
+				{
+					if (nextLabel == parents.length)
+					{
+						parents = grow(parents);
+					}
+					parents[nextLabel] = nextLabel;
+					labels[cell] = nextLabel++;
+				}
+				else if (left == WALL)
+				{
+					labels[cell] = up;
+				}
+				else
+				{
+					labels[cell] = left;
+					if (up != WALL)
+					{
+						union(parents, left, up);
+					}
+				}
+			}
+		}
+
+		// Second pass: replace provisional labels with compact root labels
+		int[] compact = new int[nextLabel];
+		int count = 0;
+		for (int cell = 0; cell < labels.length; cell++)
+		{
+			if (labels[cell] == WALL)
+			{
+				continue;
+			}
+			int root = find(parents, labels[cell]);
+			if (compact[root] == 0)
+			{
+				compact[root] = ++count;
+			}
+			labels[cell] = compact[root];
+		}
+
+		this.componentCount = count;
+	}
+
+	/**
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @return the component label of the cell,
+	 * 		   WALL if the cell is impassable
+	 */
+	public int getLabel(int x, int y)
+	{
+		return labels[y * width + x];
+	}
+
+	/**
+	 * Checks if two cells are reachable from each other.
+	 * @return true if both cells are passable and in the same component,
+	 * 		   false otherwise
+	 */
+	public boolean isConnected(int fromX, int fromY, int toX, int toY)
+	{
+		int label = getLabel(fromX, fromY);
+		return label != WALL && label == getLabel(toX, toY);
+	}
+
+	/**
+	 * @return the number of connected components of passable cells
+	 */
+	public int getComponentCount()
+	{
+		return componentCount;
+	}
+
+	/**
+	 * @return width of the labeled Maze
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return height of the labeled Maze
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * Finds the root of label, halving the path on the way.
+	 */
+	private static int find(int[] parents, int label)
+	{
+		while (parents[label] != label)
+		{
+			parents[label] = parents[parents[label]];
+			label = parents[label];
+		}
+		return label;
+	}
+
+	/**
+	 * Merges the sets of two labels, the smaller root wins.
+	 */
+	private static void union(int[] parents, int first, int second)
+	{
+		int firstRoot = find(parents, first);
+		int secondRoot = find(parents, second);
+		if (firstRoot < secondRoot)
+		{
+			parents[secondRoot] = firstRoot;
+		}
+		else if (secondRoot < firstRoot)
+		{
+			parents[firstRoot] = secondRoot;
+		}
+	}
+
+	/**
+	 * @return a copy of array with twice the length
+	 */
+	private static int[] grow(int[] array)
+	{
+		int[] result = new int[array.length * 2];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+}
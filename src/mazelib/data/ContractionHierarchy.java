@@ -0,0 +1,1134 @@
+package mazelib.data;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Contraction hierarchy over the passable cells of a static Maze. Cells are
+ * contracted in rounds of independent sets, least important first, adding
+ * shortcut edges that keep the distances of the remaining cells. Within a
+ * round the cells count as contracted one after another in priority order,
+ * so a witness may pass through cells contracted later in the same round
+ * instead of forcing a shortcut. A query then only searches upwards in the
+ * hierarchy from both ends, which visits a tiny part of the maze, and
+ * unpacks the shortcuts it used into moves.
+ *
+ * Building is meant to happen once per Maze. Any later passability change
+ * makes the hierarchy invalid, and queries on it throw.
+ */
+public class ContractionHierarchy {
+
+	private static final int COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final int COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+
+	// Witness searches give up after settling this many cells; a missed
+	// witness only costs an unnecessary shortcut
+	private static final int WITNESS_SETTLE_LIMIT = 200;
+
+	// Nodes a witness search may reach, twice what an open maze needs;
+	// one that reaches more stops there
+	private static final int WITNESS_CAPACITY = 1024;
+	private static final int CHUNK_SIZE = 64;
+
+	// Odd multiplier for tie breaks and its inverse modulo 2^32
+	private static final int SCRAMBLE = 0x9E3779B1;
+	private static final int UNSCRAMBLE = 0x0E8B2F51;
+
+	// Soft, so the state of a large hierarchy doesn't outlive its last query
+	private static final ThreadLocal<SoftReference<QueryState>> QUERY_STATES =
+		new ThreadLocal<SoftReference<QueryState>>();
+
+	private final Maze maze;
+	private final int modificationCount;
+	private final int width;
+	private final int nodeCount;
+	private final int[] nodeCells;
+	private final int[] cellNodes;
+	private final int[] ranks;
+
+	// Upward graph: for every node the edges to higher ranked nodes
+	private final int[] upOffsets;
+	private final int[] upTargets;
+	private final int[] upWeights;
+	private final int[] upMiddles;
+
+	// Adjacency while contracting, dropped once the upward graph exists
+	private int[][] edgeTargets;
+	private int[][] edgeWeights;
+	private int[][] edgeMiddles;
+	private int[] edgeCounts;
+	private boolean[] contracted;
+	private boolean[] selected;
+	private int[] priorities;
+	private int[] contractedNeighbors;
+	private int[][] pendingShortcuts;
+	private ThreadLocal<int[]> targetMarks;
+	private ThreadLocal<WitnessSearch> witnessSearches;
+
+	/**
+	 * Builds the hierarchy of maze on the pool shared with BatchSolver.
+	 * @param maze the Maze to index
+	 */
+	public ContractionHierarchy(Maze maze)
+	{
+		this(maze, BatchSolver.getDefaultPool());
+	}
+
+	/**
+	 * Builds the hierarchy of maze on the given pool.
+	 * @param maze the Maze to index
+	 * @param pool the pool to compute priorities and shortcuts on
+	 */
+	public ContractionHierarchy(Maze maze, ForkJoinPool pool)
+	{
+		if (maze == null || pool == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.maze = maze;
+		this.modificationCount = maze.getModificationCount();
+		this.width = maze.getWidth();
+
+		BitGrid grid = maze.getPassabilityGrid();
+		this.cellNodes = new int[width * maze.getHeight()];
+		this.nodeCells = new int[(int) grid.count()];
+		this.nodeCount = nodeCells.length;
+		this.ranks = new int[nodeCount];
+
+		createNodes(grid);
+		contract(pool);
+
+		this.upOffsets = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; node++)
+		{
+			upOffsets[node + 1] = upOffsets[node] + countUpwardEdges(node);
+		}
+		this.upTargets = new int[upOffsets[nodeCount]];
+		this.upWeights = new int[upOffsets[nodeCount]];
+		this.upMiddles = new int[upOffsets[nodeCount]];
+		fillUpwardEdges();
+
+		edgeTargets = null;
+		edgeWeights = null;
+		edgeMiddles = null;
+		edgeCounts = null;
+		contracted = null;
+		selected = null;
+		priorities = null;
+		contractedNeighbors = null;
+		pendingShortcuts = null;
+		targetMarks = null;
+		witnessSearches = null;
+	}
+
+	/**
+	 * Numbers the passable cells and links each to its passable neighbors.
+	 */
+	private void createNodes(BitGrid grid)
+	{
+		int height = grid.getHeight();
+		int node = 0;
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				if (grid.get(x, y))
+				{
+					cellNodes[y * width + x] = node;
+					nodeCells[node++] = y * width + x;
+				}
+				else
+				{
+					cellNodes[y * width + x] = -1;
+				}
+			}
+		}
+
+		edgeTargets = new int[nodeCount][];
+		edgeWeights = new int[nodeCount][];
+		edgeMiddles = new int[nodeCount][];
+		edgeCounts = new int[nodeCount];
+
+		for (node = 0; node < nodeCount; node++)
+		{
+			edgeTargets[node] = new int[Direction.COUNT];
+			edgeWeights[node] = new int[Direction.COUNT];
+			edgeMiddles[node] = new int[Direction.COUNT];
+
+			int x = nodeCells[node] % width;
+			int y = nodeCells[node] / width;
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if (grid.canMove(x, y, direction))
+				{
+					int neighbor = cellNodes[(y + Direction.getDY(direction)) * width + x + Direction.getDX(direction)];
+					int count = edgeCounts[node]++;
+					edgeTargets[node][count] = neighbor;
+					edgeWeights[node][count] = Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT;
+					edgeMiddles[node][count] = -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Contracts all nodes, one independent set of locally least important
+	 * nodes per round.
+	 */
+	private void contract(ForkJoinPool pool)
+	{
+		contracted = new boolean[nodeCount];
+		selected = new boolean[nodeCount];
+		priorities = new int[nodeCount];
+		contractedNeighbors = new int[nodeCount];
+		targetMarks = new ThreadLocal<int[]>();
+		witnessSearches = new ThreadLocal<WitnessSearch>();
+
+		int[] remaining = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++)
+		{
+			remaining[node] = node;
+		}
+		pool.invoke(new ContractTask(remaining, 0, nodeCount, false));
+
+		int remainingCount = nodeCount;
+		int rank = 0;
+
+		while (remainingCount > 0)
+		{
+			int[] round = selectIndependentSet(remaining, remainingCount);
+
+			pendingShortcuts = new int[round.length][];
+			pool.invoke(new ContractTask(round, 0, round.length, true));
+
+			List<Integer> touched = new ArrayList<Integer>();
+			for (int i = 0; i < round.length; i++)
+			{
+				int node = round[i];
+				contracted[node] = true;
+				selected[node] = false;
+				ranks[node] = rank++;
+
+				int[] shortcuts = pendingShortcuts[i];
+				for (int s = 0; s < shortcuts.length; s += 3)
+				{
+					addOrLowerEdge(shortcuts[s], shortcuts[s + 1], shortcuts[s + 2], node);
+					addOrLowerEdge(shortcuts[s + 1], shortcuts[s], shortcuts[s + 2], node);
+				}
+
+				for (int e = 0; e < edgeCounts[node]; e++)
+				{
+					int neighbor = edgeTargets[node][e];
+					if (!contracted[neighbor])
+					{
+						contractedNeighbors[neighbor]++;
+						touched.add(neighbor);
+					}
+				}
+			}
+
+			int[] update = new int[touched.size()];
+			int updateCount = 0;
+			for (int neighbor : touched)
+			{
+				// Mark to drop duplicates, the flag is cleared again below
+				if (!selected[neighbor])
+				{
+					selected[neighbor] = true;
+					update[updateCount++] = neighbor;
+				}
+			}
+			for (int i = 0; i < updateCount; i++)
+			{
+				selected[update[i]] = false;
+				dropContractedEdges(update[i]);
+			}
+			pool.invoke(new ContractTask(update, 0, updateCount, false));
+
+			int kept = 0;
+			for (int i = 0; i < remainingCount; i++)
+			{
+				if (!contracted[remaining[i]])
+				{
+					remaining[kept++] = remaining[i];
+				}
+			}
+			remainingCount = kept;
+		}
+	}
+
+	/**
+	 * @return the remaining nodes that are less important than all their
+	 * 		   remaining neighbors, flagged in selected
+	 */
+	private int[] selectIndependentSet(int[] remaining, int remainingCount)
+	{
+		int[] round = new int[remainingCount];
+		int count = 0;
+
+		for (int i = 0; i < remainingCount; i++)
+		{
+			int node = remaining[i];
+			boolean least = true;
+
+			for (int e = 0; e < edgeCounts[node] && least; e++)
+			{
+				int neighbor = edgeTargets[node][e];
+				if (!contracted[neighbor] && precedes(neighbor, node))
+				{
+					least = false;
+				}
+			}
+
+			if (least)
+			{
+				round[count++] = node;
+				selected[node] = true;
+			}
+		}
+
+		// Contract in the order of precedes, which witness searches rely on
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			keys[i] = ((long) priorities[round[i]] << 32) | (scramble(round[i]) - (long) Integer.MIN_VALUE);
+		}
+		Arrays.sort(keys);
+		for (int i = 0; i < count; i++)
+		{
+			round[i] = ((int) keys[i] + Integer.MIN_VALUE) * UNSCRAMBLE;
+		}
+		return Arrays.copyOf(round, count);
+	}
+
+	/**
+	 * @return true if a is contracted before b when both are remaining:
+	 * 		   lower priority first, ties in scrambled id order
+	 */
+	private boolean precedes(int a, int b)
+	{
+		return priorities[a] < priorities[b] || (priorities[a] == priorities[b] && scramble(a) < scramble(b));
+	}
+
+	/**
+	 * Finds the shortcuts contracting node would need. Witness searches
+	 * avoid the nodes of the current round contracted before node, as if
+	 * the round were contracted one node at a time; nodes after it are
+	 * still there when it goes.
+	 * @return triples of (from, to, weight), each pair listed once
+	 */
+	private int[] findShortcuts(int node)
+	{
+		int degree = edgeCounts[node];
+		int[] targets = edgeTargets[node];
+		int[] weights = edgeWeights[node];
+		int[] shortcuts = new int[0];
+		int count = 0;
+
+		for (int from = 0; from + 1 < degree; from++)
+		{
+			int source = targets[from];
+			if (contracted[source])
+			{
+				continue;
+			}
+
+			// One search per source covers the neighbors listed after it
+			WitnessSearch witnesses = searchWitnesses(source, weights[from], node, from + 1);
+
+			for (int to = from + 1; to < degree; to++)
+			{
+				int target = targets[to];
+				if (contracted[target])
+				{
+					continue;
+				}
+
+				long viaNode = (long) weights[from] + weights[to];
+				if (witnesses.getCost(target) <= viaNode)
+				{
+					continue;
+				}
+
+				if (count + 3 > shortcuts.length)
+				{
+					shortcuts = Arrays.copyOf(shortcuts, Math.max(12, shortcuts.length * 2));
+				}
+				shortcuts[count++] = source;
+				shortcuts[count++] = target;
+				shortcuts[count++] = (int) viaNode;
+			}
+		}
+
+		return Arrays.copyOf(shortcuts, count);
+	}
+
+	/**
+	 * Dijkstra from source over the remaining graph, avoiding the node being
+	 * contracted and the nodes of its round contracted before it. A target
+	 * is done as soon as it is reached no longer than through avoided; the
+	 * search stops once all are done or after WITNESS_SETTLE_LIMIT nodes,
+	 * and never looks further than the way through avoided to one not done.
+	 * @param sourceWeight the weight of the edge between source and avoided
+	 * @param firstTarget the index of the first target among the edges of avoided
+	 * @return the calling thread's witness search holding the distances found
+	 */
+	private WitnessSearch searchWitnesses(int source, int sourceWeight, int avoided, int firstTarget)
+	{
+		int[] targets = edgeTargets[avoided];
+		int[] weights = edgeWeights[avoided];
+		int degree = edgeCounts[avoided];
+
+		// Targets not done yet hold their index plus one
+		int[] marks = getTargetMarks();
+
+		int pending = 0;
+		for (int to = firstTarget; to < degree; to++)
+		{
+			if (!contracted[targets[to]])
+			{
+				marks[targets[to]] = to + 1;
+				pending++;
+			}
+		}
+		long limit = pendingLimit(marks, sourceWeight, avoided, firstTarget);
+
+		WitnessSearch search = witnessSearches.get();
+		if (search == null)
+		{
+			search = new WitnessSearch();
+			witnessSearches.set(search);
+		}
+		search.reset();
+
+		IndexedHeap openSlots = search.openSlots;
+		int sourceSlot = search.add(source);
+		search.costs[sourceSlot] = 0l;
+		openSlots.update(sourceSlot, 0l);
+		int settled = 0;
+
+		while (pending > 0 && !openSlots.isEmpty() && settled++ < WITNESS_SETTLE_LIMIT)
+		{
+			int slot = openSlots.poll();
+			int current = search.nodes[slot];
+			long cost = search.costs[slot];
+			if (cost > limit)
+			{
+				break;
+			}
+			search.closed[slot] = true;
+
+			for (int e = 0; e < edgeCounts[current] && pending > 0; e++)
+			{
+				int neighbor = edgeTargets[current][e];
+				if (neighbor == avoided || contracted[neighbor] ||
+					(selected[neighbor] && precedes(neighbor, avoided)))
+				{
+					continue;
+				}
+
+				int neighborSlot = search.find(neighbor);
+				long accumulated = cost + edgeWeights[current][e];
+				if (accumulated > limit || (neighborSlot >= 0 &&
+					(search.closed[neighborSlot] || accumulated >= search.costs[neighborSlot])))
+				{
+					continue;
+				}
+
+				int mark = marks[neighbor];
+				if (mark > 0 && accumulated <= (long) sourceWeight + weights[mark - 1])
+				{
+					marks[neighbor] = 0;
+					pending--;
+					limit = pendingLimit(marks, sourceWeight, avoided, firstTarget);
+				}
+				else if (!canWitness(marks, sourceWeight, avoided, firstTarget, neighbor, accumulated))
+				{
+					continue;
+				}
+
+				if (neighborSlot < 0)
+				{
+					neighborSlot = search.add(neighbor);
+					if (neighborSlot < 0)
+					{
+						// Full, settle for the witnesses found so far
+						pending = 0;
+						break;
+					}
+				}
+				search.costs[neighborSlot] = accumulated;
+				openSlots.update(neighborSlot, accumulated);
+			}
+		}
+
+		for (int to = firstTarget; to < degree; to++)
+		{
+			marks[targets[to]] = 0;
+		}
+		return search;
+	}
+
+	/**
+	 * @return the calling thread's array for marking targets, all zero
+	 */
+	private int[] getTargetMarks()
+	{
+		int[] marks = targetMarks.get();
+		if (marks == null)
+		{
+			marks = new int[nodeCount];
+			targetMarks.set(marks);
+		}
+		return marks;
+	}
+
+	/**
+	 * Every edge is at least as long as the straight moves between its
+	 * cells, so a node whose cost plus that lower bound exceeds the way
+	 * through center to every target not done can't lead to a witness.
+	 * @return true if a witness through node at cost may still exist
+	 */
+	private boolean canWitness(int[] marks, int sourceWeight, int center, int firstTarget, int node, long cost)
+	{
+		int x = nodeCells[node] % width;
+		int y = nodeCells[node] / width;
+
+		for (int to = firstTarget; to < edgeCounts[center]; to++)
+		{
+			int target = edgeTargets[center][to];
+			if (marks[target] == 0)
+			{
+				continue;
+			}
+
+			int dx = Math.abs(nodeCells[target] % width - x);
+			int dy = Math.abs(nodeCells[target] / width - y);
+			long bound = (long) COST_DIAGONAL * Math.min(dx, dy) + (long) COST_STRAIGHT * Math.abs(dx - dy);
+			if (cost + bound <= (long) sourceWeight + edgeWeights[center][to])
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the longest way from source through center to a target not
+	 * 		   done yet, 0 if all are done
+	 */
+	private long pendingLimit(int[] marks, int sourceWeight, int center, int firstTarget)
+	{
+		long limit = 0l;
+		for (int to = firstTarget; to < edgeCounts[center]; to++)
+		{
+			if (marks[edgeTargets[center][to]] > 0)
+			{
+				limit = Math.max(limit, (long) sourceWeight + edgeWeights[center][to]);
+			}
+		}
+		return limit;
+	}
+
+	/**
+	 * Breaks priority ties between neighbors. In id order the cells of a
+	 * uniform area would all wait for their neighbors above and to the
+	 * left, and contraction would creep across it row by row.
+	 * @return node multiplied by an odd constant, a one to one mapping
+	 */
+	private static int scramble(int node)
+	{
+		return node * SCRAMBLE;
+	}
+
+	/**
+	 * Removes the edges of a remaining node to contracted ones, which are
+	 * downward and only kept by the contracted side.
+	 */
+	private void dropContractedEdges(int node)
+	{
+		int kept = 0;
+		for (int e = 0; e < edgeCounts[node]; e++)
+		{
+			if (!contracted[edgeTargets[node][e]])
+			{
+				edgeTargets[node][kept] = edgeTargets[node][e];
+				edgeWeights[node][kept] = edgeWeights[node][e];
+				edgeMiddles[node][kept] = edgeMiddles[node][e];
+				kept++;
+			}
+		}
+		edgeCounts[node] = kept;
+	}
+
+	/**
+	 * Importance of node: twice the shortcuts it would add minus the edges
+	 * it removes, which keeps degrees low, plus already contracted
+	 * neighbors to spread contraction evenly.
+	 */
+	private int computePriority(int node)
+	{
+		int removed = 0;
+		for (int e = 0; e < edgeCounts[node]; e++)
+		{
+			if (!contracted[edgeTargets[node][e]])
+			{
+				removed++;
+			}
+		}
+
+		return 2 * (estimateShortcuts(node) - removed) + contractedNeighbors[node];
+	}
+
+	/**
+	 * Counts the shortcuts contracting node would need if only a direct
+	 * edge between two of its neighbors counted as a witness. Priorities
+	 * are recomputed often and only need to rank nodes, so this stands in
+	 * for the witness searches of findShortcuts.
+	 */
+	private int estimateShortcuts(int node)
+	{
+		int degree = edgeCounts[node];
+		int[] targets = edgeTargets[node];
+		int[] weights = edgeWeights[node];
+		int[] marks = getTargetMarks();
+
+		int remaining = 0;
+		for (int e = 0; e < degree; e++)
+		{
+			if (!contracted[targets[e]])
+			{
+				marks[targets[e]] = e + 1;
+				remaining++;
+			}
+		}
+
+		int shortcuts = 0;
+		for (int from = 0; from < degree; from++)
+		{
+			int source = targets[from];
+			if (contracted[source])
+			{
+				continue;
+			}
+
+			// Pairs with the neighbors listed after source, less those joined directly
+			remaining--;
+			shortcuts += remaining;
+			for (int e = 0; e < edgeCounts[source]; e++)
+			{
+				int to = marks[edgeTargets[source][e]] - 1;
+				if (to > from && edgeWeights[source][e] <= weights[from] + weights[to])
+				{
+					shortcuts--;
+				}
+			}
+		}
+
+		for (int e = 0; e < degree; e++)
+		{
+			marks[targets[e]] = 0;
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * Adds an edge from node to target, or lowers the existing one.
+	 */
+	private void addOrLowerEdge(int node, int target, int weight, int middle)
+	{
+		int count = edgeCounts[node];
+		for (int e = 0; e < count; e++)
+		{
+			if (edgeTargets[node][e] == target)
+			{
+				if (weight < edgeWeights[node][e])
+				{
+					edgeWeights[node][e] = weight;
+					edgeMiddles[node][e] = middle;
+				}
+				return;
+			}
+		}
+
+		if (count == edgeTargets[node].length)
+		{
+			edgeTargets[node] = Arrays.copyOf(edgeTargets[node], count * 2);
+			edgeWeights[node] = Arrays.copyOf(edgeWeights[node], count * 2);
+			edgeMiddles[node] = Arrays.copyOf(edgeMiddles[node], count * 2);
+		}
+		edgeTargets[node][count] = target;
+		edgeWeights[node][count] = weight;
+		edgeMiddles[node][count] = middle;
+		edgeCounts[node]++;
+	}
+
+	/**
+	 * @return the number of edges of node leading to higher ranked nodes
+	 */
+	private int countUpwardEdges(int node)
+	{
+		int count = 0;
+		for (int e = 0; e < edgeCounts[node]; e++)
+		{
+			if (ranks[edgeTargets[node][e]] > ranks[node])
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Copies the upward edges into the compact arrays.
+	 */
+	private void fillUpwardEdges()
+	{
+		for (int node = 0; node < nodeCount; node++)
+		{
+			int index = upOffsets[node];
+			for (int e = 0; e < edgeCounts[node]; e++)
+			{
+				int target = edgeTargets[node][e];
+				if (ranks[target] > ranks[node])
+				{
+					upTargets[index] = target;
+					upWeights[index] = edgeWeights[node][e];
+					upMiddles[index] = edgeMiddles[node][e];
+					index++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds a shortest path between two cells.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @return the path from start to end,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+		if (!isValid())
+		{
+			throw new IllegalStateException("Maze changed since the hierarchy was built!");
+		}
+
+		int startX = start.getX();
+		int startY = start.getY();
+		int startCell = startY * width + startX;
+		int endNode = cellNodes[end.getY() * width + end.getX()];
+
+		if (start.equals(end))
+		{
+			return new SolutionPath(startX, startY, new int[0]);
+		}
+		if (endNode < 0)
+		{
+			return null;
+		}
+
+		int startNode = cellNodes[startCell];
+		if (startNode >= 0)
+		{
+			return search(startNode, endNode, startX, startY, -1);
+		}
+
+		// An impassable start may still step out, try every way out
+		BitGrid grid = maze.getPassabilityGrid();
+		SolutionPath best = null;
+		for (int direction = 0; direction < Direction.COUNT; direction++)
+		{
+			if (grid.canMove(startX, startY, direction))
+			{
+				int neighbor = cellNodes[startCell + Direction.getDY(direction) * width + Direction.getDX(direction)];
+				SolutionPath path = search(neighbor, endNode, startX, startY, direction);
+				if (path != null && (best == null || path.getCost() < best.getCost()))
+				{
+					best = path;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds a shortest path between two cells as Nodes.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @return List of Nodes from start to end,
+	 * 		   null if there is no path
+	 */
+	public List<Node> solveNodes(Position start, Position end)
+	{
+		SolutionPath path = solve(start, end);
+		return (path == null) ? null : path.asNodeList(maze);
+	}
+
+	/**
+	 * Bidirectional upward search between two nodes.
+	 * @param firstDirection a step taken before source, -1 for none
+	 * @return the path, null if the nodes aren't connected
+	 */
+	private SolutionPath search(int source, int target, int startX, int startY, int firstDirection)
+	{
+		SoftReference<QueryState> reference = QUERY_STATES.get();
+		QueryState state = (reference == null) ? null : reference.get();
+		if (state == null || state.forward.getCapacity() < nodeCount)
+		{
+			state = new QueryState(nodeCount);
+			QUERY_STATES.set(new SoftReference<QueryState>(state));
+		}
+		state.forward.reset();
+		state.backward.reset();
+
+		SearchArena forward = state.forward;
+		SearchArena backward = state.backward;
+		forward.setCost(source, 0l, -1);
+		forward.getOpenCells().update(source, 0l);
+		backward.setCost(target, 0l, -1);
+		backward.getOpenCells().update(target, 0l);
+		state.forwardParents[source] = -1;
+		state.backwardParents[target] = -1;
+
+		long best = Long.MAX_VALUE;
+		int meeting = -1;
+
+		while (true)
+		{
+			IndexedHeap forwardOpen = forward.getOpenCells();
+			IndexedHeap backwardOpen = backward.getOpenCells();
+			long forwardTop = forwardOpen.isEmpty() ? Long.MAX_VALUE : forwardOpen.peekKey();
+			long backwardTop = backwardOpen.isEmpty() ? Long.MAX_VALUE : backwardOpen.peekKey();
+
+			if (Math.min(forwardTop, backwardTop) >= best)
+			{
+				break;
+			}
+
+			boolean isForward = forwardTop <= backwardTop;
+			SearchArena side = isForward ? forward : backward;
+			SearchArena other = isForward ? backward : forward;
+			int[] parents = isForward ? state.forwardParents : state.backwardParents;
+
+			int node = side.getOpenCells().poll();
+			long cost = side.getCost(node);
+
+			if (other.isSeen(node) && cost + other.getCost(node) < best)
+			{
+				best = cost + other.getCost(node);
+				meeting = node;
+			}
+
+			for (int e = upOffsets[node]; e < upOffsets[node + 1]; e++)
+			{
+				int next = upTargets[e];
+				long accumulated = cost + upWeights[e];
+				if (!side.isSeen(next) || accumulated < side.getCost(next))
+				{
+					side.setCost(next, accumulated, -1);
+					parents[next] = node;
+					side.getOpenCells().update(next, accumulated);
+				}
+			}
+		}
+
+		if (meeting < 0)
+		{
+			return null;
+		}
+
+		return unpack(state, meeting, startX, startY, firstDirection);
+	}
+
+	/**
+	 * Expands the route through meeting into cell moves.
+	 */
+	private SolutionPath unpack(QueryState state, int meeting, int startX, int startY, int firstDirection)
+	{
+		// Nodes from source up to meeting, then down to target
+		int[] route = new int[16];
+		int length = 0;
+		for (int node = meeting; node >= 0; node = state.forwardParents[node])
+		{
+			if (length == route.length)
+			{
+				route = Arrays.copyOf(route, length * 2);
+			}
+			route[length++] = node;
+		}
+		for (int i = 0; i < length / 2; i++)
+		{
+			int swap = route[i];
+			route[i] = route[length - 1 - i];
+			route[length - 1 - i] = swap;
+		}
+		for (int node = state.backwardParents[meeting]; node >= 0; node = state.backwardParents[node])
+		{
+			if (length == route.length)
+			{
+				route = Arrays.copyOf(route, length * 2);
+			}
+			route[length++] = node;
+		}
+
+		int[] directions = new int[Math.max(16, length)];
+		int count = 0;
+		if (firstDirection >= 0)
+		{
+			directions[count++] = firstDirection;
+		}
+
+		int[] stack = new int[64];
+		for (int i = 0; i + 1 < length; i++)
+		{
+			// Depth first through middle nodes keeps the moves in order
+			int top = 0;
+			stack[top++] = route[i + 1];
+			stack[top++] = route[i];
+
+			while (top > 0)
+			{
+				int from = stack[--top];
+				int to = stack[--top];
+				int middle = findMiddle(from, to);
+
+				if (middle < 0)
+				{
+					if (count == directions.length)
+					{
+						directions = Arrays.copyOf(directions, count * 2);
+					}
+					int fromCell = nodeCells[from];
+					int toCell = nodeCells[to];
+					directions[count++] = Direction.fromOffset(toCell % width - fromCell % width,
+															   toCell / width - fromCell / width);
+					continue;
+				}
+
+				if (top + 4 > stack.length)
+				{
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[top++] = to;
+				stack[top++] = middle;
+				stack[top++] = middle;
+				stack[top++] = from;
+			}
+		}
+
+		return new SolutionPath(startX, startY, Arrays.copyOf(directions, count));
+	}
+
+	/**
+	 * @return the node a shortcut between a and b skips, -1 for an original edge
+	 */
+	private int findMiddle(int a, int b)
+	{
+		int lower = (ranks[a] < ranks[b]) ? a : b;
+		int higher = (lower == a) ? b : a;
+
+		for (int e = upOffsets[lower]; e < upOffsets[lower + 1]; e++)
+		{
+			if (upTargets[e] == higher)
+			{
+				return upMiddles[e];
+			}
+		}
+
+		throw new IllegalStateException("Missing hierarchy edge!");
+	}
+
+	/**
+	 * @return true if the Maze hasn't changed since the hierarchy was built
+	 */
+	public boolean isValid()
+	{
+		return maze.getModificationCount() == modificationCount;
+	}
+
+	/**
+	 * @return the number of passable cells in the hierarchy
+	 */
+	public int getNodeCount()
+	{
+		return nodeCount;
+	}
+
+	/**
+	 * @return the number of upward edges, shortcuts included
+	 */
+	public int getEdgeCount()
+	{
+		return upTargets.length;
+	}
+
+	/**
+	 * @return the Maze this hierarchy indexes
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * Search state of both directions of a query, kept per thread.
+	 */
+	private static class QueryState {
+
+		private final SearchArena forward;
+		private final SearchArena backward;
+		private final int[] forwardParents;
+		private final int[] backwardParents;
+
+		private QueryState(int nodeCount)
+		{
+			this.forward = new SearchArena(nodeCount);
+			this.backward = new SearchArena(nodeCount);
+			this.forwardParents = new int[nodeCount];
+			this.backwardParents = new int[nodeCount];
+		}
+	}
+
+	/**
+	 * Dijkstra state of one witness search, kept per thread while
+	 * contracting. The few nodes a search reaches get slots in the order
+	 * they are found through a hash table of node ids, stamped so it is
+	 * emptied in constant time. Nodes are numbered row by row, so the low
+	 * bits of the nodes around source hardly collide.
+	 */
+	private static class WitnessSearch {
+
+		private static final int TABLE_MASK = 2 * WITNESS_CAPACITY - 1;
+
+		private final int[] tableNodes = new int[TABLE_MASK + 1];
+		private final int[] tableSlots = new int[TABLE_MASK + 1];
+		private final int[] tableStamps = new int[TABLE_MASK + 1];
+		private final int[] nodes = new int[WITNESS_CAPACITY];
+		private final long[] costs = new long[WITNESS_CAPACITY];
+		private final boolean[] closed = new boolean[WITNESS_CAPACITY];
+		private final IndexedHeap openSlots = new IndexedHeap(WITNESS_CAPACITY);
+		private int size = 0;
+		private int stamp = 0;
+
+		/**
+		 * Forgets all nodes before the next search.
+		 */
+		private void reset()
+		{
+			openSlots.clear();
+			size = 0;
+			stamp++;
+			if (stamp == 0)
+			{
+				Arrays.fill(tableStamps, 0);
+				stamp = 1;
+			}
+		}
+
+		/**
+		 * @return the slot of node, -1 if the search hasn't reached it
+		 */
+		private int find(int node)
+		{
+			for (int i = node & TABLE_MASK; tableStamps[i] == stamp; i = (i + 1) & TABLE_MASK)
+			{
+				if (tableNodes[i] == node)
+				{
+					return tableSlots[i];
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @param node a node find() doesn't know yet
+		 * @return the new slot of node, -1 if all are taken
+		 */
+		private int add(int node)
+		{
+			if (size == WITNESS_CAPACITY)
+			{
+				return -1;
+			}
+
+			int i = node & TABLE_MASK;
+			while (tableStamps[i] == stamp)
+			{
+				i = (i + 1) & TABLE_MASK;
+			}
+			tableStamps[i] = stamp;
+			tableNodes[i] = node;
+			tableSlots[i] = size;
+			nodes[size] = node;
+			closed[size] = false;
+			return size++;
+		}
+
+		/**
+		 * @return the distance the search found to node, Long.MAX_VALUE if none
+		 */
+		private long getCost(int node)
+		{
+			int slot = find(node);
+			return (slot < 0) ? Long.MAX_VALUE : costs[slot];
+		}
+	}
+
+	/**
+	 * Computes priorities or shortcuts for a range of nodes, splitting it
+	 * in halves until it is small enough.
+	 */
+	private class ContractTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] nodes;
+		private final int from, to;
+		private final boolean shortcuts;
+
+		private ContractTask(int[] nodes, int from, int to, boolean shortcuts)
+		{
+			this.nodes = nodes;
+			this.from = from;
+			this.to = to;
+			this.shortcuts = shortcuts;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= CHUNK_SIZE)
+			{
+				for (int i = from; i < to; i++)
+				{
+					if (shortcuts)
+					{
+						pendingShortcuts[i] = findShortcuts(nodes[i]);
+					}
+					else
+					{
+						priorities[nodes[i]] = computePriority(nodes[i]);
+					}
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new ContractTask(nodes, from, middle, shortcuts),
+					  new ContractTask(nodes, middle, to, shortcuts));
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+package mazelib.data;
+
+/**
+ * Graph stored in compressed sparse row form: the successors of vertex v
+ * are targets[offsets[v]] to targets[offsets[v + 1] - 1], with their costs
+ * in the same slots of costs. Everything sits in a few flat arrays, so a
+ * search walks memory in order and a copy of a Maze no longer depends on
+ * the Maze, its Nodes or its passability.
+ */
+public class CsrGraph implements Graph {
+
+	private final int vertexCount;
+	private final int maxDegree;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] costs;
+
+	// Null without coordinates
+	private final int[] xs, ys;
+
+	/**
+	 * Copies any Graph, such as a Maze, keeping its vertex ids.
+	 * @param graph the Graph to copy
+	 */
+	public CsrGraph(Graph graph)
+	{
+		if (graph == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.vertexCount = graph.getVertexCount();
+		this.offsets = new int[vertexCount + 1];
+
+		int[] edgeTargets = new int[graph.getMaxDegree()];
+		long[] edgeCosts = new long[graph.getMaxDegree()];
+
+		// Count first so every array is allocated once
+		for (int vertex = 0; vertex < vertexCount; vertex++)
+		{
+			offsets[vertex + 1] = offsets[vertex] + graph.getSuccessors(vertex, edgeTargets, edgeCosts);
+		}
+
+		this.targets = new int[offsets[vertexCount]];
+		this.costs = new int[offsets[vertexCount]];
+		int maxDegree = 0;
+		for (int vertex = 0; vertex < vertexCount; vertex++)
+		{
+			int degree = graph.getSuccessors(vertex, edgeTargets, edgeCosts);
+			maxDegree = Math.max(maxDegree, degree);
+			for (int i = 0; i < degree; i++)
+			{
+				if (edgeCosts[i] > Integer.MAX_VALUE)
+				{
+					throw new IllegalArgumentException("Edge cost overflow!");
+				}
+				targets[offsets[vertex] + i] = edgeTargets[i];
+				costs[offsets[vertex] + i] = (int) edgeCosts[i];
+			}
+		}
+		this.maxDegree = maxDegree;
+
+		if (graph.hasCoordinates())
+		{
+			this.xs = new int[vertexCount];
+			this.ys = new int[vertexCount];
+			for (int vertex = 0; vertex < vertexCount; vertex++)
+			{
+				xs[vertex] = graph.getVertexX(vertex);
+				ys[vertex] = graph.getVertexY(vertex);
+			}
+		}
+		else
+		{
+			this.xs = null;
+			this.ys = null;
+		}
+	}
+
+	/**
+	 * Wraps arrays that already are in compressed sparse row form, without
+	 * copying them.
+	 * @param offsets where the successors of each vertex start, one more
+	 * 		  entry than there are vertices
+	 * @param targets the successor of every edge
+	 * @param costs the cost of every edge
+	 * @param xs the x coordinate of every vertex, null without coordinates
+	 * @param ys the y coordinate of every vertex, null without coordinates
+	 */
+	CsrGraph(int[] offsets, int[] targets, int[] costs, int[] xs, int[] ys)
+	{
+		this.vertexCount = offsets.length - 1;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.costs = costs;
+		this.xs = xs;
+		this.ys = ys;
+
+		int maxDegree = 0;
+		for (int vertex = 0; vertex < vertexCount; vertex++)
+		{
+			maxDegree = Math.max(maxDegree, offsets[vertex + 1] - offsets[vertex]);
+		}
+		this.maxDegree = maxDegree;
+	}
+
+	@Override
+	public int getVertexCount()
+	{
+		return vertexCount;
+	}
+
+	@Override
+	public int getMaxDegree()
+	{
+		return maxDegree;
+	}
+
+	@Override
+	public int getSuccessors(int vertex, int[] targets, long[] costs)
+	{
+		int from = offsets[vertex];
+		int degree = offsets[vertex + 1] - from;
+		for (int i = 0; i < degree; i++)
+		{
+			targets[i] = this.targets[from + i];
+			costs[i] = this.costs[from + i];
+		}
+		return degree;
+	}
+
+	@Override
+	public boolean hasCoordinates()
+	{
+		return xs != null;
+	}
+
+	@Override
+	public int getVertexX(int vertex)
+	{
+		return (xs == null) ? 0 : xs[vertex];
+	}
+
+	@Override
+	public int getVertexY(int vertex)
+	{
+		return (ys == null) ? 0 : ys[vertex];
+	}
+
+	/**
+	 * @return the number of edges
+	 */
+	public int getEdgeCount()
+	{
+		return offsets[vertexCount];
+	}
+
+	/**
+	 * @param vertex the vertex to leave
+	 * @return the number of successors of vertex
+	 */
+	public int getDegree(int vertex)
+	{
+		return offsets[vertex + 1] - offsets[vertex];
+	}
+
+}
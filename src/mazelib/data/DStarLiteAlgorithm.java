@@ -0,0 +1,444 @@
+package mazelib.data;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental solver based on D* Lite. It searches backwards from the end
+ * Node and keeps its search state between calls to solveMaze(), so after
+ * the start moves, the end moves or a few Nodes change passability only
+ * the affected part of the search is repaired.
+ *
+ * The end Node is simply the one cell whose rhs value is pinned to zero,
+ * so moving it is handled like any other change of edge costs: the old
+ * end gets its rhs recomputed from its neighbors and the new one is pinned.
+ *
+ * The solver starts watching the Maze on its first solveMaze(), through a
+ * listener that only holds it weakly, so a solver that is dropped without
+ * detach() can still be collected, and its listener leaves the Maze on the
+ * next change.
+ */
+public class DStarLiteAlgorithm extends MazeSolver implements MazeChangeListener {
+
+	private static final int INFINITY = Integer.MAX_VALUE;
+
+	// Keys are packed as (k1 << 31) | k2, both must stay below these
+	private static final long MAX_PRIMARY_KEY = (1l << 32) - 1;
+	private static final long MAX_SECONDARY_KEY = (1l << 31) - 1;
+
+	private final int width, height;
+	private final int[] g;
+	private final int[] rhs;
+	private final IndexedHeap openCells;
+	private final List<Position> changedPositions = new ArrayList<Position>();
+
+	private boolean initialized = false;
+	private WeakListener listener = null;
+	private int lastStartX, lastStartY;
+	private int endX, endY;
+	private long keyModifier;
+
+	/**
+	 * Constructor for DStarLiteAlgorithm Object.
+	 * @param maze the Maze to solve, watched for changes from the first
+	 * 		  solveMaze() until detach()
+	 */
+	public DStarLiteAlgorithm(Maze maze, Heuristic heuristic)
+	{
+		super(maze, heuristic);
+
+		this.width = this.maze.getWidth();
+		this.height = this.maze.getHeight();
+		this.g = new int[width * height];
+		this.rhs = new int[width * height];
+		this.openCells = new IndexedHeap(width * height);
+	}
+
+	/**
+	 * Constructor for DStarLiteAlgorithm Object.
+	 * @param stringMaze the string representation of the Maze to solve
+	 */
+	public DStarLiteAlgorithm(String stringMaze, Heuristic heuristic)
+	{
+		this(new Maze(stringMaze, false), heuristic);
+	}
+
+	/**
+	 * Stops watching the Maze for changes. The next solveMaze() after
+	 * detaching starts over from scratch and watches it again.
+	 */
+	public void detach()
+	{
+		if (listener != null)
+		{
+			maze.removeChangeListener(listener);
+			listener = null;
+		}
+		initialized = false;
+	}
+
+	@Override
+	public void passabilityChanged(Maze maze, Position position, boolean passable)
+	{
+		synchronized (changedPositions)
+		{
+			changedPositions.add(position);
+		}
+	}
+
+	/**
+	 * The main function of the algorithm.
+	 * The first call runs a full backward search, later calls only repair
+	 * what the changes since the previous call affected. A search stopped
+	 * by the cancellation token keeps its progress for the next call.
+	 * @return List of Nodes from end Node back to start Node that represent
+	 * 		   the solution to this maze,
+	 * 		   null if there is no path from start Node to end Node or the
+	 * 		   cancellation token stopped the search first
+	 */
+	@Override
+	public List<Node> solveMaze()
+	{
+		setSolution(null);
+
+		Position start = maze.getStartNode().getPosition();
+		Position end = maze.getEndNode().getPosition();
+		BitGrid grid = maze.getPassabilityGrid();
+
+		if (!initialized || keyModifier > MAX_SECONDARY_KEY)
+		{
+			initialize(start, end);
+		}
+		else
+		{
+			applyChanges(grid, start, end);
+		}
+
+		if (!computeShortestPath(grid, start.getX(), start.getY()))
+		{
+			return null;
+		}
+
+		return setSolution(extractPath(grid, start.getX(), start.getY()));
+	}
+
+	/**
+	 * Forgets all search state and pins the end cell.
+	 */
+	private void initialize(Position start, Position end)
+	{
+		if (listener == null)
+		{
+			listener = new WeakListener(this);
+			maze.addChangeListener(listener);
+		}
+
+		synchronized (changedPositions)
+		{
+			changedPositions.clear();
+		}
+
+		Arrays.fill(g, INFINITY);
+		Arrays.fill(rhs, INFINITY);
+		openCells.clear();
+
+		lastStartX = start.getX();
+		lastStartY = start.getY();
+		endX = end.getX();
+		endY = end.getY();
+		keyModifier = 0l;
+
+		int endCell = endY * width + endX;
+		rhs[endCell] = 0;
+		openCells.update(endCell, calculateKey(endCell, lastStartX, lastStartY));
+		initialized = true;
+	}
+
+	/**
+	 * Turns start and end moves and passability changes since the last
+	 * call into vertex updates.
+	 */
+	private void applyChanges(BitGrid grid, Position start, Position end)
+	{
+		int startX = start.getX();
+		int startY = start.getY();
+
+		// Keys computed for the old start stay valid lower bounds once the
+		// distance the start moved is added to all new keys
+		if (startX != lastStartX || startY != lastStartY)
+		{
+			keyModifier += heuristic.estimate(lastStartX, lastStartY, startX, startY);
+			lastStartX = startX;
+			lastStartY = startY;
+		}
+
+		if (end.getX() != endX || end.getY() != endY)
+		{
+			int oldEnd = endY * width + endX;
+			endX = end.getX();
+			endY = end.getY();
+			updateVertex(grid, oldEnd, startX, startY);
+			updateVertex(grid, endY * width + endX, startX, startY);
+		}
+
+		Position[] changes;
+		synchronized (changedPositions)
+		{
+			changes = changedPositions.toArray(new Position[changedPositions.size()]);
+			changedPositions.clear();
+		}
+
+		// A flipped cell changes the edges into it and the diagonal edges
+		// cutting its corner, all of which start in its neighborhood
+		for (Position changed : changes)
+		{
+			for (int y = changed.getY() - 1; y <= changed.getY() + 1; y++)
+			{
+				for (int x = changed.getX() - 1; x <= changed.getX() + 1; x++)
+				{
+					if (x >= 0 && x < width && y >= 0 && y < height)
+					{
+						updateVertex(grid, y * width + x, startX, startY);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Recomputes the rhs value of cell from its successors and puts it in
+	 * the open set if it became inconsistent.
+	 */
+	private void updateVertex(BitGrid grid, int cell, int startX, int startY)
+	{
+		if (cell != endY * width + endX)
+		{
+			rhs[cell] = bestSuccessorCost(grid, cell);
+		}
+		else
+		{
+			rhs[cell] = 0;
+		}
+
+		if (g[cell] != rhs[cell])
+		{
+			openCells.update(cell, calculateKey(cell, startX, startY));
+		}
+		else
+		{
+			openCells.remove(cell);
+		}
+	}
+
+	/**
+	 * @return the smallest step cost plus g value over the successors of
+	 * 		   cell, INFINITY if none of them is reached yet
+	 */
+	private int bestSuccessorCost(BitGrid grid, int cell)
+	{
+		int x = cell % width;
+		int y = cell / width;
+		long best = INFINITY;
+
+		for (int direction = 0; direction < Direction.COUNT; direction++)
+		{
+			if (!grid.canMove(x, y, direction))
+			{
+				continue;
+			}
+
+			int successor = cell + Direction.getDY(direction) * width + Direction.getDX(direction);
+			if (g[successor] == INFINITY)
+			{
+				continue;
+			}
+
+			long cost = (long) g[successor] + (Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT);
+			if (cost < best)
+			{
+				best = cost;
+			}
+		}
+
+		if (best >= INFINITY && best != INFINITY)
+		{
+			throw new IllegalStateException("Distance overflow!");
+		}
+		return (int) best;
+	}
+
+	/**
+	 * Expands inconsistent cells until the start is consistent and no open
+	 * cell could still lower its distance. Every cell stays in the open
+	 * set until it is consistent, so stopping early leaves a state the
+	 * next call can go on from.
+	 * @return true if the search finished, false if the token stopped it
+	 */
+	private boolean computeShortestPath(BitGrid grid, int startX, int startY)
+	{
+		int startCell = startY * width + startX;
+		int expansions = 0;
+
+		while (!openCells.isEmpty())
+		{
+			if (cancellationToken != null && ++expansions % CancellationToken.CHECK_INTERVAL == 0 &&
+				cancellationToken.isCancelled())
+			{
+				return false;
+			}
+
+			long startKey = calculateKey(startCell, startX, startY);
+			if (openCells.peekKey() >= startKey && rhs[startCell] == g[startCell])
+			{
+				break;
+			}
+
+			int cell = openCells.peek();
+			long oldKey = openCells.peekKey();
+			long newKey = calculateKey(cell, startX, startY);
+
+			if (oldKey < newKey)
+			{
+				// Key went stale when the start moved, queue it again
+				openCells.update(cell, newKey);
+			}
+			else if (g[cell] > rhs[cell])
+			{
+				// Overconsistent, its distance just got shorter
+				g[cell] = rhs[cell];
+				openCells.poll();
+				updatePredecessors(grid, cell, startX, startY);
+			}
+			else
+			{
+				// Underconsistent, its distance got longer
+				g[cell] = INFINITY;
+				updateVertex(grid, cell, startX, startY);
+				updatePredecessors(grid, cell, startX, startY);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Updates every cell that can step into cell.
+	 */
+	private void updatePredecessors(BitGrid grid, int cell, int startX, int startY)
+	{
+		int x = cell % width;
+		int y = cell / width;
+
+		for (int direction = 0; direction < Direction.COUNT; direction++)
+		{
+			int fromX = x + Direction.getDX(direction);
+			int fromY = y + Direction.getDY(direction);
+
+			if (fromX >= 0 && fromX < width && fromY >= 0 && fromY < height &&
+				grid.canMove(fromX, fromY, Direction.opposite(direction)))
+			{
+				updateVertex(grid, fromY * width + fromX, startX, startY);
+			}
+		}
+	}
+
+	/**
+	 * @return the packed priority of cell, smaller is expanded first
+	 */
+	private long calculateKey(int cell, int startX, int startY)
+	{
+		long distance = Math.min(g[cell], rhs[cell]);
+		long primary = distance + heuristic.estimate(startX, startY, cell % width, cell / width) + keyModifier;
+
+		return (Math.min(primary, MAX_PRIMARY_KEY) << 31) | Math.min(distance, MAX_SECONDARY_KEY);
+	}
+
+	/**
+	 * Follows the cheapest successors from the start to the end.
+	 * @return the path, null if the end can't be reached
+	 */
+	private SolutionPath extractPath(BitGrid grid, int startX, int startY)
+	{
+		int cell = startY * width + startX;
+		int endCell = endY * width + endX;
+
+		if (cell != endCell && g[cell] == INFINITY)
+		{
+			return null;
+		}
+
+		int[] directions = new int[16];
+		int length = 0;
+
+		while (cell != endCell)
+		{
+			int x = cell % width;
+			int y = cell / width;
+			int bestDirection = -1;
+			long best = Long.MAX_VALUE;
+
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if (!grid.canMove(x, y, direction))
+				{
+					continue;
+				}
+
+				int successor = cell + Direction.getDY(direction) * width + Direction.getDX(direction);
+				if (g[successor] == INFINITY)
+				{
+					continue;
+				}
+
+				long cost = (long) g[successor] + (Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT);
+				if (cost < best)
+				{
+					best = cost;
+					bestDirection = direction;
+				}
+			}
+
+			if (bestDirection < 0 || length == width * height)
+			{
+				throw new IllegalStateException("Inconsistent search state!");
+			}
+
+			if (length == directions.length)
+			{
+				directions = Arrays.copyOf(directions, length * 2);
+			}
+			directions[length++] = bestDirection;
+			cell += Direction.getDY(bestDirection) * width + Direction.getDX(bestDirection);
+		}
+
+		return new SolutionPath(startX, startY, Arrays.copyOf(directions, length));
+	}
+
+	/**
+	 * Passes changes of the Maze on to a solver as long as something else
+	 * still uses it, and removes itself from the Maze once nothing does.
+	 */
+	private static class WeakListener implements MazeChangeListener {
+
+		private final WeakReference<DStarLiteAlgorithm> solver;
+
+		private WeakListener(DStarLiteAlgorithm solver)
+		{
+			this.solver = new WeakReference<DStarLiteAlgorithm>(solver);
+		}
+
+		@Override
+		public void passabilityChanged(Maze maze, Position position, boolean passable)
+		{
+			DStarLiteAlgorithm target = solver.get();
+			if (target == null)
+			{
+				maze.removeChangeListener(this);
+				return;
+			}
+			target.passabilityChanged(maze, position, passable);
+		}
+	}
+
+}
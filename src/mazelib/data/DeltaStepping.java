@@ -0,0 +1,389 @@
+package mazelib.data;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel one-to-all distances with Meyer and Sanders' delta-stepping.
+ * Cells wait in buckets of distances delta wide. The lowest bucket is
+ * emptied in phases: each phase relaxes the light moves, those costing at
+ * most delta, of every cell in it at once on the pool, which can drop cells
+ * back into the same bucket for the next phase. Once it stays empty its
+ * cells are final and their heavy moves are relaxed in one more parallel
+ * step. Distances are lowered with compare and set, so the result is the
+ * same as Dijkstra's whichever thread gets there first.
+ *
+ * Searches backwards from the targets like DistanceField, and then picks the
+ * next step direction of every cell from the final distances.
+ */
+class DeltaStepping {
+
+	static final int DEFAULT_DELTA = 400;
+
+	private static final int COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final int COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+	private static final int UNREACHABLE = DistanceField.UNREACHABLE;
+
+	// Phases with fewer cells are relaxed by the calling thread
+	private static final int CELLS_PER_TASK = 512;
+	private static final int ROWS_PER_TASK = 16;
+
+	private final BitGrid grid;
+	private final ForkJoinPool pool;
+	private final int delta;
+	private final int width, height;
+
+	private final AtomicIntegerArray distances;
+
+	// Entries may be stale or repeated, cells are checked when taken out
+	private final IntBuffer[] buckets;
+	private int pending = 0;
+
+	// Phase and bucket a cell was last taken into, against repeats
+	private final int[] takenPhase;
+	private final int[] settledBucket;
+	private int phase = 0;
+
+	/**
+	 * @param grid the passability of the Maze
+	 * @param pool the pool to relax on
+	 * @param delta the width of a bucket, at least 1
+	 */
+	DeltaStepping(BitGrid grid, ForkJoinPool pool, int delta)
+	{
+		if (delta < 1)
+		{
+			throw new IllegalArgumentException("Delta must be positive.");
+		}
+
+		this.grid = grid;
+		this.pool = pool;
+		this.delta = delta;
+		this.width = grid.getWidth();
+		this.height = grid.getHeight();
+		this.distances = new AtomicIntegerArray(width * height);
+		this.takenPhase = new int[width * height];
+		this.settledBucket = new int[width * height];
+
+		// A relaxed cell lands at most this many buckets above the current one
+		this.buckets = new IntBuffer[(delta - 1 + COST_DIAGONAL) / delta + 1];
+		for (int i = 0; i < buckets.length; i++)
+		{
+			buckets[i] = new IntBuffer(64);
+		}
+	}
+
+	/**
+	 * Fills distances and nextDirections towards the nearest of targets,
+	 * both the size of the grid.
+	 */
+	void search(int[] targets, int[] distances, byte[] nextDirections)
+	{
+		for (int cell = 0; cell < distances.length; cell++)
+		{
+			this.distances.set(cell, UNREACHABLE);
+		}
+		Arrays.fill(settledBucket, -1);
+
+		for (int target : targets)
+		{
+			if (this.distances.get(target) != 0)
+			{
+				this.distances.set(target, 0);
+				add(target);
+			}
+		}
+
+		IntBuffer settled = new IntBuffer(64);
+		for (int bucket = 0; pending > 0; bucket++)
+		{
+			IntBuffer current = buckets[bucket % buckets.length];
+			settled.clear();
+
+			while (current.size > 0)
+			{
+				IntBuffer frontier = take(current, bucket, settled);
+				relax(frontier, true);
+			}
+			relax(settled, false);
+		}
+
+		for (int cell = 0; cell < distances.length; cell++)
+		{
+			distances[cell] = this.distances.get(cell);
+		}
+		pool.invoke(new PickDirections(distances, nextDirections, 0, height));
+	}
+
+	/**
+	 * Empties current into the cells of bucket that weren't taken this
+	 * phase, and adds those that weren't settled yet to settled.
+	 * @return the cells to relax this phase
+	 */
+	private IntBuffer take(IntBuffer current, int bucket, IntBuffer settled)
+	{
+		phase++;
+		IntBuffer frontier = new IntBuffer(current.size);
+		for (int i = 0; i < current.size; i++)
+		{
+			int cell = current.items[i];
+			if (distances.get(cell) / delta != bucket || takenPhase[cell] == phase)
+			{
+				continue;
+			}
+
+			takenPhase[cell] = phase;
+			frontier.add(cell);
+			if (settledBucket[cell] != bucket)
+			{
+				settledBucket[cell] = bucket;
+				settled.add(cell);
+			}
+		}
+		pending -= current.size;
+		current.clear();
+		return frontier;
+	}
+
+	/**
+	 * Relaxes the light or the heavy moves into every cell of cells, in
+	 * parallel when there are enough of them, and adds the lowered cells
+	 * to their buckets.
+	 */
+	private void relax(IntBuffer cells, boolean light)
+	{
+		if (cells.size == 0)
+		{
+			return;
+		}
+
+		int taskCount = (cells.size + CELLS_PER_TASK - 1) / CELLS_PER_TASK;
+		Relax[] tasks = new Relax[taskCount];
+		for (int i = 0; i < taskCount; i++)
+		{
+			tasks[i] = new Relax(cells, light, i * CELLS_PER_TASK,
+								 Math.min(cells.size, (i + 1) * CELLS_PER_TASK));
+		}
+
+		if (taskCount == 1)
+		{
+			tasks[0].compute();
+		}
+		else
+		{
+			pool.invoke(new RelaxAll(tasks));
+		}
+
+		for (Relax task : tasks)
+		{
+			for (int i = 0; i < task.lowered.size; i++)
+			{
+				add(task.lowered.items[i]);
+			}
+		}
+	}
+
+	/**
+	 * Puts cell into the bucket of its current distance.
+	 */
+	private void add(int cell)
+	{
+		buckets[(distances.get(cell) / delta) % buckets.length].add(cell);
+		pending++;
+	}
+
+	/**
+	 * Growable list of cells.
+	 */
+	private static class IntBuffer {
+
+		private int[] items;
+		private int size = 0;
+
+		private IntBuffer(int capacity)
+		{
+			this.items = new int[Math.max(1, capacity)];
+		}
+
+		private void add(int item)
+		{
+			if (size == items.length)
+			{
+				items = Arrays.copyOf(items, size * 2);
+			}
+			items[size++] = item;
+		}
+
+		private void clear()
+		{
+			size = 0;
+		}
+	}
+
+	/**
+	 * Runs every Relax task on the pool.
+	 */
+	private static class RelaxAll extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Relax[] tasks;
+
+		private RelaxAll(Relax[] tasks)
+		{
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected void compute()
+		{
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Relaxes the moves of a range of cells, keeping the cells it lowered.
+	 */
+	private class Relax extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IntBuffer cells;
+		private final boolean light;
+		private final int from, to;
+		private final IntBuffer lowered = new IntBuffer(64);
+
+		private Relax(IntBuffer cells, boolean light, int from, int to)
+		{
+			this.cells = cells;
+			this.light = light;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			for (int i = from; i < to; i++)
+			{
+				int cell = cells.items[i];
+				int x = cell % width;
+				int y = cell / width;
+
+				// Nothing can step into a wall, so no path goes through one
+				if (!grid.get(x, y))
+				{
+					continue;
+				}
+
+				int distance = distances.get(cell);
+				for (int direction = 0; direction < Direction.COUNT; direction++)
+				{
+					int cost = Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT;
+					if ((cost <= delta) != light)
+					{
+						continue;
+					}
+
+					int fromX = x + Direction.getDX(direction);
+					int fromY = y + Direction.getDY(direction);
+					if (fromX < 0 || fromX >= width || fromY < 0 || fromY >= height ||
+						!grid.canMove(fromX, fromY, Direction.opposite(direction)))
+					{
+						continue;
+					}
+
+					long candidate = (long) distance + cost;
+					if (candidate >= UNREACHABLE)
+					{
+						throw new IllegalStateException("Distance overflow!");
+					}
+					lower(fromY * width + fromX, (int) candidate);
+				}
+			}
+		}
+
+		/**
+		 * Sets the distance of cell to candidate if that is lower.
+		 */
+		private void lower(int cell, int candidate)
+		{
+			int current = distances.get(cell);
+			while (candidate < current)
+			{
+				if (distances.compareAndSet(cell, current, candidate))
+				{
+					lowered.add(cell);
+					return;
+				}
+				current = distances.get(cell);
+			}
+		}
+	}
+
+	/**
+	 * Picks for every reached cell of a band of rows a step that keeps to a
+	 * shortest path, reading the final distances only.
+	 */
+	private class PickDirections extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] distances;
+		private final byte[] nextDirections;
+		private final int fromRow, toRow;
+
+		private PickDirections(int[] distances, byte[] nextDirections, int fromRow, int toRow)
+		{
+			this.distances = distances;
+			this.nextDirections = nextDirections;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (toRow - fromRow > ROWS_PER_TASK)
+			{
+				int middle = (fromRow + toRow) >>> 1;
+				invokeAll(new PickDirections(distances, nextDirections, fromRow, middle),
+						  new PickDirections(distances, nextDirections, middle, toRow));
+				return;
+			}
+
+			for (int y = fromRow; y < toRow; y++)
+			{
+				for (int x = 0; x < width; x++)
+				{
+					int cell = y * width + x;
+					// Only targets are at no distance, every move costs something
+					nextDirections[cell] = -1;
+					if (distances[cell] == 0 || distances[cell] == UNREACHABLE)
+					{
+						continue;
+					}
+
+					for (int direction = 0; direction < Direction.COUNT; direction++)
+					{
+						if (!grid.canMove(x, y, direction))
+						{
+							continue;
+						}
+
+						int next = cell + Direction.getDY(direction) * width + Direction.getDX(direction);
+						int cost = Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT;
+						if (distances[next] != UNREACHABLE && distances[next] + cost == distances[cell])
+						{
+							nextDirections[cell] = (byte) direction;
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -7,8 +7,8 @@ package mazelib.data;
  */
 public class DiagonalDistance implements Heuristic {
 
-	private final static long COST_STRAIGHT = 100l;
-	private final static long COST_DIAGONAL = 141l;
+	private final static long COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private final static long COST_DIAGONAL = MovementModel.COST_DIAGONAL;
 	
 	@Override
 	public long calculateDistance(Node originNode, Node targetNode) {
@@ -23,16 +23,26 @@ public class DiagonalDistance implements Heuristic {
 		Position origin = originNode.getPosition();
 		Position target = targetNode.getPosition();
 		
-		int horizontal = Math.abs(target.getX() - origin.getX());
-		int vertical = Math.abs(target.getY() - origin.getY());
+		return estimate(origin.getX(), origin.getY(), target.getX(), target.getY());
+	}
+
+	/**
+	 * Octile distance without branches: diagonal steps cover the shorter
+	 * axis, straight steps the rest.
+	 */
+	@Override
+	public long estimate(int fromX, int fromY, int toX, int toY) {
 		
-		int diagonal = Math.min(horizontal, vertical);
-		int straight = horizontal + vertical;
+		int dx = toX - fromX;
+		int dy = toY - fromY;
+		int horizontal = (dx ^ (dx >> 31)) - (dx >> 31);
+		int vertical = (dy ^ (dy >> 31)) - (dy >> 31);
 		
-		long result = COST_DIAGONAL * diagonal +
-					  COST_STRAIGHT * (straight - 2 * diagonal);
+		int difference = horizontal - vertical;
+		int diagonal = vertical + (difference & (difference >> 31));
 		
-		return result;
+		return COST_STRAIGHT * (horizontal + vertical) -
+			   (2 * COST_STRAIGHT - COST_DIAGONAL) * diagonal;
 	}
 
 }
@@ -1,9 +1,6 @@
 package mazelib.data;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
  * @author Timur Reziapov	<reziapo1@illinois.edu>
@@ -11,9 +8,7 @@ import java.util.PriorityQueue;
  */
 public class DijkstrasAlgorithm extends MazeSolver {
 
-	private PriorityQueue<Node> queue;
-	
-	private static final long INFINITY = 7777777l;
+	private final GridAStar search;
 
 	/**
 	 * Constructor for DijkastrasAlgorithm Object.
@@ -22,6 +17,19 @@ public class DijkstrasAlgorithm extends MazeSolver {
 	public DijkstrasAlgorithm(Maze maze, Heuristic heuristic) 
 	{
 		super(maze, heuristic);
+		this.search = new GridAStar(this.maze, MovementModel.EIGHT_CONNECTED);
+	}
+	
+	/**
+	 * Constructor for DijkstrasAlgorithm Object that searches with the
+	 * moves and costs of model.
+	 * @param maze the Maze to solve
+	 * @param model the moves solutions may make
+	 */
+	public DijkstrasAlgorithm(Maze maze, Heuristic heuristic, MovementModel model) 
+	{
+		super(maze, heuristic, model);
+		this.search = new GridAStar(this.maze, model);
 	}
 	
 	/**
@@ -31,111 +39,28 @@ public class DijkstrasAlgorithm extends MazeSolver {
 	public DijkstrasAlgorithm(String stringMaze, Heuristic heuristic) 
 	{
 		super(stringMaze, heuristic);
+		this.search = new GridAStar(this.maze, MovementModel.EIGHT_CONNECTED);
 	}
 
 	/**
 	 * The main function of the algorithm.
+	 * Cells enter the queue only when they are first reached instead of
+	 * all passable Nodes up front, and the queue, costs and parents come 
+	 * from the calling thread's SearchArena.
+	 * @return List of Nodes from end Node back to start Node that represent 
+	 * 		   the solution to this maze,
+	 * 		   to the Node closest to end Node if the cancellation token stopped it,
+	 * 		   null if there is no path from start Node to end Node
 	 */
 	@Override
 	public List<Node> solveMaze() 
 	{
-		// Initialization
-		queue = new PriorityQueue<Node>();
-		solutionNodes = new HashMap<Node, Boolean>();
-		
-		for (int y = 0; y < this.maze.getHeight(); y++) 
-		{
-			for (int x = 0; x < this.maze.getWidth(); x++)
-			{
-				Position position = new Position(x, y);
-				Node currentNode = this.maze.getNode(position);
-
-				if (!currentNode.getIsPassable())
-				{
-					continue;
-				}
-				currentNode.setParentNode(null);
-				currentNode.setAccumulatedCost(INFINITY);
-				queue.add(currentNode);
-			}
-		}
-		
-		// Set distance from start Node as 0 
-		Node currentNode = this.maze.getStartNode();
-		Node targetNode = this.maze.getEndNode();
-		
-		queue.remove(currentNode);
-		currentNode.setAccumulatedCost(0l);
-		queue.add(currentNode);
-		
-		while (!queue.isEmpty())
-		{
-			// Get the vertex with smallest total distance
-			currentNode = queue.poll();
-			
-			if (currentNode == targetNode)
-			{
-				break;
-			}
-			
-			// If distance is infinity, all other vertices are inaccessible
-			long currentDistance = currentNode.getAccumulatedCost();
-			if (currentDistance == INFINITY)
-			{
-				// Failed
-				return null;
-			}
-			
-			for (Node neighborNode : currentNode.getAdjacentNodes(true))
-			{
-				if(!currentNode.canReach(neighborNode))
-				{
-					continue;
-				}
-				
-				// Calculate the cost to move to neighbor
-				long cost = COST_STRAIGHT;
-				if (neighborNode.getPosition().isDiagonal(currentNode.getPosition()))
-				{
-					cost = COST_DIAGONAL;
-				}
-				
-				long neighborDistance = cost;
-				long alternative = currentDistance + neighborDistance;
-				
-				if (alternative < neighborNode.getAccumulatedCost())
-				{
-					// Update distance to alternative and set parent to current Node
-					neighborNode.setAccumulatedCost(alternative);
-					neighborNode.setParentNode(currentNode);
-					
-					// Re-order the queue 
-					queue.remove(neighborNode);
-					queue.add(neighborNode);
-				}	
-			}
-		}
-		
-		// Make a list of solution Nodes
-		currentNode = this.maze.getEndNode();
-		Node startNode = this.maze.getStartNode();
-		
-		solution = new ArrayList<Node>();
+		setSolution(null);
 		
-		while (!currentNode.equals(startNode))
-		{
-			solution.add(currentNode);
-			solutionNodes.put(currentNode, true);
-			currentNode = currentNode.getParentNode();
-			if (currentNode == null)
-			{
-				return null;
-			}
-				
-		}
-		solution.add(startNode);
+		Position start = this.maze.getStartNode().getPosition();
+		Position end = this.maze.getEndNode().getPosition();
 		
-		return solution;
+		return setSolution(search.solve(start, end, cancellationToken));
 	}
 
 }
@@ -0,0 +1,87 @@
+package mazelib.data;
+
+/**
+ * Helper class that holds the eight directions a Node can be left in.
+ * Directions are numbered clockwise starting from north, so every direction
+ * fits in 3 bits and diagonal directions are exactly the odd ones.
+ */
+public final class Direction {
+
+	public static final int NORTH = 0;
+	public static final int NORTH_EAST = 1;
+	public static final int EAST = 2;
+	public static final int SOUTH_EAST = 3;
+	public static final int SOUTH = 4;
+	public static final int SOUTH_WEST = 5;
+	public static final int WEST = 6;
+	public static final int NORTH_WEST = 7;
+
+	public static final int COUNT = 8;
+
+	private static final int[] DX = { 0, 1, 1, 1, 0, -1, -1, -1 };
+	private static final int[] DY = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+	/**
+	 * Not instantiable, all members are static.
+	 */
+	private Direction()
+	{
+	}
+
+	/**
+	 * @param direction the direction code
+	 * @return the change in x coordinate when moving in direction
+	 */
+	public static int getDX(int direction)
+	{
+		return DX[direction];
+	}
+
+	/**
+	 * @param direction the direction code
+	 * @return the change in y coordinate when moving in direction
+	 */
+	public static int getDY(int direction)
+	{
+		return DY[direction];
+	}
+
+	/**
+	 * @param direction the direction code
+	 * @return true if direction is diagonal,
+	 * 		   false otherwise
+	 */
+	public static boolean isDiagonal(int direction)
+	{
+		return (direction & 1) == 1;
+	}
+
+	/**
+	 * @param direction the direction code
+	 * @return the direction pointing back
+	 */
+	public static int opposite(int direction)
+	{
+		return (direction + 4) & 7;
+	}
+
+	/**
+	 * Converts a one step offset to its direction code.
+	 * @param dx the change in x coordinate, between -1 and 1
+	 * @param dy the change in y coordinate, between -1 and 1
+	 * @return the direction code,
+	 * 		   -1 if offset is not a single step
+	 */
+	public static int fromOffset(int dx, int dy)
+	{
+		for (int direction = 0; direction < COUNT; direction++)
+		{
+			if (DX[direction] == dx && DY[direction] == dy)
+			{
+				return direction;
+			}
+		}
+		return -1;
+	}
+
+}
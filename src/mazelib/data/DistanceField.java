@@ -0,0 +1,346 @@
+package mazelib.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One-to-all distance field towards a target cell of a Maze, also known as
+ * a flow field. Computed once with a reverse Dijkstra search, it stores the
+ * distance to the target and the Direction of the next step for every cell
+ * in primitive arrays, so the path from any start is read off in time
+ * proportional to its length. Large fields can be computed in parallel with
+ * delta-stepping instead, which gives the same distances.
+ *
+ * A field can lead to several targets at once, such as every exit of a
+ * Maze, from a single search started at all of them. Each cell then leads
+ * to its nearest target, and the index of that target partitions the Maze
+ * into the Voronoi regions of the targets.
+ */
+public class DistanceField {
+
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final int COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final int COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+	private static final byte NO_DIRECTION = -1;
+
+	private final Maze maze;
+	private final int modificationCount;
+	private final int width, height;
+	private final int[] targetCells;
+	private final int[] distances;
+	private final byte[] nextDirections;
+
+	// Index of the nearest target of every cell, null with a single target
+	private final int[] nearestTargets;
+
+	/**
+	 * Computes the distance field of maze towards target.
+	 * @param maze the Maze to work on
+	 * @param target the Position every path leads to
+	 */
+	public DistanceField(Maze maze, Position target)
+	{
+		this(maze, target, null, DeltaStepping.DEFAULT_DELTA);
+	}
+
+	/**
+	 * Computes the distance field of maze towards target with delta-stepping
+	 * on the given pool.
+	 * @param maze the Maze to work on
+	 * @param target the Position every path leads to
+	 * @param pool the pool to relax cells on
+	 */
+	public DistanceField(Maze maze, Position target, ForkJoinPool pool)
+	{
+		this(maze, target, pool, DeltaStepping.DEFAULT_DELTA);
+	}
+
+	/**
+	 * Computes the distance field of maze towards target with delta-stepping
+	 * on the given pool.
+	 * @param maze the Maze to work on
+	 * @param target the Position every path leads to
+	 * @param pool the pool to relax cells on, null to search with Dijkstra
+	 * 		  on the calling thread
+	 * @param delta the width of the distance buckets, wider ones relax more
+	 * 		  cells at once but relax some of them more than once
+	 */
+	public DistanceField(Maze maze, Position target, ForkJoinPool pool, int delta)
+	{
+		this(maze, Collections.singletonList(target), pool, delta);
+	}
+
+	/**
+	 * Computes the distance field of maze towards the nearest of targets.
+	 * @param maze the Maze to work on
+	 * @param targets the Positions paths lead to, at least one
+	 */
+	public DistanceField(Maze maze, List<Position> targets)
+	{
+		this(maze, targets, null, DeltaStepping.DEFAULT_DELTA);
+	}
+
+	/**
+	 * Computes the distance field of maze towards the nearest of targets with
+	 * delta-stepping on the given pool.
+	 * @param maze the Maze to work on
+	 * @param targets the Positions paths lead to, at least one
+	 * @param pool the pool to relax cells on, null to search with Dijkstra
+	 * 		  on the calling thread
+	 * @param delta the width of the distance buckets, wider ones relax more
+	 * 		  cells at once but relax some of them more than once
+	 */
+	public DistanceField(Maze maze, List<Position> targets, ForkJoinPool pool, int delta)
+	{
+		if (maze == null || targets == null || targets.isEmpty())
+		{
+			throw new IllegalArgumentException("Illegal argument(s).");
+		}
+
+		this.maze = maze;
+		this.modificationCount = maze.getModificationCount();
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+		this.targetCells = new int[targets.size()];
+		this.distances = new int[width * height];
+		this.nextDirections = new byte[width * height];
+
+		for (int i = 0; i < targetCells.length; i++)
+		{
+			Position target = targets.get(i);
+			if (target == null || !maze.inBounds(target))
+			{
+				throw new IllegalArgumentException("Illegal argument(s).");
+			}
+			targetCells[i] = target.getY() * width + target.getX();
+		}
+
+		Arrays.fill(distances, UNREACHABLE);
+		Arrays.fill(nextDirections, NO_DIRECTION);
+
+		if (pool == null)
+		{
+			search(maze.getPassabilityGrid());
+		}
+		else
+		{
+			new DeltaStepping(maze.getPassabilityGrid(), pool, delta)
+				.search(targetCells, distances, nextDirections);
+		}
+		this.nearestTargets = (targetCells.length > 1) ? findNearestTargets() : null;
+	}
+
+	/**
+	 * Reverse Dijkstra from the targets. Costs are symmetric, so searching
+	 * backwards from the targets gives the forward distances to them.
+	 */
+	private void search(BitGrid grid)
+	{
+		IndexedHeap heap = new IndexedHeap(width * height);
+		for (int target : targetCells)
+		{
+			distances[target] = 0;
+			heap.update(target, 0l);
+		}
+
+		while (!heap.isEmpty())
+		{
+			int cell = heap.poll();
+			int x = cell % width;
+			int y = cell / width;
+
+			// Nothing can step into a wall, so no path goes through one
+			if (!grid.get(x, y))
+			{
+				continue;
+			}
+
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				int fromX = x + Direction.getDX(direction);
+				int fromY = y + Direction.getDY(direction);
+				int back = Direction.opposite(direction);
+
+				if (fromX < 0 || fromX >= width || fromY < 0 || fromY >= height ||
+					!grid.canMove(fromX, fromY, back))
+				{
+					continue;
+				}
+
+				long distance = (long) distances[cell] +
+								(Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT);
+				if (distance >= UNREACHABLE)
+				{
+					throw new IllegalStateException("Distance overflow!");
+				}
+
+				int from = fromY * width + fromX;
+				if (distance < distances[from])
+				{
+					distances[from] = (int) distance;
+					nextDirections[from] = (byte) back;
+					heap.update(from, distance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Labels every reachable cell with the target its next steps lead to.
+	 * Each step lowers the distance, so the steps from any cell end at a
+	 * target, and every chain is walked once.
+	 */
+	private int[] findNearestTargets()
+	{
+		int[] nearest = new int[width * height];
+		Arrays.fill(nearest, -1);
+
+		// Backwards, so a target listed twice keeps its first index
+		for (int i = targetCells.length - 1; i >= 0; i--)
+		{
+			nearest[targetCells[i]] = i;
+		}
+
+		int[] chain = new int[64];
+		for (int start = 0; start < nearest.length; start++)
+		{
+			if (nearest[start] >= 0 || distances[start] == UNREACHABLE)
+			{
+				continue;
+			}
+
+			int length = 0;
+			int cell = start;
+			while (nearest[cell] < 0)
+			{
+				if (length == chain.length)
+				{
+					chain = Arrays.copyOf(chain, length * 2);
+				}
+				chain[length++] = cell;
+				int direction = nextDirections[cell];
+				cell += Direction.getDY(direction) * width + Direction.getDX(direction);
+			}
+			while (length > 0)
+			{
+				nearest[chain[--length]] = nearest[cell];
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @return the cost of the shortest path from the cell to the nearest target,
+	 * 		   UNREACHABLE if there is none
+	 */
+	public int getDistance(int x, int y)
+	{
+		return distances[y * width + x];
+	}
+
+	/**
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @return the Direction of the first step from the cell towards the nearest target,
+	 * 		   -1 for the targets themselves and for unreachable cells
+	 */
+	public int getNextDirection(int x, int y)
+	{
+		return nextDirections[y * width + x];
+	}
+
+	/**
+	 * @param x the x coordinate of the cell
+	 * @param y the y coordinate of the cell
+	 * @return the index in the list of targets of the target nearest to the
+	 * 		   cell, which its path leads to,
+	 * 		   -1 for unreachable cells
+	 */
+	public int getNearestTarget(int x, int y)
+	{
+		int cell = y * width + x;
+		if (nearestTargets != null)
+		{
+			return nearestTargets[cell];
+		}
+		return (distances[cell] == UNREACHABLE) ? -1 : 0;
+	}
+
+	/**
+	 * Follows the next step directions from a cell to the nearest target.
+	 * @param start the Position to start from
+	 * @return the shortest path from start to the nearest target,
+	 * 		   null if the target can't be reached from start
+	 */
+	public SolutionPath getPath(Position start)
+	{
+		int x = start.getX();
+		int y = start.getY();
+		if (!maze.inBounds(start) || getDistance(x, y) == UNREACHABLE)
+		{
+			return null;
+		}
+
+		// Count the steps first so the chain code is allocated once
+		int length = 0;
+		for (int cell = y * width + x; nextDirections[cell] != NO_DIRECTION; length++)
+		{
+			int direction = nextDirections[cell];
+			cell += Direction.getDY(direction) * width + Direction.getDX(direction);
+		}
+
+		int[] directions = new int[length];
+		int cell = y * width + x;
+		for (int i = 0; i < length; i++)
+		{
+			directions[i] = nextDirections[cell];
+			cell += Direction.getDY(directions[i]) * width + Direction.getDX(directions[i]);
+		}
+		return new SolutionPath(x, y, directions);
+	}
+
+	/**
+	 * @return true if the Maze hasn't changed since this field was computed
+	 */
+	public boolean isValid()
+	{
+		return maze.getModificationCount() == modificationCount;
+	}
+
+	/**
+	 * @return the Maze this field was computed for
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * @return the Position every path leads to, the first target if there
+	 * 		   are several
+	 */
+	public Position getTarget()
+	{
+		return new Position(targetCells[0] % width, targetCells[0] / width);
+	}
+
+	/**
+	 * @return the Positions paths lead to, in the order they were given
+	 */
+	public List<Position> getTargets()
+	{
+		List<Position> targets = new ArrayList<Position>(targetCells.length);
+		for (int cell : targetCells)
+		{
+			targets.add(new Position(cell % width, cell / width));
+		}
+		return targets;
+	}
+
+}
@@ -0,0 +1,156 @@
+package mazelib.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded cache of DistanceFields keyed by Maze and target cell.
+ * When many agents head for the same end Node, the field is computed once
+ * and every later path is a walk along it. The least recently used field
+ * is evicted when the cache is full, and fields of Mazes that changed since
+ * they were computed are recomputed on the next lookup.
+ */
+public class DistanceFieldCache {
+
+	private final Map<Key, DistanceField> fields;
+
+	/**
+	 * Constructs an empty cache.
+	 * @param capacity the maximum number of fields to keep
+	 */
+	public DistanceFieldCache(final int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("Capacity is too small.");
+		}
+
+		// Access ordered, so the eldest entry is the least recently used one
+		this.fields = new LinkedHashMap<Key, DistanceField>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, DistanceField> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the distance field of maze towards target, computing it
+	 * if it isn't cached or the Maze has changed since.
+	 * @param maze the Maze to work on
+	 * @param target the Position every path leads to
+	 * @return the up to date distance field
+	 */
+	public DistanceField get(Maze maze, Position target)
+	{
+		Key key = new Key(maze, target);
+		DistanceField field;
+
+		synchronized (fields)
+		{
+			field = fields.get(key);
+		}
+		if (field != null && field.isValid())
+		{
+			return field;
+		}
+
+		// Compute outside the lock so other lookups aren't blocked
+		field = new DistanceField(maze, target);
+		synchronized (fields)
+		{
+			fields.put(key, field);
+		}
+		return field;
+	}
+
+	/**
+	 * Shortcut for the path from start to target.
+	 * @return the shortest path from start to target,
+	 * 		   null if there is none
+	 */
+	public SolutionPath getPath(Maze maze, Position start, Position target)
+	{
+		return get(maze, target).getPath(start);
+	}
+
+	/**
+	 * Drops every field computed for maze.
+	 * @param maze the Maze whose fields to drop
+	 */
+	public void invalidate(Maze maze)
+	{
+		synchronized (fields)
+		{
+			Iterator<Key> keys = fields.keySet().iterator();
+			while (keys.hasNext())
+			{
+				if (keys.next().maze == maze)
+				{
+					keys.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops every field.
+	 */
+	public void clear()
+	{
+		synchronized (fields)
+		{
+			fields.clear();
+		}
+	}
+
+	/**
+	 * @return number of cached fields
+	 */
+	public int size()
+	{
+		synchronized (fields)
+		{
+			return fields.size();
+		}
+	}
+
+	/**
+	 * Cache key, Mazes are compared by identity.
+	 */
+	private static class Key {
+
+		private final Maze maze;
+		private final int x, y;
+
+		private Key(Maze maze, Position target)
+		{
+			this.maze = maze;
+			this.x = target.getX();
+			this.y = target.getY();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(maze) * 31 + x) * 31 + y;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (other instanceof Key)
+			{
+				Key key = (Key) other;
+				return maze == key.maze && x == key.x && y == key.y;
+			}
+			return false;
+		}
+	}
+
+}
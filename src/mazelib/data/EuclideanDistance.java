@@ -7,7 +7,9 @@ package mazelib.data;
  */
 public class EuclideanDistance implements Heuristic{
 
-	private final static long COST_STRAIGHT = 100l;
+	private final static long COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private final static int TABLE_SIZE = 64;
+	private final static long[] TABLE = buildTable();
 	
 	/**
 	 * Calculate distance in straight direction to target
@@ -35,14 +37,68 @@ public class EuclideanDistance implements Heuristic{
 		Position origin = originNode.getPosition();
 		Position target = targetNode.getPosition();
 		
-		// Math.sqrt() requires argument to be of type double
-		double horizontal = (double) (Math.abs(target.getX() - origin.getX()) * COST_STRAIGHT);
-		double vertical = (double) (Math.abs(target.getY() - origin.getY()) * COST_STRAIGHT);
+		return estimate(origin.getX(), origin.getY(), target.getX(), target.getY());
+	}
+	
+	/**
+	 * Straight line distance rounded down, from a table for offsets close
+	 * to the target and an integer square root further away.
+	 */
+	@Override
+	public long estimate(int fromX, int fromY, int toX, int toY) {
 		
-		long result = (long) Math.sqrt(Math.pow(horizontal, 2d)
-									 + Math.pow(vertical, 2d));
-
-		return result;
+		int dx = toX - fromX;
+		int dy = toY - fromY;
+		int horizontal = (dx ^ (dx >> 31)) - (dx >> 31);
+		int vertical = (dy ^ (dy >> 31)) - (dy >> 31);
+		
+		if ((horizontal | vertical) < TABLE_SIZE)
+		{
+			return TABLE[horizontal * TABLE_SIZE + vertical];
+		}
+		
+		long squared = (long) horizontal * horizontal + (long) vertical * vertical;
+		return squareRoot(squared * COST_STRAIGHT * COST_STRAIGHT);
+	}
+	
+	/**
+	 * @param value a non-negative number below 2^62
+	 * @return the square root of value rounded down
+	 */
+	private static long squareRoot(long value) {
+		
+		// The double estimate is off by at most one either way
+		long root = (long) Math.sqrt((double) value);
+		
+		if (root * root > value)
+		{
+			root--;
+		}
+		else if ((root + 1) * (root + 1) <= value)
+		{
+			root++;
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * @return distances for all offsets below TABLE_SIZE on both axes
+	 */
+	private static long[] buildTable() {
+		
+		long[] table = new long[TABLE_SIZE * TABLE_SIZE];
+		
+		for (int horizontal = 0; horizontal < TABLE_SIZE; horizontal++)
+		{
+			for (int vertical = 0; vertical < TABLE_SIZE; vertical++)
+			{
+				long squared = (long) horizontal * horizontal + (long) vertical * vertical;
+				table[horizontal * TABLE_SIZE + vertical] = squareRoot(squared * COST_STRAIGHT * COST_STRAIGHT);
+			}
+		}
+		
+		return table;
 	}
 
 }
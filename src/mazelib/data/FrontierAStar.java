@@ -0,0 +1,602 @@
+package mazelib.data;
+
+import java.util.Arrays;
+
+/**
+ * Memory bounded A* that keeps only its frontier. Expanded cells are
+ * dropped instead of closed: every open cell remembers which of its
+ * neighbors already expanded it, so none of them is generated again.
+ * There are no parent pointers either, every open cell carries one relay,
+ * the first cell on its path at least half way to the end. The relay of
+ * the end splits the query in two, which are solved the same way until
+ * keeping every searched cell of a part fits the budget, or it is one or
+ * two moves long.
+ *
+ * Memory grows with the frontier rather than with the Maze, at the price of
+ * searching again at every level of the split. Frontier state, and the
+ * scratch space to compact it, is counted against a byte budget and the
+ * search gives up once it is over. With a consistent Heuristic paths are
+ * as short as GridAStar's.
+ */
+public class FrontierAStar {
+
+	private static final long COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final long COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+
+	// Paths up to this cost are at most two moves
+	private static final long SHORT_COST = 2 * COST_DIAGONAL;
+
+	// What search() gives back once the frontier is over the budget
+	private static final Segment OVER_BUDGET = new Segment(-1l, -1, -1l, null);
+
+	private final Maze maze;
+	private final Heuristic heuristic;
+	private final long memoryBudget;
+
+	/**
+	 * Constructs a FrontierAStar.
+	 * @param maze the Maze to search, treated as read only
+	 * @param heuristic the Heuristic to guide the search
+	 * @param memoryBudget the most bytes of frontier state one search may hold
+	 */
+	public FrontierAStar(Maze maze, Heuristic heuristic, long memoryBudget)
+	{
+		if (maze == null || heuristic == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+		if (memoryBudget <= 0)
+		{
+			throw new IllegalArgumentException("Memory budget must be positive.");
+		}
+
+		this.maze = maze;
+		this.heuristic = heuristic;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Finds a path between two cells.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @return the path from start to end,
+	 * 		   null if there is none or the frontier outgrows the memory budget
+	 */
+	public SolutionPath solve(Position start, Position end)
+	{
+		return solve(start, end, null);
+	}
+
+	/**
+	 * Finds a path between two cells, giving up once token is cancelled.
+	 * Without parent pointers there is no path to the closest cell to
+	 * hand back.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		   expansions, null to never stop
+	 * @return the path from start to end,
+	 * 		   null if there is none, the frontier outgrows the memory budget
+	 * 		   or token stopped the search
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		int width = maze.getWidth();
+		int startCell = start.getY() * width + start.getX();
+		int endCell = end.getY() * width + end.getX();
+
+		if (startCell == endCell)
+		{
+			return new SolutionPath(start.getX(), start.getY(), new int[0]);
+		}
+
+		// Component labels would cost a word per cell, the search finds out alone
+		BitGrid grid = maze.getPassabilityGrid();
+		if (!grid.get(end.getX(), end.getY()))
+		{
+			return null;
+		}
+
+		int[] directions = solveSegment(grid, startCell, endCell, -1l, token);
+		return (directions == null) ? null : new SolutionPath(start.getX(), start.getY(), directions);
+	}
+
+	/**
+	 * Solves one part of the query. If keeping every searched cell fits the
+	 * budget it is solved right away, otherwise it is split at the relay
+	 * half way along its cost.
+	 * @param cost the cost of the part, -1 if not known yet
+	 * @return the moves from startCell to endCell, null if there is no
+	 * 		   path, the frontier is over the budget or token is cancelled
+	 */
+	private int[] solveSegment(BitGrid grid, int startCell, int endCell, long cost, CancellationToken token)
+	{
+		if (cost >= 0 && cost <= SHORT_COST)
+		{
+			return shortPath(grid, startCell, endCell, cost);
+		}
+
+		// Keeping the cells of the path alone may already be over the budget
+		if (cost < 0 || Frontier.fits(2 * (cost / COST_DIAGONAL + 1), 0l, 0l, memoryBudget))
+		{
+			Segment segment = search(grid, startCell, endCell, 0l, true, token);
+			if (segment != OVER_BUDGET)
+			{
+				return (segment == null) ? null : segment.directions;
+			}
+		}
+
+		// Without a cost yet, guess the middle from the estimate. The winding
+		// of a maze usually puts that too close to the start to split evenly
+		int width = grid.getWidth();
+		long threshold = (cost >= 0) ? cost / 2 :
+						 heuristic.estimate(startCell % width, startCell / width,
+											endCell % width, endCell / width) / 2;
+
+		Segment segment = search(grid, startCell, endCell, threshold, false, token);
+		if (segment == null || segment == OVER_BUDGET)
+		{
+			return null;
+		}
+		if (segment.cost <= SHORT_COST)
+		{
+			return shortPath(grid, startCell, endCell, segment.cost);
+		}
+		if (segment.relay < 0 || segment.relay == endCell || segment.relayCost * 4 < segment.cost)
+		{
+			segment = search(grid, startCell, endCell, segment.cost / 2, false, token);
+			if (segment == OVER_BUDGET)
+			{
+				return null;
+			}
+		}
+
+		// Both parts are on a path, they only fail over the budget or once cancelled
+		int[] head = solveSegment(grid, startCell, segment.relay, segment.relayCost, token);
+		int[] tail = (head == null) ? null :
+					 solveSegment(grid, segment.relay, endCell, segment.cost - segment.relayCost, token);
+		if (tail == null)
+		{
+			return null;
+		}
+		int[] directions = Arrays.copyOf(head, head.length + tail.length);
+		System.arraycopy(tail, 0, directions, head.length, tail.length);
+		return directions;
+	}
+
+	/**
+	 * Finds the one or two moves from startCell to endCell costing cost.
+	 */
+	private int[] shortPath(BitGrid grid, int startCell, int endCell, long cost)
+	{
+		int width = grid.getWidth();
+		int x = startCell % width;
+		int y = startCell / width;
+
+		for (int first = 0; first < Direction.COUNT; first++)
+		{
+			if (!grid.canMove(x, y, first))
+			{
+				continue;
+			}
+
+			int middleX = x + Direction.getDX(first);
+			int middleY = y + Direction.getDY(first);
+			if (middleY * width + middleX == endCell && stepCost(first) == cost)
+			{
+				return new int[] { first };
+			}
+
+			for (int second = 0; second < Direction.COUNT; second++)
+			{
+				if (grid.canMove(middleX, middleY, second) &&
+					(middleY + Direction.getDY(second)) * width + middleX + Direction.getDX(second) == endCell &&
+					stepCost(first) + stepCost(second) == cost)
+				{
+					return new int[] { first, second };
+				}
+			}
+		}
+
+		throw new IllegalStateException("No short path of the searched cost.");
+	}
+
+	/**
+	 * A* keeping only the frontier, or every searched cell with the move
+	 * into it when keepClosed is set.
+	 * @param threshold the cost from which a cell on a path becomes its relay
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		   expansions, null to never stop
+	 * @return the cost of the path to endCell with its relay, or its moves
+	 * 		   when keepClosed is set, null if there is no path or token is
+	 * 		   cancelled, OVER_BUDGET if the frontier outgrew the budget
+	 */
+	private Segment search(BitGrid grid, int startCell, int endCell, long threshold, boolean keepClosed,
+						   CancellationToken token)
+	{
+		int width = grid.getWidth();
+		int endX = endCell % width;
+		int endY = endCell / width;
+
+		// Relays hold the move into each cell when closed cells are kept
+		if (!Frontier.fits(Frontier.INITIAL_CAPACITY, Frontier.INITIAL_CAPACITY, 0l, memoryBudget))
+		{
+			return OVER_BUDGET;
+		}
+		Frontier frontier = new Frontier(memoryBudget);
+		int slot = frontier.insert(startCell);
+		frontier.costs[slot] = 0l;
+		frontier.relays[slot] = (keepClosed || threshold > 0) ? -1 : startCell;
+		frontier.relayCosts[slot] = 0l;
+		if (!frontier.push(heuristic.estimate(startCell % width, startCell / width, endX, endY), startCell))
+		{
+			return OVER_BUDGET;
+		}
+
+		int expansions = 0;
+		while (!frontier.isEmpty())
+		{
+			if (token != null && ++expansions % CancellationToken.CHECK_INTERVAL == 0 && token.isCancelled())
+			{
+				return null;
+			}
+
+			long key = frontier.peekKey();
+			int cell = frontier.poll();
+			int x = cell % width;
+			int y = cell / width;
+
+			// Skip heap entries of dropped cells and of costs since lowered
+			slot = frontier.find(cell);
+			if (slot < 0)
+			{
+				continue;
+			}
+			long cost = frontier.costs[slot];
+			if (key != cost + heuristic.estimate(x, y, endX, endY))
+			{
+				continue;
+			}
+
+			int relay = frontier.relays[slot];
+			long relayCost = frontier.relayCosts[slot];
+			if (cell == endCell)
+			{
+				return keepClosed ? new Segment(cost, -1, 0l, frontier.buildPath(width, startCell, endCell)) :
+									new Segment(cost, relay, relayCost, null);
+			}
+
+			int used = frontier.used[slot];
+			if (!keepClosed)
+			{
+				frontier.remove(slot);
+			}
+
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if ((used & (1 << direction)) != 0 || !grid.canMove(x, y, direction))
+				{
+					continue;
+				}
+
+				int neighborX = x + Direction.getDX(direction);
+				int neighborY = y + Direction.getDY(direction);
+				int neighbor = neighborY * width + neighborX;
+				long accumulated = cost + stepCost(direction);
+
+				int neighborSlot = frontier.find(neighbor);
+				if (neighborSlot < 0)
+				{
+					neighborSlot = frontier.insert(neighbor);
+					if (neighborSlot < 0)
+					{
+						return OVER_BUDGET;
+					}
+				}
+				else if (accumulated >= frontier.costs[neighborSlot])
+				{
+					frontier.used[neighborSlot] |= 1 << Direction.opposite(direction);
+					continue;
+				}
+
+				frontier.used[neighborSlot] |= 1 << Direction.opposite(direction);
+				frontier.costs[neighborSlot] = accumulated;
+				if (keepClosed)
+				{
+					frontier.relays[neighborSlot] = direction;
+				}
+				else
+				{
+					boolean crossed = (relay < 0 && accumulated >= threshold);
+					frontier.relays[neighborSlot] = crossed ? neighbor : relay;
+					frontier.relayCosts[neighborSlot] = crossed ? accumulated : relayCost;
+				}
+				if (!frontier.push(accumulated + heuristic.estimate(neighborX, neighborY, endX, endY), neighbor))
+				{
+					return OVER_BUDGET;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the cost of one move in direction
+	 */
+	private static long stepCost(int direction)
+	{
+		return Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT;
+	}
+
+	/**
+	 * @return the Maze this solver works on
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * @return the most bytes of frontier state one search may hold
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Cost of a solved part of a query, with either its relay or its moves.
+	 */
+	private static class Segment {
+
+		private final long cost;
+		private final int relay;
+		private final long relayCost;
+		private final int[] directions;
+
+		private Segment(long cost, int relay, long relayCost, int[] directions)
+		{
+			this.cost = cost;
+			this.relay = relay;
+			this.relayCost = relayCost;
+			this.directions = directions;
+		}
+	}
+
+	/**
+	 * Open cells in an open addressing table, with a LazyHeap of
+	 * (key, cell) entries. Stale entries stay in the heap and are skipped
+	 * when polled, and the heap is rebuilt when they pile up. Table slots
+	 * move when it grows, so the heap refers to cells, not slots. Nothing
+	 * grows over the budget, the methods that would report it instead.
+	 */
+	private static class Frontier {
+
+		private static final int EMPTY = -1;
+		private static final int DROPPED = -2;
+		private static final int SLOT_BYTES = 4 + 8 + 4 + 8 + 1;
+		private static final int ENTRY_BYTES = 8 + 4;
+		private static final int INITIAL_CAPACITY = 16;
+
+		private final long memoryBudget;
+
+		private int[] cells = new int[INITIAL_CAPACITY];
+		private long[] costs = new long[INITIAL_CAPACITY];
+		private int[] relays = new int[INITIAL_CAPACITY];
+		private long[] relayCosts = new long[INITIAL_CAPACITY];
+		private byte[] used = new byte[INITIAL_CAPACITY];
+		private int size, occupied;
+
+		private final LazyHeap heap = new LazyHeap(INITIAL_CAPACITY);
+
+		private Frontier(long memoryBudget)
+		{
+			this.memoryBudget = memoryBudget;
+			Arrays.fill(cells, EMPTY);
+		}
+
+		/**
+		 * @return the slot of cell, -1 if it isn't open
+		 */
+		private int find(int cell)
+		{
+			int mask = cells.length - 1;
+			for (int slot = hash(cell) & mask; ; slot = (slot + 1) & mask)
+			{
+				if (cells[slot] == cell)
+				{
+					return slot;
+				}
+				if (cells[slot] == EMPTY)
+				{
+					return -1;
+				}
+			}
+		}
+
+		/**
+		 * Adds cell, which must not be open yet, with nothing used.
+		 * @return the slot of cell, -1 if the table would grow over the budget
+		 */
+		private int insert(int cell)
+		{
+			if ((occupied + 1) * 2 > cells.length)
+			{
+				int capacity = (size + 1) * 4 > cells.length ? cells.length * 2 : cells.length;
+				if (!fits(capacity, heap.getCapacity(), 0l, memoryBudget))
+				{
+					return -1;
+				}
+				rehash(capacity);
+			}
+
+			int mask = cells.length - 1;
+			int slot = hash(cell) & mask;
+			while (cells[slot] >= 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+
+			if (cells[slot] == EMPTY)
+			{
+				occupied++;
+			}
+			cells[slot] = cell;
+			used[slot] = 0;
+			size++;
+			return slot;
+		}
+
+		/**
+		 * Drops the cell at slot.
+		 */
+		private void remove(int slot)
+		{
+			cells[slot] = DROPPED;
+			size--;
+		}
+
+		/**
+		 * Moves the open cells into a table of the given capacity.
+		 */
+		private void rehash(int capacity)
+		{
+			int[] oldCells = cells;
+			long[] oldCosts = costs;
+			int[] oldRelays = relays;
+			long[] oldRelayCosts = relayCosts;
+			byte[] oldUsed = used;
+
+			cells = new int[capacity];
+			costs = new long[capacity];
+			relays = new int[capacity];
+			relayCosts = new long[capacity];
+			used = new byte[capacity];
+			Arrays.fill(cells, EMPTY);
+			size = 0;
+			occupied = 0;
+
+			for (int old = 0; old < oldCells.length; old++)
+			{
+				if (oldCells[old] >= 0)
+				{
+					int slot = insert(oldCells[old]);
+					costs[slot] = oldCosts[old];
+					relays[slot] = oldRelays[old];
+					relayCosts[slot] = oldRelayCosts[old];
+					used[slot] = oldUsed[old];
+				}
+			}
+		}
+
+		/**
+		 * Follows the moves kept in relays back from endCell.
+		 * @return the moves from startCell to endCell
+		 */
+		private int[] buildPath(int width, int startCell, int endCell)
+		{
+			int length = 0;
+			for (int cell = endCell; cell != startCell; length++)
+			{
+				int direction = relays[find(cell)];
+				cell -= Direction.getDY(direction) * width + Direction.getDX(direction);
+			}
+
+			int[] directions = new int[length];
+			for (int cell = endCell; cell != startCell; )
+			{
+				int direction = relays[find(cell)];
+				directions[--length] = direction;
+				cell -= Direction.getDY(direction) * width + Direction.getDX(direction);
+			}
+			return directions;
+		}
+
+		/**
+		 * @return false if the heap would grow over the budget
+		 */
+		private boolean push(long key, int cell)
+		{
+			if (heap.size() == heap.getCapacity())
+			{
+				// Mostly stale: drop them instead of growing, if there is room to sort them out
+				if (heap.size() > size * 2 && fits(cells.length, heap.getCapacity(), 8l * cells.length, memoryBudget))
+				{
+					compact();
+				}
+				else if (!fits(cells.length, heap.getCapacity() * 2l, 0l, memoryBudget))
+				{
+					return false;
+				}
+			}
+			heap.push(key, cell);
+			return true;
+		}
+
+		/**
+		 * Keeps only the heap entries of open cells that are still current.
+		 * Keys aren't stored in the table, so duplicates of a cell keep the
+		 * lowest key, which is the current one since keys only go down. The
+		 * lowest keys take a long per table slot while compacting.
+		 */
+		private void compact()
+		{
+			long[] best = new long[cells.length];
+			Arrays.fill(best, Long.MAX_VALUE);
+			for (int i = 0; i < heap.size(); i++)
+			{
+				int slot = find(heap.getItem(i));
+				if (slot >= 0 && heap.getKey(i) < best[slot])
+				{
+					best[slot] = heap.getKey(i);
+				}
+			}
+
+			heap.clear();
+			for (int slot = 0; slot < cells.length; slot++)
+			{
+				if (cells[slot] >= 0 && best[slot] != Long.MAX_VALUE)
+				{
+					heap.push(best[slot], cells[slot]);
+				}
+			}
+		}
+
+		private boolean isEmpty()
+		{
+			return heap.isEmpty();
+		}
+
+		private long peekKey()
+		{
+			return heap.peekKey();
+		}
+
+		private int poll()
+		{
+			return heap.poll();
+		}
+
+		/**
+		 * @param scratchBytes bytes needed on top of the table and heap
+		 * @return true if a table and heap of these sizes fit the budget
+		 */
+		private static boolean fits(long slots, long heapEntries, long scratchBytes, long memoryBudget)
+		{
+			return slots * SLOT_BYTES + heapEntries * ENTRY_BYTES + scratchBytes <= memoryBudget;
+		}
+
+		private static int hash(int cell)
+		{
+			int h = cell * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package mazelib.data;
+
+/**
+ * Minimal weighted directed graph for searches that don't care where it
+ * came from: a full Maze, a CsrGraph copied out of one, or the junctions of
+ * a JunctionGraph. Vertices are ints from 0 to getVertexCount() - 1, and
+ * successors are written into arrays the caller owns, so walking them
+ * allocates nothing.
+ */
+public interface Graph {
+
+	/**
+	 * @return the number of vertices
+	 */
+	int getVertexCount();
+
+	/**
+	 * @return the most successors any vertex has, the size getSuccessors
+	 * 		   needs its arrays to be
+	 */
+	int getMaxDegree();
+
+	/**
+	 * Writes the successors of a vertex and the costs of the edges to them.
+	 * @param vertex the vertex to leave
+	 * @param targets receives the successors, at least getMaxDegree() long
+	 * @param costs receives the positive edge costs, at least getMaxDegree() long
+	 * @return the number of successors written
+	 */
+	int getSuccessors(int vertex, int[] targets, long[] costs);
+
+	/**
+	 * @return true if vertices have grid coordinates a Heuristic can use
+	 */
+	boolean hasCoordinates();
+
+	/**
+	 * @param vertex the vertex to place
+	 * @return the x coordinate of vertex, 0 without coordinates
+	 */
+	int getVertexX(int vertex);
+
+	/**
+	 * @param vertex the vertex to place
+	 * @return the y coordinate of vertex, 0 without coordinates
+	 */
+	int getVertexY(int vertex);
+
+}
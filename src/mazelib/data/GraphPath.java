@@ -0,0 +1,80 @@
+package mazelib.data;
+
+import java.util.Arrays;
+
+/**
+ * Path through a Graph found by GraphSearch: its vertices in order and
+ * the total cost of the edges between them.
+ */
+public class GraphPath {
+
+	private final int[] vertices;
+	private final long cost;
+
+	/**
+	 * Constructs a GraphPath.
+	 * @param vertices the vertices from the first to the last
+	 * @param cost the total cost of the path
+	 */
+	public GraphPath(int[] vertices, long cost)
+	{
+		if (vertices == null || vertices.length == 0)
+		{
+			throw new IllegalArgumentException("Empty path.");
+		}
+
+		this.vertices = vertices;
+		this.cost = cost;
+	}
+
+	/**
+	 * @return the vertices from the first to the last
+	 */
+	public int[] getVertices()
+	{
+		return Arrays.copyOf(vertices, vertices.length);
+	}
+
+	/**
+	 * @param index the place on the path, 0 for the first vertex
+	 * @return the vertex at index
+	 */
+	public int getVertex(int index)
+	{
+		return vertices[index];
+	}
+
+	/**
+	 * @return the number of vertices, one more than the number of edges
+	 */
+	public int getVertexCount()
+	{
+		return vertices.length;
+	}
+
+	/**
+	 * @return the first vertex
+	 */
+	public int getFirst()
+	{
+		return vertices[0];
+	}
+
+	/**
+	 * @return the last vertex
+	 */
+	public int getLast()
+	{
+		return vertices[vertices.length - 1];
+	}
+
+	/**
+	 * @return the total cost of the edges on the path, plus any cost the
+	 * 		   search was given for its sources and targets
+	 */
+	public long getCost()
+	{
+		return cost;
+	}
+
+}
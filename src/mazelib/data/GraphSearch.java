@@ -0,0 +1,228 @@
+package mazelib.data;
+
+import java.util.Arrays;
+
+/**
+ * A* over any Graph, and Dijkstra without a Heuristic. Written once
+ * against vertex ids, it runs the same on a whole Maze, on a CsrGraph copy
+ * of it and on the junctions of a JunctionGraph.
+ *
+ * Searches may start from several sources and stop at several targets,
+ * each with a cost of its own, which is how reduced graphs attach cells
+ * that aren't vertices. The arrays are kept between searches and reset by
+ * stamps, so a search only touches what it reaches, but one GraphSearch
+ * runs one search at a time.
+ */
+public class GraphSearch {
+
+	private final Graph graph;
+	private final Heuristic heuristic;
+
+	private final long[] costs;
+	private final int[] parents;
+	private final int[] seen;
+	private final long[] targetCosts;
+	private final int[] targetSeen;
+	private final IndexedHeap openVertices;
+	private final int[] successors;
+	private final long[] edgeCosts;
+	private int stamp = 0;
+
+	/**
+	 * Constructs a Dijkstra search of graph.
+	 * @param graph the Graph to search
+	 */
+	public GraphSearch(Graph graph)
+	{
+		this(graph, null);
+	}
+
+	/**
+	 * Constructs an A* search of graph.
+	 * @param graph the Graph to search
+	 * @param heuristic estimates costs between vertex coordinates without
+	 * 		  overestimating them, null for Dijkstra
+	 */
+	public GraphSearch(Graph graph, Heuristic heuristic)
+	{
+		if (graph == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+		if (heuristic != null && !graph.hasCoordinates())
+		{
+			throw new IllegalArgumentException("Graph has no coordinates for the heuristic.");
+		}
+
+		int vertexCount = graph.getVertexCount();
+		this.graph = graph;
+		this.heuristic = heuristic;
+		this.costs = new long[vertexCount];
+		this.parents = new int[vertexCount];
+		this.seen = new int[vertexCount];
+		this.targetCosts = new long[vertexCount];
+		this.targetSeen = new int[vertexCount];
+		this.openVertices = new IndexedHeap(vertexCount);
+		this.successors = new int[graph.getMaxDegree()];
+		this.edgeCosts = new long[graph.getMaxDegree()];
+	}
+
+	/**
+	 * Finds a cheapest path between two vertices.
+	 * @param start the vertex to start from
+	 * @param end the vertex to reach
+	 * @return the path from start to end,
+	 * 		   null if there is none
+	 */
+	public GraphPath solve(int start, int end)
+	{
+		return solve(new int[] { start }, new long[] { 0l }, new int[] { end }, new long[] { 0l });
+	}
+
+	/**
+	 * Finds a cheapest path from any source to any target, counting what
+	 * it costs to get to the source and from the target.
+	 * @param sources the vertices to start from
+	 * @param sourceCosts the cost of starting at each source
+	 * @param targets the vertices to stop at
+	 * @param targetCosts the cost of stopping at each target
+	 * @return the cheapest path from a source to a target,
+	 * 		   null if no target can be reached
+	 */
+	public GraphPath solve(int[] sources, long[] sourceCosts, int[] targets, long[] targetCosts)
+	{
+		return solve(sources, sourceCosts, targets, targetCosts, null);
+	}
+
+	/**
+	 * Same search, giving up once token is cancelled.
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		   expansions, null to never stop
+	 * @return the cheapest path from a source to a target,
+	 * 		   null if no target can be reached or token stopped the search
+	 */
+	public GraphPath solve(int[] sources, long[] sourceCosts, int[] targets, long[] targetCosts,
+						   CancellationToken token)
+	{
+		if (sources == null || sourceCosts == null || targets == null || targetCosts == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+		if (sources.length != sourceCosts.length || targets.length != targetCosts.length)
+		{
+			throw new IllegalArgumentException("Every vertex needs a cost.");
+		}
+
+		nextStamp();
+		openVertices.clear();
+
+		for (int i = 0; i < targets.length; i++)
+		{
+			int target = targets[i];
+			if (targetSeen[target] != stamp || targetCosts[i] < this.targetCosts[target])
+			{
+				targetSeen[target] = stamp;
+				this.targetCosts[target] = targetCosts[i];
+			}
+		}
+
+		// One target can guide the search, several would need the nearest
+		int guide = (heuristic != null && targets.length == 1) ? targets[0] : -1;
+		for (int i = 0; i < sources.length; i++)
+		{
+			int source = sources[i];
+			if (seen[source] != stamp || sourceCosts[i] < costs[source])
+			{
+				seen[source] = stamp;
+				costs[source] = sourceCosts[i];
+				parents[source] = -1;
+				openVertices.update(source, sourceCosts[i] + estimate(source, guide));
+			}
+		}
+
+		long best = Long.MAX_VALUE;
+		int bestTarget = -1;
+		int expansions = 0;
+		while (!openVertices.isEmpty() && openVertices.peekKey() < best)
+		{
+			if (token != null && ++expansions % CancellationToken.CHECK_INTERVAL == 0 && token.isCancelled())
+			{
+				return null;
+			}
+
+			int vertex = openVertices.poll();
+			long cost = costs[vertex];
+
+			if (targetSeen[vertex] == stamp && cost + this.targetCosts[vertex] < best)
+			{
+				best = cost + this.targetCosts[vertex];
+				bestTarget = vertex;
+			}
+
+			int degree = graph.getSuccessors(vertex, successors, edgeCosts);
+			for (int i = 0; i < degree; i++)
+			{
+				int next = successors[i];
+				long accumulated = cost + edgeCosts[i];
+				if (seen[next] == stamp && accumulated >= costs[next])
+				{
+					continue;
+				}
+
+				seen[next] = stamp;
+				costs[next] = accumulated;
+				parents[next] = vertex;
+				openVertices.update(next, accumulated + estimate(next, guide));
+			}
+		}
+
+		if (bestTarget < 0)
+		{
+			return null;
+		}
+
+		int length = 1;
+		for (int vertex = bestTarget; parents[vertex] >= 0; vertex = parents[vertex])
+		{
+			length++;
+		}
+		int[] vertices = new int[length];
+		for (int vertex = bestTarget; vertex >= 0; vertex = parents[vertex])
+		{
+			vertices[--length] = vertex;
+		}
+		return new GraphPath(vertices, best);
+	}
+
+	private long estimate(int vertex, int guide)
+	{
+		if (guide < 0)
+		{
+			return 0l;
+		}
+		return heuristic.estimate(graph.getVertexX(vertex), graph.getVertexY(vertex),
+								  graph.getVertexX(guide), graph.getVertexY(guide));
+	}
+
+	/**
+	 * Moves to a stamp no vertex has, clearing the stamps when they run out.
+	 */
+	private void nextStamp()
+	{
+		if (++stamp == Integer.MAX_VALUE)
+		{
+			Arrays.fill(seen, 0);
+			Arrays.fill(targetSeen, 0);
+			stamp = 1;
+		}
+	}
+
+	/**
+	 * @return the Graph this search works on
+	 */
+	public Graph getGraph()
+	{
+		return graph;
+	}
+
+}
@@ -0,0 +1,281 @@
+package mazelib.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A* search over the packed passability of a Maze. It never writes to
+ * Nodes or to the Maze's start and end Nodes, and keeps its state in the
+ * calling thread's SearchArena, so any number of threads can run queries
+ * on one shared Maze at the same time. Without a Heuristic it is a plain
+ * uniform cost search, which DijkstrasAlgorithm relies on. Moves and their
+ * costs come from a MovementModel, 8-connected unless given. A search can
+ * also run towards the nearest of several ends at once.
+ */
+public class GridAStar {
+
+	/** More ends than this are searched for without a Heuristic. */
+	public static final int MAX_GUIDING_ENDS = 16;
+
+	// Measures which expanded cell got closest when an unguided search is stopped
+	private static final Heuristic DIAGONAL = new DiagonalDistance();
+
+	private final Maze maze;
+	private final Heuristic heuristic;
+	private final MovementModel model;
+
+	/**
+	 * Constructs a GridAStar.
+	 * @param maze the Maze to search, treated as read only
+	 * @param heuristic the Heuristic to guide the search
+	 */
+	public GridAStar(Maze maze, Heuristic heuristic)
+	{
+		this(maze, heuristic, MovementModel.EIGHT_CONNECTED);
+	}
+
+	/**
+	 * Constructs a GridAStar.
+	 * @param maze the Maze to search, treated as read only
+	 * @param heuristic the Heuristic to guide the search, which shouldn't
+	 * 		  overestimate the costs of model
+	 * @param model the moves the search may make
+	 */
+	public GridAStar(Maze maze, Heuristic heuristic, MovementModel model)
+	{
+		if (maze == null || heuristic == null || model == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.maze = maze;
+		this.heuristic = heuristic;
+		this.model = model;
+	}
+
+	/**
+	 * Constructs a uniform cost search, i.e. Dijkstra's algorithm.
+	 * @param maze the Maze to search, treated as read only
+	 * @param model the moves the search may make
+	 */
+	GridAStar(Maze maze, MovementModel model)
+	{
+		if (maze == null || model == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.maze = maze;
+		this.heuristic = null;
+		this.model = model;
+	}
+
+	/**
+	 * Finds a path between two cells.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @return the path from start to end,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end)
+	{
+		return solve(start, end, null);
+	}
+
+	/**
+	 * Finds a path between two cells unless stopped first.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		  expansions, null to never stop
+	 * @return the path from start to end,
+	 * 		   the path to the expanded cell closest to end if token stopped the search,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		if (MazeSolver.isUnreachable(maze, start.getX(), start.getY(), end.getX(), end.getY()))
+		{
+			return null;
+		}
+		return search(start, new int[] { end.getX() }, new int[] { end.getY() }, token);
+	}
+
+	/**
+	 * Finds a path to whichever of several cells is nearest, in one search
+	 * guided by the smallest estimate to any of them. Ends that can't be
+	 * reached are left out first, and with more than MAX_GUIDING_ENDS left
+	 * the search runs without a Heuristic, as working out the smallest
+	 * estimate would cost more than it saves.
+	 * @param start the Position to start from
+	 * @param ends the Positions that may be reached, at least one
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		  expansions, null to never stop
+	 * @return the path from start to the nearest of ends,
+	 * 		   the path to the expanded cell closest to an end if token stopped the search,
+	 * 		   or to the last one expanded with more than MAX_GUIDING_ENDS ends,
+	 * 		   null if none can be reached
+	 */
+	public SolutionPath solveNearest(Position start, List<Position> ends, CancellationToken token)
+	{
+		if (ends == null || ends.isEmpty())
+		{
+			throw new IllegalArgumentException("No ends.");
+		}
+		if (!maze.inBounds(start))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		int[] endXs = new int[ends.size()];
+		int[] endYs = new int[ends.size()];
+		int count = 0;
+		for (Position end : ends)
+		{
+			if (!maze.inBounds(end))
+			{
+				throw new IllegalArgumentException("Position out of bounds.");
+			}
+			if (!MazeSolver.isUnreachable(maze, start.getX(), start.getY(), end.getX(), end.getY()))
+			{
+				endXs[count] = end.getX();
+				endYs[count++] = end.getY();
+			}
+		}
+
+		if (count == 0)
+		{
+			return null;
+		}
+		return search(start, Arrays.copyOf(endXs, count), Arrays.copyOf(endYs, count), token);
+	}
+
+	/**
+	 * A* from start until the first of the ends is expanded.
+	 */
+	private SolutionPath search(Position start, int[] endXs, int[] endYs, CancellationToken token)
+	{
+		int width = maze.getWidth();
+		int startX = start.getX();
+		int startY = start.getY();
+
+		// Sorted so expanded cells are looked up in the ends quickly
+		int[] endCells = new int[endXs.length];
+		for (int i = 0; i < endCells.length; i++)
+		{
+			endCells[i] = endYs[i] * width + endXs[i];
+		}
+		Arrays.sort(endCells);
+		Heuristic guide = (endCells.length > MAX_GUIDING_ENDS) ? null : heuristic;
+
+		BitGrid grid = maze.getPassabilityGrid();
+		SearchArena arena = SearchArena.get(width * maze.getHeight());
+		IndexedHeap openCells = arena.getOpenCells();
+
+		int startCell = startY * width + startX;
+		arena.setCost(startCell, 0l, -1);
+		openCells.update(startCell, (guide == null) ? 0l : estimate(guide, startX, startY, endXs, endYs));
+
+		int[] directions = model.directions();
+		int closestCell = startCell;
+		long closestDistance = Long.MAX_VALUE;
+		int expansions = 0;
+
+		while (!openCells.isEmpty())
+		{
+			long key = openCells.peekKey();
+			int cell = openCells.poll();
+			if (Arrays.binarySearch(endCells, cell) >= 0)
+			{
+				return arena.buildPath(width, startCell, cell);
+			}
+			arena.close(cell);
+
+			int x = cell % width;
+			int y = cell / width;
+
+			if (token != null)
+			{
+				// A guided key already holds the estimate to the nearest end,
+				// with too many ends to measure the last cell expanded is kept
+				long distance = (guide != null) ? key - arena.getCost(cell)
+							  : (endCells.length <= MAX_GUIDING_ENDS) ? estimate(DIAGONAL, x, y, endXs, endYs)
+							  : 0l;
+				if (distance <= closestDistance)
+				{
+					closestDistance = distance;
+					closestCell = cell;
+				}
+				if (++expansions % CancellationToken.CHECK_INTERVAL == 0 && token.isCancelled())
+				{
+					return arena.buildPath(width, startCell, closestCell);
+				}
+			}
+			long cost = arena.getCost(cell);
+
+			for (int direction : directions)
+			{
+				if (!model.canMove(grid, x, y, direction))
+				{
+					continue;
+				}
+
+				int neighborX = x + Direction.getDX(direction);
+				int neighborY = y + Direction.getDY(direction);
+				int neighbor = neighborY * width + neighborX;
+				if (arena.isClosed(neighbor))
+				{
+					continue;
+				}
+
+				long accumulated = cost + model.getCost(direction);
+				if (arena.isSeen(neighbor) && accumulated >= arena.getCost(neighbor))
+				{
+					continue;
+				}
+
+				arena.setCost(neighbor, accumulated, direction);
+				long estimated = (guide == null) ? 0l : estimate(guide, neighborX, neighborY, endXs, endYs);
+				openCells.update(neighbor, accumulated + estimated);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the smallest estimate from a cell to any of the ends, which
+	 * 		   doesn't overestimate if the estimate to each end doesn't
+	 */
+	private static long estimate(Heuristic heuristic, int x, int y, int[] endXs, int[] endYs)
+	{
+		long smallest = heuristic.estimate(x, y, endXs[0], endYs[0]);
+		for (int i = 1; i < endXs.length; i++)
+		{
+			smallest = Math.min(smallest, heuristic.estimate(x, y, endXs[i], endYs[i]));
+		}
+		return smallest;
+	}
+
+	/**
+	 * @return the moves the search may make
+	 */
+	public MovementModel getMovementModel()
+	{
+		return model;
+	}
+
+	/**
+	 * @return the Maze this solver works on
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+
+}
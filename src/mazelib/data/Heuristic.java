@@ -15,4 +15,15 @@ public interface Heuristic {
 	 */
 	long calculateDistance(Node originNode, Node targetNode);
 	
+	/**
+	 * Estimates the cost between two cells without any Node lookups or
+	 * argument checks, for use in the inner loop of a search.
+	 * @param fromX the column of the cell to calculate distance from
+	 * @param fromY the row of the cell to calculate distance from
+	 * @param toX the column of the cell to calculate distance to
+	 * @param toY the row of the cell to calculate distance to
+	 * @return the same distance calculateDistance gives for the Nodes there
+	 */
+	long estimate(int fromX, int fromY, int toX, int toY);
+	
 }
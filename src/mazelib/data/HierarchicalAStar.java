@@ -0,0 +1,482 @@
+package mazelib.data;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical A* (HPA*) over the shared HierarchicalGraph of a Maze.
+ * A query connects start and end to the nodes of their clusters and runs
+ * A* on the small abstract graph. The clusters the abstract route passes
+ * through form a corridor, joined by the whole block of clusters spanning
+ * start and end when those are in the same or neighboring clusters, and
+ * one cell level A* confined to the corridor turns the route into moves.
+ *
+ * The path is the shortest one that stays inside the corridor, so it is
+ * never longer than the abstract route, and short queries near a border
+ * aren't sent around through a distant transition. A shortest path that
+ * leaves the corridor is still missed: fuzzing random edited mazes
+ * against A* found single paths up to 8% longer than the shortest, but
+ * a hundred queries together never more than 1% longer.
+ *
+ * Like GridAStar it never writes to the Maze, so threads can share one
+ * instance, as long as the Maze isn't edited while queries run.
+ */
+public class HierarchicalAStar {
+
+	private static final int UNREACHABLE = HierarchicalGraph.UNREACHABLE;
+	private static final int COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final int COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+	private static final int[] ORTHOGONAL = { Direction.NORTH, Direction.EAST,
+											  Direction.SOUTH, Direction.WEST };
+
+	// Admissible for the moves of the corridor search, whatever guides the abstract one
+	private static final Heuristic DIAGONAL = new DiagonalDistance();
+
+	private final Maze maze;
+	private final Heuristic heuristic;
+
+	/**
+	 * Constructs a HierarchicalAStar.
+	 * @param maze the Maze to search, treated as read only
+	 * @param heuristic the Heuristic to guide the abstract search
+	 */
+	public HierarchicalAStar(Maze maze, Heuristic heuristic)
+	{
+		if (maze == null || heuristic == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.maze = maze;
+		this.heuristic = heuristic;
+	}
+
+	/**
+	 * Finds a path between two cells.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @return the path from start to end,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		int startX = start.getX();
+		int startY = start.getY();
+		int endX = end.getX();
+		int endY = end.getY();
+
+		if (startX == endX && startY == endY)
+		{
+			return new SolutionPath(startX, startY, new int[0]);
+		}
+		if (MazeSolver.isUnreachable(maze, startX, startY, endX, endY))
+		{
+			return null;
+		}
+
+		// Distances to end are searched backwards from it, which would
+		// step out of an impassable end that nothing can step into
+		BitGrid grid = maze.getPassabilityGrid();
+		if (!grid.get(endX, endY))
+		{
+			return null;
+		}
+
+		// An impassable start isn't a cluster node and may step straight
+		// across a border, so solve from every way out instead
+		if (!grid.get(startX, startY))
+		{
+			SolutionPath best = null;
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if (grid.canMove(startX, startY, direction))
+				{
+					SolutionPath path = solve(new Position(startX + Direction.getDX(direction),
+														   startY + Direction.getDY(direction)), end);
+					if (path != null && (best == null || path.getCost() + stepCost(direction) < best.getCost()))
+					{
+						best = prepend(startX, startY, direction, path);
+					}
+				}
+			}
+			return best;
+		}
+
+		HierarchicalGraph graph = HierarchicalGraph.forMaze(maze);
+		int width = maze.getWidth();
+		int startCell = startY * width + startX;
+		int endCell = endY * width + endX;
+		int startCluster = graph.getCluster(startX, startY);
+		int endCluster = graph.getCluster(endX, endY);
+
+		// Distances within their clusters from start to its nodes, from end's nodes to end
+		int[] startDistances = connect(graph, grid, startCell, startCluster, endCell);
+		int directDistance = startDistances[startDistances.length - 1];
+		int[] endDistances = connect(graph, grid, endCell, endCluster, -1);
+
+		int[] route = searchAbstract(graph, grid, startCluster, startDistances, directDistance,
+									 endCluster, endDistances, endX, endY);
+		if (route == null)
+		{
+			return null;
+		}
+
+		return searchCorridor(graph, grid, corridor(graph, route, startCluster, endCluster),
+							  startCell, endCell);
+	}
+
+	/**
+	 * @return the cost of one move in direction
+	 */
+	private static int stepCost(int direction)
+	{
+		return Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT;
+	}
+
+	/**
+	 * @return path with one move in direction from (x, y) in front of it
+	 */
+	private static SolutionPath prepend(int x, int y, int direction, SolutionPath path)
+	{
+		int[] directions = new int[path.getLength() + 1];
+		directions[0] = direction;
+		for (int step = 0; step < path.getLength(); step++)
+		{
+			directions[step + 1] = path.getDirection(step);
+		}
+		return new SolutionPath(x, y, directions);
+	}
+
+	/**
+	 * Searches from cell to every node of its cluster without leaving it.
+	 * @param target a cell whose distance is appended to the result,
+	 * 		   -1 if not needed
+	 * @return one distance per node of cluster, then the distance to target
+	 */
+	private int[] connect(HierarchicalGraph graph, BitGrid grid, int cell, int cluster, int target)
+	{
+		int[] bounds = new int[4];
+		graph.getBounds(cluster, bounds);
+		int[] nodes = graph.getNodes(cluster);
+		int[] distances = new int[nodes.length + 1];
+
+		int width = grid.getWidth();
+		SearchArena arena = HierarchicalGraph.searchCluster(grid, cell, -1,
+															 bounds[0], bounds[1], bounds[2], bounds[3]);
+		for (int i = 0; i < nodes.length; i++)
+		{
+			int local = HierarchicalGraph.localCell(width, nodes[i], bounds[0], bounds[1], bounds[2]);
+			distances[i] = arena.isSeen(local) ? (int) arena.getCost(local) : UNREACHABLE;
+		}
+		distances[nodes.length] = UNREACHABLE;
+		if (target >= 0 && graph.getCluster(target % width, target / width) == cluster)
+		{
+			int local = HierarchicalGraph.localCell(width, target, bounds[0], bounds[1], bounds[2]);
+			if (arena.isSeen(local))
+			{
+				distances[nodes.length] = (int) arena.getCost(local);
+			}
+		}
+
+		return distances;
+	}
+
+	/**
+	 * A* over the abstract nodes plus start and end.
+	 * @return the abstract ids of the route from start to end, null if there is none
+	 */
+	private int[] searchAbstract(HierarchicalGraph graph, BitGrid grid,
+								 int startCluster, int[] startDistances, int directDistance,
+								 int endCluster, int[] endDistances, int endX, int endY)
+	{
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int nodeCount = graph.getNodeCount();
+		int startNode = nodeCount;
+		int endNode = nodeCount + 1;
+
+		long[] costs = new long[nodeCount + 2];
+		int[] parents = new int[nodeCount + 2];
+		boolean[] closed = new boolean[nodeCount + 2];
+		IndexedHeap openNodes = new IndexedHeap(nodeCount + 2);
+
+		Arrays.fill(costs, Long.MAX_VALUE);
+		costs[startNode] = 0l;
+		parents[startNode] = -1;
+		openNodes.update(startNode, 0l);
+
+		while (!openNodes.isEmpty())
+		{
+			int node = openNodes.poll();
+			if (node == endNode)
+			{
+				return buildRoute(parents, endNode);
+			}
+			closed[node] = true;
+
+			if (node == startNode)
+			{
+				int offset = graph.getOffset(startCluster);
+				for (int i = 0; i < startDistances.length - 1; i++)
+				{
+					relax(graph, openNodes, costs, parents, closed, node, offset + i,
+						  startDistances[i], endNode, endX, endY, width);
+				}
+				relax(graph, openNodes, costs, parents, closed, node, endNode,
+					  directDistance, endNode, endX, endY, width);
+				continue;
+			}
+
+			int cluster = graph.getNodeCluster(node);
+			int offset = graph.getOffset(cluster);
+			int[] nodes = graph.getNodes(cluster);
+			int[] distances = graph.getDistances(cluster);
+			int index = node - offset;
+
+			// Edges within the cluster
+			for (int i = 0; i < nodes.length; i++)
+			{
+				if (i != index)
+				{
+					relax(graph, openNodes, costs, parents, closed, node, offset + i,
+						  distances[index * nodes.length + i], endNode, endX, endY, width);
+				}
+			}
+
+			// Edges across the border into neighboring clusters
+			int cell = nodes[index];
+			int x = cell % width;
+			int y = cell / width;
+			for (int direction : ORTHOGONAL)
+			{
+				int neighborX = x + Direction.getDX(direction);
+				int neighborY = y + Direction.getDY(direction);
+				if (neighborX < 0 || neighborX >= width || neighborY < 0 || neighborY >= height)
+				{
+					continue;
+				}
+
+				int neighborCluster = graph.getCluster(neighborX, neighborY);
+				int neighborIndex = graph.getNodeIndex(neighborY * width + neighborX);
+				if (neighborCluster != cluster && neighborIndex >= 0 && grid.canMove(x, y, direction))
+				{
+					relax(graph, openNodes, costs, parents, closed, node,
+						  graph.getOffset(neighborCluster) + neighborIndex,
+						  COST_STRAIGHT, endNode, endX, endY, width);
+				}
+			}
+
+			if (cluster == endCluster)
+			{
+				relax(graph, openNodes, costs, parents, closed, node, endNode,
+					  endDistances[index], endNode, endX, endY, width);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Offers node a path through from that costs distance more than from.
+	 */
+	private void relax(HierarchicalGraph graph, IndexedHeap openNodes, long[] costs, int[] parents,
+					   boolean[] closed, int from, int node, int distance,
+					   int endNode, int endX, int endY, int width)
+	{
+		if (distance == UNREACHABLE || closed[node])
+		{
+			return;
+		}
+
+		long cost = costs[from] + distance;
+		if (cost >= costs[node])
+		{
+			return;
+		}
+
+		costs[node] = cost;
+		parents[node] = from;
+
+		long estimated = 0l;
+		if (node != endNode)
+		{
+			int cell = graph.getNodeCell(node);
+			estimated = heuristic.estimate(cell % width, cell / width, endX, endY);
+		}
+		openNodes.update(node, cost + estimated);
+	}
+
+	/**
+	 * @return the ids from the start to node, in order
+	 */
+	private int[] buildRoute(int[] parents, int node)
+	{
+		int length = 0;
+		for (int current = node; current >= 0; current = parents[current])
+		{
+			length++;
+		}
+
+		int[] route = new int[length];
+		for (int current = node; current >= 0; current = parents[current])
+		{
+			route[--length] = current;
+		}
+		return route;
+	}
+
+	/**
+	 * Marks the clusters of every node of route, and when start and end
+	 * are in the same or neighboring clusters every cluster of the block
+	 * spanning both, which holds any short path between them.
+	 * @return one flag per cluster, true for those the path may use
+	 */
+	private boolean[] corridor(HierarchicalGraph graph, int[] route, int startCluster, int endCluster)
+	{
+		int nodeCount = graph.getNodeCount();
+		boolean[] corridor = new boolean[graph.getClusterCount()];
+		corridor[startCluster] = true;
+		corridor[endCluster] = true;
+
+		for (int node : route)
+		{
+			if (node < nodeCount)
+			{
+				corridor[graph.getNodeCluster(node)] = true;
+			}
+		}
+
+		int clustersX = graph.getClustersX();
+		int startColumn = startCluster % clustersX;
+		int startRow = startCluster / clustersX;
+		int endColumn = endCluster % clustersX;
+		int endRow = endCluster / clustersX;
+		if (Math.abs(startColumn - endColumn) <= 1 && Math.abs(startRow - endRow) <= 1)
+		{
+			for (int row = Math.min(startRow, endRow); row <= Math.max(startRow, endRow); row++)
+			{
+				for (int column = Math.min(startColumn, endColumn); column <= Math.max(startColumn, endColumn); column++)
+				{
+					corridor[row * clustersX + column] = true;
+				}
+			}
+		}
+		return corridor;
+	}
+
+	/**
+	 * A* from start to end over the cells of the corridor clusters only,
+	 * guided by diagonal distance so the path is the shortest inside it.
+	 * Each corridor cluster gets a slot of clusterSize^2 cells in the
+	 * arena, so it grows with the corridor rather than the Maze.
+	 * @return the path, null if the corridor doesn't connect them
+	 */
+	private SolutionPath searchCorridor(HierarchicalGraph graph, BitGrid grid, boolean[] corridor,
+										int startCell, int endCell)
+	{
+		int width = grid.getWidth();
+		int size = graph.getClusterSize();
+		int startX = startCell % width;
+		int startY = startCell / width;
+		int endX = endCell % width;
+		int endY = endCell / width;
+
+		int[] slots = new int[corridor.length];
+		int slotCount = 0;
+		for (int cluster = 0; cluster < corridor.length; cluster++)
+		{
+			slots[cluster] = corridor[cluster] ? slotCount++ : -1;
+		}
+
+		SearchArena arena = SearchArena.get(slotCount * size * size);
+		IndexedHeap openCells = arena.getOpenCells();
+		int localStart = localCell(graph, slots, size, startX, startY);
+		int localEnd = localCell(graph, slots, size, endX, endY);
+		arena.setCost(localStart, 0l, -1);
+		openCells.update(localStart, 0l);
+
+		// The local number of a cell doesn't give its position, keep both
+		int[] positions = new int[slotCount * size * size];
+		positions[localStart] = startCell;
+
+		while (!openCells.isEmpty())
+		{
+			int cell = openCells.poll();
+			if (cell == localEnd)
+			{
+				return buildPath(graph, slots, size, arena, startX, startY, endX, endY);
+			}
+			arena.close(cell);
+
+			int x = positions[cell] % width;
+			int y = positions[cell] / width;
+			long cost = arena.getCost(cell);
+
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				int neighborX = x + Direction.getDX(direction);
+				int neighborY = y + Direction.getDY(direction);
+				if (!grid.canMove(x, y, direction) || !corridor[graph.getCluster(neighborX, neighborY)])
+				{
+					continue;
+				}
+
+				int neighbor = localCell(graph, slots, size, neighborX, neighborY);
+				if (arena.isClosed(neighbor))
+				{
+					continue;
+				}
+
+				long accumulated = cost + stepCost(direction);
+				if (arena.isSeen(neighbor) && accumulated >= arena.getCost(neighbor))
+				{
+					continue;
+				}
+
+				arena.setCost(neighbor, accumulated, direction);
+				positions[neighbor] = neighborY * width + neighborX;
+				openCells.update(neighbor, accumulated + DIAGONAL.estimate(neighborX, neighborY, endX, endY));
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the number of the cell at x and y in the slot of its cluster
+	 */
+	private static int localCell(HierarchicalGraph graph, int[] slots, int size, int x, int y)
+	{
+		return (slots[graph.getCluster(x, y)] * size + y % size) * size + x % size;
+	}
+
+	/**
+	 * Follows the parent directions of searchCorridor() back from the end.
+	 */
+	private static SolutionPath buildPath(HierarchicalGraph graph, int[] slots, int size, SearchArena arena,
+										  int startX, int startY, int endX, int endY)
+	{
+		int length = 0;
+		for (int x = endX, y = endY; x != startX || y != startY; length++)
+		{
+			int direction = arena.getParentDirection(localCell(graph, slots, size, x, y));
+			x -= Direction.getDX(direction);
+			y -= Direction.getDY(direction);
+		}
+
+		int[] directions = new int[length];
+		for (int x = endX, y = endY; length > 0; )
+		{
+			int direction = arena.getParentDirection(localCell(graph, slots, size, x, y));
+			directions[--length] = direction;
+			x -= Direction.getDX(direction);
+			y -= Direction.getDY(direction);
+		}
+		return new SolutionPath(startX, startY, directions);
+	}
+
+}
@@ -0,0 +1,532 @@
+package mazelib.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Abstract graph for hierarchical pathfinding (HPA*). The Maze is cut into
+ * square clusters; every maximal run of open cells along a cluster border
+ * gets one or two transitions, and the cells on both sides of a transition
+ * become abstract nodes. Each cluster stores the in-cluster distances
+ * between all of its nodes.
+ *
+ * One graph is kept per Maze. It listens for passability changes and
+ * rebuilds only the clusters they touch, the next time it is used.
+ */
+public class HierarchicalGraph implements MazeChangeListener {
+
+	public static final int DEFAULT_CLUSTER_SIZE = 16;
+	public static final int UNREACHABLE = DistanceField.UNREACHABLE;
+
+	// Runs at least this long get a transition at both ends instead of one in the middle
+	private static final int LONG_RUN = 6;
+	private static final int COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final int COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+
+	// Values must not refer to their Maze, or the Mazes would never be collected
+	private static final Map<Maze, HierarchicalGraph> GRAPHS = new WeakHashMap<Maze, HierarchicalGraph>();
+
+	private final int width, height;
+	private final int clusterSize;
+	private final int clustersX, clustersY;
+
+	private final int[][] clusterNodes;
+	private final int[][] clusterDistances;
+	private final int[] nodeIndices;
+	private final boolean[] dirtyClusters;
+	private int dirtyCount;
+
+	private int[] clusterOffsets;
+	private int[] nodeClusters;
+
+	/**
+	 * Constructs an empty graph for a Maze of the given size. Every cluster
+	 * starts out dirty and is built on the first refresh().
+	 * @param width the width of the Maze
+	 * @param height the height of the Maze
+	 * @param clusterSize the side length of a cluster in cells
+	 */
+	public HierarchicalGraph(int width, int height, int clusterSize)
+	{
+		if (width < 1 || height < 1 || clusterSize < 2)
+		{
+			throw new IllegalArgumentException("Illegal argument(s).");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.clusterSize = clusterSize;
+		this.clustersX = (width + clusterSize - 1) / clusterSize;
+		this.clustersY = (height + clusterSize - 1) / clusterSize;
+
+		int clusterCount = clustersX * clustersY;
+		this.clusterNodes = new int[clusterCount][];
+		this.clusterDistances = new int[clusterCount][];
+		this.nodeIndices = new int[width * height];
+		this.dirtyClusters = new boolean[clusterCount];
+
+		Arrays.fill(nodeIndices, -1);
+		Arrays.fill(dirtyClusters, true);
+		this.dirtyCount = clusterCount;
+	}
+
+	/**
+	 * Returns the graph shared by everyone working on maze, built or
+	 * repaired as needed.
+	 * @param maze the Maze to get the graph of
+	 * @return the up to date graph of maze
+	 */
+	public static HierarchicalGraph forMaze(Maze maze)
+	{
+		HierarchicalGraph graph;
+
+		synchronized (GRAPHS)
+		{
+			graph = GRAPHS.get(maze);
+			if (graph == null)
+			{
+				graph = new HierarchicalGraph(maze.getWidth(), maze.getHeight(), DEFAULT_CLUSTER_SIZE);
+				maze.addChangeListener(graph);
+				GRAPHS.put(maze, graph);
+			}
+		}
+
+		graph.refresh(maze);
+		return graph;
+	}
+
+	@Override
+	public synchronized void passabilityChanged(Maze maze, Position position, boolean passable)
+	{
+		int x = position.getX();
+		int y = position.getY();
+		int clusterX = x / clusterSize;
+		int clusterY = y / clusterSize;
+
+		markDirty(clusterX, clusterY);
+
+		// A border cell also decides the transitions of the cluster next to it
+		if (x % clusterSize == 0)
+		{
+			markDirty(clusterX - 1, clusterY);
+		}
+		if (x % clusterSize == clusterSize - 1)
+		{
+			markDirty(clusterX + 1, clusterY);
+		}
+		if (y % clusterSize == 0)
+		{
+			markDirty(clusterX, clusterY - 1);
+		}
+		if (y % clusterSize == clusterSize - 1)
+		{
+			markDirty(clusterX, clusterY + 1);
+		}
+	}
+
+	/**
+	 * Marks a cluster for rebuilding, ignoring clusters outside the Maze.
+	 */
+	private void markDirty(int clusterX, int clusterY)
+	{
+		if (clusterX < 0 || clusterX >= clustersX || clusterY < 0 || clusterY >= clustersY)
+		{
+			return;
+		}
+
+		int cluster = clusterY * clustersX + clusterX;
+		if (!dirtyClusters[cluster])
+		{
+			dirtyClusters[cluster] = true;
+			dirtyCount++;
+		}
+	}
+
+	/**
+	 * Rebuilds all dirty clusters in parallel.
+	 * @param maze the Maze this graph belongs to
+	 */
+	public synchronized void refresh(Maze maze)
+	{
+		if (maze.getWidth() != width || maze.getHeight() != height)
+		{
+			throw new IllegalArgumentException("Maze does not match the graph!");
+		}
+		if (dirtyCount == 0)
+		{
+			return;
+		}
+
+		List<Integer> dirty = new ArrayList<Integer>(dirtyCount);
+		for (int cluster = 0; cluster < dirtyClusters.length; cluster++)
+		{
+			if (dirtyClusters[cluster])
+			{
+				dirty.add(cluster);
+				dirtyClusters[cluster] = false;
+			}
+		}
+		dirtyCount = 0;
+
+		int[] clusters = new int[dirty.size()];
+		for (int i = 0; i < clusters.length; i++)
+		{
+			clusters[i] = dirty.get(i);
+		}
+
+		ForkJoinPool pool = BatchSolver.getDefaultPool();
+		pool.invoke(new BuildClusters(maze.getPassabilityGrid(), clusters, 0, clusters.length));
+
+		indexNodes();
+	}
+
+	/**
+	 * Numbers all nodes of all clusters consecutively.
+	 */
+	private void indexNodes()
+	{
+		clusterOffsets = new int[clusterNodes.length + 1];
+		for (int cluster = 0; cluster < clusterNodes.length; cluster++)
+		{
+			clusterOffsets[cluster + 1] = clusterOffsets[cluster] + clusterNodes[cluster].length;
+		}
+
+		nodeClusters = new int[clusterOffsets[clusterNodes.length]];
+		for (int cluster = 0; cluster < clusterNodes.length; cluster++)
+		{
+			for (int node = clusterOffsets[cluster]; node < clusterOffsets[cluster + 1]; node++)
+			{
+				nodeClusters[node] = cluster;
+			}
+		}
+	}
+
+	/**
+	 * Finds the transitions and in-cluster distances of one cluster.
+	 * Only writes state owned by that cluster, so clusters build in parallel.
+	 */
+	private void buildCluster(BitGrid grid, int cluster)
+	{
+		int x0 = (cluster % clustersX) * clusterSize;
+		int y0 = (cluster / clustersX) * clusterSize;
+		int x1 = Math.min(x0 + clusterSize, width);
+		int y1 = Math.min(y0 + clusterSize, height);
+		int clusterWidth = x1 - x0;
+
+		boolean[] isNode = new boolean[clusterWidth * (y1 - y0)];
+		if (x0 > 0)
+		{
+			addTransitions(grid, isNode, x0, y0, x0, y0, x0, y1, -1, 0);
+		}
+		if (x1 < width)
+		{
+			addTransitions(grid, isNode, x0, y0, x1 - 1, y0, x1 - 1, y1, 1, 0);
+		}
+		if (y0 > 0)
+		{
+			addTransitions(grid, isNode, x0, y0, x0, y0, x1, y0, 0, -1);
+		}
+		if (y1 < height)
+		{
+			addTransitions(grid, isNode, x0, y0, x0, y1 - 1, x1, y1 - 1, 0, 1);
+		}
+
+		int count = 0;
+		for (int y = y0; y < y1; y++)
+		{
+			for (int x = x0; x < x1; x++)
+			{
+				nodeIndices[y * width + x] = isNode[(y - y0) * clusterWidth + (x - x0)] ? count++ : -1;
+			}
+		}
+
+		int[] nodes = new int[count];
+		for (int y = y0; y < y1; y++)
+		{
+			for (int x = x0; x < x1; x++)
+			{
+				int index = nodeIndices[y * width + x];
+				if (index >= 0)
+				{
+					nodes[index] = y * width + x;
+				}
+			}
+		}
+
+		int[] distances = new int[count * count];
+		for (int from = 0; from < count; from++)
+		{
+			SearchArena arena = searchCluster(grid, nodes[from], -1, x0, y0, x1, y1);
+			for (int to = 0; to < count; to++)
+			{
+				int local = localCell(width, nodes[to], x0, y0, x1);
+				distances[from * count + to] = arena.isSeen(local) ? (int) arena.getCost(local) : UNREACHABLE;
+			}
+		}
+
+		clusterNodes[cluster] = nodes;
+		clusterDistances[cluster] = distances;
+	}
+
+	/**
+	 * Places transitions on one border of a cluster. The border runs from
+	 * (fromX, fromY) up to but excluding (toX, toY) inside the cluster, and
+	 * (dx, dy) points across it into the neighboring cluster.
+	 */
+	private void addTransitions(BitGrid grid, boolean[] isNode, int x0, int y0,
+								int fromX, int fromY, int toX, int toY, int dx, int dy)
+	{
+		int stepX = (dx == 0) ? 1 : 0;
+		int stepY = (dy == 0) ? 1 : 0;
+		int length = (toX - fromX) + (toY - fromY);
+		int clusterWidth = Math.min(x0 + clusterSize, width) - x0;
+		int runStart = -1;
+
+		for (int i = 0; i <= length; i++)
+		{
+			int x = fromX + i * stepX;
+			int y = fromY + i * stepY;
+			boolean open = (i < length) && grid.get(x, y) && grid.get(x + dx, y + dy);
+
+			if (open && runStart < 0)
+			{
+				runStart = i;
+			}
+			else if (!open && runStart >= 0)
+			{
+				int runLength = i - runStart;
+				if (runLength < LONG_RUN)
+				{
+					int middle = runStart + runLength / 2;
+					isNode[(fromY + middle * stepY - y0) * clusterWidth + (fromX + middle * stepX - x0)] = true;
+				}
+				else
+				{
+					isNode[(fromY + runStart * stepY - y0) * clusterWidth + (fromX + runStart * stepX - x0)] = true;
+					isNode[(fromY + (i - 1) * stepY - y0) * clusterWidth + (fromX + (i - 1) * stepX - x0)] = true;
+				}
+				runStart = -1;
+			}
+		}
+	}
+
+	/**
+	 * Dijkstra from source that never leaves the given rectangle. Cells
+	 * are numbered within the rectangle, so the arena only needs to be as
+	 * large as a cluster, even on the pool threads that build them.
+	 * @param target the cell to stop at, -1 to search the whole rectangle
+	 * @return the calling thread's arena holding the result by localCell()
+	 * 		   numbers, valid until the thread's next search
+	 */
+	static SearchArena searchCluster(BitGrid grid, int source, int target, int x0, int y0, int x1, int y1)
+	{
+		int width = grid.getWidth();
+		int rectangleWidth = x1 - x0;
+		SearchArena arena = SearchArena.get(rectangleWidth * (y1 - y0));
+		IndexedHeap openCells = arena.getOpenCells();
+
+		int localSource = localCell(width, source, x0, y0, x1);
+		int localTarget = (target < 0) ? -1 : localCell(width, target, x0, y0, x1);
+		arena.setCost(localSource, 0l, -1);
+		openCells.update(localSource, 0l);
+
+		while (!openCells.isEmpty())
+		{
+			int cell = openCells.poll();
+			arena.close(cell);
+			if (cell == localTarget)
+			{
+				break;
+			}
+
+			int x = x0 + cell % rectangleWidth;
+			int y = y0 + cell / rectangleWidth;
+			long cost = arena.getCost(cell);
+
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				int neighborX = x + Direction.getDX(direction);
+				int neighborY = y + Direction.getDY(direction);
+				if (neighborX < x0 || neighborX >= x1 || neighborY < y0 || neighborY >= y1 ||
+					!grid.canMove(x, y, direction))
+				{
+					continue;
+				}
+
+				int neighbor = (neighborY - y0) * rectangleWidth + (neighborX - x0);
+				if (arena.isClosed(neighbor))
+				{
+					continue;
+				}
+
+				long accumulated = cost + (Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT);
+				if (arena.isSeen(neighbor) && accumulated >= arena.getCost(neighbor))
+				{
+					continue;
+				}
+
+				arena.setCost(neighbor, accumulated, direction);
+				openCells.update(neighbor, accumulated);
+			}
+		}
+
+		return arena;
+	}
+
+	/**
+	 * @param width the width of the Maze
+	 * @param cell the cell of the Maze, inside the rectangle
+	 * @return the number of cell within the rectangle from x0 and y0 to
+	 * 		   x1, as searchCluster() numbers it
+	 */
+	static int localCell(int width, int cell, int x0, int y0, int x1)
+	{
+		return (cell / width - y0) * (x1 - x0) + (cell % width - x0);
+	}
+
+	/**
+	 * @return the number of abstract nodes in all clusters
+	 */
+	public synchronized int getNodeCount()
+	{
+		return nodeClusters.length;
+	}
+
+	/**
+	 * @return the number of clusters
+	 */
+	public int getClusterCount()
+	{
+		return clusterNodes.length;
+	}
+
+	/**
+	 * @return the number of clusters in a row of clusters
+	 */
+	int getClustersX()
+	{
+		return clustersX;
+	}
+
+	/**
+	 * @return the side length of a cluster in cells
+	 */
+	public int getClusterSize()
+	{
+		return clusterSize;
+	}
+
+	/**
+	 * @return the cluster containing the cell at x and y
+	 */
+	int getCluster(int x, int y)
+	{
+		return (y / clusterSize) * clustersX + (x / clusterSize);
+	}
+
+	/**
+	 * Fills bounds with x0, y0, x1 and y1 of cluster, upper bounds excluded.
+	 */
+	void getBounds(int cluster, int[] bounds)
+	{
+		bounds[0] = (cluster % clustersX) * clusterSize;
+		bounds[1] = (cluster / clustersX) * clusterSize;
+		bounds[2] = Math.min(bounds[0] + clusterSize, width);
+		bounds[3] = Math.min(bounds[1] + clusterSize, height);
+	}
+
+	/**
+	 * @return the cells of the nodes of cluster
+	 */
+	int[] getNodes(int cluster)
+	{
+		return clusterNodes[cluster];
+	}
+
+	/**
+	 * @return the in-cluster distances between the nodes of cluster,
+	 * 		   row major with one row per node
+	 */
+	int[] getDistances(int cluster)
+	{
+		return clusterDistances[cluster];
+	}
+
+	/**
+	 * @return the global id of the first node of cluster
+	 */
+	int getOffset(int cluster)
+	{
+		return clusterOffsets[cluster];
+	}
+
+	/**
+	 * @return the cluster of the node with global id node
+	 */
+	int getNodeCluster(int node)
+	{
+		return nodeClusters[node];
+	}
+
+	/**
+	 * @return the cell of the node with global id node
+	 */
+	int getNodeCell(int node)
+	{
+		int cluster = nodeClusters[node];
+		return clusterNodes[cluster][node - clusterOffsets[cluster]];
+	}
+
+	/**
+	 * @return the index of cell among its cluster's nodes, -1 if it isn't one
+	 */
+	int getNodeIndex(int cell)
+	{
+		return nodeIndices[cell];
+	}
+
+	/**
+	 * Builds a range of dirty clusters, splitting it in halves until it
+	 * is small enough.
+	 */
+	private class BuildClusters extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private static final int CHUNK_SIZE = 4;
+
+		private final BitGrid grid;
+		private final int[] clusters;
+		private final int from, to;
+
+		private BuildClusters(BitGrid grid, int[] clusters, int from, int to)
+		{
+			this.grid = grid;
+			this.clusters = clusters;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= CHUNK_SIZE)
+			{
+				for (int i = from; i < to; i++)
+				{
+					buildCluster(grid, clusters[i]);
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new BuildClusters(grid, clusters, from, middle),
+					  new BuildClusters(grid, clusters, middle, to));
+		}
+	}
+
+}
@@ -0,0 +1,235 @@
+package mazelib.data;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of int items, such as cell indexes, ordered by long keys.
+ * Keeps the heap position of every item so keys can be changed in place,
+ * which PriorityQueue can only do with a linear remove() and add().
+ */
+public class IndexedHeap {
+
+	private final int[] positions;
+	private final long[] keys;
+	private int[] items;
+	private int size = 0;
+
+	/**
+	 * Constructs an empty heap for items 0 to capacity - 1.
+	 * @param capacity the number of distinct items
+	 */
+	public IndexedHeap(int capacity)
+	{
+		this.positions = new int[capacity];
+		this.keys = new long[capacity];
+		this.items = new int[Math.min(capacity, 1024) + 1];
+		Arrays.fill(positions, -1);
+	}
+
+	/**
+	 * Adds item with key, or changes the key if item already is in the heap.
+	 * @param item the item to add
+	 * @param key the priority of item, smaller comes first
+	 */
+	public void update(int item, long key)
+	{
+		int position = positions[item];
+		if (position < 0)
+		{
+			if (size == items.length)
+			{
+				items = Arrays.copyOf(items, Math.min(items.length * 2, positions.length));
+			}
+			keys[item] = key;
+			items[size] = item;
+			positions[item] = size;
+			siftUp(size++);
+		}
+		else if (key < keys[item])
+		{
+			keys[item] = key;
+			siftUp(position);
+		}
+		else if (key > keys[item])
+		{
+			keys[item] = key;
+			siftDown(position);
+		}
+	}
+
+	/**
+	 * Removes the item with the smallest key.
+	 * @return the removed item
+	 */
+	public int poll()
+	{
+		int item = items[0];
+		positions[item] = -1;
+		size--;
+		if (size > 0)
+		{
+			items[0] = items[size];
+			positions[items[0]] = 0;
+			siftDown(0);
+		}
+		return item;
+	}
+
+	/**
+	 * Removes item if it is in the heap.
+	 * @return true if item was removed
+	 */
+	public boolean remove(int item)
+	{
+		int position = positions[item];
+		if (position < 0)
+		{
+			return false;
+		}
+
+		positions[item] = -1;
+		size--;
+		if (position < size)
+		{
+			items[position] = items[size];
+			positions[items[position]] = position;
+			siftDown(position);
+			siftUp(positions[items[position]]);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the item with the smallest key, without removing it
+	 */
+	public int peek()
+	{
+		return items[0];
+	}
+
+	/**
+	 * @return the smallest key in the heap
+	 */
+	public long peekKey()
+	{
+		return keys[items[0]];
+	}
+
+	/**
+	 * @return the current key of item, only meaningful while it is in the heap
+	 */
+	public long getKey(int item)
+	{
+		return keys[item];
+	}
+
+	/**
+	 * @return true if item is in the heap
+	 */
+	public boolean contains(int item)
+	{
+		return positions[item] >= 0;
+	}
+
+	/**
+	 * @return true if the heap has no items
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return number of items in the heap
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct items this heap can hold
+	 */
+	public int getCapacity()
+	{
+		return positions.length;
+	}
+
+	/**
+	 * @param index the heap slot, from 0 to size() - 1
+	 * @return the item in slot index, in no particular order
+	 */
+	public int getItem(int index)
+	{
+		return items[index];
+	}
+
+	/**
+	 * Removes all items, in time proportional to their number.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+		{
+			positions[items[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Moves the item in slot position up until its parent is smaller.
+	 */
+	private void siftUp(int position)
+	{
+		int item = items[position];
+		long key = keys[item];
+
+		while (position > 0)
+		{
+			int parent = (position - 1) >>> 1;
+			int parentItem = items[parent];
+			if (keys[parentItem] <= key)
+			{
+				break;
+			}
+			items[position] = parentItem;
+			positions[parentItem] = position;
+			position = parent;
+		}
+		items[position] = item;
+		positions[item] = position;
+	}
+
+	/**
+	 * Moves the item in slot position down until its children are larger.
+	 */
+	private void siftDown(int position)
+	{
+		int item = items[position];
+		long key = keys[item];
+
+		while (true)
+		{
+			int child = 2 * position + 1;
+			if (child >= size)
+			{
+				break;
+			}
+			if (child + 1 < size && keys[items[child + 1]] < keys[items[child]])
+			{
+				child++;
+			}
+			int childItem = items[child];
+			if (keys[childItem] >= key)
+			{
+				break;
+			}
+			items[position] = childItem;
+			positions[childItem] = position;
+			position = child;
+		}
+		items[position] = item;
+		positions[item] = position;
+	}
+
+}
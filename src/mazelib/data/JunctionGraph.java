@@ -0,0 +1,985 @@
+package mazelib.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reduced graph of a Maze for solvers to search instead of single cells.
+ * Dead ends are filled first: cells with at most one open neighbor are
+ * peeled off until none are left, each remembering the neighbor it hung
+ * from. The cells that remain are split into junctions, which have other
+ * than two remaining neighbors, and corridors, chains of two-neighbor
+ * cells that become single weighted edges between junctions.
+ *
+ * Paths are searched on the junctions and expanded back to cells, so a
+ * query pays per junction instead of per cell. Edits to the Maze make the
+ * graph invalid, and queries on it throw.
+ */
+public class JunctionGraph {
+
+	private static final int COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final int COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+	private static final int ROWS_PER_TASK = 32;
+
+	private final Maze maze;
+	private final int modificationCount;
+	private final int width, height;
+	private final int passableCount;
+	private int filledCount;
+
+	// Filled cells point at the cell they hung from, -1 for the last cell of a tree
+	private final boolean[] filled;
+	private final int[] parents;
+	private final int[] degrees;
+
+	private final int[] cellJunctions;
+	private int[] junctionCells;
+	private int junctionCount;
+
+	// Corridors: end junctions, total cost and interior cells from first to second end
+	private int corridorCount;
+	private int[] corridorFirst, corridorSecond, corridorWeights;
+	private int[] corridorOffsets;
+	private int[] corridorCells;
+	private int[] corridorPrefixes;
+	private final int[] cellCorridors;
+	private final int[] cellCorridorIndices;
+
+	// Junction adjacency, one entry per corridor end
+	private int[] edgeOffsets, edgeTargets, edgeCorridors;
+	private CsrGraph junctionGraph;
+
+	// One search per querying thread, its arrays are as large as the junction graph
+	private final ThreadLocal<GraphSearch> junctionSearches = new ThreadLocal<GraphSearch>();
+
+	/**
+	 * Builds the junction graph of maze on the pool shared with BatchSolver.
+	 * @param maze the Maze to reduce
+	 */
+	public JunctionGraph(Maze maze)
+	{
+		this(maze, BatchSolver.getDefaultPool());
+	}
+
+	/**
+	 * Builds the junction graph of maze on the given pool.
+	 * @param maze the Maze to reduce
+	 * @param pool the pool to count neighbors and trace corridors on
+	 */
+	public JunctionGraph(Maze maze, ForkJoinPool pool)
+	{
+		if (maze == null || pool == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.maze = maze;
+		this.modificationCount = maze.getModificationCount();
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+
+		BitGrid grid = maze.getPassabilityGrid();
+		this.passableCount = (int) grid.count();
+		this.filled = new boolean[width * height];
+		this.parents = new int[width * height];
+		this.degrees = new int[width * height];
+		this.cellJunctions = new int[width * height];
+		this.cellCorridors = new int[width * height];
+		this.cellCorridorIndices = new int[width * height];
+
+		Arrays.fill(parents, -1);
+		Arrays.fill(cellJunctions, -1);
+		Arrays.fill(cellCorridors, -1);
+
+		pool.invoke(new CountDegrees(grid, 0, height));
+		fillDeadEnds(grid);
+		findJunctions(grid);
+		traceCorridors(grid, pool);
+		linkJunctions();
+	}
+
+	/**
+	 * Peels off cells with at most one remaining neighbor until none are left.
+	 */
+	private void fillDeadEnds(BitGrid grid)
+	{
+		int[] queue = new int[width * height];
+		boolean[] queued = new boolean[width * height];
+		int head = 0, tail = 0;
+
+		for (int cell = 0; cell < width * height; cell++)
+		{
+			if (grid.get(cell % width, cell / width) && degrees[cell] <= 1)
+			{
+				queue[tail++] = cell;
+				queued[cell] = true;
+			}
+		}
+
+		while (head < tail)
+		{
+			int cell = queue[head++];
+			filled[cell] = true;
+			filledCount++;
+
+			int neighbor = nextNeighbor(grid, cell, -1);
+			if (neighbor < 0)
+			{
+				continue;
+			}
+
+			parents[cell] = neighbor;
+			if (--degrees[neighbor] <= 1 && !queued[neighbor])
+			{
+				queue[tail++] = neighbor;
+				queued[neighbor] = true;
+			}
+		}
+	}
+
+	/**
+	 * Makes every remaining cell with other than two neighbors a junction.
+	 */
+	private void findJunctions(BitGrid grid)
+	{
+		junctionCells = new int[16];
+
+		for (int cell = 0; cell < width * height; cell++)
+		{
+			if (grid.get(cell % width, cell / width) && !filled[cell] && degrees[cell] != 2)
+			{
+				addJunction(cell);
+			}
+		}
+	}
+
+	/**
+	 * @return the id of the new junction at cell
+	 */
+	private int addJunction(int cell)
+	{
+		if (junctionCount == junctionCells.length)
+		{
+			junctionCells = Arrays.copyOf(junctionCells, junctionCount * 2);
+		}
+		junctionCells[junctionCount] = cell;
+		cellJunctions[cell] = junctionCount;
+		return junctionCount++;
+	}
+
+	/**
+	 * Walks every corridor leaving every junction in parallel, then numbers
+	 * the corridors. Rings of corridor cells without any junction get one.
+	 */
+	private void traceCorridors(BitGrid grid, ForkJoinPool pool)
+	{
+		int[][] traced = new int[junctionCount][];
+		pool.invoke(new TraceJunctions(grid, traced, 0, junctionCount));
+
+		List<int[]> corridors = new ArrayList<int[]>();
+		for (int[] fromJunction : traced)
+		{
+			addCorridors(fromJunction, corridors);
+		}
+
+		// Whatever corridor cell is still unassigned lies on a ring
+		for (int cell = 0; cell < width * height; cell++)
+		{
+			if (grid.get(cell % width, cell / width) && !filled[cell] &&
+				cellJunctions[cell] < 0 && cellCorridors[cell] < 0)
+			{
+				int junction = addJunction(cell);
+				addCorridors(traceFrom(grid, junction), corridors);
+			}
+		}
+
+		packCorridors(corridors);
+	}
+
+	/**
+	 * Registers the corridors traced from one junction, each corridor is
+	 * traced from both ends and only kept from one of them.
+	 * @param traced records of (first, second, interior cells...)
+	 */
+	private void addCorridors(int[] traced, List<int[]> corridors)
+	{
+		int index = 0;
+		while (index < traced.length)
+		{
+			int first = traced[index];
+			int second = traced[index + 1];
+			int length = traced[index + 2];
+			int from = index + 3;
+			index = from + length;
+
+			boolean keep = (first < second) ||
+						   (first == second && length > 0 && traced[from] < traced[from + length - 1]);
+			if (!keep)
+			{
+				continue;
+			}
+
+			int corridor = corridors.size();
+			int[] record = Arrays.copyOfRange(traced, index - length - 3, index);
+			corridors.add(record);
+			for (int i = 0; i < length; i++)
+			{
+				cellCorridors[traced[from + i]] = corridor;
+				cellCorridorIndices[traced[from + i]] = i;
+			}
+		}
+	}
+
+	/**
+	 * Follows every corridor leaving a junction up to the junction it ends at.
+	 * @return records of (first, second, interior length, interior cells...)
+	 */
+	private int[] traceFrom(BitGrid grid, int junction)
+	{
+		int start = junctionCells[junction];
+		int x = start % width;
+		int y = start / width;
+		int[] records = new int[0];
+		int count = 0;
+
+		for (int direction = 0; direction < Direction.COUNT; direction++)
+		{
+			if (!grid.canMove(x, y, direction))
+			{
+				continue;
+			}
+
+			int cell = start + Direction.getDY(direction) * width + Direction.getDX(direction);
+			if (filled[cell])
+			{
+				continue;
+			}
+
+			int previous = start;
+			int[] interior = new int[8];
+			int length = 0;
+
+			while (cellJunctions[cell] < 0)
+			{
+				if (length == interior.length)
+				{
+					interior = Arrays.copyOf(interior, length * 2);
+				}
+				interior[length++] = cell;
+
+				int next = nextNeighbor(grid, cell, previous);
+				previous = cell;
+				cell = next;
+			}
+
+			if (count + length + 3 > records.length)
+			{
+				records = Arrays.copyOf(records, Math.max(records.length * 2, count + length + 3));
+			}
+			records[count++] = junction;
+			records[count++] = cellJunctions[cell];
+			records[count++] = length;
+			System.arraycopy(interior, 0, records, count, length);
+			count += length;
+		}
+
+		return Arrays.copyOf(records, count);
+	}
+
+	/**
+	 * @return the first remaining neighbor of cell other than excluded,
+	 * 		   -1 if there is none
+	 */
+	private int nextNeighbor(BitGrid grid, int cell, int excluded)
+	{
+		int x = cell % width;
+		int y = cell / width;
+
+		for (int direction = 0; direction < Direction.COUNT; direction++)
+		{
+			if (grid.canMove(x, y, direction))
+			{
+				int neighbor = cell + Direction.getDY(direction) * width + Direction.getDX(direction);
+				if (neighbor != excluded && !filled[neighbor])
+				{
+					return neighbor;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Copies corridor records into flat arrays with cost prefixes.
+	 */
+	private void packCorridors(List<int[]> corridors)
+	{
+		corridorCount = corridors.size();
+		corridorFirst = new int[corridorCount];
+		corridorSecond = new int[corridorCount];
+		corridorWeights = new int[corridorCount];
+		corridorOffsets = new int[corridorCount + 1];
+
+		for (int corridor = 0; corridor < corridorCount; corridor++)
+		{
+			corridorOffsets[corridor + 1] = corridorOffsets[corridor] + corridors.get(corridor)[2];
+		}
+		corridorCells = new int[corridorOffsets[corridorCount]];
+		corridorPrefixes = new int[corridorOffsets[corridorCount]];
+
+		for (int corridor = 0; corridor < corridorCount; corridor++)
+		{
+			int[] record = corridors.get(corridor);
+			corridorFirst[corridor] = record[0];
+			corridorSecond[corridor] = record[1];
+
+			int previous = junctionCells[record[0]];
+			int cost = 0;
+			for (int i = 0; i < record[2]; i++)
+			{
+				int cell = record[3 + i];
+				cost += stepCost(previous, cell);
+				corridorCells[corridorOffsets[corridor] + i] = cell;
+				corridorPrefixes[corridorOffsets[corridor] + i] = cost;
+				previous = cell;
+			}
+			corridorWeights[corridor] = cost + stepCost(previous, junctionCells[record[1]]);
+		}
+	}
+
+	/**
+	 * Builds the junction adjacency. Rings from a junction back to itself
+	 * never shorten a path and are left out.
+	 */
+	private void linkJunctions()
+	{
+		edgeOffsets = new int[junctionCount + 1];
+		for (int corridor = 0; corridor < corridorCount; corridor++)
+		{
+			if (corridorFirst[corridor] != corridorSecond[corridor])
+			{
+				edgeOffsets[corridorFirst[corridor] + 1]++;
+				edgeOffsets[corridorSecond[corridor] + 1]++;
+			}
+		}
+		for (int junction = 0; junction < junctionCount; junction++)
+		{
+			edgeOffsets[junction + 1] += edgeOffsets[junction];
+		}
+
+		edgeTargets = new int[edgeOffsets[junctionCount]];
+		edgeCorridors = new int[edgeOffsets[junctionCount]];
+		int[] fill = Arrays.copyOf(edgeOffsets, junctionCount);
+
+		for (int corridor = 0; corridor < corridorCount; corridor++)
+		{
+			int first = corridorFirst[corridor];
+			int second = corridorSecond[corridor];
+			if (first != second)
+			{
+				edgeTargets[fill[first]] = second;
+				edgeCorridors[fill[first]++] = corridor;
+				edgeTargets[fill[second]] = first;
+				edgeCorridors[fill[second]++] = corridor;
+			}
+		}
+
+		int[] edgeCosts = new int[edgeTargets.length];
+		for (int e = 0; e < edgeTargets.length; e++)
+		{
+			edgeCosts[e] = corridorWeights[edgeCorridors[e]];
+		}
+		int[] xs = new int[junctionCount];
+		int[] ys = new int[junctionCount];
+		for (int junction = 0; junction < junctionCount; junction++)
+		{
+			xs[junction] = junctionCells[junction] % width;
+			ys[junction] = junctionCells[junction] / width;
+		}
+		junctionGraph = new CsrGraph(edgeOffsets, edgeTargets, edgeCosts, xs, ys);
+	}
+
+	/**
+	 * @return the cost of one move between adjacent cells
+	 */
+	private int stepCost(int from, int to)
+	{
+		return (from % width != to % width && from / width != to / width) ? COST_DIAGONAL : COST_STRAIGHT;
+	}
+
+	/**
+	 * Finds a shortest path between two cells by searching the junctions.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @return the path from start to end,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end)
+	{
+		return solve(start, end, null);
+	}
+
+	/**
+	 * Finds a shortest path between two cells by searching the junctions,
+	 * giving up once token is cancelled.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		   junctions expanded, null to never stop
+	 * @return the path from start to end,
+	 * 		   null if there is none or token stopped the search
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+		if (!isValid())
+		{
+			throw new IllegalStateException("Maze changed since the graph was built!");
+		}
+
+		BitGrid grid = maze.getPassabilityGrid();
+		int startCell = start.getY() * width + start.getX();
+		int endCell = end.getY() * width + end.getX();
+
+		if (startCell == endCell)
+		{
+			return new SolutionPath(start.getX(), start.getY(), new int[0]);
+		}
+		if (!grid.get(end.getX(), end.getY()))
+		{
+			return null;
+		}
+
+		CellList cells = null;
+		if (grid.get(start.getX(), start.getY()))
+		{
+			cells = new CellList();
+			if (!solveCells(startCell, endCell, token, cells))
+			{
+				cells = null;
+			}
+		}
+		else
+		{
+			// An impassable start may still step out, try every way out
+			long best = Long.MAX_VALUE;
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if (grid.canMove(start.getX(), start.getY(), direction))
+				{
+					int neighbor = startCell + Direction.getDY(direction) * width + Direction.getDX(direction);
+					CellList candidate = new CellList();
+					candidate.add(startCell);
+					if (solveCells(neighbor, endCell, token, candidate))
+					{
+						long cost = costOf(candidate);
+						if (cost < best)
+						{
+							best = cost;
+							cells = candidate;
+						}
+					}
+				}
+			}
+		}
+
+		if (token != null && token.isCancelled())
+		{
+			return null;
+		}
+		return (cells == null) ? null : toPath(cells);
+	}
+
+	/**
+	 * Appends the cells of a shortest path between two passable cells.
+	 * @return false if there is no path, cells then holds a part of one
+	 */
+	private boolean solveCells(int startCell, int endCell, CancellationToken token, CellList cells)
+	{
+		int[] startChain = climb(startCell);
+		int[] endChain = climb(endCell);
+		int i = startChain.length - 1;
+		int j = endChain.length - 1;
+
+		// Both in one dead end tree: chains share their tail from the first shared cell
+		if (startChain[i] == endChain[j])
+		{
+			while (i > 0 && j > 0 && startChain[i - 1] == endChain[j - 1])
+			{
+				i--;
+				j--;
+			}
+			for (int k = 0; k <= i; k++)
+			{
+				cells.add(startChain[k]);
+			}
+			for (int k = j - 1; k >= 0; k--)
+			{
+				cells.add(endChain[k]);
+			}
+			return true;
+		}
+
+		if (filled[startChain[i]] || filled[endChain[j]])
+		{
+			return false;
+		}
+
+		for (int k = 0; k <= i; k++)
+		{
+			cells.add(startChain[k]);
+		}
+		if (!searchCore(startChain[i], endChain[j], token, cells))
+		{
+			return false;
+		}
+		for (int k = j - 1; k >= 0; k--)
+		{
+			cells.add(endChain[k]);
+		}
+		return true;
+	}
+
+	/**
+	 * @return cell and its filled ancestors, ending at a remaining cell or
+	 * 		   the last cell of an isolated tree
+	 */
+	private int[] climb(int cell)
+	{
+		int length = 1;
+		for (int ancestor = cell; filled[ancestor] && parents[ancestor] >= 0; ancestor = parents[ancestor])
+		{
+			length++;
+		}
+
+		int[] chain = new int[length];
+		chain[0] = cell;
+		for (int i = 1; i < length; i++)
+		{
+			cell = parents[cell];
+			chain[i] = cell;
+		}
+		return chain;
+	}
+
+	/**
+	 * @return the calling thread's search over the junction graph
+	 */
+	private GraphSearch getJunctionSearch()
+	{
+		GraphSearch search = junctionSearches.get();
+		if (search == null)
+		{
+			search = new GraphSearch(junctionGraph);
+			junctionSearches.set(search);
+		}
+		return search;
+	}
+
+	/**
+	 * Dijkstra over junctions between two remaining cells.
+	 * @param cells ends with startCell, the cells after it up to endCell
+	 * 		   are appended
+	 * @return false if there is no path
+	 */
+	private boolean searchCore(int startCell, int endCell, CancellationToken token, CellList cells)
+	{
+		int[] sources = endsOf(startCell);
+		int[] targets = endsOf(endCell);
+		GraphPath path = getJunctionSearch().solve(
+			junctionsOf(sources), costsOf(sources), junctionsOf(targets), costsOf(targets), token);
+		if (token != null && token.isCancelled())
+		{
+			return false;
+		}
+
+		// Both on one corridor: walking along it is a candidate
+		int startCorridor = cellCorridors[startCell];
+		if (startCorridor >= 0 && startCorridor == cellCorridors[endCell] &&
+			(path == null || Math.abs(prefix(startCell) - prefix(endCell)) <= path.getCost()))
+		{
+			walkCorridor(startCell, endCell, cells);
+			return true;
+		}
+		if (path == null)
+		{
+			return false;
+		}
+
+		walkCorridor(startCell, junctionCells[path.getFirst()], cells);
+		for (int i = 1; i < path.getVertexCount(); i++)
+		{
+			int from = path.getVertex(i - 1);
+			appendCorridor(cells, cheapestCorridor(from, path.getVertex(i)), from);
+		}
+		walkCorridor(junctionCells[path.getLast()], endCell, cells);
+		return true;
+	}
+
+	/**
+	 * @return the junctions of pairs of (junction, cost)
+	 */
+	private static int[] junctionsOf(int[] ends)
+	{
+		int[] junctions = new int[ends.length / 2];
+		for (int i = 0; i < junctions.length; i++)
+		{
+			junctions[i] = ends[2 * i];
+		}
+		return junctions;
+	}
+
+	/**
+	 * @return the costs of pairs of (junction, cost)
+	 */
+	private static long[] costsOf(int[] ends)
+	{
+		long[] costs = new long[ends.length / 2];
+		for (int i = 0; i < costs.length; i++)
+		{
+			costs[i] = ends[2 * i + 1];
+		}
+		return costs;
+	}
+
+	/**
+	 * @return the cheapest corridor between two adjacent junctions
+	 */
+	private int cheapestCorridor(int from, int to)
+	{
+		int cheapest = -1;
+		for (int e = edgeOffsets[from]; e < edgeOffsets[from + 1]; e++)
+		{
+			int corridor = edgeCorridors[e];
+			if (edgeTargets[e] == to && (cheapest < 0 || corridorWeights[corridor] < corridorWeights[cheapest]))
+			{
+				cheapest = corridor;
+			}
+		}
+		return cheapest;
+	}
+
+	/**
+	 * @return pairs of (junction, cost) a remaining cell connects to
+	 */
+	private int[] endsOf(int cell)
+	{
+		if (cellJunctions[cell] >= 0)
+		{
+			return new int[] { cellJunctions[cell], 0 };
+		}
+
+		int corridor = cellCorridors[cell];
+		int prefix = prefix(cell);
+		return new int[] { corridorFirst[corridor], prefix,
+						   corridorSecond[corridor], corridorWeights[corridor] - prefix };
+	}
+
+	/**
+	 * @return the cost from the first end of its corridor to cell
+	 */
+	private int prefix(int cell)
+	{
+		return corridorPrefixes[corridorOffsets[cellCorridors[cell]] + cellCorridorIndices[cell]];
+	}
+
+	/**
+	 * Appends the cells after from up to to, two remaining cells on one
+	 * corridor or a corridor cell and one of its ends.
+	 */
+	private void walkCorridor(int from, int to, CellList cells)
+	{
+		if (from == to)
+		{
+			return;
+		}
+
+		int corridor = (cellCorridors[from] >= 0) ? cellCorridors[from] : cellCorridors[to];
+		int fromIndex = indexOnCorridor(corridor, from);
+		int toIndex = indexOnCorridor(corridor, to);
+
+		// A ring corridor has the same junction at both ends
+		if (cellJunctions[to] >= 0 && corridorFirst[corridor] == corridorSecond[corridor])
+		{
+			int length = corridorOffsets[corridor + 1] - corridorOffsets[corridor];
+			int backward = corridorPrefixes[corridorOffsets[corridor] + fromIndex - 1];
+			toIndex = (backward <= corridorWeights[corridor] - backward) ? 0 : length + 1;
+		}
+		else if (cellJunctions[from] >= 0 && corridorFirst[corridor] == corridorSecond[corridor])
+		{
+			int length = corridorOffsets[corridor + 1] - corridorOffsets[corridor];
+			int backward = corridorPrefixes[corridorOffsets[corridor] + toIndex - 1];
+			fromIndex = (backward <= corridorWeights[corridor] - backward) ? 0 : length + 1;
+		}
+
+		int step = (toIndex > fromIndex) ? 1 : -1;
+		for (int i = fromIndex + step; i != toIndex + step; i += step)
+		{
+			cells.add(corridorPoint(corridor, i));
+		}
+	}
+
+	/**
+	 * @return the position of cell along corridor, 0 and length + 1 for its ends
+	 */
+	private int indexOnCorridor(int corridor, int cell)
+	{
+		if (cellCorridors[cell] == corridor)
+		{
+			return cellCorridorIndices[cell] + 1;
+		}
+		return (cellJunctions[cell] == corridorFirst[corridor]) ?
+			   0 : corridorOffsets[corridor + 1] - corridorOffsets[corridor] + 1;
+	}
+
+	/**
+	 * @return the cell at a position along corridor, ends included
+	 */
+	private int corridorPoint(int corridor, int index)
+	{
+		int length = corridorOffsets[corridor + 1] - corridorOffsets[corridor];
+		if (index == 0)
+		{
+			return junctionCells[corridorFirst[corridor]];
+		}
+		if (index == length + 1)
+		{
+			return junctionCells[corridorSecond[corridor]];
+		}
+		return corridorCells[corridorOffsets[corridor] + index - 1];
+	}
+
+	/**
+	 * Appends the cells of corridor after its end at junction from.
+	 */
+	private void appendCorridor(CellList cells, int corridor, int from)
+	{
+		int length = corridorOffsets[corridor + 1] - corridorOffsets[corridor];
+		if (corridorFirst[corridor] == from)
+		{
+			for (int i = 1; i <= length + 1; i++)
+			{
+				cells.add(corridorPoint(corridor, i));
+			}
+		}
+		else
+		{
+			for (int i = length; i >= 0; i--)
+			{
+				cells.add(corridorPoint(corridor, i));
+			}
+		}
+	}
+
+	/**
+	 * @return the cost of walking through cells in order
+	 */
+	private long costOf(CellList cells)
+	{
+		long cost = 0l;
+		for (int i = 1; i < cells.size; i++)
+		{
+			cost += stepCost(cells.cells[i - 1], cells.cells[i]);
+		}
+		return cost;
+	}
+
+	/**
+	 * @return the moves through cells in order
+	 */
+	private SolutionPath toPath(CellList cells)
+	{
+		int[] directions = new int[cells.size - 1];
+		for (int i = 1; i < cells.size; i++)
+		{
+			int from = cells.cells[i - 1];
+			int to = cells.cells[i];
+			directions[i - 1] = Direction.fromOffset(to % width - from % width, to / width - from / width);
+		}
+
+		int start = cells.cells[0];
+		return new SolutionPath(start % width, start / width, directions);
+	}
+
+	/**
+	 * @return true if the Maze hasn't changed since the graph was built
+	 */
+	public boolean isValid()
+	{
+		return maze.getModificationCount() == modificationCount;
+	}
+
+	/**
+	 * @return the number of passable cells of the Maze
+	 */
+	public int getCellCount()
+	{
+		return passableCount;
+	}
+
+	/**
+	 * @return the number of cells filled in as dead ends
+	 */
+	public int getFilledCount()
+	{
+		return filledCount;
+	}
+
+	/**
+	 * @return the number of junctions solvers search
+	 */
+	public int getJunctionCount()
+	{
+		return junctionCount;
+	}
+
+	/**
+	 * @return the number of corridors between junctions
+	 */
+	public int getCorridorCount()
+	{
+		return corridorCount;
+	}
+
+	/**
+	 * @return passable cells per junction, how many times smaller the
+	 * 		   searched graph is than the cell graph
+	 */
+	public double getReductionRatio()
+	{
+		return (double) passableCount / Math.max(1, junctionCount);
+	}
+
+	/**
+	 * @return the junctions as a Graph, numbered like the junctions of
+	 * 		   this graph, with an edge for each direction of every corridor
+	 * 		   between two of them and the coordinates of their cells
+	 */
+	public Graph getJunctionGraph()
+	{
+		return junctionGraph;
+	}
+
+	/**
+	 * @return the Maze this graph reduces
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * The cells of a path in order, appended as a query expands it.
+	 */
+	private static class CellList {
+
+		private int[] cells = new int[64];
+		private int size = 0;
+
+		private void add(int cell)
+		{
+			if (size == cells.length)
+			{
+				cells = Arrays.copyOf(cells, size * 2);
+			}
+			cells[size++] = cell;
+		}
+	}
+
+	/**
+	 * Counts the open neighbors of every passable cell in a band of rows,
+	 * splitting the band in halves until it is small enough.
+	 */
+	private class CountDegrees extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BitGrid grid;
+		private final int fromRow, toRow;
+
+		private CountDegrees(BitGrid grid, int fromRow, int toRow)
+		{
+			this.grid = grid;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (toRow - fromRow <= ROWS_PER_TASK)
+			{
+				for (int y = fromRow; y < toRow; y++)
+				{
+					for (int x = 0; x < width; x++)
+					{
+						if (!grid.get(x, y))
+						{
+							continue;
+						}
+						int degree = 0;
+						for (int direction = 0; direction < Direction.COUNT; direction++)
+						{
+							if (grid.canMove(x, y, direction))
+							{
+								degree++;
+							}
+						}
+						degrees[y * width + x] = degree;
+					}
+				}
+				return;
+			}
+
+			int middle = (fromRow + toRow) >>> 1;
+			invokeAll(new CountDegrees(grid, fromRow, middle),
+					  new CountDegrees(grid, middle, toRow));
+		}
+	}
+
+	/**
+	 * Traces the corridors of a range of junctions, splitting it in halves
+	 * until it is small enough. Only reads shared state.
+	 */
+	private class TraceJunctions extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private static final int CHUNK_SIZE = 256;
+
+		private final BitGrid grid;
+		private final int[][] traced;
+		private final int from, to;
+
+		private TraceJunctions(BitGrid grid, int[][] traced, int from, int to)
+		{
+			this.grid = grid;
+			this.traced = traced;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from <= CHUNK_SIZE)
+			{
+				for (int junction = from; junction < to; junction++)
+				{
+					traced[junction] = traceFrom(grid, junction);
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new TraceJunctions(grid, traced, from, middle),
+					  new TraceJunctions(grid, traced, middle, to));
+		}
+	}
+
+}
@@ -0,0 +1,279 @@
+package mazelib.data;
+
+import java.io.Serializable;
+
+/**
+ * Maze Algorithm Heuristic based on landmarks (ALT). Exact distances to a
+ * few landmark cells are computed up front; by the triangle inequality
+ * |d(L, target) - d(L, origin)| never overestimates d(origin, target),
+ * and the largest such bound over all landmarks follows the walls of a
+ * twisty maze far better than any straight line.
+ *
+ * The tables describe the Maze as it was when they were built. Adding walls
+ * later keeps the estimates admissible, removing walls does not.
+ */
+public class LandmarkHeuristic implements Heuristic, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int UNREACHABLE = DistanceField.UNREACHABLE;
+
+	private final int width, height;
+	private final int landmarkCount;
+	private final int[] landmarkXs, landmarkYs;
+
+	// Distances of one cell to all landmarks are adjacent, so an estimate
+	// reads one short run of the table per cell
+	private final int[] distances;
+
+	/**
+	 * Selects up to landmarkCount landmarks by farthest-point selection and
+	 * computes the distance from every cell to each of them.
+	 * @param maze the Maze to build the tables for
+	 * @param landmarkCount the number of landmarks to place
+	 */
+	public LandmarkHeuristic(Maze maze, int landmarkCount)
+	{
+		if (maze == null || landmarkCount < 1)
+		{
+			throw new IllegalArgumentException("Illegal argument(s).");
+		}
+
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+
+		int[] xs = new int[landmarkCount];
+		int[] ys = new int[landmarkCount];
+		int[] table = new int[width * height * landmarkCount];
+		int placed = placeLandmarks(maze, xs, ys, table, landmarkCount);
+
+		this.landmarkCount = placed;
+		this.landmarkXs = new int[placed];
+		this.landmarkYs = new int[placed];
+		System.arraycopy(xs, 0, landmarkXs, 0, placed);
+		System.arraycopy(ys, 0, landmarkYs, 0, placed);
+
+		if (placed == landmarkCount)
+		{
+			this.distances = table;
+		}
+		else
+		{
+			// Fewer distinct landmarks than asked for, close the gaps
+			this.distances = new int[width * height * placed];
+			for (int cell = 0; cell < width * height; cell++)
+			{
+				System.arraycopy(table, cell * landmarkCount, distances, cell * placed, placed);
+			}
+		}
+	}
+
+	/**
+	 * Places landmarks one at a time, each on the passable cell farthest
+	 * from all landmarks placed before it.
+	 * @return the number of landmarks placed
+	 */
+	private int placeLandmarks(Maze maze, int[] xs, int[] ys, int[] table, int stride)
+	{
+		BitGrid grid = maze.getPassabilityGrid();
+		Position seed = findSeed(maze, grid);
+		if (seed == null)
+		{
+			return 0;
+		}
+
+		// The cell farthest from an arbitrary one lies on the rim of the maze
+		int[] nearest = new int[width * height];
+		fillDistances(new DistanceField(maze, seed), nearest);
+
+		int placed = 0;
+		while (placed < stride)
+		{
+			int farthest = findFarthest(grid, nearest);
+			if (farthest < 0)
+			{
+				break;
+			}
+
+			xs[placed] = farthest % width;
+			ys[placed] = farthest / width;
+			DistanceField field = new DistanceField(maze, new Position(xs[placed], ys[placed]));
+
+			for (int y = 0; y < height; y++)
+			{
+				for (int x = 0; x < width; x++)
+				{
+					int cell = y * width + x;
+					int distance = field.getDistance(x, y);
+					table[cell * stride + placed] = distance;
+
+					if (placed == 0 || distance < nearest[cell])
+					{
+						nearest[cell] = distance;
+					}
+				}
+			}
+			placed++;
+		}
+
+		return placed;
+	}
+
+	/**
+	 * @return the start Position if it is passable, else the first passable one,
+	 * 		   null if there is none
+	 */
+	private Position findSeed(Maze maze, BitGrid grid)
+	{
+		Position start = maze.getStartNode().getPosition();
+		if (grid.get(start.getX(), start.getY()))
+		{
+			return start;
+		}
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				if (grid.get(x, y))
+				{
+					return new Position(x, y);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the reachable passable cell with the largest distance in
+	 * 		   nearest, -1 if every such cell is already a landmark
+	 */
+	private int findFarthest(BitGrid grid, int[] nearest)
+	{
+		int farthest = -1;
+		int farthestDistance = 0;
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				int distance = nearest[y * width + x];
+				if (distance != UNREACHABLE && distance > farthestDistance && grid.get(x, y))
+				{
+					farthest = y * width + x;
+					farthestDistance = distance;
+				}
+			}
+		}
+
+		return farthest;
+	}
+
+	/**
+	 * Copies all distances of field into cells.
+	 */
+	private void fillDistances(DistanceField field, int[] cells)
+	{
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				cells[y * width + x] = field.getDistance(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Calculate the landmark lower bound between two Nodes.
+	 * @param originNode the Node to calculate distance from
+	 * @param targetNode the Node to calculate distance to
+	 * @return the largest landmark bound on the distance from origin to target
+	 */
+	@Override
+	public long calculateDistance(Node originNode, Node targetNode) {
+
+		// Check if arguments aren't null
+		if (originNode == null || targetNode == null)
+		{
+			throw new IllegalArgumentException("Node(s) are null!");
+		}
+
+		// Check if parent Mazes are the same and fit the tables
+		Maze maze = originNode.getParentMaze();
+		if (maze != targetNode.getParentMaze())
+		{
+			throw new IllegalArgumentException("Nodes from different Mazes!");
+		}
+		if (maze.getWidth() != width || maze.getHeight() != height)
+		{
+			throw new IllegalArgumentException("Maze does not match the landmark tables!");
+		}
+
+		Position origin = originNode.getPosition();
+		Position target = targetNode.getPosition();
+
+		return estimate(origin.getX(), origin.getY(), target.getX(), target.getY());
+	}
+
+	@Override
+	public long estimate(int fromX, int fromY, int toX, int toY) {
+
+		int from = (fromY * width + fromX) * landmarkCount;
+		int to = (toY * width + toX) * landmarkCount;
+		long result = 0l;
+
+		for (int i = 0; i < landmarkCount; i++)
+		{
+			int fromDistance = distances[from + i];
+			int toDistance = distances[to + i];
+
+			// A landmark in another component bounds nothing
+			if (fromDistance == UNREACHABLE || toDistance == UNREACHABLE)
+			{
+				continue;
+			}
+
+			long bound = Math.abs((long) fromDistance - toDistance);
+			if (bound > result)
+			{
+				result = bound;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the number of landmarks actually placed
+	 */
+	public int getLandmarkCount()
+	{
+		return landmarkCount;
+	}
+
+	/**
+	 * @param index the index of the landmark
+	 * @return the Position of the landmark
+	 */
+	public Position getLandmark(int index)
+	{
+		return new Position(landmarkXs[index], landmarkYs[index]);
+	}
+
+	/**
+	 * @return the width of the Maze the tables were built for
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * @return the height of the Maze the tables were built for
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+}
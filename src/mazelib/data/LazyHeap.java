@@ -0,0 +1,145 @@
+package mazelib.data;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of (key, item) pairs that allows duplicates. Instead of
+ * changing the key of an item, callers push it again and skip the stale
+ * entries when they come out, so no position table the size of all items
+ * is needed, unlike IndexedHeap.
+ */
+class LazyHeap {
+
+	private long[] keys;
+	private int[] items;
+	private int size = 0;
+
+	/**
+	 * Constructs an empty heap.
+	 * @param capacity the number of entries to make room for up front
+	 */
+	LazyHeap(int capacity)
+	{
+		this.keys = new long[Math.max(1, capacity)];
+		this.items = new int[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Adds an entry, growing the heap if it is full.
+	 */
+	void push(long key, int item)
+	{
+		if (size == keys.length)
+		{
+			keys = Arrays.copyOf(keys, size * 2);
+			items = Arrays.copyOf(items, size * 2);
+		}
+
+		int index = size++;
+		while (index > 0)
+		{
+			int parent = (index - 1) >>> 1;
+			if (keys[parent] <= key)
+			{
+				break;
+			}
+			keys[index] = keys[parent];
+			items[index] = items[parent];
+			index = parent;
+		}
+		keys[index] = key;
+		items[index] = item;
+	}
+
+	/**
+	 * Removes the entry with the lowest key.
+	 * @return its item
+	 */
+	int poll()
+	{
+		int item = items[0];
+		size--;
+		keys[0] = keys[size];
+		items[0] = items[size];
+		siftDown(0);
+		return item;
+	}
+
+	/**
+	 * @return the lowest key, the heap must not be empty
+	 */
+	long peekKey()
+	{
+		return keys[0];
+	}
+
+	/**
+	 * @return the key of the entry at index, in no particular order
+	 */
+	long getKey(int index)
+	{
+		return keys[index];
+	}
+
+	/**
+	 * @return the item of the entry at index, in no particular order
+	 */
+	int getItem(int index)
+	{
+		return items[index];
+	}
+
+	boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of entries that fit before the heap grows
+	 */
+	int getCapacity()
+	{
+		return keys.length;
+	}
+
+	/**
+	 * Removes every entry, keeping the room.
+	 */
+	void clear()
+	{
+		size = 0;
+	}
+
+	private void siftDown(int index)
+	{
+		long key = keys[index];
+		int item = items[index];
+		while (true)
+		{
+			int child = 2 * index + 1;
+			if (child >= size)
+			{
+				break;
+			}
+			if (child + 1 < size && keys[child + 1] < keys[child])
+			{
+				child++;
+			}
+			if (keys[child] >= key)
+			{
+				break;
+			}
+			keys[index] = keys[child];
+			items[index] = items[child];
+			index = child;
+		}
+		keys[index] = key;
+		items[index] = item;
+	}
+
+}
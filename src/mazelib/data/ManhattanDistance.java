@@ -7,7 +7,7 @@ package mazelib.data;
  */
 public class ManhattanDistance implements Heuristic {
 	
-	private static final long COST_STRAIGHT = 100l;
+	private static final long COST_STRAIGHT = MovementModel.COST_STRAIGHT;
 
 	/**
 	 * Calculate distance in straight directions.
@@ -34,11 +34,18 @@ public class ManhattanDistance implements Heuristic {
 		Position origin = originNode.getPosition();
 		Position target = targetNode.getPosition();
 		
-		long result = Math.abs(target.getX() - origin.getX())
-					  + Math.abs(target.getY() - origin.getY());
-		result = result * COST_STRAIGHT;
+		return estimate(origin.getX(), origin.getY(), target.getX(), target.getY());
+	}
+
+	@Override
+	public long estimate(int fromX, int fromY, int toX, int toY) {
+		
+		int dx = toX - fromX;
+		int dy = toY - fromY;
+		int horizontal = (dx ^ (dx >> 31)) - (dx >> 31);
+		int vertical = (dy ^ (dy >> 31)) - (dy >> 31);
 		
-		return result;
+		return COST_STRAIGHT * (horizontal + vertical);
 	}
 
 }
@@ -1,5 +1,6 @@
 package mazelib.data;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -8,22 +9,36 @@ import java.util.Random;
 import java.util.Stack;
 
 import java.awt.image.BufferedImage;
-import java.awt.Color;
 import java.io.File;
 import java.io.IOException;
 import javax.imageio.ImageIO;
 
 /**
+ * As a Graph every cell is a vertex, numbered y * width + x, with
+ * EIGHT_CONNECTED moves to its passable neighbors.
  * @author Timur Reziapov	<reziapo1@illinois.edu>
  * @date Monday, September 3, 2012, 18:00 PM
  */
-public class Maze {
+public class Maze implements Graph {
 	
 	private final int width, height;
 	private Node[][] nodes;
 	public Node startNode, endNode;
 	public BufferedImage image;
 	
+	private int modificationCount = 0;
+	private ComponentLabels componentLabels = null;
+	// Patched in place on every edit under the lock. Searches get a copy
+	// that never changes, made again on the first call after an edit.
+	private BitGrid passabilityGrid = null;
+	private volatile BitGrid publishedGrid = null;
+	
+	// Set while the constructor carves passages, when nothing can listen yet
+	private boolean generating = false;
+	private final List<MazeChangeListener> changeListeners = new ArrayList<MazeChangeListener>();
+	
+	private static final double GREY_THRESHOLD = 255/2;
+	
 	/**
 	 * Constructs a Maze with random squares.
 	 * @note all Nodes are impassable until Maze generation function is called
@@ -51,6 +66,7 @@ public class Maze {
 		}
 		
 		this.startNode = nodes[0][0];
+		this.generating = true;
 		this.startNode.setPassable(true);
 		this.endNode = nodes[width - 1][height - 1];
 		createMazeRB();
@@ -63,6 +79,7 @@ public class Maze {
 			this.getNode(beforeEnd).setPassable(true);
 		}
 		endNode.setPassable(true);
+		this.generating = false;
 	}
 	
 	/**
@@ -261,8 +278,6 @@ public class Maze {
 	 */
 	public Maze(BufferedImage image, Position start, Position end)
 	{		
-		double grey_threshold = 255/2;
-
 		this.height = image.getHeight();
 		this.width = image.getWidth();
 
@@ -275,18 +290,8 @@ public class Maze {
 		{
 			for (int x = 0; x < this.width; x++)
 			{
-				boolean walkable = true;
 				Position position = new Position(x, y);
-				
-				Color color = new Color(image.getRGB(x, y));
-				double grey = color.getRed() * 0.299 + 
-							  color.getBlue() * 0.144 +
-							  color.getGreen() * 0.587;
-				
-				if (grey >= grey_threshold)
-				{
-					walkable = false;
-				}
+				boolean walkable = isPassableColor(image.getRGB(x, y));
 				
 				this.nodes[x][y] = new Node(position, walkable, this);
 			}
@@ -296,6 +301,21 @@ public class Maze {
 		this.endNode = this.getNode(end);
 	}
 	
+	/**
+	 * Decides if an image pixel is a wall. Dark pixels are passable.
+	 * @param rgb the pixel color in default RGB format
+	 * @return true if the grey value of the pixel is under half intensity,
+	 * 		   false otherwise
+	 */
+	public static boolean isPassableColor(int rgb)
+	{
+		double grey = ((rgb >> 16) & 0xff) * 0.299 + 
+					  (rgb & 0xff) * 0.144 +
+					  ((rgb >> 8) & 0xff) * 0.587;
+		
+		return grey < GREY_THRESHOLD;
+	}
+	
 	/**
 	 * Maze constructor that parses a File. Calls the image constructor.
 	 * @param mazeFile
@@ -391,51 +411,237 @@ public class Maze {
 		}
 	}
 	
+	/**
+	 * @param x the x coordinate of the desired Node
+	 * @param y the y coordinate of the desired Node
+	 * @return Node at x and y if in maze bounds,
+	 * 		   null if out of maze bounds
+	 */
+	public Node getNode(int x, int y)
+	{
+		if (x >= 0 && x < this.width && y >= 0 && y < this.height)
+		{
+			return this.nodes[x][y];
+		}
+		else
+		{
+			return null;
+		}
+	}
+	
 	/** 
 	 * This function checks if this maze is solvable.
+	 * Uses the connected component labels, so only the first call 
+	 * after the Maze changes has to look at every Node.
 	 * @return true if end is reachable from start
 	 * 		   false otherwise
 	 */
 	public boolean isSolvable()
 	{
-		Map<Node,Boolean> visited = new HashMap<Node,Boolean>();
-		Stack<Node> nodeStack = new Stack<Node>();
-		nodeStack.addElement(this.getStartNode());
-		
-		Node currentNode;
+		Node startNode = this.getStartNode();
 		Node endNode = this.getEndNode();
 		
-		// Perform a DFS traversal
-		while(nodeStack.size() > 0) {
-			currentNode = nodeStack.pop();
-			
-			if (currentNode.equals(endNode))
+		if (startNode.equals(endNode))
+		{
+			return true;
+		}
+		if (!startNode.getIsPassable())
+		{
+			return false;
+		}
+		
+		ComponentLabels labels = this.getComponentLabels();
+		Position start = startNode.getPosition();
+		Position end = endNode.getPosition();
+		int startLabel = labels.getLabel(start.getX(), start.getY());
+		
+		if (endNode.getIsPassable())
+		{
+			return startLabel == labels.getLabel(end.getX(), end.getY());
+		}
+		
+		// An impassable end counts as reached from any of its neighbors
+		for (Node node : endNode.getAdjacentNodes(false))
+		{
+			Position position = node.getPosition();
+			if (startLabel == labels.getLabel(position.getX(), position.getY()))
 			{
 				return true;
 			}
-			
-			if(!visited.containsKey(currentNode) || !visited.get(currentNode)) {
-				visited.put(currentNode, true);
-				// NOTE: put method overwrites the value if key exists and increments size
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the connected component labels of this Maze, labeling it
+	 * first if it has changed since the last call.
+	 * @return the component labels of this Maze
+	 */
+	public synchronized ComponentLabels getComponentLabels()
+	{
+		if (componentLabels == null)
+		{
+			componentLabels = new ComponentLabels(this);
+		}
+		return componentLabels;
+	}
+	
+	/**
+	 * Returns the passability of this Maze packed 64 cells to a long.
+	 * The grid returned never changes and must not be changed: edits go
+	 * into a new copy for later calls, so a search holding one grid sees a
+	 * single version of the Maze. Calls between edits don't lock, so
+	 * searches may call this for every cell they expand.
+	 * @return the passability BitGrid of this Maze
+	 */
+	public BitGrid getPassabilityGrid()
+	{
+		BitGrid grid = publishedGrid;
+		if (grid != null)
+		{
+			return grid;
+		}
+		
+		synchronized (this)
+		{
+			if (passabilityGrid == null)
+			{
+				passabilityGrid = BitGrid.fromMaze(this);
 			}
-			
-			// If current Node is impassable, continue
-			if(!currentNode.getIsPassable()) {
-				continue;
+			if (publishedGrid == null)
+			{
+				publishedGrid = passabilityGrid.copy();
 			}
-			
-			// Get all non-diagonal neighbors of current Node
-			List<Node> adjacentNodes = currentNode.getAdjacentNodes(false);
-			for(Node node : adjacentNodes) 
+			return publishedGrid;
+		}
+	}
+	
+	/**
+	 * @return a counter that changes every time a Node's passability changes,
+	 * 		   used to invalidate anything computed from this Maze
+	 */
+	public synchronized int getModificationCount()
+	{
+		return modificationCount;
+	}
+	
+	@Override
+	public int getVertexCount()
+	{
+		return width * height;
+	}
+	
+	@Override
+	public int getMaxDegree()
+	{
+		return Direction.COUNT;
+	}
+	
+	@Override
+	public int getSuccessors(int vertex, int[] targets, long[] costs)
+	{
+		BitGrid grid = getPassabilityGrid();
+		MovementModel model = MovementModel.EIGHT_CONNECTED;
+		int x = vertex % width;
+		int y = vertex / width;
+		int degree = 0;
+		
+		for (int direction : model.directions())
+		{
+			if (model.canMove(grid, x, y, direction))
 			{
-				if(!visited.containsKey(node) || !visited.get(node)) 
-				{
-					nodeStack.add(node);
-				}
+				targets[degree] = vertex + Direction.getDY(direction) * width + Direction.getDX(direction);
+				costs[degree++] = model.getCost(direction);
 			}
 		}
+		return degree;
+	}
+	
+	@Override
+	public boolean hasCoordinates()
+	{
+		return true;
+	}
+	
+	@Override
+	public int getVertexX(int vertex)
+	{
+		return vertex % width;
+	}
+	
+	@Override
+	public int getVertexY(int vertex)
+	{
+		return vertex / width;
+	}
+	
+	/**
+	 * Called by Nodes whose passability changed. Patches the cached
+	 * passability grid, drops the other cached indexes and tells listeners.
+	 * @param node the Node that changed
+	 */
+	void markModified(Node node)
+	{
+		// Nothing is cached or listening before the constructor returns
+		if (generating)
+		{
+			return;
+		}
 		
-		return false;
+		Position position = node.getPosition();
+		MazeChangeListener[] listeners;
+		
+		synchronized (this)
+		{
+			modificationCount++;
+			componentLabels = null;
+			if (passabilityGrid != null)
+			{
+				passabilityGrid.set(position.getX(), position.getY(), node.getIsPassable());
+				publishedGrid = null;
+			}
+			listeners = changeListeners.toArray(new MazeChangeListener[changeListeners.size()]);
+		}
+		
+		for (MazeChangeListener listener : listeners)
+		{
+			listener.passabilityChanged(this, position, node.getIsPassable());
+		}
+	}
+	
+	/**
+	 * Makes the Node at position passable or impassable.
+	 * @param position the Position of the Node to change
+	 * @param passable whether the Node can be walked through
+	 */
+	public void setPassable(Position position, boolean passable)
+	{
+		if (position == null || !inBounds(position))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+		
+		getNode(position).setPassable(passable);
+	}
+	
+	/**
+	 * @param listener notified whenever a Node's passability changes
+	 */
+	public synchronized void addChangeListener(MazeChangeListener listener)
+	{
+		if (listener == null)
+		{
+			throw new IllegalArgumentException("Null listener.");
+		}
+		changeListeners.add(listener);
+	}
+	
+	/**
+	 * @param listener the listener to stop notifying
+	 */
+	public synchronized void removeChangeListener(MazeChangeListener listener)
+	{
+		changeListeners.remove(listener);
 	}
 	
 	/**
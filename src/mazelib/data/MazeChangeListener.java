@@ -0,0 +1,17 @@
+package mazelib.data;
+
+/**
+ * Interface for objects that keep state derived from a Maze up to date
+ * as its Nodes change, instead of rebuilding it from scratch.
+ */
+public interface MazeChangeListener {
+
+	/**
+	 * Called after a Node of maze became passable or impassable.
+	 * @param maze the Maze that changed
+	 * @param position the Position of the changed Node
+	 * @param passable the new passability of the Node
+	 */
+	void passabilityChanged(Maze maze, Position position, boolean passable);
+
+}
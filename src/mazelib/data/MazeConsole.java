@@ -37,6 +37,7 @@ public class MazeConsole {
 	private static String filename = null;
 	private static Maze maze = null;
 	private static MazeSolver solver = null;
+	private static MazeFeatures features = null;
 	
 	/**
 	 * 
@@ -114,7 +115,7 @@ public class MazeConsole {
 		while (true)
 		{
 			console.printf("Choose a Heuristic.\n" +
-						   "D(iagonal), M(anhattan) or E(uclidean).\n");
+						   "D(iagonal), M(anhattan), E(uclidean) or A(uto).\n");
 			String distance = console.readLine().toUpperCase();
 			
 			switch(distance.charAt(0))
@@ -128,6 +129,9 @@ public class MazeConsole {
 				case 'E':
 					heuristic = new EuclideanDistance();
 					break;
+				case 'A':
+					heuristic = getFeatures().selectHeuristic();
+					break;
 					
 				default:
 					continue;
@@ -137,7 +141,7 @@ public class MazeConsole {
 		
 		while (true)
 		{
-			console.printf("Choose an Algorithm. A(Star) or D(ijkstras).\n");
+			console.printf("Choose an Algorithm. A(Star), D(ijkstras), B(readth First) or a(U)to.\n");
 			String algorithm = console.readLine().toUpperCase();
 			
 			switch(algorithm.charAt(0))
@@ -148,6 +152,13 @@ public class MazeConsole {
 				case 'D':
 					solver = new DijkstrasAlgorithm(maze, heuristic);
 					break;
+				case 'B':
+					solver = new BreadthFirstAlgorithm(maze, heuristic);
+					break;
+				case 'U':
+					solver = getFeatures().selectSolver(heuristic);
+					console.printf("Using %s.\n", getFeatures().selectAlgorithm());
+					break;
 					
 				default:
 					continue;
@@ -245,6 +256,23 @@ public class MazeConsole {
 		}
 		console.printf("Maze has been parsed.\n");
 		
+		features = new MazeFeatures(maze);
+		console.printf("Walls %.0f%%, junctions %.1f%%, corridors %.1f wide, %s.\n",
+					   100.0 * features.getWallDensity(), 100.0 * features.getJunctionRatio(),
+					   features.getAverageCorridorWidth(),
+					   features.isPerfect() ? "perfect" : (features.hasOpenSquare() ? "open" : "no open squares"));
+	}
+	
+	/**
+	 * @return the features of the Maze, computed again only if it changed
+	 */
+	private static MazeFeatures getFeatures()
+	{
+		if (features == null || features.getMaze() != maze || !features.isValid())
+		{
+			features = new MazeFeatures(maze);
+		}
+		return features;
 	}
 	
 	/**
@@ -0,0 +1,234 @@
+package mazelib.data;
+
+/**
+ * Cheap features of a Maze, computed once with a pass of word operations
+ * over its BitGrid, and the solver and heuristic they point to.
+ *
+ * A diagonal move needs the target and both straight cells passable, so a
+ * Maze without an open 2x2 square only ever moves straight. There every
+ * step costs the same, breadth first search finds the shortest path, and
+ * Manhattan distance is the tightest admissible estimate. Anywhere else A*
+ * with diagonal distance is used, which never overestimates a diagonal.
+ * Corridor width and junction ratio describe the Maze; neither changes
+ * which solver finds the shortest path.
+ */
+public class MazeFeatures {
+
+	private final Maze maze;
+	private final int modificationCount;
+
+	private final int width, height;
+	private final long passableCount;
+	private final long adjacentPairs;
+	private final long junctionCount;
+	private final boolean openSquare;
+	private final boolean perfect;
+
+	/**
+	 * Computes the features of maze as it is now.
+	 * @param maze the Maze to describe
+	 */
+	public MazeFeatures(Maze maze)
+	{
+		if (maze == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.maze = maze;
+		this.modificationCount = maze.getModificationCount();
+		this.width = maze.getWidth();
+		this.height = maze.getHeight();
+
+		BitGrid grid = maze.getPassabilityGrid();
+		int wordsPerRow = grid.getWordsPerRow();
+		long pairs = 0l;
+		long junctions = 0l;
+
+		for (int y = 0; y < height; y++)
+		{
+			for (int word = 0; word < wordsPerRow; word++)
+			{
+				long cells = grid.getWord(y, word);
+				long west = (cells << 1) | ((word > 0) ? grid.getWord(y, word - 1) >>> 63 : 0l);
+				long east = (cells >>> 1) | ((word + 1 < wordsPerRow) ? grid.getWord(y, word + 1) << 63 : 0l);
+				long north = (y > 0) ? grid.getWord(y - 1, word) : 0l;
+				long south = (y + 1 < height) ? grid.getWord(y + 1, word) : 0l;
+
+				// Each pair is counted from its west and its north cell
+				pairs += Long.bitCount(cells & east) + Long.bitCount(cells & south);
+
+				// At least three of the four straight neighbors passable
+				long three = (north & south & (east | west)) | (east & west & (north | south));
+				junctions += Long.bitCount(cells & three);
+			}
+		}
+
+		this.passableCount = grid.count();
+		this.adjacentPairs = pairs;
+		this.junctionCount = junctions;
+		this.openSquare = containsOpenSquare(grid);
+
+		// A spanning tree of its cells: one component without any cycle
+		this.perfect = passableCount > 0 && pairs == passableCount - 1
+					   && new ComponentLabels(maze).getComponentCount() == 1;
+	}
+
+	/**
+	 * @param grid the cells to look at
+	 * @return true if grid has four passable cells in a 2x2 square, the
+	 * 		   only place a diagonal move can be made between passable cells
+	 */
+	static boolean containsOpenSquare(BitGrid grid)
+	{
+		int wordsPerRow = grid.getWordsPerRow();
+		for (int y = 0; y + 1 < grid.getHeight(); y++)
+		{
+			for (int word = 0; word < wordsPerRow; word++)
+			{
+				long both = grid.getWord(y, word) & grid.getWord(y + 1, word);
+				long right = both >>> 1;
+				if (word + 1 < wordsPerRow)
+				{
+					right |= (grid.getWord(y, word + 1) & grid.getWord(y + 1, word + 1)) << 63;
+				}
+				if ((both & right) != 0l)
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the tightest heuristic that never overestimates on the Maze
+	 */
+	public Heuristic selectHeuristic()
+	{
+		return openSquare ? new DiagonalDistance() : new ManhattanDistance();
+	}
+
+	/**
+	 * @return the name of the fastest solver finding shortest paths on the
+	 * 		   Maze, as listed by MazeInterfaceView
+	 */
+	public String selectAlgorithm()
+	{
+		return openSquare ? "A Star" : "Breadth First";
+	}
+
+	/**
+	 * @return the fastest solver finding shortest paths on the Maze, set up
+	 * 		   with the heuristic of selectHeuristic
+	 */
+	public MazeSolver selectSolver()
+	{
+		return selectSolver(selectHeuristic());
+	}
+
+	/**
+	 * @param heuristic the heuristic for the solver to use, if it uses one
+	 * @return the fastest solver finding shortest paths on the Maze
+	 */
+	public MazeSolver selectSolver(Heuristic heuristic)
+	{
+		if (heuristic == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+		if (!openSquare)
+		{
+			return new BreadthFirstAlgorithm(maze, heuristic);
+		}
+		return new AStarAlgorithm(maze, heuristic);
+	}
+
+	/**
+	 * @return true if the Maze hasn't changed since the features were computed
+	 */
+	public boolean isValid()
+	{
+		return maze.getModificationCount() == modificationCount;
+	}
+
+	/**
+	 * @return the number of cells, passable or not
+	 */
+	public long getCellCount()
+	{
+		return (long) width * height;
+	}
+
+	/**
+	 * @return the number of passable cells
+	 */
+	public long getPassableCount()
+	{
+		return passableCount;
+	}
+
+	/**
+	 * @return the share of cells that are walls, from 0 to 1
+	 */
+	public double getWallDensity()
+	{
+		return 1.0 - (double) passableCount / getCellCount();
+	}
+
+	/**
+	 * @return the number of passable cells with at least three passable
+	 * 		   straight neighbors
+	 */
+	public long getJunctionCount()
+	{
+		return junctionCount;
+	}
+
+	/**
+	 * @return the share of passable cells that are junctions, 0 without any
+	 */
+	public double getJunctionRatio()
+	{
+		return (passableCount == 0) ? 0.0 : (double) junctionCount / passableCount;
+	}
+
+	/**
+	 * Average width of the passages, as twice their area over the length of
+	 * their sides: a corridor one cell wide comes out at about 1, open
+	 * rooms at about their size.
+	 * @return the average corridor width, 0 without passable cells
+	 */
+	public double getAverageCorridorWidth()
+	{
+		// Every cell has four sides, every pair of neighbors hides two
+		long sides = 4 * passableCount - 2 * adjacentPairs;
+		return (sides == 0) ? 0.0 : 2.0 * passableCount / sides;
+	}
+
+	/**
+	 * @return true if some 2x2 square is passable, so diagonal moves exist
+	 */
+	public boolean hasOpenSquare()
+	{
+		return openSquare;
+	}
+
+	/**
+	 * @return true if there is exactly one path between any two passable
+	 * 		   cells, as in the Mazes the generator builds
+	 */
+	public boolean isPerfect()
+	{
+		return perfect;
+	}
+
+	/**
+	 * @return the Maze the features describe
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+
+}
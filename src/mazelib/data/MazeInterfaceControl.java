@@ -69,7 +69,12 @@ public class MazeInterfaceControl extends JApplet{
 				if (solved != null) {
 					mazeView.setImage(solved);
 					mazeView.setSolvedState();
-					mazeView.displayMessage("Solved the maze!");
+					if (mazeModel.isPartialSolution()) {
+						mazeView.displayMessage("Ran out of time, showing the closest path found.");
+					}
+					else {
+						mazeView.displayMessage("Solved the maze!");
+					}
 				}
 				else {
 					mazeView.displayMessage("Error while solving!");
@@ -15,11 +15,21 @@ public class MazeInterfaceModel {
 	private MazeSolver solver;
 	private Heuristic heuristic;
 	
+	// Computed when a maze is loaded, for the "Auto" choices
+	private MazeFeatures features;
+	
+	// Kept between solves so start, end and wall edits are repaired incrementally
+	private DStarLiteAlgorithm incrementalSolver;
+	private String incrementalHeuristic;
+	
 	private boolean solvableRan;
 	private boolean solvable;
 	
 	private final static Position defaultStart = new Position(0, 0);
 	private final static Position defaultEnd = new Position(319, 239);
+	
+	// Solving runs on the event thread, so it must not take longer than this
+	private final static long SOLVE_TIME_LIMIT = 10000l;
 
 	
 	/**
@@ -34,6 +44,11 @@ public class MazeInterfaceModel {
 		catch (Exception e) {;
 			return null;
 		}
+		if (incrementalSolver != null) {
+			incrementalSolver.detach();
+			incrementalSolver = null;
+		}
+		features = new MazeFeatures(maze);
 		solvableRan = false;
 		return maze.getImage();
 	}
@@ -85,6 +100,12 @@ public class MazeInterfaceModel {
 			case "Euclidean":
 				this.heuristic = new EuclideanDistance();
 				break;
+			case "Auto":
+				this.heuristic = getFeatures().selectHeuristic();
+				break;
+		}
+		if (algorithm.equals("Auto")) {
+			algorithm = getFeatures().selectAlgorithm();
 		}
 		switch(algorithm) {
 			case "A Star":
@@ -93,8 +114,27 @@ public class MazeInterfaceModel {
 			case "Dijkstras":
 				this.solver = new DijkstrasAlgorithm(maze, this.heuristic);
 				break;
+			case "D* Lite":
+				this.solver = getIncrementalSolver(heuristic);
+				break;
+			case "Skeleton":
+				this.solver = new SkeletonSolver(maze, this.heuristic);
+				break;
+			case "ARA*":
+				this.solver = new AnytimeAStarAlgorithm(maze, this.heuristic);
+				break;
+			case "Parallel A*":
+				this.solver = new ParallelAStarAlgorithm(maze, this.heuristic);
+				break;
+			case "Breadth First":
+				this.solver = new BreadthFirstAlgorithm(maze, this.heuristic);
+				break;
+			case "Portfolio":
+				this.solver = new PortfolioAlgorithm(maze, this.heuristic);
+				break;
 		}
 		
+		solver.setCancellationToken(CancellationToken.withTimeout(SOLVE_TIME_LIMIT));
 		if (solver.solveMaze() == null)
 		{
 			return null;
@@ -103,6 +143,42 @@ public class MazeInterfaceModel {
 		return solver.outputSolution();
 	}
 	
+	/**
+	 * Returns the D* Lite solver of the current maze, creating a new one
+	 * only when there is none yet or the heuristic changed.
+	 * @param heuristic the desired heuristic in String format
+	 * @return the incremental solver
+	 */
+	private MazeSolver getIncrementalSolver(String heuristic) {
+		
+		if (incrementalSolver == null || !heuristic.equals(incrementalHeuristic)) {
+			if (incrementalSolver != null) {
+				incrementalSolver.detach();
+			}
+			incrementalSolver = new DStarLiteAlgorithm(maze, this.heuristic);
+			incrementalHeuristic = heuristic;
+		}
+		return incrementalSolver;
+	}
+	
+	/**
+	 * @return true if the last solve ran out of time and its image shows
+	 * 		   the path to the point closest to the end
+	 */
+	public boolean isPartialSolution() {
+		return solver != null && solver.isPartial();
+	}
+	
+	/**
+	 * @return the features of the maze, computed again only if it was edited
+	 */
+	public MazeFeatures getFeatures() {
+		if (features == null || !features.isValid()) {
+			features = new MazeFeatures(maze);
+		}
+		return features;
+	}
+	
 	public BufferedImage getSolutionImage() {
 		return solver.getImage();
 	}
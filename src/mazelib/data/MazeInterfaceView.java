@@ -44,9 +44,17 @@ public class MazeInterfaceView {
 	// Combo Boxes' values
 	String [] heuristics = { "Manhattan" ,
 							 "Diagonal" ,
-							 "Euclidean" };
+							 "Euclidean",
+							 "Auto" };
 	String [] algorithms = { "A Star", 
-							 "Dijkstras" };
+							 "Dijkstras",
+							 "D* Lite",
+							 "Skeleton",
+							 "ARA*",
+							 "Parallel A*",
+							 "Breadth First",
+							 "Portfolio",
+							 "Auto" };
 	
 	// Constructor
 	public MazeInterfaceView() {
@@ -3,7 +3,6 @@ package mazelib.data;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Template method for Maze solving algorithms
@@ -14,13 +13,16 @@ public abstract class MazeSolver {
 
 	protected Maze maze;
 	protected final Heuristic heuristic;
-	protected Map<Node, Boolean> solutionNodes = null;
+	protected final MovementModel movementModel;
+	protected SolutionPath solutionPath = null;
 	protected List<Node> solution = null;
+	protected CancellationToken cancellationToken = null;
+	protected boolean partial = false;
 	
 	public BufferedImage solutionImage = null;
 	
-	protected final long COST_STRAIGHT = 100l;
-	protected final long COST_DIAGONAL = 141l;
+	protected final long COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	protected final long COST_DIAGONAL = MovementModel.COST_DIAGONAL;
 	protected final int SOLUTION_COLOR = Color.red.getRGB();
 	
 	/**
@@ -28,9 +30,20 @@ public abstract class MazeSolver {
 	 * @param maze the Maze to work on
 	 */
 	public MazeSolver(Maze maze, Heuristic heuristic)
+	{
+		this(maze, heuristic, MovementModel.EIGHT_CONNECTED);
+	}
+	
+	/**
+	 * Constructor to be used by derived classes that search with any
+	 * MovementModel.
+	 * @param maze the Maze to work on
+	 * @param model the moves solutions may make
+	 */
+	public MazeSolver(Maze maze, Heuristic heuristic, MovementModel model)
 	{
 		// Check for null Maze argument 
-		if (maze == null || heuristic == null)
+		if (maze == null || heuristic == null || model == null)
 		{
 			throw new IllegalArgumentException("Null argument(s).");
 		}
@@ -38,6 +51,7 @@ public abstract class MazeSolver {
 		{
 			this.maze = maze;
 			this.heuristic = heuristic;
+			this.movementModel = model;
 		}
 	}
 	
@@ -56,15 +70,151 @@ public abstract class MazeSolver {
 		{
 			this.maze = new Maze(stringMaze, false);
 			this.heuristic = heuristic;
+			this.movementModel = MovementModel.EIGHT_CONNECTED;
 		}
 	}
 	
+	/**
+	 * @return the Maze this solver works on
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+	
+	/**
+	 * @return the moves solutions may make
+	 */
+	public MovementModel getMovementModel()
+	{
+		return movementModel;
+	}
+	
 	/**
 	 * Main algorithm method that each non-abstract derived class must define.
 	 * @return the List of solution Nodes
 	 */
 	abstract public List<Node> solveMaze();
 	
+	/**
+	 * Stores the result of a successful solveMaze() call. A path that
+	 * doesn't reach the end Node marks the solution partial.
+	 * @param path the compact solution path, null if solving failed
+	 * @return the List view of path handed back to solveMaze() callers,
+	 * 		   from the end Node back to the start Node
+	 */
+	protected List<Node> setSolution(SolutionPath path)
+	{
+		return setSolution(path, (path != null) &&
+						   !maze.getEndNode().getPosition().equals(new Position(path.getEndX(), path.getEndY())));
+	}
+	
+	/**
+	 * Stores the result of a solveMaze() call for solvers whose goal isn't
+	 * only the end Node.
+	 * @param path the compact solution path, null if solving failed
+	 * @param partial true if path was stopped before it reached a goal
+	 * @return the List view of path handed back to solveMaze() callers,
+	 * 		   from the end of path back to the start Node
+	 */
+	protected List<Node> setSolution(SolutionPath path, boolean partial)
+	{
+		this.solutionPath = path;
+		this.solution = (path == null) ? null : path.asReversedNodeList(maze);
+		this.partial = partial;
+		
+		if (path != null)
+		{
+			linkParentNodes(path);
+		}
+		return this.solution;
+	}
+	
+	/**
+	 * Points the parent Node of every Node on path at the Node before it,
+	 * for callers that walk back from the end Node.
+	 * @param path the solution path
+	 */
+	private void linkParentNodes(SolutionPath path)
+	{
+		SolutionPath.Cursor cursor = path.cursor();
+		Node parentNode = maze.getNode(cursor.getX(), cursor.getY());
+		
+		while (cursor.advance())
+		{
+			Node node = maze.getNode(cursor.getX(), cursor.getY());
+			node.setParentNode(parentNode);
+			parentNode = node;
+		}
+	}
+	
+	/**
+	 * Checks the component labels of the Maze so solvers can give up
+	 * on unreachable queries before searching.
+	 * @return true if end Node certainly can't be reached from start Node,
+	 * 		   false if it might be
+	 */
+	protected boolean isUnreachable()
+	{
+		Position start = maze.getStartNode().getPosition();
+		Position end = maze.getEndNode().getPosition();
+		return isUnreachable(maze, start.getX(), start.getY(), end.getX(), end.getY());
+	}
+	
+	/**
+	 * Same check for any start and end cell.
+	 * @return true if end certainly can't be reached from start,
+	 * 		   false if it might be
+	 */
+	static boolean isUnreachable(Maze maze, int startX, int startY, int endX, int endY)
+	{
+		if ((startX == endX && startY == endY) || !maze.getNode(startX, startY).getIsPassable())
+		{
+			return false;
+		}
+		if (!maze.getNode(endX, endY).getIsPassable())
+		{
+			return true;
+		}
+		return !maze.getComponentLabels().isConnected(startX, startY, endX, endY);
+	}
+	
+	/**
+	 * Sets the token solveMaze() checks while it searches. Once it is
+	 * cancelled, solvers that support it stop and keep a partial solution.
+	 * @param cancellationToken the token to check, null to never stop
+	 */
+	public void setCancellationToken(CancellationToken cancellationToken)
+	{
+		this.cancellationToken = cancellationToken;
+	}
+	
+	/**
+	 * @return the token solveMaze() checks, null if there is none
+	 */
+	public CancellationToken getCancellationToken()
+	{
+		return cancellationToken;
+	}
+	
+	/**
+	 * @return true if the last solveMaze() was stopped and its solution
+	 * 		   ends at the best Node reached instead of the end Node
+	 */
+	public boolean isPartial()
+	{
+		return partial;
+	}
+	
+	/**
+	 * @return the compact form of the last solution,
+	 * 		   null if Maze hasn't been solved yet or has no solution
+	 */
+	public SolutionPath getSolutionPath()
+	{
+		return solutionPath;
+	}
+	
 	/**
 	 * This function draws the maze with solution path.
 	 * @return the string representation of Maze with solution path,
@@ -72,11 +222,12 @@ public abstract class MazeSolver {
 	 */
 	public String drawSolution()
 	{
-		if (solutionNodes.isEmpty())
+		if (solutionPath == null)
 		{
 			return null;
 		}
 		
+		boolean[] onPath = solutionPath.toCellMask(maze.getWidth(), maze.getHeight());
 		String result = "";
 		String border = "#";
 		
@@ -105,7 +256,7 @@ public abstract class MazeSolver {
 				{
 					result = result + "E";
 				}
-				else if (solutionNodes.containsKey(this.maze.getNode(position)))
+				else if (onPath[y * this.maze.getWidth() + x])
 				{
 					result = result + ".";
 				}
@@ -136,17 +287,17 @@ public abstract class MazeSolver {
 		BufferedImage result = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_INT_RGB);
 		result.getGraphics().drawImage(original, 0, 0, null);
 		
-		if (solutionNodes == null)
+		if (solutionPath == null)
 		{
 			return null;
 		}
 		
-		for (Node node : solution)
+		SolutionPath.Cursor cursor = solutionPath.cursor();
+		do
 		{
-			Position position = node.getPosition();
-
-			result.setRGB(position.getX(), position.getY(), SOLUTION_COLOR);
+			result.setRGB(cursor.getX(), cursor.getY(), SOLUTION_COLOR);
 		}
+		while (cursor.advance());
 		
 		solutionImage = result;
 		return result;
@@ -0,0 +1,211 @@
+package mazelib.data;
+
+/**
+ * The moves a search may make from a cell and what they cost. Searches
+ * walk getDirections() rather than every Direction, so a 4-connected model
+ * looks at half as many neighbors, and the class is final so the checks in
+ * their inner loops are always the same code.
+ *
+ * EIGHT_CONNECTED is what every solver did before models existed: diagonal
+ * moves need both cells beside them passable. A diagonal move past at most
+ * one wall can always be made in two straight ones too, so under every model
+ * a Maze is connected exactly when it is 4-connected, as Maze.isSolvable()
+ * and the component labels assume. Only the path costs differ.
+ *
+ * Only GridAStar, and AStarAlgorithm and DijkstrasAlgorithm on top of it,
+ * take a model. Every other engine moves as EIGHT_CONNECTED, through
+ * BitGrid.canMove() which has the same rules built in: AnytimeAStarAlgorithm,
+ * ParallelAStarAlgorithm, FrontierAStar, DStarLiteAlgorithm, DeltaStepping,
+ * DistanceField, HierarchicalAStar, ContractionHierarchy, JunctionGraph,
+ * SkeletonSolver, PortfolioAlgorithm and Maze.getSuccessors().
+ * BreadthFirstAlgorithm makes straight moves only; MazeFeatures picks it
+ * only for Mazes where no diagonal move exists.
+ */
+public final class MovementModel {
+
+	/** Cost of a straight move in every built in model. */
+	public static final int COST_STRAIGHT = 100;
+
+	/** Cost of a diagonal move in every built in model, about 100 * sqrt(2). */
+	public static final int COST_DIAGONAL = 141;
+
+	// Set up before the models below, which keep them
+	private static final int[] STRAIGHT_DIRECTIONS =
+		{ Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	private static final int[] ALL_DIRECTIONS =
+		{ Direction.NORTH, Direction.NORTH_EAST, Direction.EAST, Direction.SOUTH_EAST,
+		  Direction.SOUTH, Direction.SOUTH_WEST, Direction.WEST, Direction.NORTH_WEST };
+
+	/** Straight moves only. */
+	public static final MovementModel FOUR_CONNECTED =
+		new MovementModel(COST_STRAIGHT, COST_DIAGONAL, false, false);
+
+	/** Straight and diagonal moves, diagonals not past any wall. */
+	public static final MovementModel EIGHT_CONNECTED =
+		new MovementModel(COST_STRAIGHT, COST_DIAGONAL, true, false);
+
+	/** Straight and diagonal moves, diagonals past at most one wall. */
+	public static final MovementModel CORNER_CUTTING =
+		new MovementModel(COST_STRAIGHT, COST_DIAGONAL, true, true);
+
+	private final long costStraight;
+	private final long costDiagonal;
+	private final boolean diagonal;
+	private final boolean cornerCutting;
+	private final int[] directions;
+	private final Heuristic heuristic;
+
+	/**
+	 * Constructs a MovementModel with custom costs.
+	 * @param costStraight the cost of a straight move, at least 1
+	 * @param costDiagonal the cost of a diagonal move, at least 1
+	 * @param diagonal true to allow diagonal moves
+	 * @param cornerCutting true to allow diagonal moves past one wall
+	 */
+	public MovementModel(long costStraight, long costDiagonal, boolean diagonal, boolean cornerCutting)
+	{
+		if (costStraight < 1 || costDiagonal < 1)
+		{
+			throw new IllegalArgumentException("Costs must be positive.");
+		}
+
+		this.costStraight = costStraight;
+		this.costDiagonal = costDiagonal;
+		this.diagonal = diagonal;
+		this.cornerCutting = diagonal && cornerCutting;
+		this.directions = diagonal ? ALL_DIRECTIONS : STRAIGHT_DIRECTIONS;
+		this.heuristic = new ModelDistance();
+	}
+
+	/**
+	 * @param grid the passability to move on
+	 * @param x the x coordinate of the cell to move from
+	 * @param y the y coordinate of the cell to move from
+	 * @param direction the Direction code of the move
+	 * @return true if this model allows the move
+	 */
+	public boolean canMove(BitGrid grid, int x, int y, int direction)
+	{
+		int dx = Direction.getDX(direction);
+		int dy = Direction.getDY(direction);
+		int toX = x + dx;
+		int toY = y + dy;
+
+		if (toX < 0 || toX >= grid.getWidth() || toY < 0 || toY >= grid.getHeight() || !grid.get(toX, toY))
+		{
+			return false;
+		}
+		if (dx == 0 || dy == 0)
+		{
+			return true;
+		}
+		if (!diagonal)
+		{
+			return false;
+		}
+		return cornerCutting ? (grid.get(toX, y) || grid.get(x, toY)) : (grid.get(toX, y) && grid.get(x, toY));
+	}
+
+	/**
+	 * @param direction the Direction code of the move
+	 * @return the cost of the move
+	 */
+	public long getCost(int direction)
+	{
+		return Direction.isDiagonal(direction) ? costDiagonal : costStraight;
+	}
+
+	/**
+	 * @return the cost of a straight move
+	 */
+	public long getCostStraight()
+	{
+		return costStraight;
+	}
+
+	/**
+	 * @return the cost of a diagonal move
+	 */
+	public long getCostDiagonal()
+	{
+		return costDiagonal;
+	}
+
+	/**
+	 * @return true if diagonal moves are allowed
+	 */
+	public boolean isDiagonal()
+	{
+		return diagonal;
+	}
+
+	/**
+	 * @return true if diagonal moves may pass one wall
+	 */
+	public boolean isCornerCutting()
+	{
+		return cornerCutting;
+	}
+
+	/**
+	 * @return the Direction codes of the moves this model allows
+	 */
+	public int[] getDirections()
+	{
+		return directions.clone();
+	}
+
+	/**
+	 * Same as getDirections() without the copy, for inner loops.
+	 */
+	int[] directions()
+	{
+		return directions;
+	}
+
+	/**
+	 * @return a Heuristic giving the cost of the cheapest moves between two
+	 * 		   cells with no walls in the way, which never overestimates
+	 */
+	public Heuristic getHeuristic()
+	{
+		return heuristic;
+	}
+
+	/**
+	 * Distance over open ground with the moves and costs of this model.
+	 */
+	private class ModelDistance implements Heuristic {
+
+		@Override
+		public long calculateDistance(Node originNode, Node targetNode)
+		{
+			if (originNode == null || targetNode == null)
+			{
+				throw new IllegalArgumentException("Null argument(s).");
+			}
+
+			Position origin = originNode.getPosition();
+			Position target = targetNode.getPosition();
+			return estimate(origin.getX(), origin.getY(), target.getX(), target.getY());
+		}
+
+		@Override
+		public long estimate(int fromX, int fromY, int toX, int toY)
+		{
+			long horizontal = Math.abs(toX - fromX);
+			long vertical = Math.abs(toY - fromY);
+			if (!diagonal)
+			{
+				return costStraight * (horizontal + vertical);
+			}
+
+			// Each move gets at most one cell closer along each axis
+			long shorter = Math.min(horizontal, vertical);
+			long both = Math.min(costDiagonal, 2 * costStraight);
+			long one = Math.min(costDiagonal, costStraight);
+			return both * shorter + one * (horizontal + vertical - 2 * shorter);
+		}
+	}
+
+}
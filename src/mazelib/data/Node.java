@@ -238,7 +238,14 @@ public class Node implements Comparable<Node> {
 	 */
 	protected void setPassable(boolean passable) 
 	{
+		boolean changed = (this.passable != passable);
 		this.passable = passable;
+		
+		// Parent Maze is still null while the constructor runs
+		if (this.parentMaze != null && changed)
+		{
+			this.parentMaze.markModified(this);
+		}
 	}
 
 	/** 
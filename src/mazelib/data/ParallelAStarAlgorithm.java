@@ -0,0 +1,524 @@
+package mazelib.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hash distributed A* (HDA*). Every cell is owned by one worker thread,
+ * picked by a hash of the 8x8 tile the cell lies in so that most moves
+ * stay with one owner. A worker keeps the open list of its own cells and
+ * is the only one to write their costs and parents, which live in the
+ * calling thread's SearchArena. Cells generated for another owner are
+ * sent to it through its lock free inbox, and idle workers park until a
+ * message arrives. The calling thread runs the first worker, the others
+ * run on a shared pool of daemon threads.
+ *
+ * The end may be reached first over a longer path, so workers keep going
+ * until no open cell of any worker could still lead to a shorter one and
+ * no message is in flight. Then the path found is as short as A*'s.
+ */
+public class ParallelAStarAlgorithm extends MazeSolver {
+
+	private static final int TILE_SHIFT = 3;
+	private static final int EXPANSION_BATCH = 64;
+
+	// Upper bound on a park, in case a wake up is missed
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1l);
+
+	// Idle threads are kept for the next query instead of started per worker
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "HDA* worker");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final int threadCount;
+
+	/**
+	 * Constructor for ParallelAStarAlgorithm Object with one worker per core.
+	 * @param maze the Maze to solve
+	 */
+	public ParallelAStarAlgorithm(Maze maze, Heuristic heuristic)
+	{
+		this(maze, heuristic, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for ParallelAStarAlgorithm Object.
+	 * @param maze the Maze to solve
+	 * @param threadCount the number of worker threads
+	 */
+	public ParallelAStarAlgorithm(Maze maze, Heuristic heuristic, int threadCount)
+	{
+		super(maze, heuristic);
+
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException("Need at least one thread.");
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Constructor for ParallelAStarAlgorithm Object.
+	 * @param stringMaze the string representation of the Maze to solve
+	 * @param threadCount the number of worker threads
+	 */
+	public ParallelAStarAlgorithm(String stringMaze, Heuristic heuristic, int threadCount)
+	{
+		super(stringMaze, heuristic);
+
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException("Need at least one thread.");
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * The main function of the algorithm.
+	 * @return List of Nodes from end Node back to start Node that represent
+	 * 		   the solution to this maze,
+	 * 		   to the Node closest to end Node if the cancellation token stopped it,
+	 * 		   null if there is no path from start Node to end Node
+	 */
+	@Override
+	public List<Node> solveMaze()
+	{
+		setSolution(null);
+
+		Position start = this.maze.getStartNode().getPosition();
+		Position end = this.maze.getEndNode().getPosition();
+
+		return setSolution(solve(start, end, cancellationToken));
+	}
+
+	/**
+	 * Finds a path between two cells with all workers.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token checked every CancellationToken.CHECK_INTERVAL expansions
+	 * 		  of each worker, null to never stop
+	 * @return the path from start to end, possibly longer than shortest if
+	 * 		   token stopped the search after reaching end,
+	 * 		   the path to the expanded cell closest to end if token stopped
+	 * 		   it before, null if there is none or the calling thread was
+	 * 		   interrupted
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		int width = maze.getWidth();
+		int startCell = start.getY() * width + start.getX();
+		int endCell = end.getY() * width + end.getX();
+
+		if (startCell == endCell)
+		{
+			return new SolutionPath(start.getX(), start.getY(), new int[0]);
+		}
+		if (MazeSolver.isUnreachable(maze, start.getX(), start.getY(), end.getX(), end.getY()))
+		{
+			return null;
+		}
+
+		SearchArena arena = SearchArena.get(width * maze.getHeight());
+		Search search = new Search(maze.getPassabilityGrid(), arena, endCell, token);
+		arena.setCost(startCell, 0l, -1);
+		search.workers[search.ownerOf(startCell)].open.push(search.key(startCell), startCell);
+
+		List<Future<?>> futures = new ArrayList<Future<?>>(threadCount - 1);
+		boolean interrupted = false;
+		try
+		{
+			for (int i = 1; i < threadCount; i++)
+			{
+				futures.add(executor.submit(search.workers[i]));
+			}
+			search.workers[0].run();
+		}
+		finally
+		{
+			// Workers write to this thread's arena, so they must be done before it is reused
+			search.finish();
+			for (Future<?> future : futures)
+			{
+				while (true)
+				{
+					try
+					{
+						future.get();
+						break;
+					}
+					catch (InterruptedException e)
+					{
+						interrupted = true;
+					}
+					catch (ExecutionException e)
+					{
+						if (e.getCause() instanceof RuntimeException)
+						{
+							throw (RuntimeException) e.getCause();
+						}
+						throw new IllegalStateException(e.getCause());
+					}
+				}
+			}
+		}
+
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+		if (Thread.currentThread().isInterrupted())
+		{
+			return null;
+		}
+		if (arena.isSeen(endCell))
+		{
+			return arena.buildPath(width, startCell, endCell);
+		}
+		if (search.cancelled)
+		{
+			return arena.buildPath(width, startCell, search.getClosestCell(startCell));
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * A cell generated for the worker owning it.
+	 */
+	private static class Message {
+
+		private final int cell;
+		private final long cost;
+		private final int direction;
+
+		private Message(int cell, long cost, int direction)
+		{
+			this.cell = cell;
+			this.cost = cost;
+			this.direction = direction;
+		}
+	}
+
+	/**
+	 * State shared by the workers of one query. Costs and parents of a cell
+	 * are only touched by its owner, and read by the caller after joining.
+	 * Every cost is set from a cheaper one, so parents always lead back to
+	 * the start, even when the search was stopped half way.
+	 */
+	private class Search {
+
+		private final BitGrid grid;
+		private final int width;
+		private final int tilesPerRow;
+		private final int endCell;
+		private final CancellationToken token;
+
+		private final SearchArena arena;
+		private final Worker[] workers;
+
+		// Cost of the best path to the end so far
+		private final AtomicLong incumbent = new AtomicLong(Long.MAX_VALUE);
+
+		// Active workers plus messages sent and not yet handled, no work is left at 0
+		private final AtomicLong work = new AtomicLong(threadCount);
+		private volatile boolean finished = false;
+		private volatile boolean cancelled = false;
+
+		private Search(BitGrid grid, SearchArena arena, int endCell, CancellationToken token)
+		{
+			this.grid = grid;
+			this.width = grid.getWidth();
+			this.tilesPerRow = (width >> TILE_SHIFT) + 1;
+			this.endCell = endCell;
+			this.token = token;
+			this.arena = arena;
+
+			this.workers = new Worker[threadCount];
+			for (int i = 0; i < threadCount; i++)
+			{
+				workers[i] = new Worker(this, i);
+			}
+		}
+
+		/**
+		 * @return the index of the worker owning cell
+		 */
+		private int ownerOf(int cell)
+		{
+			int tile = ((cell / width) >> TILE_SHIFT) * tilesPerRow + ((cell % width) >> TILE_SHIFT);
+			int hash = tile * 0x9E3779B9;
+			return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % threadCount;
+		}
+
+		private long estimate(int cell)
+		{
+			return heuristic.estimate(cell % width, cell / width, endCell % width, endCell / width);
+		}
+
+		private long key(int cell)
+		{
+			return arena.getCost(cell) + estimate(cell);
+		}
+
+		/**
+		 * Stops all workers and wakes the parked ones.
+		 */
+		private void finish()
+		{
+			finished = true;
+			for (Worker worker : workers)
+			{
+				worker.wake();
+			}
+		}
+
+		/**
+		 * Lowers the incumbent to cost if that is better.
+		 */
+		private void offerIncumbent(long cost)
+		{
+			long current = incumbent.get();
+			while (cost < current && !incumbent.compareAndSet(current, cost))
+			{
+				current = incumbent.get();
+			}
+		}
+
+		/**
+		 * @return the expanded cell closest to the end over all workers,
+		 * 		   startCell if none was expanded
+		 */
+		private int getClosestCell(int startCell)
+		{
+			int closestCell = startCell;
+			long closestDistance = Long.MAX_VALUE;
+			for (Worker worker : workers)
+			{
+				if (worker.closestDistance < closestDistance)
+				{
+					closestDistance = worker.closestDistance;
+					closestCell = worker.closestCell;
+				}
+			}
+			return closestCell;
+		}
+	}
+
+	/**
+	 * One worker: takes in messages, expands its own open cells and goes
+	 * idle when none of them can beat the incumbent.
+	 */
+	private class Worker implements Runnable {
+
+		private final Search search;
+		private final int index;
+		private final LazyHeap open = new LazyHeap(1024);
+		private final ConcurrentLinkedQueue<Message> inbox = new ConcurrentLinkedQueue<Message>();
+		private boolean active = true;
+		private long expansions = 0l;
+		private int closestCell = -1;
+		private long closestDistance = Long.MAX_VALUE;
+
+		private volatile Thread thread;
+		private volatile boolean parked = false;
+
+		private Worker(Search search, int index)
+		{
+			this.search = search;
+			this.index = index;
+		}
+
+		@Override
+		public void run()
+		{
+			thread = Thread.currentThread();
+			while (!search.finished)
+			{
+				Message message;
+				while ((message = inbox.poll()) != null)
+				{
+					// Count as active before the message stops counting
+					if (!active)
+					{
+						search.work.incrementAndGet();
+						active = true;
+					}
+					relax(message.cell, message.cost, message.direction);
+					search.work.decrementAndGet();
+				}
+
+				if (expandBatch())
+				{
+					continue;
+				}
+
+				if (active)
+				{
+					active = false;
+					search.work.decrementAndGet();
+				}
+				if (search.work.get() == 0)
+				{
+					search.finish();
+				}
+				else
+				{
+					park();
+				}
+			}
+		}
+
+		/**
+		 * Waits for a message or the end of the search. Parked is set before
+		 * the inbox is looked at, so a sender either sees it and wakes this
+		 * worker, or offered its message early enough to be seen here.
+		 */
+		private void park()
+		{
+			parked = true;
+			if (inbox.isEmpty() && !search.finished)
+			{
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}
+			parked = false;
+
+			// Only the calling thread's worker can be interrupted, the search then gives up
+			if (Thread.currentThread().isInterrupted())
+			{
+				search.finish();
+			}
+		}
+
+		/**
+		 * Wakes this worker if it is parked.
+		 */
+		private void wake()
+		{
+			if (parked)
+			{
+				LockSupport.unpark(thread);
+			}
+		}
+
+		/**
+		 * Expands up to EXPANSION_BATCH open cells that could beat the incumbent.
+		 * @return false if there was nothing worth expanding
+		 */
+		private boolean expandBatch()
+		{
+			int expanded = 0;
+			while (expanded < EXPANSION_BATCH && !open.isEmpty())
+			{
+				long key = open.peekKey();
+				if (key >= search.incumbent.get())
+				{
+					break;
+				}
+
+				int cell = open.poll();
+				if (key != search.key(cell))
+				{
+					continue;
+				}
+				expanded++;
+
+				if (search.token != null && ++expansions % CancellationToken.CHECK_INTERVAL == 0 &&
+					search.token.isCancelled())
+				{
+					search.cancelled = true;
+					search.finish();
+					break;
+				}
+
+				if (cell == search.endCell)
+				{
+					search.offerIncumbent(search.arena.getCost(cell));
+					continue;
+				}
+
+				long distance = search.estimate(cell);
+				if (distance < closestDistance)
+				{
+					closestDistance = distance;
+					closestCell = cell;
+				}
+				expand(cell);
+			}
+			return expanded > 0;
+		}
+
+		private void expand(int cell)
+		{
+			int width = search.width;
+			int x = cell % width;
+			int y = cell / width;
+			long cost = search.arena.getCost(cell);
+
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if (!search.grid.canMove(x, y, direction))
+				{
+					continue;
+				}
+
+				int neighbor = cell + Direction.getDY(direction) * width + Direction.getDX(direction);
+				long accumulated = cost + (Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT);
+				int owner = search.ownerOf(neighbor);
+
+				if (owner == index)
+				{
+					relax(neighbor, accumulated, direction);
+				}
+				else
+				{
+					search.work.incrementAndGet();
+					search.workers[owner].inbox.offer(new Message(neighbor, accumulated, direction));
+					search.workers[owner].wake();
+				}
+			}
+		}
+
+		/**
+		 * Offers an own cell a path costing cost, entered by direction.
+		 */
+		private void relax(int cell, long cost, int direction)
+		{
+			SearchArena arena = search.arena;
+			if (arena.isSeen(cell) && cost >= arena.getCost(cell))
+			{
+				return;
+			}
+			arena.setCost(cell, cost, direction);
+			open.push(search.key(cell), cell);
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package mazelib.data;
+
+/**
+ * Helper class that holds the start and end of one path query.
+ */
+public class PathQuery {
+
+	private final Position start;
+	private final Position end;
+
+	/**
+	 * Constructs a PathQuery.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 */
+	public PathQuery(Position start, Position end)
+	{
+		if (start == null || end == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @return the Position to start from
+	 */
+	public Position getStart()
+	{
+		return start;
+	}
+
+	/**
+	 * @return the Position to reach
+	 */
+	public Position getEnd()
+	{
+		return end;
+	}
+
+}
@@ -0,0 +1,588 @@
+package mazelib.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Races several strategies on the same Maze, each on a thread of a pool
+ * shared by every race, takes the answer of the first one to finish and
+ * cancels the rest. Every strategy must find shortest paths, so whichever
+ * wins the answer is the same, only sooner. Strategies that need to build
+ * an index first build it on the pool too, and sit out races until it is
+ * done.
+ *
+ * Wins are counted per Maze, among the strategies that were ready. Once a
+ * Maze has been raced LEARNING_RACES times without changing, later queries
+ * on it run the strategy that won most on the calling thread without
+ * racing. Editing the Maze, or another strategy getting ready, starts the
+ * count over, so a strategy that is slow to build still gets its races.
+ * A query stopped by its cancellation token returns null, whether it was
+ * racing or not.
+ */
+public class PortfolioAlgorithm extends MazeSolver {
+
+	/** Races run on an unchanged Maze before its favorite runs alone. */
+	public static final int LEARNING_RACES = 3;
+
+	// How often a race looks at the caller's token
+	private static final long POLL_INTERVAL = 10l;
+
+	private static final Map<Maze, WinnerStatistics> statistics = new WeakHashMap<Maze, WinnerStatistics>();
+
+	// Idle threads are kept for the next race instead of started per strategy
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "Portfolio worker");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final List<Strategy> strategies;
+	private String lastWinner = null;
+
+	/**
+	 * Constructor for PortfolioAlgorithm Object racing the default strategies.
+	 * @param maze the Maze to solve
+	 * @param heuristic not used, the strategies pick their own
+	 */
+	public PortfolioAlgorithm(Maze maze, Heuristic heuristic)
+	{
+		this(maze, heuristic, getDefaultStrategies(maze));
+	}
+
+	/**
+	 * Constructor for PortfolioAlgorithm Object.
+	 * @param maze the Maze to solve
+	 * @param heuristic not used, the strategies pick their own
+	 * @param strategies the strategies to race, with distinct names
+	 */
+	public PortfolioAlgorithm(Maze maze, Heuristic heuristic, List<Strategy> strategies)
+	{
+		super(maze, heuristic);
+
+		if (strategies == null || strategies.isEmpty())
+		{
+			throw new IllegalArgumentException("No strategies.");
+		}
+		this.strategies = new ArrayList<Strategy>(strategies);
+	}
+
+	/**
+	 * A way of finding shortest paths to race. Strategies only read the
+	 * Maze, and several of them run on it at the same time.
+	 */
+	public interface Strategy {
+
+		/**
+		 * @return the name wins are counted under
+		 */
+		String getName();
+
+		/**
+		 * Finds a shortest path between two cells.
+		 * @param start the Position to start from
+		 * @param end the Position to reach
+		 * @param token cancelled once the strategy lost, a strategy should
+		 * 		  stop soon after
+		 * @return the path from start to end, null if there is none
+		 */
+		SolutionPath solve(Position start, Position end, CancellationToken token);
+	}
+
+	/**
+	 * A Strategy that has to build something before it can answer. It is
+	 * left out of races until it is ready, unless no strategy is. As the
+	 * favorite it runs anyway and waits for the build.
+	 */
+	public interface PreparedStrategy extends Strategy {
+
+		/**
+		 * Starts getting ready on another thread unless it already is or
+		 * has started. Returns at once.
+		 * @return true if solve() can answer without building first
+		 */
+		boolean prepare();
+	}
+
+	/**
+	 * @param maze the Maze the strategies will solve
+	 * @return A*, the junction graph, and breadth first search, which only
+	 * 		   races while maze has no open 2x2 square for it to miss a
+	 * 		   diagonal in
+	 */
+	public static List<Strategy> getDefaultStrategies(final Maze maze)
+	{
+		if (maze == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		List<Strategy> strategies = new ArrayList<Strategy>();
+		final GridAStar astar = new GridAStar(maze, new DiagonalDistance());
+		strategies.add(new Strategy() {
+
+			@Override
+			public String getName()
+			{
+				return "A*";
+			}
+
+			@Override
+			public SolutionPath solve(Position start, Position end, CancellationToken token)
+			{
+				return astar.solve(start, end, token);
+			}
+		});
+
+		strategies.add(new JunctionStrategy(maze));
+		strategies.add(new BreadthFirstStrategy(maze, astar));
+		return strategies;
+	}
+
+	/**
+	 * The main function of the algorithm.
+	 * @return List of Nodes from end Node back to start Node that represent
+	 * 		   the solution to this maze,
+	 * 		   null if there is no path from start Node to end Node or the
+	 * 		   cancellation token stopped the query first
+	 */
+	@Override
+	public List<Node> solveMaze()
+	{
+		setSolution(null);
+
+		Position start = this.maze.getStartNode().getPosition();
+		Position end = this.maze.getEndNode().getPosition();
+
+		return setSolution(solve(start, end, cancellationToken));
+	}
+
+	/**
+	 * Finds a shortest path between two cells with the favorite strategy
+	 * of the Maze, or by racing them all while it has none.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token stops the race or the favorite, null to never stop
+	 * @return the path from start to end,
+	 * 		   null if there is none or token stopped the race or the favorite
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		List<Strategy> ready = new ArrayList<Strategy>();
+		for (Strategy strategy : strategies)
+		{
+			if (!(strategy instanceof PreparedStrategy) || ((PreparedStrategy) strategy).prepare())
+			{
+				ready.add(strategy);
+			}
+		}
+
+		WinnerStatistics winners = getStatistics();
+		Strategy favorite = winners.getFavorite(strategies, ready);
+		if (favorite == null)
+		{
+			return race(start, end, token, ready.isEmpty() ? strategies : ready, winners);
+		}
+
+		lastWinner = favorite.getName();
+		SolutionPath path = favorite.solve(start, end, token);
+
+		// A stopped strategy may keep the path to where it got, a stopped race has none
+		if (path != null && (path.getEndX() != end.getX() || path.getEndY() != end.getY()))
+		{
+			return null;
+		}
+		return path;
+	}
+
+	/**
+	 * Runs every strategy of racers on a thread of the shared pool and
+	 * keeps the first answer.
+	 */
+	private SolutionPath race(final Position start, final Position end, CancellationToken token,
+							  final List<Strategy> racers, WinnerStatistics winners)
+	{
+		final LinkedBlockingQueue<Result> results = new LinkedBlockingQueue<Result>();
+		final CancellationToken[] tokens = new CancellationToken[racers.size()];
+
+		for (int i = 0; i < racers.size(); i++)
+		{
+			final int index = i;
+			tokens[i] = new CancellationToken();
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run()
+				{
+					try
+					{
+						results.add(new Result(index, racers.get(index).solve(start, end, tokens[index]), null));
+					}
+					catch (RuntimeException e)
+					{
+						results.add(new Result(index, null, e));
+					}
+				}
+			});
+		}
+
+		try
+		{
+			RuntimeException failure = null;
+			for (int pending = racers.size(); pending > 0; )
+			{
+				Result result = results.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				if (result == null)
+				{
+					if (token != null && token.isCancelled())
+					{
+						cancelAll(tokens);
+						return null;
+					}
+					continue;
+				}
+
+				pending--;
+				if (result.failure != null)
+				{
+					failure = result.failure;
+					continue;
+				}
+
+				cancelAll(tokens);
+				lastWinner = racers.get(result.index).getName();
+				winners.recordWin(lastWinner, racers);
+				return result.path;
+			}
+			throw new IllegalStateException("Every strategy failed.", failure);
+		}
+		catch (InterruptedException e)
+		{
+			cancelAll(tokens);
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private static void cancelAll(CancellationToken[] tokens)
+	{
+		for (CancellationToken token : tokens)
+		{
+			token.cancel();
+		}
+	}
+
+	/**
+	 * @return the win counts of the Maze, started over if it changed
+	 */
+	private WinnerStatistics getStatistics()
+	{
+		synchronized (statistics)
+		{
+			WinnerStatistics winners = statistics.get(maze);
+			if (winners == null || winners.modificationCount != maze.getModificationCount())
+			{
+				winners = new WinnerStatistics(maze.getModificationCount());
+				statistics.put(maze, winners);
+			}
+			return winners;
+		}
+	}
+
+	/**
+	 * @return the number of races each strategy won on the Maze since it
+	 * 		   last changed or another strategy got ready
+	 */
+	public Map<String, Integer> getWinCounts()
+	{
+		return getStatistics().getWins();
+	}
+
+	/**
+	 * Forgets the wins on the Maze, so the next queries race again.
+	 */
+	public void resetStatistics()
+	{
+		synchronized (statistics)
+		{
+			statistics.remove(maze);
+		}
+	}
+
+	/**
+	 * @return the name of the strategy that answered the last query,
+	 * 		   null before the first one
+	 */
+	public String getLastWinner()
+	{
+		return lastWinner;
+	}
+
+	/**
+	 * Searches the JunctionGraph of the Maze, built on the shared pool
+	 * again whenever the Maze changed.
+	 */
+	private static class JunctionStrategy implements PreparedStrategy {
+
+		private final Maze maze;
+		private FutureTask<JunctionGraph> build = null;
+		private int buildCount;
+
+		private JunctionStrategy(Maze maze)
+		{
+			this.maze = maze;
+		}
+
+		@Override
+		public String getName()
+		{
+			return "Junction Graph";
+		}
+
+		@Override
+		public boolean prepare()
+		{
+			return getBuild().isDone();
+		}
+
+		@Override
+		public SolutionPath solve(Position start, Position end, CancellationToken token)
+		{
+			FutureTask<JunctionGraph> build = getBuild();
+			try
+			{
+				while (true)
+				{
+					try
+					{
+						return build.get(POLL_INTERVAL, TimeUnit.MILLISECONDS).solve(start, end, token);
+					}
+					catch (TimeoutException e)
+					{
+						if (token != null && token.isCancelled())
+						{
+							return null;
+						}
+					}
+				}
+			}
+			catch (ExecutionException e)
+			{
+				if (e.getCause() instanceof RuntimeException)
+				{
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException("Junction graph failed to build.", e.getCause());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+
+		/**
+		 * @return the build of the graph of the Maze as it is now, started
+		 * 		   on the shared pool if there was none
+		 */
+		private synchronized FutureTask<JunctionGraph> getBuild()
+		{
+			int modificationCount = maze.getModificationCount();
+			if (build == null || buildCount != modificationCount)
+			{
+				build = new FutureTask<JunctionGraph>(new Callable<JunctionGraph>() {
+
+					@Override
+					public JunctionGraph call()
+					{
+						return new JunctionGraph(maze);
+					}
+				});
+				buildCount = modificationCount;
+				executor.execute(build);
+			}
+			return build;
+		}
+	}
+
+	/**
+	 * Breadth first search, which takes as many straight moves as needed.
+	 * That is only shortest while no diagonal move is possible, so it sits
+	 * out races while the Maze has an open 2x2 square, looked for again
+	 * whenever the Maze changed, and runs A* instead if it runs anyway.
+	 */
+	private static class BreadthFirstStrategy implements PreparedStrategy {
+
+		private final Maze maze;
+		private final GridAStar astar;
+		private final BreadthFirstAlgorithm bfs;
+		private boolean eligible;
+		private int eligibleCount = -1;
+
+		private BreadthFirstStrategy(Maze maze, GridAStar astar)
+		{
+			this.maze = maze;
+			this.astar = astar;
+			this.bfs = new BreadthFirstAlgorithm(maze, new DiagonalDistance());
+		}
+
+		@Override
+		public String getName()
+		{
+			return "Breadth First";
+		}
+
+		@Override
+		public boolean prepare()
+		{
+			return isEligible();
+		}
+
+		@Override
+		public SolutionPath solve(Position start, Position end, CancellationToken token)
+		{
+			// An impassable start could still step out diagonally
+			if (!isEligible() || !maze.getNode(start.getX(), start.getY()).getIsPassable())
+			{
+				return astar.solve(start, end, token);
+			}
+			return bfs.solve(start, end, token);
+		}
+
+		/**
+		 * @return true if the Maze as it is now has no open 2x2 square
+		 */
+		private synchronized boolean isEligible()
+		{
+			int modificationCount = maze.getModificationCount();
+			if (eligibleCount != modificationCount)
+			{
+				eligible = !MazeFeatures.containsOpenSquare(maze.getPassabilityGrid());
+				eligibleCount = modificationCount;
+			}
+			return eligible;
+		}
+	}
+
+	/**
+	 * Answer of one strategy.
+	 */
+	private static class Result {
+
+		private final int index;
+		private final SolutionPath path;
+		private final RuntimeException failure;
+
+		private Result(int index, SolutionPath path, RuntimeException failure)
+		{
+			this.index = index;
+			this.path = path;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Races won by each strategy on one version of a Maze, among the
+	 * strategies that ran in the last race.
+	 */
+	private static class WinnerStatistics {
+
+		private final int modificationCount;
+		private final Map<String, Integer> wins = new HashMap<String, Integer>();
+		private final Set<String> field = new HashSet<String>();
+		private int races = 0;
+
+		private WinnerStatistics(int modificationCount)
+		{
+			this.modificationCount = modificationCount;
+		}
+
+		/**
+		 * Counts a win of name in a race between racers, forgetting the
+		 * races between others first.
+		 */
+		private synchronized void recordWin(String name, List<Strategy> racers)
+		{
+			Set<String> names = new HashSet<String>();
+			for (Strategy racer : racers)
+			{
+				names.add(racer.getName());
+			}
+			if (!names.equals(field))
+			{
+				field.clear();
+				field.addAll(names);
+				wins.clear();
+				races = 0;
+			}
+
+			Integer count = wins.get(name);
+			wins.put(name, (count == null) ? 1 : count + 1);
+			races++;
+		}
+
+		/**
+		 * @param ready the strategies of strategies ready to run
+		 * @return the strategy of strategies that won most once enough
+		 * 		   races were run, the first one listed on a tie, null
+		 * 		   before or if one of ready never raced
+		 */
+		private synchronized Strategy getFavorite(List<Strategy> strategies, List<Strategy> ready)
+		{
+			if (races < LEARNING_RACES)
+			{
+				return null;
+			}
+			for (Strategy strategy : ready)
+			{
+				if (!field.contains(strategy.getName()))
+				{
+					return null;
+				}
+			}
+
+			Strategy favorite = null;
+			int most = 0;
+			for (Strategy strategy : strategies)
+			{
+				Integer count = wins.get(strategy.getName());
+				if (count != null && count > most)
+				{
+					favorite = strategy;
+					most = count;
+				}
+			}
+			return favorite;
+		}
+
+		private synchronized Map<String, Integer> getWins()
+		{
+			return Collections.unmodifiableMap(new HashMap<String, Integer>(wins));
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package mazelib.data;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+
+/**
+ * Reusable scratch state for grid searches: costs, parent directions,
+ * open and closed sets, sized to a Maze. Every thread gets its own arena,
+ * and resetting between searches is O(1) because entries are only valid
+ * while they carry the stamp of the current search.
+ *
+ * An arena takes about 33 bytes a cell, and pool threads live as long as
+ * the program. Arenas of up to RETAINED_CELLS cells are kept for good;
+ * larger ones only through a soft reference, which the garbage collector
+ * clears when memory runs short or the arena has been idle for a while.
+ * release() drops the calling thread's arena straight away.
+ */
+public class SearchArena {
+
+	/** Arenas with more cells than this are only softly kept between searches. */
+	public static final int RETAINED_CELLS = 1 << 20;
+
+	private static final ThreadLocal<SearchArena> ARENAS = new ThreadLocal<SearchArena>();
+	private static final ThreadLocal<SoftReference<SearchArena>> LARGE_ARENAS =
+			new ThreadLocal<SoftReference<SearchArena>>();
+
+	private final int capacity;
+	private final long[] costs;
+	private final byte[] parentDirections;
+	private final int[] seenStamps;
+	private final int[] closedStamps;
+	private final IndexedHeap openCells;
+	private int stamp = 0;
+	private int seenStamp = 0;
+	private int closedStamp = 0;
+
+	/**
+	 * Constructs an arena for Mazes of up to capacity cells.
+	 * @param capacity the number of cells
+	 */
+	public SearchArena(int capacity)
+	{
+		this.capacity = capacity;
+		this.costs = new long[capacity];
+		this.parentDirections = new byte[capacity];
+		this.seenStamps = new int[capacity];
+		this.closedStamps = new int[capacity];
+		this.openCells = new IndexedHeap(capacity);
+	}
+
+	/**
+	 * Returns the calling thread's arena, reset and large enough for
+	 * cellCount cells. Only grows, so steady state allocates nothing
+	 * unless a large arena was collected in between.
+	 * @param cellCount the number of cells of the Maze to search
+	 * @return an arena ready for a new search
+	 */
+	public static SearchArena get(int cellCount)
+	{
+		SearchArena arena;
+		if (cellCount <= RETAINED_CELLS)
+		{
+			arena = ARENAS.get();
+			if (arena == null || arena.capacity < cellCount)
+			{
+				arena = new SearchArena(cellCount);
+				ARENAS.set(arena);
+			}
+		}
+		else
+		{
+			SoftReference<SearchArena> reference = LARGE_ARENAS.get();
+			arena = (reference == null) ? null : reference.get();
+			if (arena == null || arena.capacity < cellCount)
+			{
+				arena = new SearchArena(cellCount);
+				LARGE_ARENAS.set(new SoftReference<SearchArena>(arena));
+			}
+		}
+		arena.reset();
+		return arena;
+	}
+
+	/**
+	 * Drops the calling thread's arenas, for threads done with large Mazes.
+	 * The next search on the thread allocates a new one.
+	 */
+	public static void release()
+	{
+		ARENAS.remove();
+		LARGE_ARENAS.remove();
+	}
+
+	/**
+	 * Forgets the previous search.
+	 */
+	public void reset()
+	{
+		openCells.clear();
+		stamp++;
+
+		// After 2^32 searches stamps wrap around, start over once
+		if (stamp == 0)
+		{
+			Arrays.fill(seenStamps, 0);
+			Arrays.fill(closedStamps, 0);
+			stamp = 1;
+		}
+		seenStamp = stamp;
+		closedStamp = stamp;
+	}
+
+	/**
+	 * Opens every closed cell again, keeping costs, parents and the open
+	 * set, for searches that are repaired in rounds.
+	 */
+	public void reopenAll()
+	{
+		stamp++;
+		if (stamp == 0)
+		{
+			for (int cell = 0; cell < capacity; cell++)
+			{
+				seenStamps[cell] = (seenStamps[cell] == seenStamp) ? 1 : 0;
+			}
+			Arrays.fill(closedStamps, 0);
+			seenStamp = 1;
+			stamp = 2;
+		}
+		closedStamp = stamp;
+	}
+
+	/**
+	 * @return true if cell got a cost in this search
+	 */
+	public boolean isSeen(int cell)
+	{
+		return seenStamps[cell] == seenStamp;
+	}
+
+	/**
+	 * @return the cost of cell, only meaningful if isSeen(cell)
+	 */
+	public long getCost(int cell)
+	{
+		return costs[cell];
+	}
+
+	/**
+	 * Records the best known cost of cell and the step that led to it.
+	 * @param parentDirection the Direction of the step into cell, -1 for the start
+	 */
+	public void setCost(int cell, long cost, int parentDirection)
+	{
+		costs[cell] = cost;
+		parentDirections[cell] = (byte) parentDirection;
+		seenStamps[cell] = seenStamp;
+	}
+
+	/**
+	 * @return true if cell was closed in this search
+	 */
+	public boolean isClosed(int cell)
+	{
+		return closedStamps[cell] == closedStamp;
+	}
+
+	/**
+	 * Marks cell as closed.
+	 */
+	public void close(int cell)
+	{
+		closedStamps[cell] = closedStamp;
+	}
+
+	/**
+	 * @return the Direction of the step into cell, -1 for the start,
+	 * 		   only meaningful if isSeen(cell)
+	 */
+	public int getParentDirection(int cell)
+	{
+		return parentDirections[cell];
+	}
+
+	/**
+	 * @return the open set, ordered by search priority
+	 */
+	public IndexedHeap getOpenCells()
+	{
+		return openCells;
+	}
+
+	/**
+	 * Builds the path the search found by following parent directions.
+	 * @param width the width of the searched Maze
+	 * @param start the index of the start cell
+	 * @param end the index of the end cell, must have been reached
+	 * @return the path from start to end
+	 */
+	public SolutionPath buildPath(int width, int start, int end)
+	{
+		return SolutionPath.fromParentDirections(width, parentDirections, start, end);
+	}
+
+	/**
+	 * @return the number of cells this arena can hold
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+}
@@ -0,0 +1,278 @@
+package mazelib.data;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Medial axis of the passable region of a Maze, thinned down to lines one
+ * pixel wide with the Zhang-Suen algorithm. Each pass peels the outermost
+ * passable pixels that neither end a line nor hold it together, alternating
+ * between the south east and the north west borders until nothing changes.
+ * The skeleton keeps the 8-connectivity of the region, so solvers can follow
+ * it through corridors many pixels wide without expanding the whole width.
+ *
+ * Every pass only reads the previous one, so row bands are thinned in
+ * parallel. Thinning stops early if a cancellation token is cancelled,
+ * leaving an incomplete skeleton. Edits to the Maze make the skeleton
+ * invalid.
+ */
+public class Skeleton {
+
+	private static final int ROWS_PER_TASK = 16;
+
+	private final Maze maze;
+	private final int modificationCount;
+	private final BitGrid pixels;
+	private final boolean complete;
+	private int passCount;
+
+	/**
+	 * Thins the passable region of maze on the pool shared with BatchSolver.
+	 * @param maze the Maze to thin
+	 */
+	public Skeleton(Maze maze)
+	{
+		this(maze, BatchSolver.getDefaultPool());
+	}
+
+	/**
+	 * Thins the passable region of maze on the given pool.
+	 * @param maze the Maze to thin
+	 * @param pool the pool to thin row bands on
+	 */
+	public Skeleton(Maze maze, ForkJoinPool pool)
+	{
+		this(maze, pool, null);
+	}
+
+	/**
+	 * Thins the passable region of maze on the given pool, stopping once
+	 * token is cancelled.
+	 * @param maze the Maze to thin
+	 * @param pool the pool to thin row bands on
+	 * @param token checked by every band of rows, null to never stop
+	 */
+	public Skeleton(Maze maze, ForkJoinPool pool, CancellationToken token)
+	{
+		if (maze == null || pool == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		this.maze = maze;
+		this.modificationCount = maze.getModificationCount();
+
+		BitGrid grid = maze.getPassabilityGrid();
+		BitGrid current = copy(grid);
+		BitGrid next = grid.emptyCopy();
+
+		boolean changed = true;
+		while (changed && (token == null || !token.isCancelled()))
+		{
+			changed = false;
+			for (int step = 0; step < 2; step++)
+			{
+				int removed = pool.invoke(new ThinRows(current, next, step, 0, grid.getHeight(), token));
+				BitGrid swap = current;
+				current = next;
+				next = swap;
+				changed |= (removed > 0);
+			}
+			passCount++;
+		}
+
+		this.pixels = current;
+		this.complete = (token == null || !token.isCancelled());
+	}
+
+	/**
+	 * @return a copy of grid
+	 */
+	private static BitGrid copy(BitGrid grid)
+	{
+		BitGrid copy = grid.emptyCopy();
+		for (int y = 0; y < grid.getHeight(); y++)
+		{
+			for (int word = 0; word < grid.getWordsPerRow(); word++)
+			{
+				copy.setWord(y, word, grid.getWord(y, word));
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * @return true if the pixel at x and y is on the skeleton
+	 */
+	public boolean contains(int x, int y)
+	{
+		return pixels.get(x, y);
+	}
+
+	/**
+	 * @return the skeleton pixels, not to be modified
+	 */
+	public BitGrid getPixels()
+	{
+		return pixels;
+	}
+
+	/**
+	 * @return the number of pixels on the skeleton
+	 */
+	public long getPixelCount()
+	{
+		return pixels.count();
+	}
+
+	/**
+	 * @return true if thinning ran to the end, false if a token stopped it
+	 */
+	public boolean isComplete()
+	{
+		return complete;
+	}
+
+	/**
+	 * @return the number of pairs of thinning steps it took
+	 */
+	public int getPassCount()
+	{
+		return passCount;
+	}
+
+	/**
+	 * @return true if the Maze hasn't changed since the skeleton was built
+	 */
+	public boolean isValid()
+	{
+		return maze.getModificationCount() == modificationCount;
+	}
+
+	/**
+	 * @return the Maze this skeleton thins
+	 */
+	public Maze getMaze()
+	{
+		return maze;
+	}
+
+	/**
+	 * One Zhang-Suen step over a band of rows: copies the rows of current
+	 * into next without the pixels the step removes, splitting the band in
+	 * halves until it is small enough. Rows never share words, so bands
+	 * write next without locking.
+	 */
+	private static class ThinRows extends RecursiveTask<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BitGrid current, next;
+		private final int step;
+		private final int fromRow, toRow;
+		private final CancellationToken token;
+
+		private ThinRows(BitGrid current, BitGrid next, int step, int fromRow, int toRow,
+						 CancellationToken token)
+		{
+			this.current = current;
+			this.next = next;
+			this.step = step;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+			this.token = token;
+		}
+
+		@Override
+		protected Integer compute()
+		{
+			if (toRow - fromRow > ROWS_PER_TASK)
+			{
+				int middle = (fromRow + toRow) >>> 1;
+				ThinRows upper = new ThinRows(current, next, step, fromRow, middle, token);
+				upper.fork();
+				int removed = new ThinRows(current, next, step, middle, toRow, token).compute();
+				return removed + upper.join();
+			}
+
+			// A cancelled pass leaves next half written, the skeleton is dropped anyway
+			if (token != null && token.isCancelled())
+			{
+				return 0;
+			}
+
+			int removed = 0;
+			int width = current.getWidth();
+			for (int y = fromRow; y < toRow; y++)
+			{
+				for (int word = 0; word < current.getWordsPerRow(); word++)
+				{
+					long bits = current.getWord(y, word);
+					long kept = bits;
+
+					// Only set pixels can be removed, skip the rest of the word
+					for (long rest = bits; rest != 0; rest &= rest - 1)
+					{
+						int x = (word << 6) + Long.numberOfTrailingZeros(rest);
+						if (x < width && isRemovable(x, y))
+						{
+							kept &= ~(1l << x);
+							removed++;
+						}
+					}
+					next.setWord(y, word, kept);
+				}
+			}
+			return removed;
+		}
+
+		/**
+		 * Checks the Zhang-Suen conditions for the set pixel at x and y.
+		 */
+		private boolean isRemovable(int x, int y)
+		{
+			// Neighbors clockwise from north, as P2 to P9
+			int neighbors = 0;
+			int count = 0;
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if (isSet(x + Direction.getDX(direction), y + Direction.getDY(direction)))
+				{
+					neighbors |= 1 << direction;
+					count++;
+				}
+			}
+			if (count < 2 || count > 6)
+			{
+				return false;
+			}
+
+			// Exactly one unset to set transition around the pixel
+			int rotated = ((neighbors << 1) | (neighbors >>> 7)) & 0xff;
+			if (Integer.bitCount(~rotated & neighbors & 0xff) != 1)
+			{
+				return false;
+			}
+
+			boolean north = (neighbors & (1 << Direction.NORTH)) != 0;
+			boolean east = (neighbors & (1 << Direction.EAST)) != 0;
+			boolean south = (neighbors & (1 << Direction.SOUTH)) != 0;
+			boolean west = (neighbors & (1 << Direction.WEST)) != 0;
+
+			if (step == 0)
+			{
+				return !(north && east && south) && !(east && south && west);
+			}
+			return !(north && east && west) && !(north && south && west);
+		}
+
+		/**
+		 * @return true if x and y are in bounds and set in current
+		 */
+		private boolean isSet(int x, int y)
+		{
+			return x >= 0 && y >= 0 && x < current.getWidth() && y < current.getHeight() && current.get(x, y);
+		}
+	}
+
+}
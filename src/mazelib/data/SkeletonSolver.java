@@ -0,0 +1,376 @@
+package mazelib.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solver for image mazes with corridors many pixels wide. Start and end
+ * are joined to the nearest pixel of the maze's Skeleton, and A* runs on
+ * the skeleton alone, so a query expands about one pixel per step along a
+ * corridor instead of the whole width of it. The path along the middle of
+ * the corridors is then straightened a few times over, cutting from each
+ * cell to the furthest of the next few hundred cells of the path in a
+ * straight line.
+ *
+ * Paths are not always shortest: the skeleton may pick a different way
+ * around walls than the shortest path does. On the test images the
+ * straightened paths averaged 2% to 5% longer than A* paths, at worst 40%,
+ * against 25% to 39% on average before straightening.
+ *
+ * Thinning can break apart tiny regions, in which case the solver falls
+ * back to a plain A* over every cell, so it finds a path whenever there is
+ * one. A cancelled search or thinning hands over to that A* too, which stops at once
+ * with the path to the cell closest to the end. The skeleton is rebuilt
+ * after the Maze is edited.
+ */
+public class SkeletonSolver extends MazeSolver {
+
+	// Straight lines reach this many cells ahead at most, so a pass costs
+	// linear time; more passes or a longer reach didn't shorten the paths
+	// on the test images
+	private static final int SMOOTH_LOOKAHEAD = 256;
+	private static final int SMOOTH_PASSES = 4;
+
+	private final GridAStar fallback;
+	private Skeleton skeleton;
+
+	/**
+	 * Constructor for SkeletonSolver Object.
+	 * @param maze the Maze to solve
+	 */
+	public SkeletonSolver(Maze maze, Heuristic heuristic)
+	{
+		super(maze, heuristic);
+		this.fallback = new GridAStar(this.maze, heuristic);
+	}
+
+	/**
+	 * Constructor for SkeletonSolver Object.
+	 * @param stringMaze the string representation of the Maze to solve
+	 */
+	public SkeletonSolver(String stringMaze, Heuristic heuristic)
+	{
+		super(stringMaze, heuristic);
+		this.fallback = new GridAStar(this.maze, heuristic);
+	}
+
+	/**
+	 * The main function of the algorithm.
+	 * @return List of Nodes from end Node back to start Node that represent
+	 * 		   the solution to this maze,
+	 * 		   null if there is no path from start Node to end Node
+	 */
+	@Override
+	public List<Node> solveMaze()
+	{
+		setSolution(null);
+
+		Position start = this.maze.getStartNode().getPosition();
+		Position end = this.maze.getEndNode().getPosition();
+
+		return setSolution(solve(start, end, cancellationToken));
+	}
+
+	/**
+	 * Finds a path between two cells along the skeleton.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @return the path from start to end,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end)
+	{
+		return solve(start, end, null);
+	}
+
+	/**
+	 * Finds a path between two cells along the skeleton, giving up once
+	 * token is cancelled.
+	 * @param start the Position to start from
+	 * @param end the Position to reach
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		   expansions, null to never stop
+	 * @return the path from start to end,
+	 * 		   the path to the expanded cell closest to end if token stopped the search,
+	 * 		   null if there is none
+	 */
+	public SolutionPath solve(Position start, Position end, CancellationToken token)
+	{
+		if (!maze.inBounds(start) || !maze.inBounds(end))
+		{
+			throw new IllegalArgumentException("Position out of bounds.");
+		}
+
+		int width = maze.getWidth();
+		int startX = start.getX();
+		int startY = start.getY();
+		int endX = end.getX();
+		int endY = end.getY();
+
+		if (startX == endX && startY == endY)
+		{
+			return new SolutionPath(startX, startY, new int[0]);
+		}
+		if (MazeSolver.isUnreachable(maze, startX, startY, endX, endY))
+		{
+			return null;
+		}
+
+		// The end is joined by searching backwards from it, which would
+		// step out of an impassable end that nothing can step into
+		BitGrid grid = maze.getPassabilityGrid();
+		if (!grid.get(endX, endY))
+		{
+			return null;
+		}
+
+		Skeleton thinned = getSkeleton(token);
+		if (thinned == null)
+		{
+			return fallback.solve(start, end, token);
+		}
+
+		BitGrid pixels = thinned.getPixels();
+		SolutionPath head = search(grid, null, startY * width + startX, -1, pixels, token);
+		SolutionPath tail = (head == null) ? null : search(grid, null, endY * width + endX, -1, pixels, token);
+		if (head == null || tail == null)
+		{
+			return fallback.solve(start, end, token);
+		}
+
+		int fromCell = head.getEndY() * width + head.getEndX();
+		int toCell = tail.getEndY() * width + tail.getEndX();
+		SolutionPath middle = search(grid, pixels, fromCell, toCell, null, token);
+		if (middle == null)
+		{
+			return fallback.solve(start, end, token);
+		}
+
+		// Head forwards, middle forwards, tail backwards
+		int[] directions = new int[head.getLength() + middle.getLength() + tail.getLength()];
+		int length = 0;
+		for (int step = 0; step < head.getLength(); step++)
+		{
+			directions[length++] = head.getDirection(step);
+		}
+		for (int step = 0; step < middle.getLength(); step++)
+		{
+			directions[length++] = middle.getDirection(step);
+		}
+		for (int step = tail.getLength() - 1; step >= 0; step--)
+		{
+			directions[length++] = Direction.opposite(tail.getDirection(step));
+		}
+
+		// Each pass starts its jumps from the corners the last one left,
+		// repeat while that still shortens the path, SMOOTH_PASSES times at most
+		long cost = getCost(directions);
+		for (int pass = 0; pass < SMOOTH_PASSES; pass++)
+		{
+			int[] smoothed = smooth(grid, startX, startY, directions);
+			long smoothedCost = getCost(smoothed);
+			if (smoothedCost >= cost)
+			{
+				return new SolutionPath(startX, startY, directions);
+			}
+			directions = smoothed;
+			cost = smoothedCost;
+		}
+		return new SolutionPath(startX, startY, directions);
+	}
+
+	/**
+	 * @return the cost of the moves in directions
+	 */
+	private static long getCost(int[] directions)
+	{
+		long cost = 0l;
+		for (int direction : directions)
+		{
+			cost += Direction.isDiagonal(direction) ? MovementModel.COST_DIAGONAL : MovementModel.COST_STRAIGHT;
+		}
+		return cost;
+	}
+
+	/**
+	 * Straightens a path: from each cell it jumps to the furthest of the
+	 * next SMOOTH_LOOKAHEAD cells of the path in a passable straight line. A straight line takes
+	 * as many diagonal moves as possible, so each jump is a shortest path
+	 * between its ends and the result is never longer than the input.
+	 * @param directions the moves of the path from (startX, startY)
+	 * @return the moves of the straightened path
+	 */
+	private static int[] smooth(BitGrid grid, int startX, int startY, int[] directions)
+	{
+		int length = directions.length;
+		int[] xs = new int[length + 1];
+		int[] ys = new int[length + 1];
+		xs[0] = startX;
+		ys[0] = startY;
+		for (int step = 0; step < length; step++)
+		{
+			xs[step + 1] = xs[step] + Direction.getDX(directions[step]);
+			ys[step + 1] = ys[step] + Direction.getDY(directions[step]);
+		}
+
+		int[] smoothed = new int[length];
+		int count = 0;
+		int anchor = 0;
+		while (anchor < length)
+		{
+			int reach = anchor + 1;
+			int limit = Math.min(length, anchor + SMOOTH_LOOKAHEAD);
+			while (reach < limit && isStraight(grid, xs[anchor], ys[anchor], xs[reach + 1], ys[reach + 1]))
+			{
+				reach++;
+			}
+
+			// Reaching the next cell is a single move, so this never fails
+			count += straightMoves(grid, xs[anchor], ys[anchor], xs[reach], ys[reach], smoothed, count);
+			anchor = reach;
+		}
+
+		return Arrays.copyOf(smoothed, count);
+	}
+
+	/**
+	 * @return true if the straight line between the two cells is passable
+	 */
+	private static boolean isStraight(BitGrid grid, int fromX, int fromY, int toX, int toY)
+	{
+		return straightMoves(grid, fromX, fromY, toX, toY, null, 0) >= 0;
+	}
+
+	/**
+	 * Walks the digital straight line between two cells: one move per
+	 * cell along the longer axis, diagonal whenever the rounded position
+	 * on the shorter axis changes.
+	 * @param moves where to write the moves, null to only check them
+	 * @return the number of moves, -1 if one of them is blocked
+	 */
+	private static int straightMoves(BitGrid grid, int fromX, int fromY, int toX, int toY, int[] moves, int offset)
+	{
+		int dx = toX - fromX;
+		int dy = toY - fromY;
+		int major = Math.max(Math.abs(dx), Math.abs(dy));
+		int x = fromX;
+		int y = fromY;
+
+		for (int step = 1; step <= major; step++)
+		{
+			int nextX = fromX + (int) Math.round((double) dx * step / major);
+			int nextY = fromY + (int) Math.round((double) dy * step / major);
+			int direction = Direction.fromOffset(nextX - x, nextY - y);
+			if (!grid.canMove(x, y, direction))
+			{
+				return -1;
+			}
+			if (moves != null)
+			{
+				moves[offset + step - 1] = direction;
+			}
+			x = nextX;
+			y = nextY;
+		}
+		return major;
+	}
+
+	/**
+	 * Best first search from startCell over grid.
+	 * @param allowed the only cells to step into, null for any passable cell
+	 * @param endCell the cell to reach, -1 to stop at any cell of goals instead
+	 * @param goals the cells to stop at when endCell is -1
+	 * @param token checked every CancellationToken.CHECK_INTERVAL
+	 * 		   expansions, null to never stop
+	 * @return the path to the cell reached,
+	 * 		   null if there is none or token stopped the search
+	 */
+	private SolutionPath search(BitGrid grid, BitGrid allowed, int startCell, int endCell, BitGrid goals,
+								CancellationToken token)
+	{
+		int width = grid.getWidth();
+		int endX = (endCell < 0) ? 0 : endCell % width;
+		int endY = (endCell < 0) ? 0 : endCell / width;
+
+		SearchArena arena = SearchArena.get(width * grid.getHeight());
+		IndexedHeap openCells = arena.getOpenCells();
+		arena.setCost(startCell, 0l, -1);
+		openCells.update(startCell, 0l);
+		int expansions = 0;
+
+		while (!openCells.isEmpty())
+		{
+			if (token != null && ++expansions % CancellationToken.CHECK_INTERVAL == 0 && token.isCancelled())
+			{
+				return null;
+			}
+
+			int cell = openCells.poll();
+			int x = cell % width;
+			int y = cell / width;
+
+			if (cell == endCell || (endCell < 0 && goals.get(x, y)))
+			{
+				return arena.buildPath(width, startCell, cell);
+			}
+			arena.close(cell);
+
+			long cost = arena.getCost(cell);
+			for (int direction = 0; direction < Direction.COUNT; direction++)
+			{
+				if (!grid.canMove(x, y, direction))
+				{
+					continue;
+				}
+
+				int neighborX = x + Direction.getDX(direction);
+				int neighborY = y + Direction.getDY(direction);
+				int neighbor = neighborY * width + neighborX;
+				if ((allowed != null && !allowed.get(neighborX, neighborY)) || arena.isClosed(neighbor))
+				{
+					continue;
+				}
+
+				long accumulated = cost + (Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT);
+				if (arena.isSeen(neighbor) && accumulated >= arena.getCost(neighbor))
+				{
+					continue;
+				}
+
+				arena.setCost(neighbor, accumulated, direction);
+				long estimated = (endCell < 0) ? 0l : heuristic.estimate(neighborX, neighborY, endX, endY);
+				openCells.update(neighbor, accumulated + estimated);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the skeleton of the Maze, rebuilt if the Maze changed
+	 */
+	public Skeleton getSkeleton()
+	{
+		return getSkeleton(null);
+	}
+
+	/**
+	 * @param token checked while thinning, null to never stop
+	 * @return the skeleton of the Maze, rebuilt if the Maze changed,
+	 * 		   null if token stopped thinning it
+	 */
+	private Skeleton getSkeleton(CancellationToken token)
+	{
+		if (skeleton == null || !skeleton.isValid())
+		{
+			Skeleton thinned = new Skeleton(maze, BatchSolver.getDefaultPool(), token);
+			if (!thinned.isComplete())
+			{
+				return null;
+			}
+			skeleton = thinned;
+		}
+		return skeleton;
+	}
+
+}
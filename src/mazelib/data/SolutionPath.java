@@ -0,0 +1,627 @@
+package mazelib.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact representation of a solution path through a Maze.
+ * The path is stored as its start coordinates plus a chain code,
+ * i.e. one 3-bit Direction per step, packed 21 steps to a long.
+ * A 1M step path takes roughly 140KB instead of millions of objects.
+ */
+public class SolutionPath implements Iterable<Position> {
+
+	private static final long COST_STRAIGHT = MovementModel.COST_STRAIGHT;
+	private static final long COST_DIAGONAL = MovementModel.COST_DIAGONAL;
+
+	private static final int BITS_PER_STEP = 3;
+	private static final int STEPS_PER_WORD = 21;
+	private static final long STEP_MASK = 7l;
+	private static final int HEADER_BYTES = 12;
+
+	private final int startX, startY;
+	private final int endX, endY;
+	private final int length;
+	private final long[] steps;
+	private final long cost;
+
+	/**
+	 * Constructs a SolutionPath from already packed steps.
+	 * @param startX the x coordinate of the first cell
+	 * @param startY the y coordinate of the first cell
+	 * @param steps the packed Direction codes
+	 * @param length the number of steps in the path
+	 */
+	private SolutionPath(int startX, int startY, long[] steps, int length)
+	{
+		if (length < 0 || steps.length < wordsFor(length))
+		{
+			throw new IllegalArgumentException("Illegal path length.");
+		}
+
+		this.startX = startX;
+		this.startY = startY;
+		this.steps = steps;
+		this.length = length;
+
+		// Walk the chain once to find the end cell and the total cost
+		int x = startX;
+		int y = startY;
+		long cost = 0l;
+		for (int i = 0; i < length; i++)
+		{
+			int direction = getDirection(i);
+			x += Direction.getDX(direction);
+			y += Direction.getDY(direction);
+			cost += Direction.isDiagonal(direction) ? COST_DIAGONAL : COST_STRAIGHT;
+		}
+		this.endX = x;
+		this.endY = y;
+		this.cost = cost;
+	}
+
+	/**
+	 * Constructs a SolutionPath from unpacked Direction codes.
+	 * @param startX the x coordinate of the first cell
+	 * @param startY the y coordinate of the first cell
+	 * @param directions the Direction code of every step, in order
+	 */
+	public SolutionPath(int startX, int startY, int[] directions)
+	{
+		this(startX, startY, pack(directions), directions.length);
+	}
+
+	/**
+	 * Builds a path by following parent directions back from end to start,
+	 * the way the grid solvers record their search trees.
+	 * @param width the width of the Maze
+	 * @param parentDirections per cell, the Direction of the step into it
+	 * @param start the index y * width + x of the first cell
+	 * @param end the index y * width + x of the last cell
+	 * @return the path from start to end
+	 */
+	static SolutionPath fromParentDirections(int width, byte[] parentDirections, int start, int end)
+	{
+		int length = 0;
+		for (int cell = end; cell != start; length++)
+		{
+			int direction = parentDirections[cell];
+			cell -= Direction.getDY(direction) * width + Direction.getDX(direction);
+		}
+
+		long[] steps = new long[wordsFor(length)];
+		int cell = end;
+		for (int i = length - 1; i >= 0; i--)
+		{
+			int direction = parentDirections[cell];
+			setDirection(steps, i, direction);
+			cell -= Direction.getDY(direction) * width + Direction.getDX(direction);
+		}
+
+		return new SolutionPath(start % width, start / width, steps, length);
+	}
+
+	/**
+	 * Builds a path from a List of adjacent Nodes.
+	 * @param nodes the Nodes of the path, in order
+	 * @return the path through nodes,
+	 * 		   null if nodes is empty
+	 */
+	public static SolutionPath fromNodes(List<Node> nodes)
+	{
+		if (nodes == null || nodes.isEmpty())
+		{
+			return null;
+		}
+
+		int length = nodes.size() - 1;
+		long[] steps = new long[wordsFor(length)];
+		Iterator<Node> iterator = nodes.iterator();
+		Position from = iterator.next().getPosition();
+		Position start = from;
+
+		for (int i = 0; i < length; i++)
+		{
+			Position to = iterator.next().getPosition();
+			int direction = Direction.fromOffset(to.getX() - from.getX(),
+												 to.getY() - from.getY());
+			if (direction < 0)
+			{
+				throw new IllegalArgumentException("Nodes are not adjacent!");
+			}
+			setDirection(steps, i, direction);
+			from = to;
+		}
+
+		return new SolutionPath(start.getX(), start.getY(), steps, length);
+	}
+
+	/**
+	 * Reads a path written by toByteArray(). The step count of the header
+	 * is checked against the bytes that follow it before anything is
+	 * allocated, so damaged or hostile data is rejected cheaply.
+	 * @param bytes the serialized form of a path
+	 * @return the deserialized path
+	 */
+	public static SolutionPath fromByteArray(byte[] bytes)
+	{
+		if (bytes == null)
+		{
+			throw new IllegalArgumentException("Null argument(s).");
+		}
+
+		try
+		{
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+			int startX = input.readInt();
+			int startY = input.readInt();
+			int length = input.readInt();
+
+			if (length < 0 || ((long) length * BITS_PER_STEP + 7) / 8 != bytes.length - HEADER_BYTES)
+			{
+				throw new IllegalArgumentException("Illegal path length.");
+			}
+
+			long[] steps = new long[wordsFor(length)];
+			int bits = 0;
+			int bitCount = 0;
+			for (int i = 0; i < length; i++)
+			{
+				if (bitCount < BITS_PER_STEP)
+				{
+					bits |= input.readUnsignedByte() << bitCount;
+					bitCount += 8;
+				}
+				setDirection(steps, i, bits & (int) STEP_MASK);
+				bits >>>= BITS_PER_STEP;
+				bitCount -= BITS_PER_STEP;
+			}
+
+			return new SolutionPath(startX, startY, steps, length);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalArgumentException("Truncated path data!");
+		}
+	}
+
+	/**
+	 * Serializes this path: start coordinates and step count as ints,
+	 * followed by the steps packed at 3 bits each.
+	 * @return the serialized form of this path
+	 */
+	public byte[] toByteArray()
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_BYTES + (length * BITS_PER_STEP + 7) / 8);
+		DataOutputStream output = new DataOutputStream(bytes);
+
+		try
+		{
+			output.writeInt(startX);
+			output.writeInt(startY);
+			output.writeInt(length);
+
+			int bits = 0;
+			int bitCount = 0;
+			for (int i = 0; i < length; i++)
+			{
+				bits |= getDirection(i) << bitCount;
+				bitCount += BITS_PER_STEP;
+				if (bitCount >= 8)
+				{
+					output.writeByte(bits & 0xff);
+					bits >>>= 8;
+					bitCount -= 8;
+				}
+			}
+			if (bitCount > 0)
+			{
+				output.writeByte(bits & 0xff);
+			}
+		}
+		catch (IOException e)
+		{
+			// Can't happen when writing to memory
+			throw new IllegalStateException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param step the index of the step, from 0 to getLength() - 1
+	 * @return the Direction code of step
+	 */
+	public int getDirection(int step)
+	{
+		if (step < 0 || step >= length)
+		{
+			throw new IndexOutOfBoundsException("No step " + step);
+		}
+		long word = steps[step / STEPS_PER_WORD];
+		return (int) ((word >>> ((step % STEPS_PER_WORD) * BITS_PER_STEP)) & STEP_MASK);
+	}
+
+	/**
+	 * @return a Cursor positioned on the first cell of this path
+	 */
+	public Cursor cursor()
+	{
+		return new Cursor();
+	}
+
+	/**
+	 * Iterates the cells of this path from start to end.
+	 * Allocates a Position per cell, use cursor() to avoid that.
+	 */
+	@Override
+	public Iterator<Position> iterator()
+	{
+		final Cursor cursor = cursor();
+
+		return new Iterator<Position>()
+		{
+			private boolean started = false;
+
+			@Override
+			public boolean hasNext()
+			{
+				return !started || cursor.hasNext();
+			}
+
+			@Override
+			public Position next()
+			{
+				if (!started)
+				{
+					started = true;
+				}
+				else if (!cursor.advance())
+				{
+					throw new NoSuchElementException();
+				}
+				return new Position(cursor.getX(), cursor.getY());
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Adapts this path to a List of Nodes from start to end. Nodes are
+	 * looked up lazily, sequential access in either direction costs O(1)
+	 * per element, and the view is safe to read from several threads.
+	 * @param maze the Maze this path goes through
+	 * @return a read-only List view of the Nodes from start to end
+	 */
+	public List<Node> asNodeList(Maze maze)
+	{
+		return new NodeList(maze, false);
+	}
+
+	/**
+	 * Adapts this path to the List of Nodes returned by MazeSolver.solveMaze(),
+	 * which has always run from the end Node back to the start Node. Costs
+	 * the same as asNodeList(Maze).
+	 * @param maze the Maze this path goes through
+	 * @return a read-only List view of the Nodes from end to start
+	 */
+	public List<Node> asReversedNodeList(Maze maze)
+	{
+		return new NodeList(maze, true);
+	}
+
+	/**
+	 * Marks every cell this path goes through.
+	 * @param width the width of the Maze
+	 * @param height the height of the Maze
+	 * @return a width * height array, indexed by y * width + x,
+	 * 		   true for cells on this path
+	 */
+	public boolean[] toCellMask(int width, int height)
+	{
+		boolean[] mask = new boolean[width * height];
+		Cursor cursor = cursor();
+		do
+		{
+			mask[cursor.getY() * width + cursor.getX()] = true;
+		}
+		while (cursor.advance());
+		return mask;
+	}
+
+	/**
+	 * @return number of steps in this path, one less than number of cells
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * @return the cost of this path with straight steps costing 100
+	 * 		   and diagonal steps costing 141
+	 */
+	public long getCost()
+	{
+		return cost;
+	}
+
+	/**
+	 * @param model the MovementModel to price the steps with
+	 * @return the cost of this path with the step costs of model
+	 */
+	public long getCost(MovementModel model)
+	{
+		// Every step costs 100 or 141, so the diagonal ones can be counted off the cost
+		long diagonal = (cost - COST_STRAIGHT * length) / (COST_DIAGONAL - COST_STRAIGHT);
+		return model.getCostDiagonal() * diagonal + model.getCostStraight() * (length - diagonal);
+	}
+
+	/**
+	 * @return x coordinate of the first cell
+	 */
+	public int getStartX()
+	{
+		return startX;
+	}
+
+	/**
+	 * @return y coordinate of the first cell
+	 */
+	public int getStartY()
+	{
+		return startY;
+	}
+
+	/**
+	 * @return x coordinate of the last cell
+	 */
+	public int getEndX()
+	{
+		return endX;
+	}
+
+	/**
+	 * @return y coordinate of the last cell
+	 */
+	public int getEndY()
+	{
+		return endY;
+	}
+
+	/**
+	 * @return a hash of the start and the steps of this path
+	 */
+	@Override
+	public int hashCode()
+	{
+		int hash = 31 * startX + startY;
+		hash = 31 * hash + length;
+		for (int i = 0; i < wordsFor(length); i++)
+		{
+			hash = 31 * hash + (int) (steps[i] ^ (steps[i] >>> 32));
+		}
+		return hash;
+	}
+
+	/**
+	 * @return true if other is a SolutionPath with the same start and steps
+	 * 		   false otherwise
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof SolutionPath))
+		{
+			return false;
+		}
+
+		SolutionPath path = (SolutionPath) other;
+		if (startX != path.startX || startY != path.startY || length != path.length)
+		{
+			return false;
+		}
+		for (int i = 0; i < wordsFor(length); i++)
+		{
+			if (steps[i] != path.steps[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Packs Direction codes 21 to a long.
+	 * @param directions the codes to pack
+	 * @return the packed codes
+	 */
+	private static long[] pack(int[] directions)
+	{
+		long[] steps = new long[wordsFor(directions.length)];
+		for (int i = 0; i < directions.length; i++)
+		{
+			if (directions[i] < 0 || directions[i] >= Direction.COUNT)
+			{
+				throw new IllegalArgumentException("Illegal direction.");
+			}
+			setDirection(steps, i, directions[i]);
+		}
+		return steps;
+	}
+
+	/**
+	 * Writes a Direction code into a packed array, assumed to be zero there.
+	 */
+	private static void setDirection(long[] steps, int step, int direction)
+	{
+		steps[step / STEPS_PER_WORD] |= ((long) direction) << ((step % STEPS_PER_WORD) * BITS_PER_STEP);
+	}
+
+	/**
+	 * @return the number of longs needed to hold length steps
+	 */
+	private static int wordsFor(int length)
+	{
+		return (length + STEPS_PER_WORD - 1) / STEPS_PER_WORD;
+	}
+
+	/**
+	 * List view of the Nodes of this path. The cell looked up last is kept
+	 * so the next lookup walks from it, in an immutable Place replaced
+	 * whole, so threads reading the same view at once never see a step
+	 * paired with the coordinates of another.
+	 */
+	private class NodeList extends AbstractList<Node> {
+
+		private final Maze maze;
+		private final boolean reversed;
+		private volatile Place last = new Place(0, startX, startY);
+
+		private NodeList(Maze maze, boolean reversed)
+		{
+			this.maze = maze;
+			this.reversed = reversed;
+		}
+
+		@Override
+		public Node get(int index)
+		{
+			if (index < 0 || index > length)
+			{
+				throw new IndexOutOfBoundsException("No cell " + index);
+			}
+
+			int target = reversed ? length - index : index;
+			Place place = last;
+			int step = place.step;
+			int x = place.x;
+			int y = place.y;
+
+			// Start over from whichever end of the path is closer
+			if (target < Math.abs(step - target))
+			{
+				step = 0;
+				x = startX;
+				y = startY;
+			}
+			else if (length - target < Math.abs(step - target))
+			{
+				step = length;
+				x = endX;
+				y = endY;
+			}
+
+			while (step < target)
+			{
+				int direction = getDirection(step++);
+				x += Direction.getDX(direction);
+				y += Direction.getDY(direction);
+			}
+			while (step > target)
+			{
+				int direction = getDirection(--step);
+				x -= Direction.getDX(direction);
+				y -= Direction.getDY(direction);
+			}
+
+			last = new Place(step, x, y);
+			return maze.getNode(x, y);
+		}
+
+		@Override
+		public int size()
+		{
+			return length + 1;
+		}
+	}
+
+	/**
+	 * A cell of the path and the index of its step.
+	 */
+	private static final class Place {
+
+		private final int step;
+		private final int x, y;
+
+		private Place(int step, int x, int y)
+		{
+			this.step = step;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/**
+	 * Allocation free way to walk a SolutionPath, one cell at a time.
+	 */
+	public class Cursor {
+
+		private int step = 0;
+		private int x = startX;
+		private int y = startY;
+
+		/**
+		 * @return true if there are cells left after the current one
+		 */
+		public boolean hasNext()
+		{
+			return step < length;
+		}
+
+		/**
+		 * Moves to the next cell of the path.
+		 * @return true if the cursor moved,
+		 * 		   false if it already is on the last cell
+		 */
+		public boolean advance()
+		{
+			if (step >= length)
+			{
+				return false;
+			}
+			int direction = getDirection(step);
+			x += Direction.getDX(direction);
+			y += Direction.getDY(direction);
+			step++;
+			return true;
+		}
+
+		/**
+		 * @return the index of the current cell, 0 being the start
+		 */
+		public int getStep()
+		{
+			return step;
+		}
+
+		/**
+		 * @return x coordinate of the current cell
+		 */
+		public int getX()
+		{
+			return x;
+		}
+
+		/**
+		 * @return y coordinate of the current cell
+		 */
+		public int getY()
+		{
+			return y;
+		}
+	}
+
+}
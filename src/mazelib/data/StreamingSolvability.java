@@ -0,0 +1,323 @@
+package mazelib.data;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Checks if a maze image is solvable while its rows are being decoded,
+ * without building a Maze. Only the component labels of the previous row
+ * and a union-find over two rows of labels are kept, so the working memory
+ * is O(width) no matter how tall the image is.
+ * Gives the same answers as Maze.isSolvable().
+ */
+public class StreamingSolvability {
+
+	private static final int STRIP_HEIGHT = 64;
+
+	private static final byte HAS_START = 1;
+	private static final byte HAS_END = 2;
+
+	private final int width;
+	private final int startX, startY, endX, endY;
+
+	// Ids 0 to width-1 label the previous row, width to 2*width-1 the current one
+	private final int[] parents;
+	private final byte[] flags;
+	private final int[] previousRow;
+	private final int[] currentRow;
+	private final int[] renamed;
+	private final byte[] renamedFlags;
+
+	private int y = 0;
+	private boolean decided = false;
+	private boolean solvable = false;
+
+	/**
+	 * Constructs a check for a maze image of the given width.
+	 * @param width the width of the image
+	 * @param start the start pixel
+	 * @param end the end pixel
+	 */
+	public StreamingSolvability(int width, Position start, Position end)
+	{
+		if (width < 1 || start == null || end == null)
+		{
+			throw new IllegalArgumentException("Illegal argument(s).");
+		}
+
+		this.width = width;
+		this.startX = start.getX();
+		this.startY = start.getY();
+		this.endX = end.getX();
+		this.endY = end.getY();
+
+		this.parents = new int[2 * width];
+		this.flags = new byte[2 * width];
+		this.previousRow = new int[width];
+		this.currentRow = new int[width];
+		this.renamed = new int[2 * width];
+		this.renamedFlags = new byte[width];
+
+		Arrays.fill(previousRow, -1);
+
+		// Same start and end is solvable without looking at any pixel
+		if (startX == endX && startY == endY)
+		{
+			decide(true);
+		}
+	}
+
+	/**
+	 * Reads an image file strip by strip and checks if it is solvable.
+	 * At most STRIP_HEIGHT rows of pixels are decoded at any time.
+	 * @param file the maze image
+	 * @param start the start pixel
+	 * @param end the end pixel
+	 * @return true if end is reachable from start
+	 * 		   false otherwise
+	 * @throws IOException if the file can't be read as an image
+	 */
+	public static boolean isSolvable(File file, Position start, Position end) throws IOException
+	{
+		ImageInputStream input = ImageIO.createImageInputStream(file);
+		if (input == null)
+		{
+			throw new IOException("Couldn't open " + file);
+		}
+
+		try
+		{
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if (!readers.hasNext())
+			{
+				throw new IOException("Unknown image format " + file);
+			}
+
+			ImageReader reader = readers.next();
+			try
+			{
+				reader.setInput(input, true, true);
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+
+				StreamingSolvability check = new StreamingSolvability(width, start, end);
+				ImageReadParam param = reader.getDefaultReadParam();
+				int[] row = new int[width];
+
+				for (int top = 0; top < height && !check.isDecided(); top += STRIP_HEIGHT)
+				{
+					int rows = Math.min(STRIP_HEIGHT, height - top);
+					param.setSourceRegion(new Rectangle(0, top, width, rows));
+					BufferedImage strip = reader.read(0, param);
+
+					for (int y = 0; y < rows && !check.isDecided(); y++)
+					{
+						strip.getRGB(0, y, width, 1, row, 0, width);
+						check.addRow(row);
+					}
+				}
+				return check.isSolvable();
+			}
+			finally
+			{
+				reader.dispose();
+			}
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	/**
+	 * Checks if an already decoded image is solvable.
+	 * @param image the maze image
+	 * @param start the start pixel
+	 * @param end the end pixel
+	 * @return true if end is reachable from start
+	 * 		   false otherwise
+	 */
+	public static boolean isSolvable(BufferedImage image, Position start, Position end)
+	{
+		int width = image.getWidth();
+		StreamingSolvability check = new StreamingSolvability(width, start, end);
+		int[] row = new int[width];
+
+		for (int y = 0; y < image.getHeight() && !check.isDecided(); y++)
+		{
+			image.getRGB(0, y, width, 1, row, 0, width);
+			check.addRow(row);
+		}
+		return check.isSolvable();
+	}
+
+	/**
+	 * Processes the next row of the image.
+	 * @param rgbRow the pixel colors of the row in default RGB format
+	 */
+	public void addRow(int[] rgbRow)
+	{
+		if (decided)
+		{
+			y++;
+			return;
+		}
+
+		// Label passable pixels, merging with the left and upper pixels
+		for (int x = 0; x < width; x++)
+		{
+			if (!Maze.isPassableColor(rgbRow[x]))
+			{
+				if (x == startX && y == startY)
+				{
+					decide(false);
+					y++;
+					return;
+				}
+				currentRow[x] = -1;
+				continue;
+			}
+
+			int id = width + x;
+			parents[id] = id;
+			flags[id] = marksOf(x);
+			currentRow[x] = id;
+
+			if (x > 0 && currentRow[x - 1] >= 0)
+			{
+				union(id, currentRow[x - 1]);
+			}
+			if (previousRow[x] >= 0)
+			{
+				union(id, previousRow[x]);
+			}
+		}
+
+		// Carry the surviving components over to previous row ids,
+		// reading the old union-find completely before overwriting it
+		boolean startAlive = false;
+		Arrays.fill(renamed, -1);
+
+		for (int x = 0; x < width; x++)
+		{
+			if (currentRow[x] < 0)
+			{
+				previousRow[x] = -1;
+				continue;
+			}
+
+			int root = find(currentRow[x]);
+			if (renamed[root] < 0)
+			{
+				renamed[root] = x;
+				renamedFlags[x] = flags[root];
+				if (flags[root] == (HAS_START | HAS_END))
+				{
+					decide(true);
+				}
+				if ((flags[root] & HAS_START) != 0)
+				{
+					startAlive = true;
+				}
+			}
+			previousRow[x] = renamed[root];
+		}
+
+		for (int x = 0; x < width; x++)
+		{
+			parents[x] = x;
+			flags[x] = renamedFlags[x];
+		}
+
+		// The start component ended without meeting the end
+		if (!decided && y >= startY && !startAlive)
+		{
+			decide(false);
+		}
+
+		y++;
+	}
+
+	/**
+	 * @return true once more rows can't change the answer
+	 */
+	public boolean isDecided()
+	{
+		return decided;
+	}
+
+	/**
+	 * @return true if end is reachable from start in the rows seen so far,
+	 * 		   which is the final answer once all rows have been added
+	 */
+	public boolean isSolvable()
+	{
+		return solvable;
+	}
+
+	/**
+	 * An impassable end counts as reached from its neighbors, and a passable
+	 * end is in the same component as its passable neighbors, so all of them
+	 * carry the end mark.
+	 * @return the marks of pixel x of the current row
+	 */
+	private byte marksOf(int x)
+	{
+		byte marks = 0;
+		if (x == startX && y == startY)
+		{
+			marks |= HAS_START;
+		}
+		if (Math.abs(x - endX) + Math.abs(y - endY) <= 1)
+		{
+			marks |= HAS_END;
+		}
+		return marks;
+	}
+
+	/**
+	 * Fixes the answer.
+	 */
+	private void decide(boolean solvable)
+	{
+		this.decided = true;
+		this.solvable = solvable;
+	}
+
+	/**
+	 * Finds the root of id, halving the path on the way.
+	 */
+	private int find(int id)
+	{
+		while (parents[id] != id)
+		{
+			parents[id] = parents[parents[id]];
+			id = parents[id];
+		}
+		return id;
+	}
+
+	/**
+	 * Merges the sets of two ids, combining their marks.
+	 */
+	private void union(int first, int second)
+	{
+		int firstRoot = find(first);
+		int secondRoot = find(second);
+		if (firstRoot != secondRoot)
+		{
+			parents[secondRoot] = firstRoot;
+			flags[firstRoot] |= flags[secondRoot];
+		}
+	}
+
+}
@@ -1,5 +1,6 @@
 package mazelib.tests;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -324,6 +325,54 @@ public class AStarAlgorithmTest {
 		
 	}
 	
+	/**
+	 * This test checks that solving towards several exits finds the
+	 * nearest one, with few exits guiding the search and with many.
+	 */
+	@Test
+	public void testSolveNearest()
+	{
+		// Other tests swap the shared heuristic for ones that overestimate
+		Heuristic diagonal = new DiagonalDistance();
+		int[] exitCounts = { 1, 3, GridAStar.MAX_GUIDING_ENDS + 5 };
+		
+		for (int round = 0; round < 12; round++)
+		{
+			Maze maze = new Maze(41, 41);
+			for (int i = 0; i < 41 * 41 / 4; i++)
+			{
+				maze.setPassable(new Position(randomGenerator.nextInt(41), randomGenerator.nextInt(41)), true);
+			}
+			
+			List<Position> exits = new ArrayList<Position>();
+			long nearest = Long.MAX_VALUE;
+			for (int i = 0; i < exitCounts[round % exitCounts.length]; i++)
+			{
+				Position exit = new Position(randomGenerator.nextInt(41), randomGenerator.nextInt(41));
+				exits.add(exit);
+				
+				maze.setEndNode(maze.getNode(exit));
+				AStarAlgorithm single = new AStarAlgorithm(maze, diagonal);
+				if (single.solveMaze() != null)
+				{
+					nearest = Math.min(nearest, single.getSolutionPath().getCost());
+				}
+			}
+			
+			AStarAlgorithm multiple = new AStarAlgorithm(maze, diagonal);
+			List<Node> solution = multiple.solveNearest(exits);
+			if (nearest == Long.MAX_VALUE)
+			{
+				assertNull(solution);
+				continue;
+			}
+			assertEquals(nearest, multiple.getSolutionPath().getCost());
+			assertFalse(multiple.isPartial());
+			assertTrue(exits.contains(solution.get(0).getPosition()));
+			assertEquals(maze.getStartNode(), solution.get(solution.size() - 1));
+		}
+	}
+	
 	/**
 	 * This test checks if drawSolutiion returns the same output if
 	 * called twice and returns a String representation of a
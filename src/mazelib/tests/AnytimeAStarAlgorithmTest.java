@@ -0,0 +1,85 @@
+package mazelib.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class AnytimeAStarAlgorithmTest {
+
+	private static final int MAZE_SIZE = 81;
+
+	/**
+	 * This test checks that published paths only get better, stay within
+	 * their bounds and end with a shortest path.
+	 */
+	@Test
+	public void testImprovingPaths()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 4; i++)
+		{
+			maze.setPassable(new Position((i * 7919) % MAZE_SIZE, (i * 104729) % MAZE_SIZE), true);
+		}
+
+		Heuristic heuristic = new DiagonalDistance();
+		AnytimeAStarAlgorithm solver = new AnytimeAStarAlgorithm(maze, heuristic);
+		DijkstrasAlgorithm reference = new DijkstrasAlgorithm(maze, heuristic);
+		assertTrue(reference.solveMaze() != null);
+		long optimal = reference.getSolutionPath().getCost();
+
+		final List<SolutionPath> paths = new ArrayList<SolutionPath>();
+		final List<Double> bounds = new ArrayList<Double>();
+		solver.setInitialWeight(5.0);
+		solver.addAnytimeListener(new AnytimeListener() {
+			@Override
+			public void pathImproved(SolutionPath path, double bound)
+			{
+				paths.add(path);
+				bounds.add(bound);
+			}
+		});
+
+		assertTrue(solver.solveMaze() != null);
+		assertFalse(paths.isEmpty());
+
+		for (int i = 0; i < paths.size(); i++)
+		{
+			assertTrue(paths.get(i).getCost() <= bounds.get(i) * optimal + 1e-9);
+			if (i > 0)
+			{
+				assertTrue(paths.get(i).getCost() <= paths.get(i - 1).getCost());
+				assertTrue(bounds.get(i) <= bounds.get(i - 1));
+			}
+		}
+
+		assertEquals(1.0, solver.getBound(), 0.0);
+		assertEquals(optimal, solver.getSolutionPath().getCost());
+		assertEquals(optimal, paths.get(paths.size() - 1).getCost());
+	}
+
+	/**
+	 * This test checks that a search stops at its deadline with a partial
+	 * path when it found none in time.
+	 */
+	@Test
+	public void testDeadline()
+	{
+		Maze maze = new Maze(501, 501);
+		AnytimeAStarAlgorithm solver = new AnytimeAStarAlgorithm(maze, new DiagonalDistance());
+		solver.setInitialWeight(1.0);
+		solver.setCancellationToken(CancellationToken.withTimeout(0));
+
+		long started = System.nanoTime();
+		assertTrue(solver.solveMaze() != null);
+		assertTrue(System.nanoTime() - started < 1000000000l);
+		assertTrue(solver.isPartial());
+		assertEquals(Double.POSITIVE_INFINITY, solver.getBound(), 0.0);
+		assertEquals(maze.getStartNode(), solver.getSolutionPath().asNodeList(maze).get(0));
+	}
+
+}
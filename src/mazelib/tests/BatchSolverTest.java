@@ -0,0 +1,106 @@
+package mazelib.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class BatchSolverTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_SIZE = 61;
+	private static final int QUERY_COUNT = 200;
+
+	private static Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+
+	/**
+	 * This test checks that batch results come back in query order
+	 * and are as short as the distance field says they should be.
+	 */
+	@Test
+	public void testSolveAll()
+	{
+		Position end = new Position(MAZE_SIZE - 1, MAZE_SIZE - 1);
+		DistanceField field = new DistanceField(maze, end);
+		List<PathQuery> queries = new ArrayList<PathQuery>();
+
+		while (queries.size() < QUERY_COUNT)
+		{
+			Position start = new Position(randomGenerator.nextInt(MAZE_SIZE),
+										  randomGenerator.nextInt(MAZE_SIZE));
+			if (maze.getNode(start).getIsPassable())
+			{
+				queries.add(new PathQuery(start, end));
+			}
+		}
+
+		BatchSolver solver = new BatchSolver(maze, new DiagonalDistance());
+		List<SolutionPath> paths = solver.solveAll(queries);
+
+		assertEquals(QUERY_COUNT, paths.size());
+		for (int i = 0; i < QUERY_COUNT; i++)
+		{
+			Position start = queries.get(i).getStart();
+			SolutionPath path = paths.get(i);
+
+			assertEquals(start.getX(), path.getStartX());
+			assertEquals(start.getY(), path.getStartY());
+			assertEquals(field.getDistance(start.getX(), start.getY()), path.getCost());
+		}
+
+		// The shared Maze's own start and end are left alone
+		assertEquals(maze.getNode(0, 0), maze.getStartNode());
+	}
+
+	/**
+	 * This test checks that unreachable queries give null results.
+	 */
+	@Test
+	public void testUnreachable()
+	{
+		Maze wallMaze = new Maze(
+						"#################\n" +
+						"#               #\n" +
+						"#S              #\n" +
+						"#        XXXXXXX#\n" +
+						"#        X      #\n" +
+						"#        X     E#\n" +
+						"#################\n", false);
+
+		List<PathQuery> queries = new ArrayList<PathQuery>();
+		queries.add(new PathQuery(new Position(0, 1), new Position(14, 4)));
+		queries.add(new PathQuery(new Position(0, 1), new Position(14, 0)));
+		queries.add(new PathQuery(new Position(0, 1), new Position(8, 2)));
+
+		List<SolutionPath> paths = new BatchSolver(wallMaze, new DiagonalDistance()).solveAll(queries);
+
+		assertNull(paths.get(0));
+		assertTrue(paths.get(1) != null);
+		assertNull(paths.get(2));
+	}
+
+	/**
+	 * This test checks that small arenas are reused, that large ones are
+	 * kept apart from them, and that release drops both.
+	 */
+	@Test
+	public void testArenaRetention()
+	{
+		SearchArena small = SearchArena.get(100);
+		assertSame(small, SearchArena.get(50));
+
+		SearchArena large = SearchArena.get(SearchArena.RETAINED_CELLS + 1);
+		assertNotSame(small, large);
+		assertSame(small, SearchArena.get(100));
+
+		SearchArena.release();
+		assertNotSame(small, SearchArena.get(100));
+		SearchArena.release();
+	}
+
+}
@@ -0,0 +1,93 @@
+package mazelib.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class BitGridTest {
+
+	private static final int MAZE_SIZE = 101;
+
+	/**
+	 * This test checks that a packed grid matches the Maze it was built from.
+	 */
+	@Test
+	public void testFromMaze()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE / 2);
+		BitGrid grid = maze.getPassabilityGrid();
+
+		assertEquals(2, grid.getWordsPerRow());
+		for (int y = 0; y < maze.getHeight(); y++)
+		{
+			for (int x = 0; x < maze.getWidth(); x++)
+			{
+				assertEquals(maze.getNode(x, y).getIsPassable(), grid.get(x, y));
+			}
+		}
+	}
+
+	/**
+	 * This test checks that a grid handed out never changes, and that the
+	 * next one holds the edits made since.
+	 */
+	@Test
+	public void testSnapshots()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		BitGrid before = maze.getPassabilityGrid();
+		assertSame(before, maze.getPassabilityGrid());
+
+		Position cell = new Position(1, 0);
+		boolean passable = maze.getNode(cell).getIsPassable();
+		maze.setPassable(cell, !passable);
+
+		BitGrid after = maze.getPassabilityGrid();
+		assertEquals(passable, before.get(1, 0));
+		assertEquals(!passable, after.get(1, 0));
+		assertEquals(before.count() + (passable ? -1 : 1), after.count());
+	}
+
+	/**
+	 * This test checks the flood fill against isSolvable on a Maze whose
+	 * only path winds up and down across word boundaries.
+	 */
+	@Test
+	public void testFloodFill()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		BitGrid grid = maze.getPassabilityGrid();
+		BitGrid reached = BitFloodFill.fill(grid, 0, 0);
+
+		// Generated mazes are perfect, so every passable Node is reached
+		assertEquals(grid.count(), reached.count());
+		assertTrue(BitFloodFill.isReachable(grid, 0, 0, MAZE_SIZE - 1, MAZE_SIZE - 1));
+		assertEquals(maze.isSolvable(),
+					 BitFloodFill.isReachable(grid, 0, 0, MAZE_SIZE - 1, MAZE_SIZE - 1));
+	}
+
+	/**
+	 * This test checks that walls stop the fill.
+	 */
+	@Test
+	public void testUnreachable()
+	{
+		Maze maze = new Maze(
+				"##############\n" +
+				"#S     X  XX #\n" +
+				"#XXXXXXXXXX X#\n" +
+				"#      X    X#\n" +
+				"#XXXXXXXXXX E#\n" +
+				"##############\n", false);
+		BitGrid grid = maze.getPassabilityGrid();
+
+		assertFalse(BitFloodFill.isReachable(grid, 0, 0, 11, 3));
+		assertFalse(BitFloodFill.isReachable(grid, 0, 0, 6, 0));
+		assertTrue(BitFloodFill.isReachable(grid, 10, 1, 11, 3));
+		assertEquals(6, BitFloodFill.fill(grid, 0, 0).count());
+		assertEquals(0, BitFloodFill.fill(grid, 6, 0).count());
+	}
+
+}
@@ -0,0 +1,163 @@
+package mazelib.tests;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class BreadthFirstAlgorithmTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int ROUND_COUNT = 20;
+
+	/**
+	 * This test checks that generated mazes, which have no open squares to
+	 * cut across, are solved as short as with A*.
+	 */
+	@Test
+	public void testGeneratedMazes()
+	{
+		Heuristic heuristic = new DiagonalDistance();
+
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = new Maze(51 + 2 * randomGenerator.nextInt(100), 51 + 2 * randomGenerator.nextInt(50));
+			AStarAlgorithm astar = new AStarAlgorithm(maze, heuristic);
+			BreadthFirstAlgorithm bfs = new BreadthFirstAlgorithm(maze, heuristic);
+
+			assertNotNull(astar.solveMaze());
+			assertNotNull(bfs.solveMaze());
+			assertEquals(astar.getSolutionPath().getCost(), bfs.getSolutionPath().getCost());
+		}
+	}
+
+	/**
+	 * This test checks that paths through opened up mazes take the fewest
+	 * straight steps, on a pool of several threads.
+	 */
+	@Test
+	public void testFewestSteps()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = new Maze(101, 101);
+			for (int i = 0; i < 101 * 101 / 4; i++)
+			{
+				maze.setPassable(new Position(randomGenerator.nextInt(101), randomGenerator.nextInt(101)), true);
+			}
+
+			BreadthFirstAlgorithm bfs = new BreadthFirstAlgorithm(maze, new DiagonalDistance(), pool);
+			int steps = countSteps(maze);
+			if (steps < 0)
+			{
+				assertNull(bfs.solveMaze());
+				continue;
+			}
+
+			List<Node> nodes = bfs.solveMaze();
+			assertNotNull(nodes);
+			assertEquals(steps + 1, nodes.size());
+			assertEquals(maze.getEndNode(), nodes.get(0));
+			assertEquals(maze.getStartNode(), nodes.get(nodes.size() - 1));
+			for (int i = 1; i < nodes.size(); i++)
+			{
+				Position from = nodes.get(i - 1).getPosition();
+				Position to = nodes.get(i).getPosition();
+				assertTrue(nodes.get(i).getIsPassable());
+				assertEquals(1, Math.abs(from.getX() - to.getX()) + Math.abs(from.getY() - to.getY()));
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * This test checks levels wide enough to be split over the pool, in an
+	 * open maze crossed corner to corner.
+	 */
+	@Test
+	public void testWideLevels()
+	{
+		Maze maze = new Maze(2001, 301);
+		for (int y = 0; y < maze.getHeight(); y++)
+		{
+			for (int x = 0; x < maze.getWidth(); x++)
+			{
+				maze.setPassable(new Position(x, y), true);
+			}
+		}
+		maze.setStartNode(maze.getNode(0, 0));
+		maze.setEndNode(maze.getNode(2000, 300));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		BreadthFirstAlgorithm bfs = new BreadthFirstAlgorithm(maze, new DiagonalDistance(), pool);
+		assertNotNull(bfs.solveMaze());
+		assertEquals((2000 + 300) * 100, bfs.getSolutionPath().getCost());
+		pool.shutdown();
+	}
+
+	/**
+	 * This test checks an unsolvable maze and a cancelled search.
+	 */
+	@Test
+	public void testNoSolution()
+	{
+		BreadthFirstAlgorithm walled = new BreadthFirstAlgorithm(
+						"#######\n" +
+						"#S X  #\n" +
+						"#  X  #\n" +
+						"#  X E#\n" +
+						"#######\n", new DiagonalDistance());
+		assertNull(walled.solveMaze());
+
+		BreadthFirstAlgorithm bfs = new BreadthFirstAlgorithm(new Maze(301, 301), new DiagonalDistance());
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		bfs.setCancellationToken(token);
+		assertNull(bfs.solveMaze());
+	}
+
+	/**
+	 * @return the fewest straight steps from the start to the end Node,
+	 * 		   -1 if there is no way
+	 */
+	private static int countSteps(Maze maze)
+	{
+		int width = maze.getWidth();
+		int[] steps = new int[width * maze.getHeight()];
+		Arrays.fill(steps, -1);
+
+		Position start = maze.getStartNode().getPosition();
+		Position end = maze.getEndNode().getPosition();
+		ArrayDeque<Position> queue = new ArrayDeque<Position>();
+		steps[start.getY() * width + start.getX()] = 0;
+		queue.add(start);
+
+		int[][] offsets = { { 0, -1 }, { 1, 0 }, { 0, 1 }, { -1, 0 } };
+		while (!queue.isEmpty())
+		{
+			Position position = queue.poll();
+			for (int[] offset : offsets)
+			{
+				Position next = new Position(position.getX() + offset[0], position.getY() + offset[1]);
+				if (!maze.inBounds(next) || !maze.getNode(next.getX(), next.getY()).getIsPassable() ||
+					steps[next.getY() * width + next.getX()] >= 0)
+				{
+					continue;
+				}
+				steps[next.getY() * width + next.getX()] = steps[position.getY() * width + position.getX()] + 1;
+				queue.add(next);
+			}
+		}
+		return steps[end.getY() * width + end.getX()];
+	}
+
+}
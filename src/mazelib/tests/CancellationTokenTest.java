@@ -0,0 +1,176 @@
+package mazelib.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class CancellationTokenTest {
+
+	private static final int MAZE_SIZE = 501;
+
+	/**
+	 * This test checks the token states.
+	 */
+	@Test
+	public void testToken()
+	{
+		CancellationToken token = new CancellationToken();
+		assertFalse(token.isCancelled());
+		assertFalse(token.hasDeadline());
+		token.cancel();
+		assertTrue(token.isCancelled());
+
+		assertTrue(CancellationToken.withTimeout(0).isCancelled());
+		assertFalse(CancellationToken.withTimeout(60000).isCancelled());
+		assertTrue(CancellationToken.withDeadline(System.nanoTime() - 1).isCancelled());
+	}
+
+	/**
+	 * This test checks that cancelled solvers stop with a valid partial
+	 * solution from the start Node, and solve fully otherwise.
+	 */
+	@Test
+	public void testPartialSolutions()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		Heuristic heuristic = new DiagonalDistance();
+		MazeSolver[] solvers = { new AStarAlgorithm(maze, heuristic),
+								 new DijkstrasAlgorithm(maze, heuristic),
+								 new AnytimeAStarAlgorithm(maze, heuristic),
+								 new SkeletonSolver(maze, heuristic),
+								 new ParallelAStarAlgorithm(maze, heuristic, 4) };
+
+		for (MazeSolver solver : solvers)
+		{
+			CancellationToken token = new CancellationToken();
+			token.cancel();
+			solver.setCancellationToken(token);
+
+			List<Node> partial = solver.solveMaze();
+			assertTrue(partial != null);
+			assertTrue(solver.isPartial());
+			assertEquals(maze.getStartNode(), partial.get(partial.size() - 1));
+			assertFalse(maze.getEndNode().equals(partial.get(0)));
+			for (int i = 1; i < partial.size(); i++)
+			{
+				assertTrue(partial.get(i - 1).canReach(partial.get(i)));
+			}
+
+			solver.setCancellationToken(new CancellationToken());
+			List<Node> full = solver.solveMaze();
+			assertTrue(full != null);
+			assertFalse(solver.isPartial());
+			assertEquals(maze.getEndNode(), full.get(0));
+		}
+	}
+
+	/**
+	 * This test checks that a cancelled search for the nearest of several
+	 * ends is partial, with few ends guiding it and with many, and that
+	 * reaching any of the ends is not.
+	 */
+	@Test
+	public void testPartialNearest()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		AStarAlgorithm solver = new AStarAlgorithm(maze, new DiagonalDistance());
+		Position end = maze.getEndNode().getPosition();
+
+		// Cells around the end Node, the end Node itself last
+		List<Position> around = new ArrayList<Position>();
+		for (int dy = -4; dy <= 4; dy++)
+		{
+			for (int dx = -4; dx <= 4; dx++)
+			{
+				Position cell = new Position(end.getX() + dx, end.getY() + dy);
+				if ((dx != 0 || dy != 0) && maze.inBounds(cell))
+				{
+					around.add(cell);
+				}
+			}
+		}
+		around.add(end);
+		int[] endCounts = { 3, GridAStar.MAX_GUIDING_ENDS + 1 };
+
+		for (int endCount : endCounts)
+		{
+			List<Position> ends = around.subList(around.size() - endCount, around.size());
+			CancellationToken token = new CancellationToken();
+			token.cancel();
+			solver.setCancellationToken(token);
+
+			List<Node> partial = solver.solveNearest(ends);
+			assertTrue(partial != null);
+			assertTrue(solver.isPartial());
+			assertEquals(maze.getStartNode(), partial.get(partial.size() - 1));
+			assertFalse(ends.contains(partial.get(0).getPosition()));
+
+			solver.setCancellationToken(null);
+			List<Node> full = solver.solveNearest(ends);
+			assertTrue(full != null);
+			assertFalse(solver.isPartial());
+			assertTrue(ends.contains(full.get(0).getPosition()));
+		}
+	}
+
+	/**
+	 * This test checks that a cancelled guided search keeps the progress it
+	 * made: behind a long wall the partial path leaves the start Node and
+	 * ends closer to the end Node than the start Node is.
+	 */
+	@Test
+	public void testPartialProgress()
+	{
+		int size = 201;
+		int wall = 150;
+		StringBuilder rows = new StringBuilder();
+		for (int y = -1; y <= size; y++)
+		{
+			for (int x = -1; x <= size; x++)
+			{
+				if (y < 0 || y == size || x < 0 || x == size)
+				{
+					rows.append('#');
+				}
+				else if (y == 0 && x == 0)
+				{
+					rows.append('S');
+				}
+				else if (y == 0 && x == size - 1)
+				{
+					rows.append('E');
+				}
+				else
+				{
+					rows.append((x == wall && y < size - 1) ? 'X' : ' ');
+				}
+			}
+			rows.append('\n');
+		}
+
+		Maze maze = new Maze(rows.toString(), true);
+		AStarAlgorithm solver = new AStarAlgorithm(maze, new DiagonalDistance());
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		solver.setCancellationToken(token);
+
+		List<Node> partial = solver.solveMaze();
+		assertTrue(partial != null);
+		assertTrue(solver.isPartial());
+		assertTrue(solver.getSolutionPath().getLength() > 0);
+		assertEquals(maze.getStartNode(), partial.get(partial.size() - 1));
+
+		Heuristic distance = new DiagonalDistance();
+		Position start = maze.getStartNode().getPosition();
+		Position end = maze.getEndNode().getPosition();
+		Position reached = partial.get(0).getPosition();
+		assertTrue(distance.estimate(reached.getX(), reached.getY(), end.getX(), end.getY()) <
+				   distance.estimate(start.getX(), start.getY(), end.getX(), end.getY()));
+	}
+
+}
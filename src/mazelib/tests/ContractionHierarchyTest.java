@@ -0,0 +1,122 @@
+package mazelib.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class ContractionHierarchyTest {
+
+	private static final int MAZE_WIDTH = 71;
+	private static final int MAZE_HEIGHT = 49;
+	private static final int QUERY_COUNT = 300;
+	private static final String IMAGE_PATH = "images/";
+
+	/**
+	 * This test checks that hierarchy queries are exactly as short as A*
+	 * paths, valid move by move, and null exactly when A* finds nothing.
+	 */
+	@Test
+	public void testQueries()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+
+		// Open up some loops so there is more than one way around
+		QueryChecker.openLoops(maze, 300);
+
+		ContractionHierarchy hierarchy = new ContractionHierarchy(maze);
+		checker(maze, hierarchy).checkRandom(QUERY_COUNT);
+
+		List<Node> nodes = hierarchy.solveNodes(maze.getStartNode().getPosition(),
+												maze.getEndNode().getPosition());
+		assertEquals(maze.getStartNode(), nodes.get(0));
+		assertEquals(maze.getEndNode(), nodes.get(nodes.size() - 1));
+	}
+
+	/**
+	 * This test checks queries between two halves of a maze with no way
+	 * across, from a cell to itself and to its neighbors, and on a
+	 * hierarchy built again after edits.
+	 */
+	@Test
+	public void testEdgeCases()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		QueryChecker.openLoops(maze, 300);
+		QueryChecker.split(maze);
+
+		for (int round = 0; round < 2; round++)
+		{
+			ContractionHierarchy hierarchy = new ContractionHierarchy(maze);
+			QueryChecker checker = checker(maze, hierarchy);
+
+			assertNull(hierarchy.solve(new Position(0, 0), new Position(MAZE_WIDTH - 1, MAZE_HEIGHT - 1)));
+			checker.checkRandom(QUERY_COUNT);
+			checker.checkNearby(QUERY_COUNT, 1);
+			for (int i = 0; i < QUERY_COUNT; i++)
+			{
+				Position position = QueryChecker.randomPosition(maze);
+				checker.check(position, position);
+			}
+
+			QueryChecker.toggleCells(maze, 100);
+			QueryChecker.split(maze);
+			assertFalse(hierarchy.isValid());
+		}
+	}
+
+	/**
+	 * This test checks that a mostly open maze, where every cell has many
+	 * neighbors, still builds in bounded time and answers exactly.
+	 */
+	@Test(timeout = 30000)
+	public void testOpenImage() throws IOException
+	{
+		Maze maze = new Maze(new File(IMAGE_PATH + "maze0.bmp"), new Position(0, 0), new Position(0, 0));
+		ContractionHierarchy hierarchy = new ContractionHierarchy(maze);
+		checker(maze, hierarchy).checkRandom(20);
+	}
+
+	/**
+	 * This test checks that edits invalidate the hierarchy.
+	 */
+	@Test
+	public void testInvalidation()
+	{
+		Maze maze = new Maze(21, 21);
+		ContractionHierarchy hierarchy = new ContractionHierarchy(maze);
+		assertTrue(hierarchy.isValid());
+
+		Position position = new Position(1, 1);
+		maze.setPassable(position, !maze.getNode(position).getIsPassable());
+		assertFalse(hierarchy.isValid());
+
+		try
+		{
+			hierarchy.solve(new Position(0, 0), new Position(20, 20));
+			fail("Solved on a changed maze!");
+		}
+		catch (IllegalStateException e) {}
+	}
+
+	/**
+	 * @return a QueryChecker comparing the queries of hierarchy exactly
+	 */
+	private static QueryChecker checker(Maze maze, final ContractionHierarchy hierarchy)
+	{
+		return new QueryChecker(maze, true, new QueryChecker.Engine() {
+
+			@Override
+			public SolutionPath solve(Position start, Position end)
+			{
+				return hierarchy.solve(start, end);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,149 @@
+package mazelib.tests;
+
+import java.lang.ref.WeakReference;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class DStarLiteAlgorithmTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_SIZE = 41;
+	private static final int EDIT_COUNT = 300;
+
+	/**
+	 * This test checks that after every random wall edit, start move and
+	 * end move the incremental solution is as short as a fresh one.
+	 */
+	@Test
+	public void testIncrementalEdits()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		Heuristic heuristic = new DiagonalDistance();
+		DStarLiteAlgorithm incremental = new DStarLiteAlgorithm(maze, heuristic);
+		DijkstrasAlgorithm reference = new DijkstrasAlgorithm(maze, heuristic);
+
+		assertSameCost(reference, incremental);
+
+		for (int i = 0; i < EDIT_COUNT; i++)
+		{
+			Position position = new Position(randomGenerator.nextInt(MAZE_SIZE),
+											 randomGenerator.nextInt(MAZE_SIZE));
+
+			switch (randomGenerator.nextInt(4))
+			{
+				case 0:
+					maze.setStartNode(maze.getNode(position));
+					break;
+				case 1:
+					maze.setEndNode(maze.getNode(position));
+					break;
+				default:
+					maze.setPassable(position, !maze.getNode(position).getIsPassable());
+					break;
+			}
+
+			assertSameCost(reference, incremental);
+		}
+
+		incremental.detach();
+	}
+
+	/**
+	 * This test checks a wall closing and reopening the only corridor.
+	 */
+	@Test
+	public void testBlockedCorridor()
+	{
+		DStarLiteAlgorithm solver = new DStarLiteAlgorithm(
+						"#########\n" +
+						"#S X    #\n" +
+						"#  X X  #\n" +
+						"#    X E#\n" +
+						"#########\n", new DiagonalDistance());
+		Maze maze = solver.getMaze();
+
+		assertTrue(solver.solveMaze() != null);
+		long cost = solver.getSolutionPath().getCost();
+
+		maze.setPassable(new Position(1, 1), false);
+		assertTrue(solver.solveMaze() != null);
+		assertTrue(solver.getSolutionPath().getCost() >= cost);
+
+		maze.setPassable(new Position(2, 2), false);
+		assertNull(solver.solveMaze());
+
+		maze.setPassable(new Position(2, 2), true);
+		maze.setPassable(new Position(1, 1), true);
+		assertTrue(solver.solveMaze() != null);
+		assertEquals(cost, solver.getSolutionPath().getCost());
+	}
+
+	/**
+	 * This test checks that a cancelled search gives no solution and that
+	 * the next call goes on from where it stopped to the right one.
+	 */
+	@Test
+	public void testCancellation()
+	{
+		Maze maze = new Maze(151, 151);
+		DStarLiteAlgorithm solver = new DStarLiteAlgorithm(maze, new DiagonalDistance());
+		DijkstrasAlgorithm reference = new DijkstrasAlgorithm(maze, new DiagonalDistance());
+
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		solver.setCancellationToken(token);
+		assertNull(solver.solveMaze());
+		assertFalse(solver.isPartial());
+
+		solver.setCancellationToken(null);
+		assertSameCost(reference, solver);
+		solver.detach();
+	}
+
+	/**
+	 * This test checks that a solver dropped without detach() isn't kept
+	 * alive by the Maze it watched.
+	 */
+	@Test
+	public void testDroppedSolver() throws InterruptedException
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		DStarLiteAlgorithm solver = new DStarLiteAlgorithm(maze, new DiagonalDistance());
+		solver.solveMaze();
+
+		WeakReference<DStarLiteAlgorithm> reference = new WeakReference<DStarLiteAlgorithm>(solver);
+		solver = null;
+		for (int i = 0; i < 20 && reference.get() != null; i++)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+
+		// The listener left behind removes itself on the next change
+		maze.setPassable(new Position(0, 0), !maze.getNode(0, 0).getIsPassable());
+	}
+
+	/**
+	 * Solves maze with both solvers and compares the solutions.
+	 */
+	private void assertSameCost(MazeSolver reference, MazeSolver incremental)
+	{
+		boolean solved = (reference.solveMaze() != null);
+		assertEquals(solved, incremental.solveMaze() != null);
+
+		if (solved)
+		{
+			SolutionPath path = incremental.getSolutionPath();
+			assertEquals(reference.getSolutionPath().getCost(), path.getCost());
+			assertEquals(incremental.getMaze().getEndNode().getPosition(),
+						 new Position(path.getEndX(), path.getEndY()));
+		}
+	}
+
+}
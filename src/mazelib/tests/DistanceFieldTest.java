@@ -0,0 +1,217 @@
+package mazelib.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class DistanceFieldTest {
+
+	private static Maze maze = new Maze(
+					"###########################\n" +
+					"#SX          XXX       X X#\n" +
+					"#   XXX    XXX   XXXXX X X#\n" +
+					"#      XXX   XXX   X      #\n" +
+					"# XX   XX X XX     XX  X X#\n" +
+					"# X   X       XXXX     X  #\n" +
+					"# XXX XX    X X XX   XX   #\n" +
+					"#   X   X X  XX  X       X#\n" +
+					"# X XXX XXXXX       XX   X#\n" +
+					"# X      X      XXX    X X#\n" +
+					"#       XX XXX      XX X X#\n" +
+					"# X         X     XXX    X#\n" +
+					"#     XX        XXXX   X X#\n" +
+					"#     X    XXX    XX  XX X#\n" +
+					"#X   XX  XXXXX   X  X X  X#\n" +
+					"#   X     X   XX     XX   #\n" +
+					"#XX   XXX    X  X    X XXX#\n" +
+					"#   X X     X            X#\n" +
+					"# XXX X X X            X X#\n" +
+					"#   X   X   XXXXXX       E#\n" +
+					"###########################\n", false);
+
+	/**
+	 * This test checks that field distances match A* solution costs
+	 * from every passable start, and that paths end at the target.
+	 */
+	@Test
+	public void testDistances()
+	{
+		Node endNode = maze.getEndNode();
+		Position end = endNode.getPosition();
+		DistanceField field = new DistanceField(maze, end);
+		AStarAlgorithm solver = new AStarAlgorithm(maze, new DiagonalDistance());
+
+		for (int y = 0; y < maze.getHeight(); y++)
+		{
+			for (int x = 0; x < maze.getWidth(); x++)
+			{
+				Node startNode = maze.getNode(x, y);
+				if (!startNode.getIsPassable())
+				{
+					continue;
+				}
+
+				maze.setStartNode(startNode);
+				SolutionPath path = field.getPath(startNode.getPosition());
+
+				if (solver.solveMaze() == null)
+				{
+					assertNull(path);
+					assertEquals(DistanceField.UNREACHABLE, field.getDistance(x, y));
+					continue;
+				}
+
+				assertEquals(solver.getSolutionPath().getCost(), field.getDistance(x, y));
+				assertEquals(field.getDistance(x, y), path.getCost());
+				assertEquals(end.getX(), path.getEndX());
+				assertEquals(end.getY(), path.getEndY());
+			}
+		}
+		maze.setStartNode(maze.getNode(0, 0));
+	}
+
+	/**
+	 * This test checks that delta-stepping gives the same distances as
+	 * Dijkstra for any bucket width, and paths that keep to them.
+	 */
+	@Test
+	public void testDeltaStepping()
+	{
+		Random random = new Random(44);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int[] deltas = { 1, 100, 141, 400, 100000 };
+
+		for (int round = 0; round < 10; round++)
+		{
+			Maze randomMaze = new Maze(40 + random.nextInt(40), 40 + random.nextInt(40));
+			for (int i = 0; i < randomMaze.getWidth() * randomMaze.getHeight() / 2; i++)
+			{
+				randomMaze.setPassable(new Position(random.nextInt(randomMaze.getWidth()),
+													random.nextInt(randomMaze.getHeight())), true);
+			}
+
+			Position target = new Position(random.nextInt(randomMaze.getWidth()),
+										   random.nextInt(randomMaze.getHeight()));
+			DistanceField expected = new DistanceField(randomMaze, target);
+			DistanceField actual = new DistanceField(randomMaze, target, pool, deltas[round % deltas.length]);
+
+			for (int y = 0; y < randomMaze.getHeight(); y++)
+			{
+				for (int x = 0; x < randomMaze.getWidth(); x++)
+				{
+					assertEquals(expected.getDistance(x, y), actual.getDistance(x, y));
+
+					SolutionPath path = actual.getPath(new Position(x, y));
+					if (actual.getDistance(x, y) == DistanceField.UNREACHABLE)
+					{
+						assertNull(path);
+						continue;
+					}
+					assertEquals(actual.getDistance(x, y), path.getCost());
+					assertEquals(target.getX(), path.getEndX());
+					assertEquals(target.getY(), path.getEndY());
+				}
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * This test checks that a field towards several targets has the
+	 * smallest of their distances, leads every cell to a target at that
+	 * distance, and is the same with delta-stepping.
+	 */
+	@Test
+	public void testNearestTargets()
+	{
+		Random random = new Random(50);
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		for (int round = 0; round < 10; round++)
+		{
+			Maze randomMaze = new Maze(40 + random.nextInt(40), 40 + random.nextInt(40));
+			for (int i = 0; i < randomMaze.getWidth() * randomMaze.getHeight() / 2; i++)
+			{
+				randomMaze.setPassable(new Position(random.nextInt(randomMaze.getWidth()),
+													random.nextInt(randomMaze.getHeight())), true);
+			}
+
+			List<Position> targets = new ArrayList<Position>();
+			List<DistanceField> singles = new ArrayList<DistanceField>();
+			for (int i = 1 + random.nextInt(6); i > 0; i--)
+			{
+				targets.add(new Position(random.nextInt(randomMaze.getWidth()),
+										 random.nextInt(randomMaze.getHeight())));
+				singles.add(new DistanceField(randomMaze, targets.get(targets.size() - 1)));
+			}
+			DistanceField field = new DistanceField(randomMaze, targets);
+			DistanceField parallel = new DistanceField(randomMaze, targets, pool, 141);
+
+			for (int y = 0; y < randomMaze.getHeight(); y++)
+			{
+				for (int x = 0; x < randomMaze.getWidth(); x++)
+				{
+					int smallest = DistanceField.UNREACHABLE;
+					for (DistanceField single : singles)
+					{
+						smallest = Math.min(smallest, single.getDistance(x, y));
+					}
+					assertEquals(smallest, field.getDistance(x, y));
+					assertEquals(smallest, parallel.getDistance(x, y));
+
+					int nearest = field.getNearestTarget(x, y);
+					if (smallest == DistanceField.UNREACHABLE)
+					{
+						assertEquals(-1, nearest);
+						assertNull(field.getPath(new Position(x, y)));
+						continue;
+					}
+					assertEquals(smallest, singles.get(nearest).getDistance(x, y));
+					assertEquals(smallest, singles.get(parallel.getNearestTarget(x, y)).getDistance(x, y));
+
+					SolutionPath path = field.getPath(new Position(x, y));
+					assertEquals(smallest, path.getCost());
+					assertEquals(targets.get(nearest).getX(), path.getEndX());
+					assertEquals(targets.get(nearest).getY(), path.getEndY());
+				}
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * This test checks that the cache reuses fields and evicts the
+	 * least recently used one.
+	 */
+	@Test
+	public void testCache()
+	{
+		DistanceFieldCache cache = new DistanceFieldCache(2);
+		Position first = new Position(0, 0);
+		Position second = new Position(24, 18);
+		Position third = new Position(10, 10);
+
+		DistanceField field = cache.get(maze, first);
+		assertSame(field, cache.get(maze, first));
+
+		cache.get(maze, second);
+		cache.get(maze, first);
+		cache.get(maze, third);
+
+		// Second target was the least recently used one
+		assertEquals(2, cache.size());
+		assertSame(field, cache.get(maze, first));
+
+		cache.invalidate(maze);
+		assertEquals(0, cache.size());
+		assertNotSame(field, cache.get(maze, first));
+	}
+
+}
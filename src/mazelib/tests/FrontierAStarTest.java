@@ -0,0 +1,139 @@
+package mazelib.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class FrontierAStarTest {
+
+	private static final int MAZE_WIDTH = 61;
+	private static final int MAZE_HEIGHT = 45;
+	private static final int QUERY_COUNT = 200;
+	private static final long BUDGET = 1l << 20;
+
+	// Too small to keep every searched cell of long queries, they get split
+	private static final long SPLIT_BUDGET = 1l << 14;
+
+	/**
+	 * This test checks that frontier paths are exactly as short as A*
+	 * paths, valid move by move, and null exactly when A* finds nothing,
+	 * also when queries have to be split to fit the budget.
+	 */
+	@Test
+	public void testQueries()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		QueryChecker.openLoops(maze, 300);
+
+		Heuristic heuristic = new DiagonalDistance();
+		checker(maze, new FrontierAStar(maze, heuristic, BUDGET)).checkRandom(QUERY_COUNT);
+		checker(maze, new FrontierAStar(maze, heuristic, SPLIT_BUDGET)).checkRandom(QUERY_COUNT);
+	}
+
+	/**
+	 * This test checks queries between two halves of a maze with no way
+	 * across, from a cell to itself, along a few cells of one corridor,
+	 * and all of them again after edits, which need no rebuild.
+	 */
+	@Test
+	public void testEdgeCases()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		QueryChecker.openLoops(maze, 300);
+		QueryChecker.split(maze);
+		FrontierAStar frontier = new FrontierAStar(maze, new DiagonalDistance(), SPLIT_BUDGET);
+		QueryChecker checker = checker(maze, frontier);
+
+		for (int round = 0; round < 2; round++)
+		{
+			assertNull(frontier.solve(new Position(0, 0), new Position(MAZE_WIDTH - 1, MAZE_HEIGHT - 1)));
+			checker.checkRandom(QUERY_COUNT);
+			checker.checkNearby(QUERY_COUNT, 3);
+			for (int i = 0; i < QUERY_COUNT; i++)
+			{
+				Position position = QueryChecker.randomPosition(maze);
+				checker.check(position, position);
+			}
+
+			QueryChecker.toggleCells(maze, 100);
+			QueryChecker.split(maze);
+		}
+	}
+
+	/**
+	 * This test checks the memory bounded mode of AStarAlgorithm and that
+	 * a search whose frontier outgrows the budget finds nothing.
+	 */
+	@Test
+	public void testBudget()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		Heuristic heuristic = new DiagonalDistance();
+
+		AStarAlgorithm bounded = new AStarAlgorithm(maze, heuristic, BUDGET);
+		AStarAlgorithm unbounded = new AStarAlgorithm(maze, heuristic);
+		assertTrue(bounded.solveMaze() != null);
+		assertTrue(unbounded.solveMaze() != null);
+		assertEquals(unbounded.getSolutionPath().getCost(), bounded.getSolutionPath().getCost());
+
+		Maze open = new Maze(
+						"###########\n" +
+						"#S        #\n" +
+						"#         #\n" +
+						"#         #\n" +
+						"#        E#\n" +
+						"###########\n", false);
+		assertNull(new FrontierAStar(open, new ManhattanDistance(), 64).solve(new Position(0, 0), new Position(8, 3)));
+		assertNull(new AStarAlgorithm(open, new ManhattanDistance(), 64).solveMaze());
+	}
+
+	/**
+	 * This test checks that a cancelled token stops the memory bounded
+	 * search without a path, on an open maze where a long wall keeps it
+	 * from reaching the end before it looks at the token.
+	 */
+	@Test
+	public void testCancellation()
+	{
+		int size = 101;
+		StringBuilder rows = new StringBuilder();
+		for (int y = -1; y <= size; y++)
+		{
+			for (int x = -1; x <= size; x++)
+			{
+				boolean border = (y < 0 || y == size || x < 0 || x == size);
+				rows.append(border ? '#' : (y == 0 && x == 0) ? 'S' : (y == 0 && x == size - 1) ? 'E'
+							: (x == size / 2 && y < size - 1) ? 'X' : ' ');
+			}
+			rows.append('\n');
+		}
+
+		Maze maze = new Maze(rows.toString(), false);
+		AStarAlgorithm bounded = new AStarAlgorithm(maze, new DiagonalDistance(), BUDGET);
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		bounded.setCancellationToken(token);
+		assertNull(bounded.solveMaze());
+
+		bounded.setCancellationToken(new CancellationToken());
+		assertTrue(bounded.solveMaze() != null);
+	}
+
+	/**
+	 * @return a QueryChecker comparing the queries of frontier exactly
+	 */
+	private static QueryChecker checker(Maze maze, final FrontierAStar frontier)
+	{
+		return new QueryChecker(maze, true, new QueryChecker.Engine() {
+
+			@Override
+			public SolutionPath solve(Position start, Position end)
+			{
+				return frontier.solve(start, end);
+			}
+		});
+	}
+
+}
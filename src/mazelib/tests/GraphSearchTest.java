@@ -0,0 +1,182 @@
+package mazelib.tests;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class GraphSearchTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_SIZE = 61;
+	private static final int ROUND_COUNT = 20;
+
+	/**
+	 * This test checks searches of a Maze and of its CsrGraph copy against
+	 * grid A*, with and without a Heuristic.
+	 */
+	@Test
+	public void testMazeAndCopy()
+	{
+		Heuristic heuristic = new DiagonalDistance();
+
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = openedMaze();
+			CsrGraph copy = new CsrGraph(maze);
+			assertEquals(maze.getVertexCount(), copy.getVertexCount());
+
+			GridAStar grid = new GridAStar(maze, heuristic);
+			GraphSearch[] searches = { new GraphSearch(maze), new GraphSearch(maze, heuristic),
+									   new GraphSearch(copy), new GraphSearch(copy, heuristic) };
+
+			for (int query = 0; query < 10; query++)
+			{
+				int start = randomPassable(maze);
+				int end = randomPassable(maze);
+				SolutionPath expected = grid.solve(new Position(start % MAZE_SIZE, start / MAZE_SIZE),
+												   new Position(end % MAZE_SIZE, end / MAZE_SIZE));
+
+				for (GraphSearch search : searches)
+				{
+					GraphPath path = search.solve(start, end);
+					if (expected == null)
+					{
+						assertNull(path);
+						continue;
+					}
+					assertEquals(expected.getCost(), path.getCost());
+					assertEquals(start, path.getFirst());
+					assertEquals(end, path.getLast());
+					assertEquals(path.getCost(), costOf(copy, path));
+				}
+			}
+		}
+	}
+
+	/**
+	 * This test checks that the junctions of a JunctionGraph search to the
+	 * same costs as the cells under them.
+	 */
+	@Test
+	public void testJunctionGraph()
+	{
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = openedMaze();
+			Graph junctions = new JunctionGraph(maze).getJunctionGraph();
+			if (junctions.getVertexCount() < 2)
+			{
+				continue;
+			}
+
+			GraphSearch search = new GraphSearch(junctions, new DiagonalDistance());
+			GridAStar grid = new GridAStar(maze, new DiagonalDistance());
+			for (int query = 0; query < 10; query++)
+			{
+				int start = randomGenerator.nextInt(junctions.getVertexCount());
+				int end = randomGenerator.nextInt(junctions.getVertexCount());
+				Position startCell = new Position(junctions.getVertexX(start), junctions.getVertexY(start));
+				Position endCell = new Position(junctions.getVertexX(end), junctions.getVertexY(end));
+
+				SolutionPath expected = grid.solve(startCell, endCell);
+				GraphPath path = search.solve(start, end);
+				if (expected == null)
+				{
+					assertNull(path);
+					continue;
+				}
+				assertEquals(expected.getCost(), path.getCost());
+			}
+		}
+	}
+
+	/**
+	 * This test checks that source and target costs pick the cheapest
+	 * pair and count towards the cost.
+	 */
+	@Test
+	public void testSourcesAndTargets()
+	{
+		Maze maze = new Maze(
+						"######\n" +
+						"#S   #\n" +
+						"#    #\n" +
+						"#   E#\n" +
+						"######\n", false);
+		GraphSearch search = new GraphSearch(maze);
+		int width = maze.getWidth();
+
+		// The far source is cheaper to start at than the near one
+		int[] sources = { 0, 3 };
+		long[] sourceCosts = { 1000l, 0l };
+		int[] targets = { 2 * width + 3, 2 * width };
+		long[] targetCosts = { 50l, 0l };
+
+		GraphPath path = search.solve(sources, sourceCosts, targets, targetCosts);
+		assertNotNull(path);
+		assertEquals(3, path.getFirst());
+		assertEquals(2 * width + 3, path.getLast());
+		assertEquals(2 * MovementModel.COST_STRAIGHT + 50l, path.getCost());
+	}
+
+	/**
+	 * @return a generated Maze with a quarter of its cells opened up
+	 */
+	private static Maze openedMaze()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 4; i++)
+		{
+			maze.setPassable(new Position(randomGenerator.nextInt(MAZE_SIZE),
+										  randomGenerator.nextInt(MAZE_SIZE)), true);
+		}
+		return maze;
+	}
+
+	private static int randomPassable(Maze maze)
+	{
+		while (true)
+		{
+			int x = randomGenerator.nextInt(MAZE_SIZE);
+			int y = randomGenerator.nextInt(MAZE_SIZE);
+			if (maze.getNode(x, y).getIsPassable())
+			{
+				return y * MAZE_SIZE + x;
+			}
+		}
+	}
+
+	/**
+	 * @return the cost of the edges along path, -1 if one is missing
+	 */
+	private static long costOf(Graph graph, GraphPath path)
+	{
+		int[] targets = new int[graph.getMaxDegree()];
+		long[] costs = new long[graph.getMaxDegree()];
+		long total = 0l;
+
+		for (int i = 1; i < path.getVertexCount(); i++)
+		{
+			int degree = graph.getSuccessors(path.getVertex(i - 1), targets, costs);
+			long cost = -1l;
+			for (int k = 0; k < degree; k++)
+			{
+				if (targets[k] == path.getVertex(i))
+				{
+					cost = costs[k];
+				}
+			}
+			if (cost < 0)
+			{
+				return -1l;
+			}
+			total += cost;
+		}
+		return total;
+	}
+
+}
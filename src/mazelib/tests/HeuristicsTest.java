@@ -196,4 +196,38 @@ public class HeuristicsTest {
 			}
 		}
 	}
+	
+	/**
+	 * This test checks that estimate() on coordinates agrees with the
+	 * straightforward formulas, near and far from the target.
+	 */
+	@Test
+	public void testEstimate() {
+		
+		int[] offsets = {0, 1, 2, 7, 63, 64, 65, 1000, 46340, 1 << 20};
+		
+		for (int dx : offsets)
+		{
+			for (int dy : offsets)
+			{
+				for (int sign = 0; sign < 4; sign++)
+				{
+					int signedX = ((sign & 1) == 0) ? dx : -dx;
+					int signedY = ((sign & 2) == 0) ? dy : -dy;
+					
+					assertEquals((dx + dy) * COST_STRAIGHT,
+								 manhattanH.estimate(0, 0, signedX, signedY));
+					
+					int diagonal = Math.min(dx, dy);
+					assertEquals(COST_DIAGONAL * diagonal + COST_STRAIGHT * (dx + dy - 2 * diagonal),
+								 diagonalH.estimate(0, 0, signedX, signedY));
+					
+					double horizontal = (double) (dx * COST_STRAIGHT);
+					double vertical = (double) (dy * COST_STRAIGHT);
+					assertEquals((long) Math.sqrt(horizontal * horizontal + vertical * vertical),
+								 euclideanH.estimate(0, 0, signedX, signedY));
+				}
+			}
+		}
+	}
 }
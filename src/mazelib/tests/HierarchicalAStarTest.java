@@ -0,0 +1,120 @@
+package mazelib.tests;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class HierarchicalAStarTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_WIDTH = 75;
+	private static final int MAZE_HEIGHT = 53;
+	private static final int QUERY_COUNT = 100;
+
+	/**
+	 * This test checks that hierarchical paths are valid, never shorter
+	 * than optimal ones, less than 1% longer in total, and found exactly
+	 * when a path exists, also after the maze is edited.
+	 */
+	@Test
+	public void testQueries()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		final HierarchicalAStar hierarchical = new HierarchicalAStar(maze, new DiagonalDistance());
+		QueryChecker checker = new QueryChecker(maze, false, new QueryChecker.Engine() {
+
+			@Override
+			public SolutionPath solve(Position start, Position end)
+			{
+				return hierarchical.solve(start, end);
+			}
+		});
+
+		checker.checkRandom(QUERY_COUNT);
+		assertSame(HierarchicalGraph.forMaze(maze), HierarchicalGraph.forMaze(maze));
+
+		// Open and close walls all over, only touched clusters get rebuilt
+		QueryChecker.toggleCells(maze, 200);
+		checker.checkRandom(QUERY_COUNT);
+		assertTrue(checker.getTotalCost() * 100 <= checker.getOptimalCost() * 101);
+	}
+
+	/**
+	 * This test checks queries between two halves of a maze with no way
+	 * across, from a cell to itself, between cells of one cluster whose
+	 * path may leave it, and all of them again after edits.
+	 */
+	@Test
+	public void testEdgeCases()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		QueryChecker.openLoops(maze, 300);
+		QueryChecker.split(maze);
+		final HierarchicalAStar hierarchical = new HierarchicalAStar(maze, new DiagonalDistance());
+		QueryChecker checker = new QueryChecker(maze, false, new QueryChecker.Engine() {
+
+			@Override
+			public SolutionPath solve(Position start, Position end)
+			{
+				return hierarchical.solve(start, end);
+			}
+		});
+
+		for (int round = 0; round < 2; round++)
+		{
+			assertNull(hierarchical.solve(new Position(0, 0), new Position(MAZE_WIDTH - 1, MAZE_HEIGHT - 1)));
+			checker.checkRandom(QUERY_COUNT);
+
+			int clusterSize = HierarchicalGraph.forMaze(maze).getClusterSize();
+			for (int i = 0; i < QUERY_COUNT; i++)
+			{
+				Position start = QueryChecker.randomPosition(maze);
+				checker.check(start, start);
+
+				int x0 = start.getX() / clusterSize * clusterSize;
+				int y0 = start.getY() / clusterSize * clusterSize;
+				checker.check(start, new Position(
+					Math.min(MAZE_WIDTH - 1, x0 + randomGenerator.nextInt(clusterSize)),
+					Math.min(MAZE_HEIGHT - 1, y0 + randomGenerator.nextInt(clusterSize))));
+			}
+
+			QueryChecker.toggleCells(maze, 100);
+			QueryChecker.split(maze);
+		}
+		assertTrue(checker.getTotalCost() * 100 <= checker.getOptimalCost() * 101);
+	}
+
+	/**
+	 * This test checks that queries between cells of the same or of
+	 * neighboring clusters cross their border anywhere, not only at
+	 * transitions: in an open maze such paths are the shortest.
+	 */
+	@Test
+	public void testNeighboringClusters()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		for (int y = 0; y < MAZE_HEIGHT; y++)
+		{
+			for (int x = 0; x < MAZE_WIDTH; x++)
+			{
+				maze.setPassable(new Position(x, y), true);
+			}
+		}
+
+		final HierarchicalAStar hierarchical = new HierarchicalAStar(maze, new DiagonalDistance());
+		QueryChecker checker = new QueryChecker(maze, true, new QueryChecker.Engine() {
+
+			@Override
+			public SolutionPath solve(Position start, Position end)
+			{
+				return hierarchical.solve(start, end);
+			}
+		});
+		checker.checkNearby(QUERY_COUNT, HierarchicalGraph.forMaze(maze).getClusterSize() / 2);
+	}
+
+}
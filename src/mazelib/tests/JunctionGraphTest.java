@@ -0,0 +1,120 @@
+package mazelib.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class JunctionGraphTest {
+
+	private static final int MAZE_WIDTH = 61;
+	private static final int MAZE_HEIGHT = 45;
+	private static final int SMALL_MAZE_WIDTH = 17;
+	private static final int SMALL_MAZE_HEIGHT = 11;
+	private static final int QUERY_COUNT = 400;
+
+	/**
+	 * This test checks that junction graph paths are exactly as short as A*
+	 * paths, valid move by move, and null exactly when A* finds nothing.
+	 */
+	@Test
+	public void testQueries()
+	{
+		for (int loops : new int[] { 0, 200 })
+		{
+			Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+			QueryChecker.openLoops(maze, loops);
+			checker(maze, new JunctionGraph(maze)).checkRandom(QUERY_COUNT);
+		}
+	}
+
+	/**
+	 * This test checks every query of a small maze split in two halves
+	 * with no way across: from a cell to itself, along one corridor, within
+	 * one filled dead end and between the two, and on a graph built again
+	 * after edits.
+	 */
+	@Test
+	public void testEdgeCases()
+	{
+		Maze maze = new Maze(SMALL_MAZE_WIDTH, SMALL_MAZE_HEIGHT);
+		QueryChecker.openLoops(maze, 20);
+		QueryChecker.split(maze);
+
+		for (int round = 0; round < 2; round++)
+		{
+			JunctionGraph graph = new JunctionGraph(maze);
+			assertTrue(graph.getFilledCount() > 0);
+			assertNull(graph.solve(new Position(0, 0), new Position(SMALL_MAZE_WIDTH - 1, SMALL_MAZE_HEIGHT - 1)));
+			checker(maze, graph).checkAllPairs();
+
+			QueryChecker.toggleCells(maze, 10);
+			QueryChecker.split(maze);
+			assertFalse(graph.isValid());
+		}
+	}
+
+	/**
+	 * This test checks the reduction of a generated maze and of rings
+	 * without any junction.
+	 */
+	@Test
+	public void testReduction()
+	{
+		Maze maze = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		JunctionGraph graph = new JunctionGraph(maze);
+		assertTrue(graph.getFilledCount() > 0);
+		assertTrue(graph.getJunctionCount() < graph.getCellCount());
+		assertTrue(graph.getReductionRatio() > 1.0);
+
+		JunctionGraph ring = new JunctionGraph(new Maze(
+						"#######\n" +
+						"#S    #\n" +
+						"# XXX #\n" +
+						"#    E#\n" +
+						"#######\n", false));
+		assertEquals(0, ring.getFilledCount());
+		assertEquals(1, ring.getJunctionCount());
+		SolutionPath path = ring.solve(new Position(0, 0), new Position(4, 2));
+		assertEquals(600, path.getCost());
+	}
+
+	/**
+	 * This test checks that edits invalidate the graph.
+	 */
+	@Test
+	public void testInvalidation()
+	{
+		Maze maze = new Maze(21, 21);
+		JunctionGraph graph = new JunctionGraph(maze);
+		assertTrue(graph.isValid());
+
+		Position position = new Position(1, 1);
+		maze.setPassable(position, !maze.getNode(position).getIsPassable());
+		assertFalse(graph.isValid());
+
+		try
+		{
+			graph.solve(new Position(0, 0), new Position(20, 20));
+			fail("Solved on a changed maze!");
+		}
+		catch (IllegalStateException e) {}
+	}
+
+	/**
+	 * @return a QueryChecker comparing the queries of graph exactly
+	 */
+	private static QueryChecker checker(Maze maze, final JunctionGraph graph)
+	{
+		return new QueryChecker(maze, true, new QueryChecker.Engine() {
+
+			@Override
+			public SolutionPath solve(Position start, Position end)
+			{
+				return graph.solve(start, end);
+			}
+		});
+	}
+
+}
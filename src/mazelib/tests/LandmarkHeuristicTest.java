@@ -0,0 +1,124 @@
+package mazelib.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class LandmarkHeuristicTest {
+
+	private static final int LANDMARK_COUNT = 4;
+
+	private static Maze maze = new Maze(
+					"############################\n" +
+					"#S      X                 X#\n" +
+					"#XXXXXX X XXXXXXXXXXX XXX X#\n" +
+					"#     X X       X   X X   X#\n" +
+					"# XXX X XXXXXXXXX X X X XXX#\n" +
+					"# X   X           X   X   X#\n" +
+					"# X XXXXXXXXXXXXXXXXXXXXX X#\n" +
+					"# X X       X X       X X X#\n" +
+					"# XXX XXX X X X X XXX X X X#\n" +
+					"#   X X   X X X X   X   X X#\n" +
+					"# X X X XXX X X XXX XXXXX X#\n" +
+					"# X   X X     X X X       X#\n" +
+					"# XXXXX XXXXXXX X XXXXXXXXX#\n" +
+					"#   X X   X     X         X#\n" +
+					"#XX X XXX X XXXXXXXXX XXX X#\n" +
+					"#   X   X X X   X     X X X#\n" +
+					"# XXXXX X X X X X XXXXX X X#\n" +
+					"#     X X X X X X X X   X X#\n" +
+					"#XXXX X X X X X X X X X X X#\n" +
+					"#       X     X   X   X   E#\n" +
+					"############################\n", false);
+
+	/**
+	 * This test checks that the estimates never exceed true distances,
+	 * and are exact towards a landmark.
+	 */
+	@Test
+	public void testAdmissible()
+	{
+		LandmarkHeuristic heuristic = new LandmarkHeuristic(maze, LANDMARK_COUNT);
+		assertEquals(LANDMARK_COUNT, heuristic.getLandmarkCount());
+
+		Position end = maze.getEndNode().getPosition();
+		Position landmark = heuristic.getLandmark(0);
+		DistanceField endField = new DistanceField(maze, end);
+		DistanceField landmarkField = new DistanceField(maze, landmark);
+
+		for (int y = 0; y < maze.getHeight(); y++)
+		{
+			for (int x = 0; x < maze.getWidth(); x++)
+			{
+				if (!maze.getNode(x, y).getIsPassable())
+				{
+					continue;
+				}
+
+				assertTrue(heuristic.estimate(x, y, end.getX(), end.getY()) <= endField.getDistance(x, y));
+				assertEquals(landmarkField.getDistance(x, y),
+							 heuristic.estimate(x, y, landmark.getX(), landmark.getY()));
+				assertEquals(heuristic.estimate(x, y, end.getX(), end.getY()),
+							 heuristic.calculateDistance(maze.getNode(x, y), maze.getEndNode()));
+			}
+		}
+	}
+
+	/**
+	 * This test checks that A* finds equally short paths with landmarks.
+	 */
+	@Test
+	public void testSolve()
+	{
+		LandmarkHeuristic heuristic = new LandmarkHeuristic(maze, LANDMARK_COUNT);
+		AStarAlgorithm landmarkSolver = new AStarAlgorithm(maze, heuristic);
+		DijkstrasAlgorithm dijkstra = new DijkstrasAlgorithm(maze, heuristic);
+
+		assertTrue(landmarkSolver.solveMaze() != null);
+		assertTrue(dijkstra.solveMaze() != null);
+		assertEquals(dijkstra.getSolutionPath().getCost(), landmarkSolver.getSolutionPath().getCost());
+	}
+
+	/**
+	 * This test checks that tables survive serialization.
+	 * @throws Exception
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		LandmarkHeuristic heuristic = new LandmarkHeuristic(maze, LANDMARK_COUNT);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(heuristic);
+		output.close();
+
+		ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		LandmarkHeuristic copy = (LandmarkHeuristic) input.readObject();
+		input.close();
+
+		assertEquals(heuristic.getLandmarkCount(), copy.getLandmarkCount());
+		for (int y = 0; y < maze.getHeight(); y++)
+		{
+			for (int x = 0; x < maze.getWidth(); x++)
+			{
+				assertEquals(heuristic.estimate(1, 1, x, y), copy.estimate(1, 1, x, y));
+			}
+		}
+
+		try
+		{
+			copy.calculateDistance(new Maze(5, 5).getStartNode(), new Maze(5, 5).getEndNode());
+			fail("Calculated distance from different Mazes!");
+		}
+		catch (IllegalArgumentException e) {}
+	}
+
+}
@@ -0,0 +1,94 @@
+package mazelib.tests;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class MazeFeaturesTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_SIZE = 61;
+	private static final int ROUND_COUNT = 10;
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * This test checks the features of a small Maze counted by hand.
+	 */
+	@Test
+	public void testCounts()
+	{
+		// A corridor with one branch going down, walls around it
+		Maze maze = new Maze(
+						"#######\n" +
+						"#S    #\n" +
+						"#XX XX#\n" +
+						"#XX  E#\n" +
+						"#######\n", false);
+		MazeFeatures features = new MazeFeatures(maze);
+
+		assertEquals(15l, features.getCellCount());
+		assertEquals(9l, features.getPassableCount());
+		assertEquals(6.0 / 15.0, features.getWallDensity(), EPSILON);
+		assertEquals(1l, features.getJunctionCount());
+		assertEquals(1.0 / 9.0, features.getJunctionRatio(), EPSILON);
+
+		// 9 cells and 8 pairs of neighbors leave 36 - 16 sides
+		assertEquals(18.0 / 20.0, features.getAverageCorridorWidth(), EPSILON);
+		assertTrue(features.isPerfect());
+		assertFalse(features.hasOpenSquare());
+		assertTrue(features.selectHeuristic() instanceof ManhattanDistance);
+		assertTrue(features.selectSolver() instanceof BreadthFirstAlgorithm);
+
+		// Opening a wall beside the branch makes a loop and an open square
+		maze.setPassable(new Position(3, 1), true);
+		assertFalse(features.isValid());
+		features = new MazeFeatures(maze);
+		assertFalse(features.isPerfect());
+		assertTrue(features.hasOpenSquare());
+		assertTrue(features.selectHeuristic() instanceof DiagonalDistance);
+		assertTrue(features.selectSolver() instanceof AStarAlgorithm);
+		assertEquals("A Star", features.selectAlgorithm());
+	}
+
+	/**
+	 * This test checks that generated Mazes are perfect, and that the
+	 * selected solver finds paths as short as A* once they are opened up.
+	 */
+	@Test
+	public void testSelection()
+	{
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+			MazeFeatures features = new MazeFeatures(maze);
+			assertTrue(features.isPerfect());
+			assertEquals("Breadth First", features.selectAlgorithm());
+
+			if (round % 2 == 1)
+			{
+				for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 4; i++)
+				{
+					maze.setPassable(new Position(randomGenerator.nextInt(MAZE_SIZE),
+												  randomGenerator.nextInt(MAZE_SIZE)), true);
+				}
+				features = new MazeFeatures(maze);
+				assertFalse(features.isPerfect());
+			}
+
+			AStarAlgorithm astar = new AStarAlgorithm(maze, new DiagonalDistance());
+			MazeSolver selected = features.selectSolver();
+
+			boolean solved = (astar.solveMaze() != null);
+			assertEquals(solved, selected.solveMaze() != null);
+			if (solved)
+			{
+				assertEquals(astar.getSolutionPath().getCost(), selected.getSolutionPath().getCost());
+			}
+		}
+	}
+
+}
@@ -231,6 +231,41 @@ public class MazeTest {
 		
 		assertFalse(unsolvable.isSolvable());
 	}
+	
+	/**
+	 * This test checks the connected component labels and that
+	 * isSolvable follows start and end Node changes.
+	 */
+	@Test
+	public void testComponentLabels()
+	{
+		Maze islands  = new Maze(
+				"##############\n" +
+				"#S     X  XX #\n" +
+				"#XXXXXXXXXX X#\n" +
+				"#      X    X#\n" +
+				"#XXXXXXXXXX E#\n" +
+				"##############\n", false);
+		
+		ComponentLabels labels = islands.getComponentLabels();
+		
+		assertEquals(5, labels.getComponentCount());
+		assertEquals(ComponentLabels.WALL, labels.getLabel(6, 0));
+		assertTrue(labels.isConnected(0, 0, 5, 0));
+		assertTrue(labels.isConnected(10, 1, 11, 3));
+		assertFalse(labels.isConnected(11, 0, 11, 3));
+		assertFalse(labels.isConnected(0, 0, 11, 3));
+		assertFalse(labels.isConnected(0, 2, 7, 2));
+		
+		// Labels are computed once per Maze
+		assertSame(labels, islands.getComponentLabels());
+		
+		islands.setEndNode(islands.getNode(new Position(3, 0)));
+		assertTrue(islands.isSolvable());
+		islands.setStartNode(islands.getNode(new Position(8, 2)));
+		assertFalse(islands.isSolvable());
+	}
+	
 	/**
 	 * This test to see if drawMaze correctly represents a maze as a String,
 	 * and if the same maze is drawn the same way twice.
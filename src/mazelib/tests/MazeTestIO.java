@@ -106,6 +106,27 @@ public class MazeTestIO {
 		assertFalse(unsolvable.isSolvable());
 	}
 
+	/**
+	 * Test that checking solvability while streaming image rows agrees
+	 * with solvability of the fully parsed mazes.
+	 * @throws IOException 
+	 */
+	@Test
+	public void testStreamingSolvability() throws IOException
+	{
+		assertTrue(StreamingSolvability.isSolvable(mazefile0, start0, end0));
+		assertTrue(StreamingSolvability.isSolvable(mazefile1, start1, end1));
+		assertTrue(StreamingSolvability.isSolvable(image2, start2, end2));
+		
+		// Starts inside a wall
+		Position blocked = new Position(image0.getWidth()/2, image0.getHeight()/2);
+		assertFalse(StreamingSolvability.isSolvable(mazefile0, blocked, end0));
+		
+		// Ends inside a wall
+		assertEquals(new Maze(image2, start2, end0).isSolvable(),
+					 StreamingSolvability.isSolvable(mazefile2, start2, end0));
+	}
+
 	/**
 	 * This test checks if MazeSolvers can solve input mazes.
 	 */
@@ -0,0 +1,140 @@
+package mazelib.tests;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class MovementModelTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_SIZE = 61;
+	private static final int ROUND_COUNT = 20;
+
+	private static final String CORNER =
+					"####\n" +
+					"#SX#\n" +
+					"# E#\n" +
+					"####\n";
+
+	/**
+	 * This test checks that 4-connected searches only make straight moves
+	 * and take as few of them as breadth first search.
+	 */
+	@Test
+	public void testFourConnected()
+	{
+		MovementModel model = MovementModel.FOUR_CONNECTED;
+
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+			for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 4; i++)
+			{
+				maze.setPassable(new Position(randomGenerator.nextInt(MAZE_SIZE),
+											  randomGenerator.nextInt(MAZE_SIZE)), true);
+			}
+
+			AStarAlgorithm astar = new AStarAlgorithm(maze, model.getHeuristic(), model);
+			DijkstrasAlgorithm dijkstra = new DijkstrasAlgorithm(maze, new ManhattanDistance(), model);
+			BreadthFirstAlgorithm bfs = new BreadthFirstAlgorithm(maze, new ManhattanDistance());
+
+			boolean solved = (bfs.solveMaze() != null);
+			assertEquals(solved, astar.solveMaze() != null);
+			assertEquals(solved, dijkstra.solveMaze() != null);
+			if (!solved)
+			{
+				continue;
+			}
+
+			SolutionPath path = astar.getSolutionPath();
+			assertEquals(bfs.getSolutionPath().getCost(), path.getCost());
+			assertEquals(bfs.getSolutionPath().getCost(), dijkstra.getSolutionPath().getCost());
+			for (int step = 0; step < path.getLength(); step++)
+			{
+				assertFalse(Direction.isDiagonal(path.getDirection(step)));
+			}
+		}
+	}
+
+	/**
+	 * This test checks that BitGrid allows exactly the moves of the
+	 * 8-connected model, on every cell of random grids and off their edges.
+	 */
+	@Test
+	public void testBitGridMoves()
+	{
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			BitGrid grid = new BitGrid(MAZE_SIZE, MAZE_SIZE + round);
+			for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 2; i++)
+			{
+				grid.set(randomGenerator.nextInt(grid.getWidth()), randomGenerator.nextInt(grid.getHeight()), true);
+			}
+
+			for (int y = 0; y < grid.getHeight(); y++)
+			{
+				for (int x = 0; x < grid.getWidth(); x++)
+				{
+					for (int direction = 0; direction < Direction.COUNT; direction++)
+					{
+						assertEquals(MovementModel.EIGHT_CONNECTED.canMove(grid, x, y, direction),
+									 grid.canMove(x, y, direction));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * This test checks that only corner cutting moves past a wall.
+	 */
+	@Test
+	public void testCornerCutting()
+	{
+		Maze maze = new Maze(CORNER, false);
+
+		AStarAlgorithm eight = new AStarAlgorithm(maze, new DiagonalDistance(), MovementModel.EIGHT_CONNECTED);
+		AStarAlgorithm cutting = new AStarAlgorithm(maze, new DiagonalDistance(), MovementModel.CORNER_CUTTING);
+		assertNotNull(eight.solveMaze());
+		assertNotNull(cutting.solveMaze());
+
+		assertEquals(2 * MovementModel.COST_STRAIGHT, eight.getSolutionPath().getCost());
+		assertEquals(MovementModel.COST_DIAGONAL, cutting.getSolutionPath().getCost());
+
+		BitGrid grid = maze.getPassabilityGrid();
+		assertFalse(MovementModel.EIGHT_CONNECTED.canMove(grid, 0, 0, Direction.SOUTH_EAST));
+		assertTrue(MovementModel.CORNER_CUTTING.canMove(grid, 0, 0, Direction.SOUTH_EAST));
+		assertFalse(MovementModel.FOUR_CONNECTED.canMove(grid, 0, 0, Direction.SOUTH_EAST));
+	}
+
+	/**
+	 * This test checks custom costs against their open ground distance,
+	 * which the model's Heuristic gives.
+	 */
+	@Test
+	public void testCustomCosts()
+	{
+		MovementModel model = new MovementModel(1, 1, true, false);
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		for (int y = 0; y < MAZE_SIZE; y++)
+		{
+			for (int x = 0; x < MAZE_SIZE; x++)
+			{
+				maze.setPassable(new Position(x, y), true);
+			}
+		}
+		maze.setStartNode(maze.getNode(3, 5));
+		maze.setEndNode(maze.getNode(50, 20));
+
+		DijkstrasAlgorithm dijkstra = new DijkstrasAlgorithm(maze, new DiagonalDistance(), model);
+		assertNotNull(dijkstra.solveMaze());
+		assertEquals(47, dijkstra.getSolutionPath().getCost(model));
+		assertEquals(47, model.getHeuristic().estimate(3, 5, 50, 20));
+		assertEquals(model, dijkstra.getMovementModel());
+	}
+
+}
@@ -0,0 +1,72 @@
+package mazelib.tests;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class ParallelAStarAlgorithmTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_SIZE = 101;
+	private static final int ROUND_COUNT = 30;
+
+	/**
+	 * This test checks that parallel solutions are as short as sequential
+	 * A* ones for any number of threads, and valid Node by Node.
+	 */
+	@Test
+	public void testOptimalCost()
+	{
+		Heuristic heuristic = new DiagonalDistance();
+
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+			for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 8; i++)
+			{
+				maze.setPassable(new Position(randomGenerator.nextInt(MAZE_SIZE),
+											  randomGenerator.nextInt(MAZE_SIZE)), true);
+			}
+
+			AStarAlgorithm sequential = new AStarAlgorithm(maze, heuristic);
+			ParallelAStarAlgorithm parallel = new ParallelAStarAlgorithm(maze, heuristic, 1 + round % 6);
+
+			boolean solved = (sequential.solveMaze() != null);
+			assertEquals(solved, parallel.solveMaze() != null);
+			if (!solved)
+			{
+				continue;
+			}
+
+			assertEquals(sequential.getSolutionPath().getCost(), parallel.getSolutionPath().getCost());
+			List<Node> nodes = parallel.getSolutionPath().asNodeList(maze);
+			assertEquals(maze.getStartNode(), nodes.get(0));
+			assertEquals(maze.getEndNode(), nodes.get(nodes.size() - 1));
+			for (int i = 1; i < nodes.size(); i++)
+			{
+				assertTrue(nodes.get(i - 1).canReach(nodes.get(i)));
+			}
+		}
+	}
+
+	/**
+	 * This test checks an unsolvable maze.
+	 */
+	@Test
+	public void testNoSolution()
+	{
+		ParallelAStarAlgorithm walled = new ParallelAStarAlgorithm(
+						"#######\n" +
+						"#S X  #\n" +
+						"#  X  #\n" +
+						"#  X E#\n" +
+						"#######\n", new DiagonalDistance(), 4);
+		assertNull(walled.solveMaze());
+	}
+
+}
@@ -0,0 +1,307 @@
+package mazelib.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class PortfolioAlgorithmTest {
+
+	private static Random randomGenerator = new Random();
+	private static final int MAZE_SIZE = 81;
+	private static final int LARGE_MAZE_SIZE = 501;
+	private static final int ROUND_COUNT = 10;
+
+	/**
+	 * This test checks that whichever strategy wins, the path is as short
+	 * as A*'s, on perfect and on opened up mazes.
+	 */
+	@Test
+	public void testOptimalCost()
+	{
+		Heuristic heuristic = new DiagonalDistance();
+
+		for (int round = 0; round < ROUND_COUNT; round++)
+		{
+			Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+			if (round % 2 == 1)
+			{
+				for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 4; i++)
+				{
+					maze.setPassable(new Position(randomGenerator.nextInt(MAZE_SIZE),
+												  randomGenerator.nextInt(MAZE_SIZE)), true);
+				}
+			}
+
+			AStarAlgorithm astar = new AStarAlgorithm(maze, heuristic);
+			PortfolioAlgorithm portfolio = new PortfolioAlgorithm(maze, heuristic);
+
+			boolean solved = (astar.solveMaze() != null);
+			assertEquals(solved, portfolio.solveMaze() != null);
+			assertNotNull(portfolio.getLastWinner());
+			if (solved)
+			{
+				assertEquals(astar.getSolutionPath().getCost(), portfolio.getSolutionPath().getCost());
+			}
+		}
+	}
+
+	/**
+	 * This test checks that wins are counted per Maze, that the favorite
+	 * runs alone after the learning races, and that edits start over.
+	 */
+	@Test
+	public void testStatistics()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		PortfolioAlgorithm portfolio = new PortfolioAlgorithm(maze, new DiagonalDistance());
+
+		// The junction graph getting ready during a race starts the count over
+		for (int race = 0; totalWins(portfolio.getWinCounts()) < PortfolioAlgorithm.LEARNING_RACES; race++)
+		{
+			assertTrue(race < 2 * PortfolioAlgorithm.LEARNING_RACES);
+			assertNotNull(portfolio.solveMaze());
+		}
+		assertEquals(PortfolioAlgorithm.LEARNING_RACES, totalWins(portfolio.getWinCounts()));
+
+		// Statistics belong to the Maze, the favorite runs without racing
+		PortfolioAlgorithm other = new PortfolioAlgorithm(maze, new DiagonalDistance());
+		assertNotNull(other.solveMaze());
+		Map<String, Integer> wins = other.getWinCounts();
+		assertEquals(PortfolioAlgorithm.LEARNING_RACES, totalWins(wins));
+		for (Integer count : wins.values())
+		{
+			assertTrue(wins.get(other.getLastWinner()) >= count);
+		}
+
+		Position middle = new Position(MAZE_SIZE / 2, MAZE_SIZE / 2);
+		maze.setPassable(middle, !maze.getNode(middle).getIsPassable());
+		assertTrue(portfolio.getWinCounts().isEmpty());
+	}
+
+	/**
+	 * This test checks that a cancelled query returns no path, or the
+	 * whole path if a strategy finished first, both while racing and once
+	 * the favorite runs alone.
+	 */
+	@Test
+	public void testCancelled()
+	{
+		Maze maze = new Maze(LARGE_MAZE_SIZE, LARGE_MAZE_SIZE);
+		PortfolioAlgorithm portfolio = new PortfolioAlgorithm(maze, new DiagonalDistance());
+		portfolio.resetStatistics();
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+
+		for (int race = 0; race <= PortfolioAlgorithm.LEARNING_RACES; race++)
+		{
+			portfolio.setCancellationToken(token);
+			List<Node> cancelled = portfolio.solveMaze();
+			assertFalse(portfolio.isPartial());
+			assertTrue(cancelled == null || maze.getEndNode().equals(cancelled.get(0)));
+
+			portfolio.setCancellationToken(null);
+			assertNotNull(portfolio.solveMaze());
+		}
+	}
+
+	/**
+	 * This test checks that a strategy that was not ready while the others
+	 * raced gets its races once it is, and can become the favorite.
+	 */
+	@Test
+	public void testLateStrategy()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		final GridAStar astar = new GridAStar(maze, new DiagonalDistance());
+		final boolean[] ready = { false };
+
+		List<PortfolioAlgorithm.Strategy> strategies = new ArrayList<PortfolioAlgorithm.Strategy>();
+		strategies.add(new PortfolioAlgorithm.Strategy() {
+
+			@Override
+			public String getName()
+			{
+				return "Slow";
+			}
+
+			@Override
+			public SolutionPath solve(Position start, Position end, CancellationToken token)
+			{
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+				while (System.nanoTime() < deadline && (token == null || !token.isCancelled()))
+				{
+					Thread.yield();
+				}
+				return astar.solve(start, end, token);
+			}
+		});
+		strategies.add(new PortfolioAlgorithm.PreparedStrategy() {
+
+			@Override
+			public String getName()
+			{
+				return "Late";
+			}
+
+			@Override
+			public boolean prepare()
+			{
+				return ready[0];
+			}
+
+			@Override
+			public SolutionPath solve(Position start, Position end, CancellationToken token)
+			{
+				return astar.solve(start, end, token);
+			}
+		});
+
+		PortfolioAlgorithm portfolio = new PortfolioAlgorithm(maze, new DiagonalDistance(), strategies);
+		portfolio.resetStatistics();
+		for (int race = 0; race <= PortfolioAlgorithm.LEARNING_RACES; race++)
+		{
+			assertNotNull(portfolio.solveMaze());
+			assertEquals("Slow", portfolio.getLastWinner());
+		}
+		assertEquals(PortfolioAlgorithm.LEARNING_RACES, totalWins(portfolio.getWinCounts()));
+
+		ready[0] = true;
+		for (int race = 0; race <= PortfolioAlgorithm.LEARNING_RACES; race++)
+		{
+			assertNotNull(portfolio.solveMaze());
+			assertEquals("Late", portfolio.getLastWinner());
+		}
+		assertEquals(PortfolioAlgorithm.LEARNING_RACES, (int) portfolio.getWinCounts().get("Late"));
+	}
+
+	/**
+	 * This test checks that breadth first search only races while the
+	 * Maze has no open 2x2 square, and that it stays shortest after one
+	 * is opened.
+	 */
+	@Test
+	public void testBreadthFirstEligibility()
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		PortfolioAlgorithm.PreparedStrategy bfs = null;
+		for (PortfolioAlgorithm.Strategy strategy : PortfolioAlgorithm.getDefaultStrategies(maze))
+		{
+			if (strategy.getName().equals("Breadth First"))
+			{
+				bfs = (PortfolioAlgorithm.PreparedStrategy) strategy;
+			}
+		}
+		assertNotNull(bfs);
+		assertTrue(bfs.prepare());
+
+		for (int i = 0; i < MAZE_SIZE * MAZE_SIZE / 4; i++)
+		{
+			maze.setPassable(new Position(randomGenerator.nextInt(MAZE_SIZE),
+										  randomGenerator.nextInt(MAZE_SIZE)), true);
+		}
+		for (int x = 1; x <= 2; x++)
+		{
+			for (int y = 1; y <= 2; y++)
+			{
+				maze.setPassable(new Position(x, y), true);
+			}
+		}
+		assertFalse(bfs.prepare());
+
+		Position start = maze.getStartNode().getPosition();
+		Position end = maze.getEndNode().getPosition();
+		SolutionPath path = new GridAStar(maze, new DiagonalDistance()).solve(start, end, null);
+		assertEquals(path == null, bfs.solve(start, end, null) == null);
+		if (path != null)
+		{
+			assertEquals(path.getCost(), bfs.solve(start, end, null).getCost());
+		}
+	}
+
+	private static int totalWins(Map<String, Integer> wins)
+	{
+		int total = 0;
+		for (Integer count : wins.values())
+		{
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * This test checks that a slow strategy loses to a fast one and gets
+	 * cancelled, and that failing strategies are skipped.
+	 */
+	@Test
+	public void testCancelLosers() throws InterruptedException
+	{
+		Maze maze = new Maze(MAZE_SIZE, MAZE_SIZE);
+		final GridAStar astar = new GridAStar(maze, new DiagonalDistance());
+		final CountDownLatch cancelled = new CountDownLatch(1);
+
+		List<PortfolioAlgorithm.Strategy> strategies = new ArrayList<PortfolioAlgorithm.Strategy>();
+		strategies.add(new PortfolioAlgorithm.Strategy() {
+
+			@Override
+			public String getName()
+			{
+				return "Slow";
+			}
+
+			@Override
+			public SolutionPath solve(Position start, Position end, CancellationToken token)
+			{
+				while (!token.isCancelled())
+				{
+					Thread.yield();
+				}
+				cancelled.countDown();
+				return null;
+			}
+		});
+		strategies.add(new PortfolioAlgorithm.Strategy() {
+
+			@Override
+			public String getName()
+			{
+				return "Broken";
+			}
+
+			@Override
+			public SolutionPath solve(Position start, Position end, CancellationToken token)
+			{
+				throw new IllegalStateException("Broken strategy.");
+			}
+		});
+		strategies.add(new PortfolioAlgorithm.Strategy() {
+
+			@Override
+			public String getName()
+			{
+				return "Fast";
+			}
+
+			@Override
+			public SolutionPath solve(Position start, Position end, CancellationToken token)
+			{
+				return astar.solve(start, end, token);
+			}
+		});
+
+		PortfolioAlgorithm portfolio = new PortfolioAlgorithm(maze, new DiagonalDistance(), strategies);
+		portfolio.resetStatistics();
+		assertNotNull(portfolio.solveMaze());
+		assertEquals("Fast", portfolio.getLastWinner());
+		assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+	}
+
+}
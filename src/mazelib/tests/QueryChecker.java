@@ -0,0 +1,189 @@
+package mazelib.tests;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import mazelib.data.*;
+
+/**
+ * Checks the queries of a path finding engine against GridAStar: a path
+ * is found exactly when A* finds one, it goes from start to end move by
+ * move, and it is never shorter. Exact engines must match the cost of
+ * every path, the others are summed up for the test to bound.
+ */
+class QueryChecker {
+
+	/**
+	 * The engine under test.
+	 */
+	interface Engine {
+
+		/**
+		 * @return the path the engine finds from start to end, null if none
+		 */
+		SolutionPath solve(Position start, Position end);
+	}
+
+	private static Random randomGenerator = new Random();
+
+	private final Maze maze;
+	private final Engine engine;
+	private final boolean exact;
+	private final GridAStar reference;
+	private long totalCost = 0l;
+	private long optimalCost = 0l;
+
+	/**
+	 * @param maze the Maze the engine searches
+	 * @param exact true if every path must be as short as A*'s
+	 * @param engine the engine to check
+	 */
+	QueryChecker(Maze maze, boolean exact, Engine engine)
+	{
+		this.maze = maze;
+		this.engine = engine;
+		this.exact = exact;
+		this.reference = new GridAStar(maze, new DiagonalDistance());
+	}
+
+	/**
+	 * Checks count queries between random cells.
+	 */
+	void checkRandom(int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			check(randomPosition(maze), randomPosition(maze));
+		}
+	}
+
+	/**
+	 * Checks count queries from random cells to cells at most radius
+	 * columns and rows away.
+	 */
+	void checkNearby(int count, int radius)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			Position start = randomPosition(maze);
+			int x = start.getX() + randomGenerator.nextInt(2 * radius + 1) - radius;
+			int y = start.getY() + randomGenerator.nextInt(2 * radius + 1) - radius;
+			check(start, new Position(Math.max(0, Math.min(maze.getWidth() - 1, x)),
+									  Math.max(0, Math.min(maze.getHeight() - 1, y))));
+		}
+	}
+
+	/**
+	 * Checks the query from every cell to every cell.
+	 */
+	void checkAllPairs()
+	{
+		for (int start = 0; start < maze.getWidth() * maze.getHeight(); start++)
+		{
+			for (int end = 0; end < maze.getWidth() * maze.getHeight(); end++)
+			{
+				check(new Position(start % maze.getWidth(), start / maze.getWidth()),
+					  new Position(end % maze.getWidth(), end / maze.getWidth()));
+			}
+		}
+	}
+
+	/**
+	 * Checks one query.
+	 */
+	void check(Position start, Position end)
+	{
+		SolutionPath optimal = reference.solve(start, end);
+		SolutionPath path = engine.solve(start, end);
+
+		if (optimal == null)
+		{
+			assertNull(path);
+			return;
+		}
+
+		assertTrue(path != null);
+		if (exact)
+		{
+			assertEquals(optimal.getCost(), path.getCost());
+		}
+		assertTrue(path.getCost() >= optimal.getCost());
+		totalCost += path.getCost();
+		optimalCost += optimal.getCost();
+		assertEquals(start.getX(), path.getStartX());
+		assertEquals(start.getY(), path.getStartY());
+		assertEquals(end.getX(), path.getEndX());
+		assertEquals(end.getY(), path.getEndY());
+
+		BitGrid grid = maze.getPassabilityGrid();
+		int x = start.getX();
+		int y = start.getY();
+		for (int step = 0; step < path.getLength(); step++)
+		{
+			int direction = path.getDirection(step);
+			assertTrue(grid.canMove(x, y, direction));
+			x += Direction.getDX(direction);
+			y += Direction.getDY(direction);
+		}
+	}
+
+	/**
+	 * @return the cost of every path checked
+	 */
+	long getTotalCost()
+	{
+		return totalCost;
+	}
+
+	/**
+	 * @return the cost of A*'s paths for the same queries
+	 */
+	long getOptimalCost()
+	{
+		return optimalCost;
+	}
+
+	/**
+	 * @return a random Position inside maze
+	 */
+	static Position randomPosition(Maze maze)
+	{
+		return new Position(randomGenerator.nextInt(maze.getWidth()), randomGenerator.nextInt(maze.getHeight()));
+	}
+
+	/**
+	 * Opens count random cells of maze, so there is more than one way around.
+	 */
+	static void openLoops(Maze maze, int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			maze.setPassable(randomPosition(maze), true);
+		}
+	}
+
+	/**
+	 * Turns count random cells of maze from passable to impassable or back.
+	 */
+	static void toggleCells(Maze maze, int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			Position position = randomPosition(maze);
+			maze.setPassable(position, !maze.getNode(position).getIsPassable());
+		}
+	}
+
+	/**
+	 * Walls off the middle column of maze, so no path leads across it.
+	 */
+	static void split(Maze maze)
+	{
+		for (int y = 0; y < maze.getHeight(); y++)
+		{
+			maze.setPassable(new Position(maze.getWidth() / 2, y), false);
+		}
+	}
+
+}
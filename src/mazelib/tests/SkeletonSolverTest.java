@@ -0,0 +1,145 @@
+package mazelib.tests;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class SkeletonSolverTest {
+
+	private static final int MAZE_WIDTH = 21;
+	private static final int MAZE_HEIGHT = 15;
+	private static final int SCALE = 7;
+	private static final int QUERY_COUNT = 200;
+
+	/**
+	 * This test checks that the skeleton is a thin subset of the passable
+	 * pixels of a maze with wide corridors, and that a cancelled token
+	 * stops thinning.
+	 */
+	@Test
+	public void testThinning()
+	{
+		Maze maze = thickMaze();
+		BitGrid grid = maze.getPassabilityGrid();
+		Skeleton skeleton = new Skeleton(maze);
+
+		for (int y = 0; y < maze.getHeight(); y++)
+		{
+			for (int x = 0; x < maze.getWidth(); x++)
+			{
+				assertTrue(!skeleton.contains(x, y) || grid.get(x, y));
+			}
+		}
+		assertTrue(skeleton.getPixelCount() > 0);
+		assertTrue(skeleton.getPixelCount() * 3 < grid.count());
+		assertTrue(skeleton.isValid());
+		assertTrue(skeleton.isComplete());
+
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		ForkJoinPool pool = new ForkJoinPool(2);
+		Skeleton stopped = new Skeleton(maze, pool, token);
+		pool.shutdown();
+		assertFalse(stopped.isComplete());
+		assertEquals(0, stopped.getPassCount());
+	}
+
+	/**
+	 * This test checks that skeleton paths are valid move by move, no
+	 * shorter than A* paths, less than a fifth longer in total once
+	 * straightened, and null exactly when A* finds nothing.
+	 */
+	@Test
+	public void testQueries()
+	{
+		Maze maze = thickMaze();
+		SkeletonSolver solver = new SkeletonSolver(maze, new DiagonalDistance());
+		QueryChecker checker = checker(maze, solver);
+		checker.checkRandom(QUERY_COUNT);
+		assertTrue(checker.getTotalCost() * 5 <= checker.getOptimalCost() * 6);
+
+		List<Node> solution = solver.solveMaze();
+		assertTrue(solution != null);
+		assertEquals(maze.getEndNode(), solution.get(0));
+		assertEquals(maze.getStartNode(), solution.get(solution.size() - 1));
+	}
+
+	/**
+	 * This test checks queries between two halves of a maze with no way
+	 * across, from a pixel to itself, between pixels of one wide corridor
+	 * off the skeleton, and all of them again on the skeleton rebuilt
+	 * after edits.
+	 */
+	@Test
+	public void testEdgeCases()
+	{
+		Maze maze = thickMaze();
+		QueryChecker.split(maze);
+		SkeletonSolver solver = new SkeletonSolver(maze, new DiagonalDistance());
+		QueryChecker checker = checker(maze, solver);
+
+		for (int round = 0; round < 2; round++)
+		{
+			assertNull(solver.solve(new Position(0, 0), new Position(maze.getWidth() - 1, maze.getHeight() - 1)));
+			checker.checkRandom(QUERY_COUNT);
+			checker.checkNearby(QUERY_COUNT, SCALE);
+			for (int i = 0; i < QUERY_COUNT; i++)
+			{
+				Position position = QueryChecker.randomPosition(maze);
+				checker.check(position, position);
+			}
+
+			QueryChecker.toggleCells(maze, 100);
+			QueryChecker.split(maze);
+		}
+		assertTrue(checker.getTotalCost() * 5 <= checker.getOptimalCost() * 6);
+	}
+
+	/**
+	 * @return a QueryChecker comparing the queries of solver to shortest paths
+	 */
+	private static QueryChecker checker(Maze maze, final SkeletonSolver solver)
+	{
+		return new QueryChecker(maze, false, new QueryChecker.Engine() {
+
+			@Override
+			public SolutionPath solve(Position start, Position end)
+			{
+				return solver.solve(start, end);
+			}
+		});
+	}
+
+	/**
+	 * @return a generated maze drawn SCALE pixels per cell, dark is passable
+	 */
+	private Maze thickMaze()
+	{
+		Maze cells = new Maze(MAZE_WIDTH, MAZE_HEIGHT);
+		BufferedImage image = new BufferedImage(MAZE_WIDTH * SCALE, MAZE_HEIGHT * SCALE,
+												BufferedImage.TYPE_INT_RGB);
+
+		for (int y = 0; y < image.getHeight(); y++)
+		{
+			for (int x = 0; x < image.getWidth(); x++)
+			{
+				boolean passable = cells.getNode(x / SCALE, y / SCALE).getIsPassable();
+				image.setRGB(x, y, passable ? Color.black.getRGB() : Color.white.getRGB());
+			}
+		}
+
+		Position start = cells.getStartNode().getPosition();
+		Position end = cells.getEndNode().getPosition();
+		return new Maze(image,
+						new Position(start.getX() * SCALE + SCALE / 2, start.getY() * SCALE + SCALE / 2),
+						new Position(end.getX() * SCALE + SCALE / 2, end.getY() * SCALE + SCALE / 2));
+	}
+
+}
@@ -0,0 +1,179 @@
+package mazelib.tests;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import mazelib.data.*;
+
+public class SolutionPathTest {
+
+	private static final String MAZE_STRING =
+			"##############\n" +
+			"#S      X   X#\n" +
+			"#XXXXXX XXX X#\n" +
+			"#           X#\n" +
+			"#XXXXXXXXXX E#\n" +
+			"##############\n";
+
+	private static final int[] DIRECTIONS = {
+			Direction.EAST, Direction.SOUTH_EAST, Direction.SOUTH,
+			Direction.WEST, Direction.NORTH_WEST, Direction.NORTH };
+
+	/**
+	 * This test checks the end cell, length and cost of a hand made path.
+	 */
+	@Test
+	public void testConstruction()
+	{
+		SolutionPath path = new SolutionPath(5, 5, DIRECTIONS);
+
+		assertEquals(6, path.getLength());
+		assertEquals(5, path.getStartX());
+		assertEquals(5, path.getStartY());
+		assertEquals(5, path.getEndX());
+		assertEquals(5, path.getEndY());
+		assertEquals(4 * 100 + 2 * 141, path.getCost());
+
+		for (int i = 0; i < DIRECTIONS.length; i++)
+		{
+			assertEquals(DIRECTIONS[i], path.getDirection(i));
+		}
+	}
+
+	/**
+	 * This test checks that a path survives serialization unchanged,
+	 * including paths that span several packed words.
+	 */
+	@Test
+	public void testSerialization()
+	{
+		int[] directions = new int[1000];
+		for (int i = 0; i < directions.length; i++)
+		{
+			directions[i] = (i * 7 + i / 3) % Direction.COUNT;
+		}
+
+		SolutionPath path = new SolutionPath(3, 4, directions);
+		byte[] bytes = path.toByteArray();
+
+		// 3 ints of header plus 3 bits per step
+		assertEquals(12 + (1000 * 3 + 7) / 8, bytes.length);
+		assertEquals(path, SolutionPath.fromByteArray(bytes));
+
+		SolutionPath empty = new SolutionPath(1, 1, new int[0]);
+		assertEquals(empty, SolutionPath.fromByteArray(empty.toByteArray()));
+	}
+
+	/**
+	 * This test checks that solveMaze() lists run from the end back to the
+	 * start as they always have, that the Node List views match the path
+	 * cells in any order of access, and turn back into the same path.
+	 */
+	@Test
+	public void testNodeList()
+	{
+		Maze maze = new Maze(MAZE_STRING, false);
+		AStarAlgorithm solver = new AStarAlgorithm(maze, new DiagonalDistance());
+		List<Node> solution = solver.solveMaze();
+		SolutionPath path = solver.getSolutionPath();
+
+		assertTrue(solution != null);
+		assertEquals(path.getLength() + 1, solution.size());
+		assertEquals(maze.getEndNode(), solution.get(0));
+		assertEquals(maze.getStartNode(), solution.get(solution.size() - 1));
+
+		List<Node> forward = path.asNodeList(maze);
+		assertEquals(maze.getStartNode(), forward.get(0));
+		assertEquals(maze.getEndNode(), forward.get(forward.size() - 1));
+
+		int step = 0;
+		for (Position position : path)
+		{
+			assertEquals(forward.get(step).getPosition(), position);
+			assertEquals(solution.get(path.getLength() - step).getPosition(), position);
+			step++;
+		}
+		assertEquals(solution.size(), step);
+
+		// Random access jumps around both ends and the middle
+		Random random = new Random(26);
+		for (int i = 0; i < 200; i++)
+		{
+			int index = random.nextInt(forward.size());
+			assertEquals(forward.get(index), solution.get(path.getLength() - index));
+		}
+
+		assertEquals(path, SolutionPath.fromNodes(forward));
+	}
+
+	/**
+	 * This test checks that damaged serialized paths are rejected before
+	 * anything is allocated for them.
+	 */
+	@Test
+	public void testDamagedBytes()
+	{
+		byte[] bytes = new SolutionPath(2, 3, new int[] { 0, 2, 4, 6, 1 }).toByteArray();
+		int[] lengths = { -1, Integer.MAX_VALUE, 6, 100 };
+
+		for (int length : lengths)
+		{
+			byte[] damaged = bytes.clone();
+			damaged[8] = (byte) (length >>> 24);
+			damaged[9] = (byte) (length >>> 16);
+			damaged[10] = (byte) (length >>> 8);
+			damaged[11] = (byte) length;
+			try
+			{
+				SolutionPath.fromByteArray(damaged);
+				fail("Length " + length + " was accepted.");
+			}
+			catch (IllegalArgumentException e)
+			{
+			}
+		}
+
+		try
+		{
+			SolutionPath.fromByteArray(new byte[5]);
+			fail("Truncated header was accepted.");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	/**
+	 * This test checks that illegal paths are rejected.
+	 */
+	@Test
+	public void testIllegalPath()
+	{
+		boolean caught = false;
+		try
+		{
+			new SolutionPath(0, 0, new int[] { Direction.COUNT });
+		}
+		catch (IllegalArgumentException e)
+		{
+			caught = true;
+		}
+		assertTrue(caught);
+
+		caught = false;
+		try
+		{
+			new SolutionPath(0, 0, DIRECTIONS).getDirection(DIRECTIONS.length);
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			caught = true;
+		}
+		assertTrue(caught);
+	}
+
+}